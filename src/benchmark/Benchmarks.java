@@ -0,0 +1,274 @@
+package benchmark;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Random;
+
+import player.Evaluator;
+import player.GameSearcher;
+import ruleset.antichess.EnCastleAC;
+import ruleset.connectn.ConnectNRuleSet;
+import ruleset.eval.EvaluatorFactory;
+import engine.adt.Board;
+import engine.adt.MoveList;
+import engine.adt.Piece;
+import engine.adt.Ply;
+import engine.adt.RuleSet;
+import engine.game.GameInfo;
+import engine.game.GameMessage;
+import engine.game.GameTermination;
+import engine.game.Perft;
+
+/**
+ * Runs the engine's benchmarks: ply generation per type of piece,
+ * <code>continueGame</code> for antichess and Connect-N, cloning boards,
+ * making plies, alpha-beta searches to fixed depths, and perft (counting
+ * the positions reachable in a number of plies).
+ *
+ * The positions are reached by playing reproducible pseudo-random games
+ * from the initial position, so the numbers of different runs, and of
+ * different versions of the engine, can be compared.
+ *
+ * Usage: <tt>java benchmark.Benchmarks [-w warmups] [-i iterations]
+ * [-t millis] [filter]</tt>. Only the benchmarks whose names contain
+ * <tt>filter</tt> are run.
+ */
+public class Benchmarks {
+
+	/**
+	 * Default number of warmup iterations, measured iterations, and
+	 * duration of each iteration in milliseconds.
+	 */
+	private static final int WARMUPS = 3;
+	private static final int ITERATIONS = 5;
+	private static final long ITERATION_MILLIS = 1000;
+
+	/**
+	 * A position of a game, and what is needed to continue it.
+	 */
+	private static class Position {
+		private final String name;
+		private final RuleSet rs;
+		private final Board board;
+		private final List<Boolean> turnHistory;
+		private final GameInfo info;
+
+		private Position(String name, RuleSet rs, Board board,
+				List<Boolean> turnHistory, GameInfo info) {
+			this.name = name;
+			this.rs = rs;
+			this.board = board;
+			this.turnHistory = turnHistory;
+			this.info = info;
+		}
+	}
+
+	public static void main(String[] args) throws Throwable {
+		int warmups = WARMUPS;
+		int iterations = ITERATIONS;
+		long millis = ITERATION_MILLIS;
+		String filter = null;
+		try {
+			for (int i = 0; i < args.length; i++) {
+				if (args[i].equals("-w"))
+					warmups = Integer.parseInt(args[++i]);
+				else if (args[i].equals("-i"))
+					iterations = Integer.parseInt(args[++i]);
+				else if (args[i].equals("-t"))
+					millis = Long.parseLong(args[++i]);
+				else
+					filter = args[i];
+			}
+		} catch (RuntimeException e) {
+			System.err.println("Usage: java benchmark.Benchmarks "
+					+ "[-w warmups] [-i iterations] [-t millis] [filter]");
+			return;
+		}
+
+		Harness harness = new Harness(warmups, iterations, millis, filter,
+				System.out);
+		harness.printHeader();
+
+		RuleSet antichess = new EnCastleAC();
+		List<Position> positions = new ArrayList<Position>();
+		positions.add(play("initial", antichess, 0, 0));
+		positions.add(play("opening", antichess, 1, 10));
+		positions.add(play("middlegame", antichess, 2, 30));
+		positions.add(play("endgame", antichess, 2, 80));
+
+		for (Position p : positions)
+			getPlies(harness, p);
+		for (Position p : positions)
+			continueGame(harness, "antichess.continueGame", p);
+		for (Position p : positions)
+			boards(harness, p);
+		Evaluator evaluator = new EvaluatorFactory().createEvaluator(1);
+		for (Position p : positions)
+			for (int depth = 2; depth <= 3; depth++)
+				alphabeta(harness, p, evaluator, depth);
+		for (int depth = 2; depth <= 3; depth++)
+			perft(harness, positions.get(0), depth);
+		perft(harness, positions.get(2), 3);
+
+		RuleSet connectN = new ConnectNRuleSet();
+		continueGame(harness, "connectn.continueGame",
+				play("initial", connectN, 0, 0));
+		continueGame(harness, "connectn.continueGame",
+				play("middlegame", connectN, 4, 12));
+
+		if (harness.getSink() == 42)
+			System.out.println();
+	}
+
+	/**
+	 * Measures <code>Piece.getPlies</code>, and its overload that appends
+	 * codes to a <code>MoveList</code>, for the pieces of each type in
+	 * <code>p</code>.
+	 */
+	private static void getPlies(Harness harness, Position p)
+			throws Exception {
+		for (String type : p.rs.pieceFactory().getOrderedPieces()) {
+			final List<Piece> pieces = new ArrayList<Piece>();
+			for (boolean color : new boolean[] {true, false})
+				for (Piece piece : p.board.getPieces(color))
+					if (piece.getType().equals(type))
+						pieces.add(piece);
+			if (pieces.isEmpty())
+				continue;
+			harness.run("getPlies." + type + " " + p.name, new Harness.Task() {
+				public long run() {
+					long plies = 0;
+					for (Piece piece : pieces)
+						plies += piece.getPlies().size();
+					return plies;
+				}
+			});
+			final MoveList moves = new MoveList();
+			harness.run("getPlies(MoveList)." + type + " " + p.name,
+					new Harness.Task() {
+				public long run() {
+					moves.clear();
+					for (Piece piece : pieces)
+						piece.getPlies(moves);
+					return moves.size();
+				}
+			});
+		}
+	}
+
+	/**
+	 * Measures <code>RuleSet.continueGame</code> in <code>p</code>.
+	 */
+	private static void continueGame(Harness harness, String name,
+			final Position p) throws Exception {
+		harness.run(name + " " + p.name, new Harness.Task() {
+			public long run() {
+				try {
+					return p.rs.continueGame(p.board, p.turnHistory,
+							new ArrayList<GameMessage>()).getPlies().size();
+				} catch (GameTermination gt) {
+					// positions are chosen so that the game goes on
+					return 0;
+				}
+			}
+		});
+	}
+
+	/**
+	 * Measures cloning the board of <code>p</code>, making and taking back
+	 * each of its plies, and executing each of them on a clone.
+	 */
+	private static void boards(Harness harness, final Position p)
+			throws Exception {
+		harness.run("Board.clone " + p.name, new Harness.Task() {
+			public long run() {
+				return p.board.clone().getPieces(true).size();
+			}
+		});
+		harness.run("Board.makePly+undoPly " + p.name, new Harness.Task() {
+			public long run() {
+				for (Ply ply : p.info.getPlies())
+					p.board.undoPly(p.board.makePly(ply));
+				return p.info.getPlies().size();
+			}
+		});
+		harness.run("Board.clone+executePly " + p.name, new Harness.Task() {
+			public long run() {
+				for (Ply ply : p.info.getPlies()) {
+					Board copy = p.board.clone();
+					copy.executePly(p.rs.plyFactory().getPly(ply.toString(),
+							copy));
+				}
+				return p.info.getPlies().size();
+			}
+		});
+	}
+
+	/**
+	 * Measures an alpha-beta search of <code>p</code> to the given depth,
+	 * without a transposition table.
+	 */
+	private static void alphabeta(Harness harness, final Position p,
+			final Evaluator evaluator, final int depth) throws Exception {
+		harness.run("GameSearcher.alphabeta(" + depth + ") " + p.name,
+				new Harness.Task() {
+			public long run() {
+				GameSearcher.alphabeta(p.rs, evaluator, p.board,
+						p.turnHistory, p.info, depth, -Integer.MAX_VALUE,
+						Integer.MAX_VALUE);
+				return 1;
+			}
+		});
+	}
+
+	/**
+	 * Measures counting the positions reachable from <code>p</code> in
+	 * <code>depth</code> plies; the items are the positions counted.
+	 */
+	private static void perft(Harness harness, final Position p,
+			final int depth) throws Exception {
+		harness.run("perft(" + depth + ") " + p.name, new Harness.Task() {
+			public long run() {
+				return Perft.count(p.rs, p.board, p.turnHistory, depth);
+			}
+		});
+	}
+
+	/**
+	 * Returns the position reached by playing up to <code>plies</code>
+	 * pseudo-random plies from the initial position of <code>rs</code>,
+	 * chosen by a generator seeded with <code>seed</code>. Plies are
+	 * chosen from the valid ones sorted by name, so that the same position
+	 * is reached in every run. The game stops early rather than end.
+	 */
+	private static Position play(String name, RuleSet rs, long seed,
+			int plies) throws GameTermination {
+		Random random = new Random(seed);
+		Board board = rs.boardFactory().getInitialBoard();
+		List<Boolean> turnHistory = new ArrayList<Boolean>();
+		GameInfo info = rs.continueGame(board, turnHistory,
+				new ArrayList<GameMessage>());
+		for (int i = 0; i < plies; i++) {
+			List<String> names = new ArrayList<String>();
+			for (Ply ply : info.getPlies())
+				names.add(ply.toString());
+			Collections.sort(names);
+			Board next = board.clone();
+			next.executePly(rs.plyFactory().getPly(
+					names.get(random.nextInt(names.size())), next));
+			List<Boolean> nextHistory = new ArrayList<Boolean>(turnHistory);
+			nextHistory.add(info.getTurn());
+			try {
+				info = rs.continueGame(next, nextHistory,
+						new ArrayList<GameMessage>());
+			} catch (GameTermination gt) {
+				break;
+			}
+			board = next;
+			turnHistory = nextHistory;
+		}
+		return new Position(name + "/" + turnHistory.size(), rs, board,
+				turnHistory, info);
+	}
+}
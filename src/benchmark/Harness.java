@@ -0,0 +1,206 @@
+package benchmark;
+
+import java.io.PrintStream;
+import java.util.Locale;
+
+/**
+ * A <code>Harness</code> measures how long operations take, in the manner
+ * of a microbenchmark framework: each operation is first run for a number
+ * of warmup iterations, so that the virtual machine compiles it, and then
+ * for a number of measured iterations. An iteration runs the operation
+ * over and over for a fixed time. The harness reports the mean time per
+ * operation over the measured iterations, with its standard deviation,
+ * and the number of items (e.g. plies or nodes) processed per second.
+ *
+ * Results of the operations are consumed by the harness, so that the
+ * virtual machine cannot discard the work that produces them.
+ */
+public class Harness {
+
+	/**
+	 * An operation to be measured.
+	 */
+	public interface Task {
+		/**
+		 * Runs the operation once.
+		 *
+		 * @return the number of items the operation processed (e.g. the
+		 * 			number of plies generated, or of nodes visited)
+		 */
+		long run() throws Exception;
+	}
+
+	/**
+	 * The measurements of one operation. A <code>Result</code> is
+	 * immutable.
+	 */
+	public static class Result {
+		private final String name;
+		private final double nanosPerOp;
+		private final double error;
+		private final double itemsPerSecond;
+
+		private Result(String name, double nanosPerOp, double error,
+				double itemsPerSecond) {
+			this.name = name;
+			this.nanosPerOp = nanosPerOp;
+			this.error = error;
+			this.itemsPerSecond = itemsPerSecond;
+		}
+
+		/**
+		 * Returns the name of the operation.
+		 */
+		public String getName() {
+			return name;
+		}
+
+		/**
+		 * Returns the mean time, in nanoseconds, an operation took.
+		 */
+		public double getNanosPerOp() {
+			return nanosPerOp;
+		}
+
+		/**
+		 * Returns the standard deviation of the time per operation over the
+		 * measured iterations, in nanoseconds.
+		 */
+		public double getError() {
+			return error;
+		}
+
+		/**
+		 * Returns the number of items processed per second.
+		 */
+		public double getItemsPerSecond() {
+			return itemsPerSecond;
+		}
+	}
+
+	//Fields
+
+	private final int warmups;
+
+	private final int iterations;
+
+	private final long iterationMillis;
+
+	private final String filter;
+
+	private final PrintStream out;
+
+	/**
+	 * Consumes the results of the operations.
+	 */
+	private long sink = 0;
+
+	/**
+	 * Creates a new <code>Harness</code>.
+	 *
+	 * @param warmups the number of warmup iterations
+	 * @param iterations the number of measured iterations
+	 * @param iterationMillis the time, in milliseconds, each iteration
+	 * 			runs for
+	 * @param filter only operations whose names contain it are run; if
+	 * 			<code>null</code>, all of them are
+	 * @param out where the results are printed
+	 * @throws IllegalArgumentException if <code>warmups &lt; 0</code>,
+	 * 			<code>iterations &lt; 1</code>, or
+	 * 			<code>iterationMillis &lt; 1</code>
+	 */
+	public Harness(int warmups, int iterations, long iterationMillis,
+			String filter, PrintStream out) {
+		if (warmups < 0 || iterations < 1 || iterationMillis < 1)
+			throw new IllegalArgumentException("Invalid harness settings");
+		this.warmups = warmups;
+		this.iterations = iterations;
+		this.iterationMillis = iterationMillis;
+		this.filter = filter;
+		this.out = out;
+	}
+
+	/**
+	 * Prints the settings of <tt>this</tt> and of the virtual machine, and
+	 * the heading of the table of results.
+	 */
+	public void printHeader() {
+		out.println("# JVM: " + System.getProperty("java.vm.name") + " "
+				+ System.getProperty("java.version") + ", "
+				+ Runtime.getRuntime().availableProcessors() + " processors");
+		out.println("# Warmup: " + warmups + " x " + iterationMillis
+				+ " ms, measurement: " + iterations + " x "
+				+ iterationMillis + " ms");
+		out.println(String.format(Locale.US, "%-44s %14s %12s %14s",
+				"Benchmark", "us/op", "error", "items/s"));
+	}
+
+	/**
+	 * Measures <code>task</code> and prints the result, unless its name
+	 * does not match the filter of <tt>this</tt>.
+	 *
+	 * @return the result, or <code>null</code> if the task was not run
+	 * @throws Exception if <code>task</code> throws an exception
+	 */
+	public Result run(String name, Task task) throws Exception {
+		if (filter != null && !name.contains(filter))
+			return null;
+		for (int i = 0; i < warmups; i++)
+			iteration(task);
+
+		double[] nanosPerOp = new double[iterations];
+		long totalItems = 0;
+		long totalNanos = 0;
+		for (int i = 0; i < iterations; i++) {
+			long[] measured = iteration(task);
+			nanosPerOp[i] = (double) measured[2] / measured[0];
+			totalItems += measured[1];
+			totalNanos += measured[2];
+		}
+
+		double mean = 0;
+		for (double x : nanosPerOp)
+			mean += x;
+		mean /= iterations;
+		double variance = 0;
+		for (double x : nanosPerOp)
+			variance += (x - mean) * (x - mean);
+		double error = iterations > 1 ?
+				Math.sqrt(variance / (iterations - 1)) : 0;
+		Result result = new Result(name, mean, error,
+				totalItems * 1e9 / totalNanos);
+		out.println(String.format(Locale.US, "%-44s %14.3f %12.3f %14.0f",
+				name, mean / 1000, error / 1000, result.getItemsPerSecond()));
+		return result;
+	}
+
+	/**
+	 * Returns a value derived from all the results consumed so far. It is
+	 * meaningless, but reading it keeps the results alive.
+	 */
+	public long getSink() {
+		return sink;
+	}
+
+	/**
+	 * Runs <code>task</code> for <code>iterationMillis</code>.
+	 *
+	 * @return the number of operations, the number of items processed, and
+	 * 			the elapsed nanoseconds
+	 */
+	private long[] iteration(Task task) throws Exception {
+		long ops = 0;
+		long items = 0;
+		long start = System.nanoTime();
+		long deadline = start + iterationMillis * 1000000L;
+		long now;
+		do {
+			long processed = task.run();
+			items += processed;
+			sink = sink * 31 + processed;
+			ops++;
+			now = System.nanoTime();
+		} while (now < deadline);
+		return new long[] {ops, items, now - start};
+	}
+}
@@ -200,12 +200,37 @@ public final class Controller { //Cannot be instantiated
 		return game.getCapturedPieces(isWhite);
 	}
 	/**
-	 * Returns the Board in which the Game is being played.
+	 * Returns a copy of the Board in which the Game is being played, as it
+	 * is now. Each call makes a new copy, which belongs to the caller: it
+	 * is not changed by later plies, and changing it (e.g. to search from 
+	 * it) affects neither the Game nor the copies of other callers. 
 	 */
 	public synchronized Board getBoard() {
 
 		checkRep(); 
-		return game.getBoard(); //repexp
+		return game.getBoard().clone(); 
+	}
+	
+	/**
+	 * Same as <code>getBoard()</code>, except that the copy is confined to
+	 * the calling thread (see <code>Board.confinedClone</code>), as the 
+	 * boards searched by players are. 
+	 */
+	public synchronized Board getConfinedBoard() {
+		checkRep(); 
+		return game.getBoard().confinedClone(); 
+	}
+	
+	/**
+	 * Returns the key of the position of the Board in which the Game is 
+	 * being played, as it is now, with white to play next iff 
+	 * <code>isWhiteTurn</code> (see <code>Board.getPositionKey</code>). 
+	 * Unlike <code>getBoard().getPositionKey(isWhiteTurn)</code>, it does 
+	 * not copy the Board. 
+	 */
+	public synchronized long getPositionKey(boolean isWhiteTurn) {
+		checkRep(); 
+		return game.getBoard().getPositionKey(isWhiteTurn); 
 	}
 
 	/**
@@ -298,7 +323,7 @@ public final class Controller { //Cannot be instantiated
 			return false; 
 		
 		//Make ply with current board and check if valid
-		return (game.isValid(rs.plyFactory().getPly(ply, getBoard()))) != null;
+		return (game.isValid(rs.plyFactory().getPly(ply, game.getBoard()))) != null;
 	}
 
 	/**
@@ -510,7 +535,7 @@ public final class Controller { //Cannot be instantiated
 
 
 			try {
-				game.executePly(rs.plyFactory().getPly(ply, getBoard()));	
+				game.executePly(rs.plyFactory().getPly(ply, game.getBoard()));	
 			}
 			catch (GameTermination term) {
 				termination = term;  
@@ -410,6 +410,37 @@ public class XmlFactory {
 		}		
 	}
 	
+	/**
+	 * Returns the winner of the game in the xml game file: <tt>true</tt>
+	 * if white won, <tt>false</tt> if black won, or <tt>null</tt> if the
+	 * game was saved before it was over or an error happens.
+	 * 
+	 * @param file The file from which the winner is to be retrieved
+	 */
+	public static Boolean xmlToWinner(File file) {
+		try {
+			Document document = getDocument(file);
+			NodeList nodes = document.getElementsByTagName("gameOver"); 
+			
+			if (nodes.getLength() == 0)
+				return null;
+			String winner = ((Element) nodes.item(0)).getAttribute("winner");
+			if (winner.equals("white"))
+				return true;
+			else if (winner.equals("black"))
+				return false;
+			else
+				return null;
+
+		} catch (ParserConfigurationException e) {
+			return null;
+		} catch (SAXException e) {
+			return null;
+		} catch (IOException e) {
+			return null;
+		}		
+	}
+	
 	/**
 	 * Constructs an XML representation of a Game 
 	 * @param times
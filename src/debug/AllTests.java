@@ -7,6 +7,8 @@ import junit.framework.Test;
 import junit.framework.TestSuite;
 import engine.adt.test.AdtTests;
 import engine.game.test.GameTest;
+import engine.game.test.PerftTest;
+import player.test.PlayerTests;
 import ruleset.test.RuleSetTests;
 
 /**
@@ -20,8 +22,10 @@ public class AllTests {
 		
 		suite.addTest(AdtTests.suite());
 		suite.addTest(RuleSetTests.suite());
+		suite.addTest(PlayerTests.suite());
 		suite.addTest(TextUIScriptFileTests.suite());
 		suite.addTestSuite(GameTest.class);
+		suite.addTestSuite(PerftTest.class);
 //		suite.addTestSuite(TimerTest.class);
 		suite.addTestSuite(XmlFactTest.class);
 
@@ -1,5 +1,6 @@
 package engine.adt;
 
+import java.util.Arrays;
 import java.util.Collection;
 import java.util.Collections;
 import java.util.EmptyStackException;
@@ -42,7 +43,9 @@ import engine.exception.UnusableCellException;
  * is also invalid. 
  * 
  * A <code>Board</code> is synchronized, so it can be safely used in multi-threaded
- * environments.
+ * environments. A board that is only ever used by one thread (e.g. the 
+ * private copy of a search) can be obtained through <code>confinedClone</code>;
+ * it skips the synchronization, and must not be shared. 
  * 
  * @specfield cells : Set //The set of all usable cells in this board 
  * @specfield pieces : Set //The set of all pieces contained by 
@@ -66,6 +69,8 @@ public abstract class Board implements Cloneable {
 	 // Rep Invariant
      //
 	 // * piecesWhite, piecesBlack != null
+	 // * listWhite (listBlack) holds exactly the keys of piecesWhite 
+	 //   (piecesBlack)
 	 //
 	
 	/**
@@ -76,9 +81,29 @@ public abstract class Board implements Cloneable {
 			if (piecesWhite == null ||
 				piecesBlack == null)
 				throw new RuntimeException("The piece list is null"); 
+			if (listWhite.size != piecesWhite.size() ||
+				listBlack.size != piecesBlack.size())
+				throw new RuntimeException("The piece counts are wrong"); 
 			
 		}	
 	}
+	
+	/**
+	 * Checks that the position key is up to date. This is not part of
+	 * checkRep() because pieces may query <tt>this</tt> while they update
+	 * their information, before the key is updated accordingly. 
+	 */
+	private void checkKey() {
+		if (DebugInfo.DEBUG_ADT) {
+			long key = 0L;
+			for (Map.Entry<Piece, int[]> entry : piecesWhite.entrySet())
+				key ^= Zobrist.key(entry.getKey(), entry.getValue());
+			for (Map.Entry<Piece, int[]> entry : piecesBlack.entrySet())
+				key ^= Zobrist.key(entry.getKey(), entry.getValue());
+			if (key != positionKey)
+				throw new RuntimeException("The position key is out of date");
+		}
+	}
 
 	
 	/** 
@@ -128,10 +153,178 @@ public abstract class Board implements Cloneable {
 		}
 	}
 	
+	/**
+	 * An <code>Undo</code> is a record of the changes that a
+	 * <code>Ply</code> executed through <code>makePly</code> made to the
+	 * board that created it: the pieces that were added and removed, in
+	 * order, and the information that the pieces whose information the ply
+	 * changed had gathered before it was executed. It is used by 
+	 * <code>undoPly</code> to take the ply back.
+	 * 
+	 * An <code>Undo</code> can only be used once for each ply it records; 
+	 * once used, it can be given back to <code>makePly(Ply, Undo)</code> to
+	 * record another ply without allocating. 
+	 * 
+	 * @see Board#makePly(Ply)
+	 * @see Board#undoPly(Undo)
+	 */
+	public class Undo {
+		// The silent additions (added[i]==true) and removals performed, in
+		// the order they were performed.
+		private Piece[] pieces = new Piece[6];
+		private int[][] cells = new int[6][];
+		private boolean[] added = new boolean[6];
+		private int size = 0;
+		
+		// The pieces whose information the ply changed, along with the 
+		// information they had gathered before it was executed.
+		private Piece[] statePieces = new Piece[4];
+		private int[] states = new int[4];
+		private int stateSize = 0;
+		
+		private boolean undone = false;
+		
+		//AF(x) = the sequence of changes (added[i], pieces[i], cells[i]),
+		//        0 <= i < size, plus the snapshot statePieces[j] -> 
+		//        states[j], 0 <= j < stateSize
+		//RI: 0 <= size <= pieces.length == cells.length == added.length, 
+		//    0 <= stateSize <= statePieces.length == states.length, 
+		//    statePieces[j] distinct
+		
+		private Undo() {
+		}
+		
+		/**
+		 * Clears <tt>this</tt>, which has been used, so that it records 
+		 * another ply. 
+		 */
+		private Undo reset() {
+			if (!undone)
+				throw new IllegalArgumentException("Undo record in use");
+			Arrays.fill(pieces, 0, size, null);
+			Arrays.fill(cells, 0, size, null);
+			Arrays.fill(statePieces, 0, stateSize, null);
+			size = 0;
+			stateSize = 0;
+			undone = false;
+			return this;
+		}
+		
+		private void logState(Piece piece, int state) {
+			if (stateSize == statePieces.length) {
+				Piece[] newPieces = new Piece[stateSize * 2];
+				int[] newStates = new int[stateSize * 2];
+				System.arraycopy(statePieces, 0, newPieces, 0, stateSize);
+				System.arraycopy(states, 0, newStates, 0, stateSize);
+				statePieces = newPieces;
+				states = newStates;
+			}
+			statePieces[stateSize] = piece;
+			states[stateSize] = state;
+			stateSize++;
+		}
+		
+		private void log(boolean add, Piece piece, int[] cell) {
+			if (size == pieces.length) {
+				Piece[] newPieces = new Piece[size * 2];
+				int[][] newCells = new int[size * 2][];
+				boolean[] newAdded = new boolean[size * 2];
+				System.arraycopy(pieces, 0, newPieces, 0, size);
+				System.arraycopy(cells, 0, newCells, 0, size);
+				System.arraycopy(added, 0, newAdded, 0, size);
+				pieces = newPieces;
+				cells = newCells;
+				added = newAdded;
+			}
+			pieces[size] = piece;
+			cells[size] = cell;
+			added[size] = add;
+			size++;
+		}
+		
+		private Board owner() {
+			return Board.this;
+		}
+	}
+	
+	
+	/**
+	 * A <code>PieceList</code> holds the pieces of one color in an array, 
+	 * so that they can be iterated over without allocating, along with the
+	 * number of pieces of each type. Pieces are looked up by scanning the 
+	 * array, which is fast for the few pieces a board holds. 
+	 * 
+	 * A <code>PieceList</code> is mutable. 
+	 */
+	private static class PieceList {
+		private Piece[] pieces = new Piece[16];
+		private int size = 0;
+		private Map<String, int[]> types = new HashMap<String, int[]>();
+		
+		//AF(x) = the set {pieces[i] | 0 <= i < size}, where there are
+		//        types.get(t)[0] pieces of type t
+		//RI: 0 <= size <= pieces.length, pieces[i] distinct
+		
+		private void add(Piece piece) {
+			if (size == pieces.length) {
+				Piece[] larger = new Piece[size * 2];
+				System.arraycopy(pieces, 0, larger, 0, size);
+				pieces = larger;
+			}
+			pieces[size++] = piece;
+			int[] count = types.get(piece.getType());
+			if (count == null)
+				types.put(piece.getType(), new int[] {1});
+			else
+				count[0]++;
+		}
+		
+		private void remove(Piece piece) {
+			for (int i = 0; i < size; i++)
+				if (pieces[i] == piece) {
+					pieces[i] = pieces[--size];
+					pieces[size] = null;
+					types.get(piece.getType())[0]--;
+					return;
+				}
+		}
+		
+		private int count(String type) {
+			int[] count = types.get(type);
+			return count == null ? 0 : count[0];
+		}
+		
+		private PieceList copy() {
+			PieceList copy = new PieceList();
+			copy.pieces = pieces.clone();
+			copy.size = size;
+			for (Map.Entry<String, int[]> entry : types.entrySet())
+				copy.types.put(entry.getKey(), entry.getValue().clone());
+			return copy;
+		}
+	}
 	
 	//Fields 
 	private Map<Piece, int[]> piecesWhite; 
 	private Map<Piece, int[]> piecesBlack;
+	
+	/**
+	 * The pieces of each color, kept along with the maps above. 
+	 */
+	private PieceList listWhite;
+	private PieceList listBlack;
+	
+	/**
+	 * The Zobrist key of the pieces in this board, and of the information
+	 * they have gathered. 
+	 */
+	private long positionKey = 0L;
+	
+	/**
+	 * Whether <tt>this</tt> is confined to a single thread, so that its 
+	 * methods need not synchronize. 
+	 */
+	private boolean confined = false;
 		
 	/**
 	 * Constructs an n-dimensional Board. This abstract 
@@ -143,6 +336,8 @@ public abstract class Board implements Cloneable {
 	public Board() {
 		piecesWhite = new HashMap<Piece, int[]>();
 		piecesBlack = new HashMap<Piece, int[]>(); 
+		listWhite = new PieceList();
+		listBlack = new PieceList();
 	}
 	
 	/**
@@ -169,6 +364,33 @@ public abstract class Board implements Cloneable {
 	 *          method execution. 
 	 */
 	protected abstract void safeCopy() ;
+	
+	/**
+	 * Notifies <tt>this</tt> that <tt>piece</tt> has just been placed in the
+	 * cell at <tt>cell</tt>. Subclasses that keep their own indexes of the
+	 * pieces they contain (e.g. occupancy masks) can override this method to
+	 * keep them up to date. The default implementation does nothing.
+	 * 
+	 * @param piece the piece that was added
+	 * @param cell the position at which the piece was added
+	 */
+	protected void pieceAdded(Piece piece, int[] cell) {
+		// nothing to update by default
+	}
+	
+	/**
+	 * Notifies <tt>this</tt> that <tt>piece</tt> has just been taken out of
+	 * the cell at <tt>cell</tt>. The default implementation does nothing.
+	 * 
+	 * @see #pieceAdded(Piece, int[])
+	 * 
+	 * @param piece the piece that was removed
+	 * @param cell the position from which the piece was removed
+	 */
+	protected void pieceRemoved(Piece piece, int[] cell) {
+		// nothing to update by default
+	}
+	
 	// Concrete Methods
 	
 	/**
@@ -183,7 +405,18 @@ public abstract class Board implements Cloneable {
 	 *          set is unaffected. 
 	 *          
 	 */
-	public synchronized Collection<Piece> getPieces(boolean isWhite) {
+	public Collection<Piece> getPieces(boolean isWhite) {
+		if (confined)
+			return pieces(isWhite);
+		synchronized (this) {
+			return pieces(isWhite);
+		}
+	}
+	
+	/**
+	 * Same as <code>getPieces(isWhite)</code>, without synchronization. 
+	 */
+	private Collection<Piece> pieces(boolean isWhite) {
 		checkRep();
 		if (isWhite) {
 			return Collections.unmodifiableSet(
@@ -194,6 +427,79 @@ public abstract class Board implements Cloneable {
 					new HashSet<Piece>(piecesBlack.keySet()));
 	}
 	
+	/**
+	 * Returns the number of pieces of a player, in constant time. 
+	 * 
+	 * @param isWhite The color of the pieces
+	 * @return <code>getPieces(isWhite).size()</code>
+	 */
+	public int pieceCount(boolean isWhite) {
+		if (confined)
+			return (isWhite ? listWhite : listBlack).size;
+		synchronized (this) {
+			return (isWhite ? listWhite : listBlack).size;
+		}
+	}
+	
+	/**
+	 * Returns the number of pieces of a player that are of the given type,
+	 * in constant time. 
+	 * 
+	 * @param isWhite The color of the pieces
+	 * @param type The type of the pieces, as returned by 
+	 * 				<code>Piece.getType()</code>
+	 * @return the number of pieces p in <code>getPieces(isWhite)</code> such
+	 * 			that <code>p.getType().equals(type)</code>
+	 */
+	public int pieceCount(boolean isWhite, String type) {
+		if (confined)
+			return (isWhite ? listWhite : listBlack).count(type);
+		synchronized (this) {
+			return (isWhite ? listWhite : listBlack).count(type);
+		}
+	}
+	
+	/**
+	 * Returns one of the pieces of a player. The pieces are numbered from 0
+	 * to <code>pieceCount(isWhite) - 1</code>, so that they can be iterated
+	 * over without allocating: 
+	 * 
+	 * <pre>
+	 * for (int i = 0; i &lt; board.pieceCount(isWhite); i++) {
+	 *     Piece piece = board.getPiece(isWhite, i);
+	 *     ...
+	 * }</pre>
+	 * 
+	 * The numbering changes when pieces are added or removed, so pieces 
+	 * must not be added or removed while iterating; if <tt>this</tt> is 
+	 * shared by several threads, the caller should hold its lock. 
+	 * 
+	 * @requires <code>0 &lt;= index &lt; pieceCount(isWhite)</code>
+	 * @param isWhite The color of the piece
+	 * @param index The number of the piece
+	 * @return the piece of the given color numbered <code>index</code>
+	 * @throws IndexOutOfBoundsException if <code>index</code> is out of 
+	 * 			range
+	 */
+	public Piece getPiece(boolean isWhite, int index) {
+		if (confined)
+			return pieceOf(isWhite, index);
+		synchronized (this) {
+			return pieceOf(isWhite, index);
+		}
+	}
+	
+	/**
+	 * Same as <code>getPiece(isWhite, index)</code>, without 
+	 * synchronization. 
+	 */
+	private Piece pieceOf(boolean isWhite, int index) {
+		PieceList list = isWhite ? listWhite : listBlack;
+		if (index < 0 || index >= list.size)
+			throw new IndexOutOfBoundsException("No piece numbered " + index);
+		return list.pieces[index];
+	}
+	
 	/**
 	 * Returns the Piece located at the specified cell, if any.
 	 * 
@@ -203,7 +509,18 @@ public abstract class Board implements Cloneable {
 	 * 			in the specified cell, then returns that cell. 
 	 *             
 	 */
-	public synchronized Piece getPiece(int[] cell) {
+	public Piece getPiece(int[] cell) {
+		if (confined)
+			return pieceAt(cell);
+		synchronized (this) {
+			return pieceAt(cell);
+		}
+	}
+	
+	/**
+	 * Same as <code>getPiece(cell)</code>, without synchronization. 
+	 */
+	private Piece pieceAt(int[] cell) {
 		checkRep();
 		if (getCell(cell) == null)
 			return null; 
@@ -221,7 +538,18 @@ public abstract class Board implements Cloneable {
 	 * @return the position of the given piece. If <tt>this.contains(piece)</tt> is
 	 * 		   <tt>false</tt>, returns <tt>null</tt>. 
 	 */
-	public synchronized int[] getPosition(Piece piece) {
+	public int[] getPosition(Piece piece) {
+		if (confined)
+			return positionOf(piece);
+		synchronized (this) {
+			return positionOf(piece);
+		}
+	}
+	
+	/**
+	 * Same as <code>getPosition(piece)</code>, without synchronization. 
+	 */
+	private int[] positionOf(Piece piece) {
 		checkRep();
 		if (piece == null)
 			return null;
@@ -241,8 +569,7 @@ public abstract class Board implements Cloneable {
 	 * @return <tt>true</tt> if <code>piece</code> is contained in <tt>this</tt>, 
 	 * 			and <tt>false</tt> otherwise.
 	 */
-	public synchronized boolean contains(Piece piece) {
-		checkRep();
+	public boolean contains(Piece piece) {
 		// Funny code... does the job though
 		return getPosition(piece) != null;
 	}
@@ -303,8 +630,12 @@ public abstract class Board implements Cloneable {
 	 * @return <tt>true</tt> if a cell is usable or <tt>false</tt> otherwise. 
 	 * 
 	 */
-	public synchronized boolean isUsable(int[] cell) {
-		return getCell(cell) != null;
+	public boolean isUsable(int[] cell) {
+		if (confined)
+			return getCell(cell) != null;
+		synchronized (this) {
+			return getCell(cell) != null;
+		}
 	}
 	
 	/**
@@ -316,8 +647,54 @@ public abstract class Board implements Cloneable {
 	 * 			cell is not empty (occupied or unusable). 
 	 * @requires <code>cell</code> to specify a cell in the Board.
 	 */
-	public synchronized boolean isEmpty(int[] cell) {
-		return getCell(cell) != null && getCell(cell).piece == null;
+	public boolean isEmpty(int[] cell) {
+		if (confined)
+			return getCell(cell) != null && getCell(cell).piece == null;
+		synchronized (this) {
+			return getCell(cell) != null && getCell(cell).piece == null;
+		}
+	}
+	
+	/**
+	 * Returns the Zobrist key of the position represented by <tt>this</tt>
+	 * when the given player is next to play. The key depends on the type,
+	 * color and cell of every piece in <tt>this</tt>, on the information
+	 * the pieces have gathered (e.g. castling or en passant rights) and on
+	 * the player to move. It is kept up to date as pieces are added and
+	 * removed and plies are executed, so it is obtained in constant time.
+	 * 
+	 * Two boards that represent the same position have the same key. 
+	 * Different positions have the same key with very low probability.
+	 * 
+	 * @see Zobrist
+	 * 
+	 * @param isWhiteTurn whether white is next to play
+	 * @return the key of the current position
+	 */
+	public long getPositionKey(boolean isWhiteTurn) {
+		if (confined)
+			return keyFor(isWhiteTurn);
+		synchronized (this) {
+			return keyFor(isWhiteTurn);
+		}
+	}
+	
+	/**
+	 * Same as <code>getPositionKey(isWhiteTurn)</code>, without 
+	 * synchronization. 
+	 */
+	private long keyFor(boolean isWhiteTurn) {
+		checkKey();
+		return isWhiteTurn ? positionKey ^ Zobrist.WHITE_TURN : positionKey;
+	}
+	
+	/**
+	 * Returns <code>true</code> if <tt>this</tt> is confined to a single 
+	 * thread (see <code>confinedClone</code>), so that its methods do not 
+	 * synchronize. Subclasses use it to skip synchronization as well. 
+	 */
+	public boolean isConfined() {
+		return confined;
 	}
 
 	/**
@@ -347,7 +724,152 @@ public abstract class Board implements Cloneable {
 	 * 			If no piece was collected, then the collection is empty. 
 	 * @throws RuntimeException if ply is invalid. 
 	 */
-	public synchronized Collection<Piece> executePly(Ply ply) {
+	public Collection<Piece> executePly(Ply ply) {
+		if (confined)
+			return execute(ply, null);
+		synchronized (this) {
+			return execute(ply, null);
+		}
+	}
+	
+	/**
+	 * Performs the actions contained in <tt>ply</tt> in the same way as
+	 * <code>executePly</code>, and returns a record that can be given to
+	 * <code>undoPly</code> to restore <tt>this</tt>, and the pieces in it,
+	 * to the state they were in before the ply was executed. This allows
+	 * exploring hypothetical plies without cloning the board.
+	 * 
+	 * @requires <code>ply</code> to be a valid ply
+	 * @modifies this, this.pieces, pieces in ply.
+	 * @effects same as <code>executePly(ply)</code>
+	 * 
+	 * @param ply the ply to be executed by <tt>this</tt>
+	 * 
+	 * @return An <code>Undo</code> that takes <tt>ply</tt> back.
+	 * @throws RuntimeException if ply is invalid.
+	 * 
+	 * @see #undoPly(Undo)
+	 */
+	public Undo makePly(Ply ply) {
+		return makePly(ply, null);
+	}
+	
+	/**
+	 * Same as <code>makePly(ply)</code>, except that <tt>reuse</tt>, if it 
+	 * was created by <tt>this</tt>, is cleared and returned as the record 
+	 * of <tt>ply</tt> instead of a new <code>Undo</code>. A search can thus
+	 * keep one record per depth instead of allocating one per ply. 
+	 * 
+	 * @requires <code>ply</code> to be a valid ply
+	 * @modifies this, this.pieces, pieces in ply, reuse
+	 * @effects same as <code>executePly(ply)</code>
+	 * 
+	 * @param ply the ply to be executed by <tt>this</tt>
+	 * @param reuse a record to reuse, or <code>null</code>
+	 * 
+	 * @return An <code>Undo</code> that takes <tt>ply</tt> back.
+	 * @throws RuntimeException if ply is invalid.
+	 * @throws IllegalArgumentException if <tt>reuse</tt> was created by 
+	 * 			<tt>this</tt> and has not been used yet. 
+	 * 
+	 * @see #undoPly(Undo)
+	 */
+	public Undo makePly(Ply ply, Undo reuse) {
+		if (confined)
+			return make(ply, reuse);
+		synchronized (this) {
+			return make(ply, reuse);
+		}
+	}
+	
+	/**
+	 * Same as <code>makePly(ply, reuse)</code>, without synchronization. 
+	 */
+	private Undo make(Ply ply, Undo reuse) {
+		Undo undo = reuse != null && reuse.owner() == this ? reuse.reset() 
+				: new Undo();
+		execute(ply, undo);
+		return undo;
+	}
+	
+	/**
+	 * Takes back the ply that produced <tt>undo</tt>. Plies must be taken
+	 * back in the reverse order in which they were made; that is,
+	 * <tt>undo</tt> must have been returned by the last call to
+	 * <code>makePly</code> on <tt>this</tt> that has not been taken back yet.
+	 * 
+	 * @requires <tt>undo</tt> to be the most recent <code>Undo</code>
+	 * 			returned by <code>this.makePly</code> that has not been used.
+	 * @modifies this, this.pieces
+	 * @effects restores <tt>this</tt> and the information of the pieces
+	 * 			in it to the state they were in before the ply was made.
+	 * 			Pieces that come back to the board are notified via their
+	 * 			added() method, and pieces that leave it via their removed()
+	 * 			method.
+	 * 
+	 * @throws IllegalArgumentException if <tt>undo</tt> was not created by
+	 * 			<tt>this</tt> or has already been used.
+	 */
+	public void undoPly(Undo undo) {
+		if (confined)
+			undo(undo);
+		else {
+			synchronized (this) {
+				undo(undo);
+			}
+		}
+	}
+	
+	/**
+	 * Same as <code>undoPly(undo)</code>, without synchronization. 
+	 */
+	private void undo(Undo undo) {
+		if (undo == null || undo.owner() != this || undo.undone)
+			throw new IllegalArgumentException("Invalid undo record");
+		undo.undone = true;
+		for (int i = undo.size - 1; i >= 0; i--) {
+			if (undo.added[i])
+				removePieceSilent(undo.pieces[i]);
+			else
+				addPieceSilent(undo.pieces[i], undo.cells[i]);
+		}
+		// Notify the pieces whose presence changed, once each: a piece that
+		// the ply took out of the board is back, and a piece that the ply
+		// brought in is gone.
+		for (int i = 0; i < undo.size; i++) {
+			Piece piece = undo.pieces[i];
+			boolean first = true;
+			int last = i;
+			for (int j = 0; j < undo.size; j++)
+				if (undo.pieces[j] == piece) {
+					if (j < i)
+						first = false;
+					last = j;
+				}
+			if (!first)
+				continue;
+			if (!undo.added[last] && contains(piece))
+				piece.added();
+			else if (undo.added[i] && !contains(piece))
+				piece.removed();
+		}
+		for (int i = 0; i < undo.stateSize; i++) {
+			Piece piece = undo.statePieces[i];
+			int state = piece.getState();
+			piece.restoreState(undo.states[i]);
+			stateChanged(piece, state);
+		}
+		checkRep();
+		checkKey();
+	}
+	
+	/**
+	 * Executes <tt>ply</tt>, logging every change made to <tt>undo</tt>
+	 * if it is not <tt>null</tt>.
+	 * 
+	 * @see #executePly(Ply)
+	 */
+	private Collection<Piece> execute(Ply ply, Undo undo) {
 		Stack<Piece> collectedPieces = new Stack<Piece>();
 		if (ply == null) 
 			return collectedPieces;
@@ -366,13 +888,15 @@ public abstract class Board implements Cloneable {
 			}
 		}
 		
-		tellAll(ply); 
+		tellAll(ply, undo); 
 		for (Action ac : ply) {
 			if (ac.getType() == Action.ADD) {
 				if (ac.getPiece() == null) {
 					try { 
 						Piece piece = collectedPieces.pop(); 
 						addPieceSilent(piece, ac.getCell());				
+						if (undo != null)
+							undo.log(true, piece, ac.getCell());
 					}
 					catch (EmptyStackException ese) {
 						throw new IllegalArgumentException("Malformed ply");
@@ -384,6 +908,8 @@ public abstract class Board implements Cloneable {
 				else {
 					try { 
 					addPieceSilent(ac.getPiece(), ac.getCell()); 
+					if (undo != null)
+						undo.log(true, ac.getPiece(), ac.getCell());
 					}
 					catch (UnusableCellException uce) {
 						throw new IllegalArgumentException("Malformed ply");						
@@ -395,7 +921,10 @@ public abstract class Board implements Cloneable {
 				if (toRemove != null) {
 					collectedPieces.push(toRemove); 
 					try { 
+						int[] position = getPosition(toRemove);
 						removePieceSilent(toRemove); 
+						if (undo != null)
+							undo.log(false, toRemove, position);
 					}
 					catch (RuntimeException re) {
 						throw new IllegalArgumentException("Invalid ply"); 
@@ -424,7 +953,38 @@ public abstract class Board implements Cloneable {
 	 * 		   cloned board contains a piece p2 such that p1 is a reproduced
 	 * 		   version of p2. 
 	 */
-	public synchronized Board clone() {
+	public Board clone() {
+		if (confined)
+			return copy();
+		synchronized (this) {
+			return copy();
+		}
+	}
+	
+	/**
+	 * Returns a deep copy of <tt>this</tt> that is confined to the calling
+	 * thread: its methods do not synchronize, so they are faster when it is
+	 * used by a single thread, as search algorithms use their private 
+	 * copies. Clones of the returned board are confined as well. 
+	 * 
+	 * @requires the returned board, and the pieces in it, to be used by 
+	 * 			the calling thread only, unless handed over to another 
+	 * 			thread in a way that makes the other thread see its state 
+	 * 			(e.g. by submitting a task to an <code>Executor</code>), 
+	 * 			after which the calling thread must not use it anymore
+	 * @return A board as described in <code>clone()</code>, such that 
+	 * 			<code>isConfined()</code>. 
+	 */
+	public Board confinedClone() {
+		Board copy = clone();
+		copy.confined = true;
+		return copy;
+	}
+	
+	/**
+	 * Same as <code>clone()</code>, without synchronization. 
+	 */
+	private Board copy() {
 		// deep copy of this with pieces
 		try {
 			// Get a new Board
@@ -434,15 +994,19 @@ public abstract class Board implements Cloneable {
 			
 			copy.piecesWhite = new HashMap<Piece, int[]>(piecesWhite);
 			copy.piecesBlack = new HashMap<Piece, int[]>(piecesBlack);
+			copy.listWhite = listWhite.copy();
+			copy.listBlack = listBlack.copy();
 			// Reproduce white Pieces (with the copied Board) and add them to it
-			for (Piece piece : getPieces(true)) {
-				int[] location = getPosition(piece);
+			for (int i = 0; i < listWhite.size; i++) {
+				Piece piece = listWhite.pieces[i];
+				int[] location = piecesWhite.get(piece);
 				copy.removePieceSilent(piece);
 				copy.addPieceSilent(piece.reproduce(copy), location);
 			}
 			// Reproduce black Pieces (with the copied Board) and add them to it
-			for (Piece piece : getPieces(false)) {
-				int[] location = getPosition(piece);
+			for (int i = 0; i < listBlack.size; i++) {
+				Piece piece = listBlack.pieces[i];
+				int[] location = piecesBlack.get(piece);
 				copy.removePieceSilent(piece);
 				copy.addPieceSilent(piece.reproduce(copy), location);
 			}
@@ -465,19 +1029,49 @@ public abstract class Board implements Cloneable {
 	 * 			and updates its status accordingly. 
 	 * 
 	 * @param ply the ply to be informed 
+	 * @param undo the record to log the information the pieces had 
+	 * 			before to, if it changed, or <code>null</code>
 	 * 
 	 */
-	private synchronized void tellAll(Ply ply) { 
+	private void tellAll(Ply ply, Undo undo) { 
 		// Tell the white Pieces
 
-		for (Piece piece : getPieces(true)) {
+		for (int i = 0; i < listWhite.size; i++) {
+			Piece piece = listWhite.pieces[i];
+			int state = piece.getState();
 			piece.updateInfo(ply); 
+			if (stateChanged(piece, state) && undo != null)
+				undo.logState(piece, state);
 		}
 		// Tell the black Pieces		
 
-		for (Piece piece : getPieces(false)) {
+		for (int i = 0; i < listBlack.size; i++) {
+			Piece piece = listBlack.pieces[i];
+			int state = piece.getState();
 			piece.updateInfo(ply); 
+			if (stateChanged(piece, state) && undo != null)
+				undo.logState(piece, state);
+		}
+	}
+	
+	/**
+	 * Updates the position key after the information gathered by
+	 * <tt>piece</tt>, which is in <tt>this</tt>, may have changed from
+	 * <tt>before</tt>, and returns <code>true</code> if it changed. 
+	 */
+	private boolean stateChanged(Piece piece, int before) {
+		int after = piece.getState();
+		if (after != before) {
+			// Not getPosition(piece): the rep is not consistent until the
+			// key is updated
+			int[] cell = piece.isWhite() ? piecesWhite.get(piece) 
+					: piecesBlack.get(piece);
+			String type = piece.getType();
+			positionKey ^= Zobrist.stateKey(type, piece.isWhite(), cell, before)
+				^ Zobrist.stateKey(type, piece.isWhite(), cell, after);
+			return true;
 		}
+		return false;
 	}
 	
 	/**
@@ -516,10 +1110,16 @@ public abstract class Board implements Cloneable {
 				}
 				else { 
 					container.piece = piece;
-					if (piece.isWhite())
+					if (piece.isWhite()) {
 						piecesWhite.put(piece, cell);
-					else
+						listWhite.add(piece);
+					}
+					else {
 						piecesBlack.put(piece, cell);
+						listBlack.add(piece);
+					}
+					positionKey ^= Zobrist.key(piece, cell);
+					pieceAdded(piece, cell);
 				}
 			}
 			else {
@@ -546,10 +1146,16 @@ public abstract class Board implements Cloneable {
 		if (contains(piece)) {
 			int[] position = getPosition(piece);
 			getCell(position).piece = null;
-			if (piece.isWhite())
+			if (piece.isWhite()) {
 				piecesWhite.remove(piece);
-			else
+				listWhite.remove(piece);
+			}
+			else {
 				piecesBlack.remove(piece);
+				listBlack.remove(piece);
+			}
+			positionKey ^= Zobrist.key(piece, position);
+			pieceRemoved(piece, position);
 		}
 
 		
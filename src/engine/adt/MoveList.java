@@ -0,0 +1,139 @@
+package engine.adt;
+
+/**
+ * A <code>MoveList</code> is a list of ply codes (see
+ * <code>Ply.getCode()</code>) kept in an array of <code>int</code>s, so
+ * that plies can be generated into it without creating objects. The array
+ * grows as needed and is kept when the list is cleared, so a list that is
+ * reused, e.g. through a <code>Pool</code>, stops allocating once it is
+ * large enough.
+ *
+ * A <code>MoveList</code> is mutable and not synchronized.
+ *
+ * @see engine.adt.Piece#getPlies(MoveList)
+ */
+public class MoveList {
+
+	/**
+	 * The initial capacity of lists created without one; enough for the
+	 * plies of most chess positions.
+	 */
+	private static final int DEFAULT_CAPACITY = 64;
+
+	/**
+	 * A <code>Pool</code> keeps a <code>MoveList</code> for each distance
+	 * from the root of a recursive search, so that the search reuses them
+	 * instead of creating lists at every node. It is not synchronized:
+	 * each searching thread should have its own.
+	 */
+	public static class Pool {
+		private MoveList[] lists = new MoveList[0];
+
+		/**
+		 * Returns the list for positions at the given distance from the
+		 * root, cleared.
+		 *
+		 * @requires <code>distance &gt;= 0</code>, and the list previously
+		 * 			returned for <code>distance</code> to be no longer used
+		 */
+		public MoveList get(int distance) {
+			if (distance >= lists.length) {
+				MoveList[] larger = new MoveList[distance + 1];
+				System.arraycopy(lists, 0, larger, 0, lists.length);
+				for (int d = lists.length; d < larger.length; d++)
+					larger[d] = new MoveList();
+				lists = larger;
+			}
+			MoveList list = lists[distance];
+			list.clear();
+			return list;
+		}
+	}
+
+	//Fields
+
+	private int[] codes;
+
+	private int size = 0;
+
+	//AF(l) = the sequence codes[0..size-1]
+	//RI: codes != null, 0 <= size <= codes.length
+
+	/**
+	 * Creates a new, empty <code>MoveList</code>.
+	 */
+	public MoveList() {
+		this(DEFAULT_CAPACITY);
+	}
+
+	/**
+	 * Creates a new, empty <code>MoveList</code> that can hold
+	 * <code>capacity</code> codes before it grows.
+	 *
+	 * @throws IllegalArgumentException if <code>capacity &lt; 0</code>
+	 */
+	public MoveList(int capacity) {
+		if (capacity < 0)
+			throw new IllegalArgumentException("Negative capacity");
+		codes = new int[capacity];
+	}
+
+	/**
+	 * Appends <code>code</code> to <tt>this</tt>.
+	 *
+	 * @modifies this
+	 */
+	public void add(int code) {
+		if (size == codes.length) {
+			int[] larger = new int[Math.max(DEFAULT_CAPACITY, 2 * size)];
+			System.arraycopy(codes, 0, larger, 0, size);
+			codes = larger;
+		}
+		codes[size++] = code;
+	}
+
+	/**
+	 * Returns the code at position <code>i</code>.
+	 *
+	 * @throws IndexOutOfBoundsException if <code>i &lt; 0</code> or
+	 * 			<code>i &gt;= size()</code>
+	 */
+	public int get(int i) {
+		if (i < 0 || i >= size)
+			throw new IndexOutOfBoundsException("Index: " + i);
+		return codes[i];
+	}
+
+	/**
+	 * Returns <code>true</code> if <code>code</code> is in <tt>this</tt>.
+	 */
+	public boolean contains(int code) {
+		for (int i = 0; i < size; i++)
+			if (codes[i] == code)
+				return true;
+		return false;
+	}
+
+	/**
+	 * Returns the number of codes in <tt>this</tt>.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns <code>true</code> if <tt>this</tt> has no codes.
+	 */
+	public boolean isEmpty() {
+		return size == 0;
+	}
+
+	/**
+	 * Removes all the codes from <tt>this</tt>, keeping its capacity.
+	 *
+	 * @modifies this
+	 */
+	public void clear() {
+		size = 0;
+	}
+}
@@ -178,6 +178,30 @@ public abstract class Piece implements Cloneable {
 	 */
 	public abstract void removed();
 	
+	/**
+	 * Returns an integer that encodes all the information this
+	 * <code>Piece</code> has gathered through <code>updateInfo</code>, so
+	 * that it can later be restored with <code>restoreState</code>. A
+	 * <code>Piece</code> that gathers no information returns 0.
+	 * 
+	 * @see #restoreState(int)
+	 */
+	public int getState() {
+		return 0;
+	}
+	
+	/**
+	 * Restores the information this <code>Piece</code> had when
+	 * <code>getState</code> returned <tt>state</tt>.
+	 * 
+	 * @requires <tt>state</tt> to have been returned by
+	 * <code>this.getState()</code>
+	 * @modifies this
+	 */
+	public void restoreState(int state) {
+		// no info to restore
+	}
+	
 	/**
 	 * Returns a <code>List</code> with the possible <code>Plies</code> a
 	 * <code>Piece</code> can perfom according to its local (motion) rules. These
@@ -187,6 +211,22 @@ public abstract class Piece implements Cloneable {
 	 */
 	public abstract List<Ply> getPlies();
 	
+	/**
+	 * Appends to <code>moves</code> the codes of the <code>Plies</code> 
+	 * <code>getPlies()</code> returns, in no particular order. 
+	 * 
+	 * This implementation calls <code>getPlies()</code>. Subclasses should
+	 * override it to generate the codes without creating objects, so that
+	 * searches that only need the codes produce no garbage. 
+	 * 
+	 * @modifies moves
+	 * @see engine.adt.Ply#getCode()
+	 */
+	public void getPlies(MoveList moves) {
+		for (Ply ply : getPlies())
+			moves.add(ply.getCode());
+	}
+	
 	/**
 	 * Returns a <code>String</code> representation of this <code>Piece</code>.
 	 * This representation depends on the type of the <code>Piece</code>. The
@@ -28,6 +28,13 @@ import java.util.Iterator;
 
 public abstract class Ply implements Iterable<Action> {
 
+	/**
+	 * The code of plies that have no compact code. No other ply has it.
+	 * 
+	 * @see #getCode()
+	 */
+	public static final int NO_CODE = 0;
+
 	/** 
 	 * Returns an iterator over the sequence of actions represented by this Ply. 
 	 * 
@@ -58,6 +65,25 @@ public abstract class Ply implements Iterable<Action> {
 	 */ 
 	abstract public String toString(); 
 	
+	/**
+	 * Returns a compact identifier for this Ply, such that two plies that
+	 * can be made in the same position have the same code if and only if
+	 * they have the same <code>String</code> representation. Unlike the 
+	 * latter, the code is computed once, so it can be used to tell plies 
+	 * apart (e.g. in game tree searches) without creating objects. 
+	 * 
+	 * A ply can be created back from its code with 
+	 * <code>RuleSet.plyFactory().getPly(code, board)</code>. 
+	 * 
+	 * @return the code, or <code>NO_CODE</code> if this Ply has none, 
+	 * 			which is the case unless a subclass overrides this method
+	 * 
+	 * @see engine.adt.RuleSet.PlyFactory
+	 */
+	public int getCode() {
+		return NO_CODE;
+	}
+	
 
 	/**
 	 * Verifies that the two plies are equal. 
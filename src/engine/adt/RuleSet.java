@@ -29,10 +29,15 @@ public interface RuleSet {
 
 	/**
 	 * A <code>PlyFactory</code> is a ply creation mechanism. It allows for
-	 * the creation of a <code>Ply</code> given a <code>Board</code>. 
+	 * the creation of a <code>Ply</code> given a <code>Board</code>, from
+	 * either the <code>String</code> representation of the 
+	 * <code>Ply</code> or its code. 
+	 * 
+	 * @see engine.adt.Ply#getCode()
 	 */
 	public interface PlyFactory {
 		public Ply getPly(String name, Board board);
+		public Ply getPly(int code, Board board);
 	}
 	
 	/**
@@ -0,0 +1,84 @@
+package engine.adt;
+
+/**
+ * <code>Zobrist</code> provides the keys used to hash <code>Board</code>
+ * positions with <a href=http://en.wikipedia.org/wiki/Zobrist_hashing>
+ * Zobrist hashing</a>. The key of a position is the exclusive or of the
+ * keys of every <code>Piece</code> in it (determined by its type, color and
+ * cell), of the keys of the information those <code>Piece</code>s have
+ * gathered (e.g. castling or en passant rights), and of
+ * <code>WHITE_TURN</code> if white is next to play.
+ *
+ * Keys are derived from their arguments by a fixed mixing function instead
+ * of a table of random numbers, so they work for any number of dimensions
+ * and any type of <code>Piece</code>, and they are the same in every run.
+ * The latter allows keys to be stored in files (e.g. opening books).
+ */
+public final class Zobrist {
+
+	/**
+	 * Key for the side to move. It is included in a position key if and
+	 * only if white is next to play.
+	 */
+	public static final long WHITE_TURN = mix(0x5741495445545552L);
+
+	/**
+	 * Seeds that separate the keys of pieces from the keys of their
+	 * gathered information.
+	 */
+	private static final long PIECE_SEED = 0x9E3779B97F4A7C15L;
+	private static final long STATE_SEED = 0xC2B2AE3D27D4EB4FL;
+
+	private Zobrist() {
+		// no instances
+	}
+
+	/**
+	 * Returns the key of a <code>Piece</code> of the given type and color
+	 * placed at <tt>cell</tt>.
+	 *
+	 * @requires <tt>type != null</tt> and <tt>cell != null</tt>
+	 */
+	public static long pieceKey(String type, boolean isWhite, int[] cell) {
+		long h = mix(PIECE_SEED ^ ((long) type.hashCode() << 1)
+				^ (isWhite ? 1 : 0));
+		for (int i = 0; i < cell.length; i++)
+			h = mix(h + PIECE_SEED + cell[i]);
+		return h;
+	}
+
+	/**
+	 * Returns the key of the information <tt>state</tt>, as returned by
+	 * <code>Piece.getState()</code>, for a <code>Piece</code> of the given
+	 * type and color placed at <tt>cell</tt>. A <code>Piece</code> that has
+	 * no information (<tt>state == 0</tt>) has key 0.
+	 *
+	 * @requires <tt>type != null</tt> and <tt>cell != null</tt>
+	 */
+	public static long stateKey(String type, boolean isWhite, int[] cell,
+			int state) {
+		if (state == 0)
+			return 0L;
+		return mix(pieceKey(type, isWhite, cell) ^ (STATE_SEED * state));
+	}
+
+	/**
+	 * Returns the key of <tt>piece</tt>, including the information it has
+	 * gathered, when placed at <tt>cell</tt>.
+	 */
+	static long key(Piece piece, int[] cell) {
+		String type = piece.getType();
+		return pieceKey(type, piece.isWhite(), cell)
+			^ stateKey(type, piece.isWhite(), cell, piece.getState());
+	}
+
+	/**
+	 * Scrambles the bits of <tt>z</tt> (the finalizer of the SplitMix64
+	 * generator).
+	 */
+	private static long mix(long z) {
+		z = (z ^ (z >>> 30)) * 0xBF58476D1CE4E5B9L;
+		z = (z ^ (z >>> 27)) * 0x94D049BB133111EBL;
+		return z ^ (z >>> 31);
+	}
+}
@@ -523,6 +523,60 @@ public class LineBoardTest extends TestCase {
 
 	 }
 	 
+	 /**
+	  * Makes a capturing ply and takes it back, checking that the board
+	  * and the pieces are restored.
+	  */
+	 public void testMakeUndoPly() {
+		 final List<Action> list = Arrays.asList
+		 	(Action.makeRemove(new int[] {2}),
+		 	Action.makeRemove(new int[] {1}),
+		 	Action.makeAdd(new int[] {2}, null));
+
+		 Ply ply = new Ply() {
+
+			 @Override
+			 public Iterator<Action> iterator() {
+				 return list.iterator();
+			 }
+
+			 @Override
+			 public String toString() {
+				 return "Capture";
+			 }
+
+		 };
+
+		 LineBoard board = new LineBoard();
+		 CountingPiece capturer = new CountingPiece(true, board);
+		 CountingPiece captured = new CountingPiece(false, board);
+		 board.addPiece(capturer, new int[] {1});
+		 board.addPiece(captured, new int[] {2});
+
+		 Board.Undo undo = board.makePly(ply);
+		 assertSame(capturer, board.getPiece(new int[] {2}));
+		 assertTrue(board.isEmpty(new int[] {1}));
+		 assertFalse(board.contains(captured));
+		 assertEquals(1, captured.timesRemoved);
+
+		 board.undoPly(undo);
+		 assertSame(capturer, board.getPiece(new int[] {1}));
+		 assertSame(captured, board.getPiece(new int[] {2}));
+		 assertEquals(1, board.getPieces(false).size());
+		 assertEquals(2, captured.timesAdded);
+		 assertEquals(1, capturer.timesAdded);
+		 assertEquals(0, capturer.timesRemoved);
+
+		 // An undo record can only be used once
+		 try {
+			 board.undoPly(undo);
+			 fail("Undo record was used twice");
+		 }
+		 catch (IllegalArgumentException iae) {
+			 // expected
+		 }
+	 }
+	 
 	 public void testMutability() {
 		 fail("Not yet implemented");
 	 }
@@ -0,0 +1,229 @@
+package engine.game;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import engine.adt.Board;
+import engine.adt.Ply;
+import engine.adt.RuleSet;
+
+/**
+ * <code>Perft</code> counts the positions reachable from a position in a
+ * given number of plies (its "performance test"). Since the counts of
+ * well known positions are known, comparing them with the ones a
+ * <code>RuleSet</code> produces is a thorough test of its ply generation,
+ * and timing them measures how fast it is.
+ *
+ * Plies are generated by <code>RuleSet.continueGame</code> and made and
+ * taken back on the board with <code>Board.makePly</code> and
+ * <code>Board.undoPly</code>. A position where the game ends counts as no
+ * position at all, unless it is the last one (at depth 0).
+ */
+public class Perft {
+
+	/**
+	 * The outcome of a perft run: the number of positions reachable, the
+	 * number reachable after each ply of the starting position (its
+	 * "divide"), and the time it took. A <code>Result</code> is immutable.
+	 */
+	public static class Result {
+		private final int depth;
+		private final long nodes;
+		private final Map<String, Long> divide;
+		private final long nanos;
+
+		private Result(int depth, Map<String, Long> divide, long nodes,
+				long nanos) {
+			this.depth = depth;
+			this.nodes = nodes;
+			this.divide = Collections.unmodifiableMap(divide);
+			this.nanos = nanos;
+		}
+
+		/**
+		 * Returns the number of plies that were counted.
+		 */
+		public int getDepth() {
+			return depth;
+		}
+
+		/**
+		 * Returns the number of positions reachable in <code>getDepth()
+		 * </code> plies.
+		 */
+		public long getNodes() {
+			return nodes;
+		}
+
+		/**
+		 * Returns, for the <code>String</code> representation of each valid
+		 * ply of the starting position, the number of positions reachable
+		 * in <code>getDepth() - 1</code> plies after it. The map is sorted
+		 * by ply, and is empty if <code>getDepth() == 0</code> or the game
+		 * had ended.
+		 */
+		public Map<String, Long> getDivide() {
+			return divide;
+		}
+
+		/**
+		 * Returns the time the run took, in milliseconds.
+		 */
+		public long getMillis() {
+			return nanos / 1000000L;
+		}
+
+		/**
+		 * Returns the number of positions counted per second.
+		 */
+		public long getNodesPerSecond() {
+			return nanos == 0 ? 0 : (long) (nodes * 1e9 / nanos);
+		}
+	}
+
+	/**
+	 * Counts the positions that follow one ply of the starting position, on
+	 * a copy of its board confined to the thread that runs it.
+	 */
+	private static class Subtree implements Callable<Long> {
+		private final RuleSet rs;
+		private final Board root;
+		private final List<Boolean> history;
+		private final String ply;
+		private final int depth;
+
+		private Subtree(RuleSet rs, Board root, List<Boolean> history,
+				String ply, int depth) {
+			this.rs = rs;
+			this.root = root;
+			this.history = history;
+			this.ply = ply;
+			this.depth = depth;
+		}
+
+		public Long call() {
+			Board copy = root.confinedClone();
+			copy.makePly(rs.plyFactory().getPly(ply, copy));
+			return count(rs, copy, new ArrayList<Boolean>(history), depth);
+		}
+	}
+
+	private Perft() {
+		// no instances
+	}
+
+	/**
+	 * Returns the number of positions reachable from the position in
+	 * <code>board</code> in exactly <code>depth</code> plies.
+	 *
+	 * @requires <code>depth &gt;= 0</code>, and no other thread to modify
+	 * 			<code>board</code> or <code>turnHistory</code> meanwhile
+	 * @modifies board, turnHistory; both are restored before returning
+	 *
+	 * @param turnHistory the turns played to reach the position, as for
+	 * 			<code>RuleSet.continueGame</code>
+	 */
+	public static long count(RuleSet rs, Board board,
+			List<Boolean> turnHistory, int depth) {
+		if (depth == 0)
+			return 1;
+		GameInfo info;
+		try {
+			info = rs.continueGame(board, turnHistory,
+					new ArrayList<GameMessage>());
+		} catch (GameTermination gt) {
+			return 0;
+		}
+		if (depth == 1)
+			return info.getPlies().size();
+		long nodes = 0;
+		for (Ply ply : info.getPlies()) {
+			Board.Undo undo = board.makePly(ply);
+			turnHistory.add(info.getTurn());
+			try {
+				nodes += count(rs, board, turnHistory, depth - 1);
+			} finally {
+				turnHistory.remove(turnHistory.size() - 1);
+				board.undoPly(undo);
+			}
+		}
+		return nodes;
+	}
+
+	/**
+	 * Counts the positions reachable from the position in <code>board
+	 * </code> in exactly <code>depth</code> plies, and how many of them
+	 * follow each of its valid plies. The subtrees of the plies are counted
+	 * in parallel by up to <code>threads</code> threads, each on its own
+	 * copy of <code>board</code>.
+	 *
+	 * @requires <code>depth &gt;= 0</code>, <code>threads &gt;= 1</code>
+	 *
+	 * @param turnHistory the turns played to reach the position, as for
+	 * 			<code>RuleSet.continueGame</code>
+	 * @return the counts, and the time taken to compute them
+	 * @throws IllegalArgumentException if <code>depth &lt; 0</code> or
+	 * 			<code>threads &lt; 1</code>
+	 */
+	public static Result divide(RuleSet rs, Board board,
+			List<Boolean> turnHistory, int depth, int threads) {
+		if (depth < 0 || threads < 1)
+			throw new IllegalArgumentException("Invalid perft settings");
+		long start = System.nanoTime();
+		Map<String, Long> divide = new TreeMap<String, Long>();
+		if (depth == 0)
+			return new Result(depth, divide, 1, System.nanoTime() - start);
+
+		Board root = board.clone();
+		GameInfo info;
+		try {
+			info = rs.continueGame(root, new ArrayList<Boolean>(turnHistory),
+					new ArrayList<GameMessage>());
+		} catch (GameTermination gt) {
+			return new Result(depth, divide, 0, System.nanoTime() - start);
+		}
+		List<Boolean> history = new ArrayList<Boolean>(turnHistory);
+		history.add(info.getTurn());
+
+		List<Subtree> tasks = new ArrayList<Subtree>();
+		for (Ply ply : info.getPlies())
+			tasks.add(new Subtree(rs, root, history, ply.toString(), depth - 1));
+
+		List<Long> counts = new ArrayList<Long>();
+		if (threads == 1 || tasks.size() < 2) {
+			for (Subtree task : tasks)
+				counts.add(task.call());
+		} else {
+			ExecutorService executor = Executors.newFixedThreadPool(
+					Math.min(threads, tasks.size()));
+			try {
+				for (Future<Long> f : executor.invokeAll(tasks))
+					counts.add(f.get());
+			} catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+				throw new RuntimeException("Perft was interrupted");
+			} catch (ExecutionException ee) {
+				if (ee.getCause() instanceof RuntimeException)
+					throw (RuntimeException) ee.getCause();
+				throw new RuntimeException(ee.getCause());
+			} finally {
+				executor.shutdownNow();
+			}
+		}
+
+		long nodes = 0;
+		for (int i = 0; i < tasks.size(); i++) {
+			divide.put(tasks.get(i).ply, counts.get(i));
+			nodes += counts.get(i);
+		}
+		return new Result(depth, divide, nodes, System.nanoTime() - start);
+	}
+}
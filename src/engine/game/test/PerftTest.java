@@ -0,0 +1,63 @@
+package engine.game.test;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import ruleset.antichess.EnCastleAC;
+import ruleset.antichess.StandardAC;
+import engine.adt.Board;
+import engine.adt.RuleSet;
+import engine.game.Game;
+import engine.game.GameTermination;
+import engine.game.Perft;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the class Perft.
+ */
+public class PerftTest extends TestCase {
+
+	/**
+	 * The initial position has 20 plies and 400 positions two plies deep,
+	 * as in standard chess, since no capture is possible yet.
+	 */
+	public void testInitialPosition() {
+		RuleSet rs = new StandardAC();
+		Board board = rs.boardFactory().getInitialBoard();
+		List<Boolean> turns = new ArrayList<Boolean>();
+		assertEquals(1, Perft.count(rs, board, turns, 0));
+		assertEquals(20, Perft.count(rs, board, turns, 1));
+		assertEquals(400, Perft.count(rs, board, turns, 2));
+		assertTrue("Turn history was not restored", turns.isEmpty());
+
+		Perft.Result result = Perft.divide(rs, board, turns, 2, 1);
+		assertEquals(400, result.getNodes());
+		assertEquals(20, result.getDivide().size());
+		for (long nodes : result.getDivide().values())
+			assertEquals(20, nodes);
+	}
+
+	/**
+	 * Counting in parallel gives the same divide as counting on one thread,
+	 * and neither changes the board.
+	 */
+	public void testParallelDivide() throws GameTermination {
+		RuleSet rs = new EnCastleAC();
+		Game game = new Game(rs);
+		for (String ply : new String[] {"e2-e4", "d7-d5"})
+			game.executePly(rs.plyFactory().getPly(ply, game.getBoard()));
+		Board board = game.getBoard();
+		List<Boolean> turns = new ArrayList<Boolean>(game.getTurnHistory());
+		long before = board.getPositionKey(true);
+
+		Perft.Result serial = Perft.divide(rs, board, turns, 3, 1);
+		Perft.Result parallel = Perft.divide(rs, board, turns, 3, 4);
+		assertEquals(serial.getDivide(), parallel.getDivide());
+		assertEquals(serial.getNodes(), parallel.getNodes());
+		assertEquals(Perft.count(rs, board, turns, 3), serial.getNodes());
+		// the only valid ply captures
+		assertEquals(1, serial.getDivide().size());
+		assertTrue(serial.getDivide().containsKey("e4-d5"));
+		assertEquals(before, board.getPositionKey(true));
+	}
+}
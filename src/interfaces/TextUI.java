@@ -13,6 +13,7 @@ import controller.XmlFactory;
 import engine.adt.*;
 import engine.game.Game;
 import engine.game.GameTermination;
+import engine.game.Perft;
 import ruleset.antichess.EnCastleAC;
 import ruleset.antichess.StandardAC;
 import ruleset.board.RectangularBoard;
@@ -113,6 +114,14 @@ public class TextUI {
 	 * print 3000 to indicate 3 seconds left for the white player. If the time 
 	 * for the player is unlimited, the system should print "unlimited".
 	 * <p>
+	 * Perft <code>[depth]</code> :
+	 * Counts the positions reachable from the current one in exactly depth 
+	 * plies. For each legal move, in alphanumeric order, the system prints 
+	 * the move and the number of positions reachable after it, separated by 
+	 * ": ", on its own line. Then it prints the total number of positions, 
+	 * the time taken in milliseconds and the number of positions per second, 
+	 * each on its own line. The moves are counted in parallel.
+	 * <p>
 	 * QuitGame :
 	 * Prints (on its own line) Exiting game and terminates the present game 
 	 * and application. QuitGame cannot be the first command.
@@ -343,6 +352,8 @@ public class TextUI {
 					printAllMoves(arguments);
 				} else if (command.equals("GetTime")) {
 					getTime(arguments);
+				} else if (command.equals("Perft")) {
+					perft(arguments);
 				} else if (command.equals("QuitGame")) {
 					quitGame(arguments);
 				} else {
@@ -808,6 +819,36 @@ public class TextUI {
 		output.flush();
 	}
 
+	/**
+	 * Prints the perft divide of the current position.
+	 * @param arguments
+	 */
+	private void perft(List<String> arguments) {
+
+		// Error handling
+		if (arguments.size() != 1){
+			throw new CommandException();
+		}
+		int depth;
+		try {
+			depth = Integer.valueOf(arguments.get(0));
+		} catch (NumberFormatException e) {
+			throw new CommandException();
+		}
+		if (depth < 0)
+			throw new CommandException();
+
+		Perft.Result result = Perft.divide(rs, game.getBoard(),
+				game.getTurnHistory(), depth,
+				Runtime.getRuntime().availableProcessors());
+		for (Map.Entry<String, Long> e : result.getDivide().entrySet())
+			output.println(e.getKey() + ": " + e.getValue());
+		output.println("Nodes: " + result.getNodes());
+		output.println("Time: " + result.getMillis() + " ms");
+		output.println("Nodes/s: " + result.getNodesPerSecond());
+		output.flush();
+	}
+
 	/**
 	 * 
 	 * @param arguments
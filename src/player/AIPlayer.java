@@ -14,6 +14,10 @@ import java.util.LinkedList;
 import java.util.List;
 import java.util.Random;
 import java.util.concurrent.Callable;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.ForkJoinPool;
 import java.util.concurrent.FutureTask;
 
 /**
@@ -35,18 +39,265 @@ public class AIPlayer implements Player {
 	 */
 	private int depth;
 	
+	/**
+	 * Remembers the positions searched by this AIPlayer, across all of its
+	 * tasks and moves.
+	 */
+	private final TranspositionTable table;
+	
+	/**
+	 * The algorithm used to search to a fixed depth in untimed games. 
+	 */
+	private volatile SearchAlgorithm algorithm = 
+		SearchAlgorithm.fromSystemProperties();
+	
+	/**
+	 * The book this AIPlayer plays from before searching, or 
+	 * <code>null</code> if it has none. 
+	 */
+	private volatile OpeningBook book = OpeningBook.fromSystemProperties();
+	
+	/**
+	 * The tablebase the searches of this AIPlayer probe, or 
+	 * <code>null</code> if it has none. 
+	 */
+	private volatile Tablebase tablebase = Tablebase.fromSystemProperties();
+	
+	/**
+	 * What this AIPlayer learned in its earlier games, and learns in this
+	 * one. 
+	 */
+	private PersistentState state = new PersistentState();
+	
+	/**
+	 * Decides how long each move is searched in timed games, calibrated 
+	 * by <code>state</code>. 
+	 */
+	private TimeManager timeManager = new TimeManager(state);
+	
+	/**
+	 * The keys of the positions of the first moves this AIPlayer made in 
+	 * this game, and the moves, as learned by <code>state</code> at the 
+	 * end of the game. 
+	 */
+	private final List<Long> openingKeys = new ArrayList<Long>();
+	private final List<String> openingMoves = new ArrayList<String>();
+	
+	/**
+	 * Number of moves this AIPlayer made in this game. 
+	 */
+	private int movesPlayed = 0;
+	
+	/**
+	 * Whether this AIPlayer plays white, or <code>null</code> if it has 
+	 * not moved yet. 
+	 */
+	private Boolean isWhite = null;
+	
+	/**
+	 * Largest depth searched in timed games. 
+	 */
+	private static final int MAX_DEPTH = 64;
+	
+	/**
+	 * The time this AIPlayer has left, in milliseconds, as last reported 
+	 * by <code>setTimeLeft</code>, or <code>Controller.UNTIMED</code> if 
+	 * nothing was reported. 
+	 */
+	private volatile long timeLeft = Controller.UNTIMED;
+	
+	/**
+	 * Runs the search tasks of all AIPlayers that do not run on the 
+	 * calling thread, with a thread per processor. Created on first use, 
+	 * and shared so that a process that plays many games does not pile up
+	 * pools. 
+	 */
+	private static ExecutorService executor = null;
+	
+	/**
+	 * The search running on the opponent's time, or <code>null</code> if 
+	 * this AIPlayer is not pondering. 
+	 */
+	private Ponder ponder = null;
+	
+	/**
+	 * Told about the progress of the searches of this AIPlayer. 
+	 */
+	private final List<SearchObserver> observers = 
+		new CopyOnWriteArrayList<SearchObserver>();
+	
+	/**
+	 * Tells all of <code>observers</code> about the progress of a search. 
+	 */
+	private final SearchObserver dispatcher = new SearchObserver() {
+		public void iterationCompleted(SearchStats stats) {
+			for (SearchObserver observer : observers)
+				observer.iterationCompleted(stats);
+		}
+		
+		public void searchCompleted(SearchStats stats) {
+			for (SearchObserver observer : observers)
+				observer.searchCompleted(stats);
+		}
+	};
+	
+	/**
+	 * The statistics of the last search that chose a move, or 
+	 * <code>null</code> if there was none. 
+	 */
+	private volatile SearchStats lastStats = null;
+	
 	public AIPlayer(boolean useMultiProc, Evaluator eval, int depth) {	
+		this(useMultiProc, eval, depth, 
+				TranspositionTable.fromSystemProperties());
+	}
+	
+	/**
+	 * Creates an AIPlayer that searches with the given transposition 
+	 * table. If <code>table</code> is <code>null</code>, the search does not 
+	 * use one.
+	 */
+	public AIPlayer(boolean useMultiProc, Evaluator eval, int depth, 
+			TranspositionTable table) {	
 		this.evaluator = eval; 
 		this.depth = depth; 
 		this.useMultiProc = useMultiProc;
-
-
+		this.table = table;
 	}
 	public synchronized void setController(Controller controller) {
 		this.controller = controller;
 	}
+	
+	/**
+	 * Reports the time, in milliseconds, this AIPlayer has left to play 
+	 * the rest of the game. This is used when the controller does not keep
+	 * the time itself (e.g. when the game is run by an external referee).
+	 * 
+	 * @param timeLeft the time left, or <code>Controller.UNTIMED</code>
+	 */
+	public void setTimeLeft(long timeLeft) {
+		this.timeLeft = timeLeft;
+	}
+	
+	/**
+	 * Sets the algorithm this AIPlayer searches with in untimed games. 
+	 * Alpha-beta searches by iterative deepening up to the fixed depth, 
+	 * as in timed games, which are always searched that way; minimax 
+	 * divides the plies among tasks, each searched to the fixed depth. 
+	 * 
+	 * @throws IllegalArgumentException if <code>algorithm</code> is 
+	 * 			<code>null</code>
+	 */
+	public void setSearchAlgorithm(SearchAlgorithm algorithm) {
+		if (algorithm == null)
+			throw new IllegalArgumentException("Null search algorithm");
+		this.algorithm = algorithm;
+	}
+	
+	/**
+	 * Sets the book this AIPlayer plays from. While the position is in 
+	 * the book, a move of the book is played instead of searching. If 
+	 * <code>book</code> is <code>null</code>, every move is searched. 
+	 */
+	public void setOpeningBook(OpeningBook book) {
+		this.book = book;
+	}
+	
+	/**
+	 * Sets the tablebase the alpha-beta searches of this AIPlayer probe. 
+	 * It is only probed in games of the rules it was generated for.
+	 * If <code>tablebase</code> is <code>null</code>, every position is 
+	 * searched. 
+	 */
+	public void setTablebase(Tablebase tablebase) {
+		this.tablebase = tablebase;
+	}
+	
+	/**
+	 * Sets what this AIPlayer learned in earlier games, e.g. as read by 
+	 * <code>PersistentState.fromBytes</code>. This AIPlayer keeps 
+	 * learning into <code>state</code>. 
+	 * 
+	 * @throws IllegalArgumentException if <code>state</code> is 
+	 * 			<code>null</code>
+	 */
+	public synchronized void setPersistentState(PersistentState state) {
+		if (state == null)
+			throw new IllegalArgumentException("Null persistent state");
+		this.state = state;
+		this.timeManager = new TimeManager(state);
+	}
+	
+	/**
+	 * Returns what this AIPlayer has learned so far, including the games
+	 * that ended. The state is not synchronized, so it should only be read
+	 * while holding the lock of this AIPlayer. 
+	 */
+	public synchronized PersistentState getPersistentState() {
+		return state;
+	}
+
+	/**
+	 * Makes <code>observer</code> be told about the progress of the 
+	 * alpha-beta searches of this AIPlayer, from the next iteration on. The searches
+	 * run on the opponent's time are only reported once the opponent made
+	 * the expected reply. 
+	 * 
+	 * @throws IllegalArgumentException if <code>observer</code> is 
+	 * 			<code>null</code>
+	 */
+	public void addSearchObserver(SearchObserver observer) {
+		if (observer == null)
+			throw new IllegalArgumentException("Null search observer");
+		observers.add(observer);
+	}
+	
+	/**
+	 * Stops telling <code>observer</code> about the progress of the 
+	 * searches of this AIPlayer. 
+	 */
+	public void removeSearchObserver(SearchObserver observer) {
+		observers.remove(observer);
+	}
+	
+	/**
+	 * Returns the statistics of the last alpha-beta search that chose a 
+	 * move of this AIPlayer, or <code>null</code> if there was none. 
+	 */
+	public SearchStats getLastSearchStats() {
+		return lastStats;
+	}
 
 	public synchronized String submitPly() throws InterruptedException {
+		boolean turn = controller.isNextWhite();
+		long key = controller.getPositionKey(turn);
+		String move;
+		try {
+			move = choosePly();
+		} finally {
+			stopPondering();
+		}
+		if (move != null && move.length() > 0) {
+			isWhite = turn;
+			if (openingKeys.size() < PersistentState.OPENING_PLIES) {
+				openingKeys.add(key);
+				openingMoves.add(move);
+			}
+			movesPlayed++;
+		}
+		return move;
+	}
+
+	/**
+	 * Returns the ply this AIPlayer makes next, or <code>null</code> if it 
+	 * has none. 
+	 */
+	private String choosePly() throws InterruptedException {
+		//A search on the opponent's time is only of use if the opponent
+		//made the reply it expected
+		if (ponder != null && !ponder.isHit(controller.getGameHistory()))
+			stopPondering();
+		
 		if (evaluator == null) {
 			try {
 				Thread.sleep(500);
@@ -60,27 +311,111 @@ public class AIPlayer implements Player {
 		
 
 
-		//Get Valid plies
+		//Get Valid plies, on the only copy of the board made for this move,
+		//which the search runs on 
 		RuleSet rs = controller.getRuleSet(); 
-		final Board board = controller.getBoard();
+		final Board board = controller.getConfinedBoard();
+		List<String> valid = controller.getValidPlies();
+		
+		//Play from the book while the position is in it
+		OpeningBook book = this.book;
+		if (book != null && valid.size() > 0) {
+			String move = book.choose(
+					board.getPositionKey(controller.isNextWhite()), valid, 
+					new Random());
+			if (move != null)
+				return move;
+		}
+		
+		//Replay the openings that won in earlier games
+		if (valid.size() > 0) {
+			String move = state.chooseOpening(
+					board.getPositionKey(controller.isNextWhite()), valid, 
+					new Random());
+			if (move != null)
+				return move;
+		}
 
 		List<Ply> plies = new ArrayList<Ply>(); 
-		for (String plyString : controller.getValidPlies()) {
+		for (String plyString : valid) {
 			plies.add(rs.plyFactory().getPly(plyString, board)); 
 		}
-
-
-		//Divide into different tasks 
-		int numProc = Runtime.getRuntime().availableProcessors(); 
-		if (!useMultiProc) 
-			numProc = 1; 
+		
+		int numProc = getThreads(); 
 //		else 
 //			depth += 1;
 
+		//In timed games, search as deep as the time allows
+		long time = getTimeLeft();
+		if (time != Controller.UNTIMED && plies.size() > 0) {
+			//On a ponder hit, the search of this position has been running
+			//on the opponent's time: its budget is counted from when it 
+			//started, so its result may be ready now
+			if (ponder != null) {
+				Ponder hit = ponder;
+				ponder = null;
+				hit.report();
+				timeManager.allocate(hit.context.getLimit(), time, board, 
+						movesPlayed);
+				BoardNode best = hit.result();
+				lastStats = hit.context.getStats();
+				state.setHistory(hit.context.getOrdering().getHistory());
+				if (best != null && valid.contains(best.getMove()))
+					return best.getMove();
+			}
+			
+			SearchContext context = newContext(rs, 
+					timeManager.newLimit(time, board, movesPlayed), 
+					new SearchStats(dispatcher));
+			BoardNode best = GameSearcher.iterativeDeepening(rs, evaluator, 
+					board, controller.getTurnHistory(), 
+					new GameInfo(plies, controller.isNextWhite(), 
+							new ArrayList<GameMessage>()), 
+					MAX_DEPTH, context);
+			timeManager.finished(context.getLimit());
+			lastStats = context.getStats();
+			state.setHistory(context.getOrdering().getHistory());
+			if (best == null) {
+				//Terminated, or out of time before the first iteration ended
+				if (Thread.interrupted())
+					throw new InterruptedException();
+				return valid.get(0);
+			}
+			return best.getMove();
+		}
+
+
+		//Without a clock, alpha-beta runs the same search as timed games, 
+		//but only as deep as the fixed depth: the root is searched whole, 
+		//first by the plies found best by the shallower iterations 
+		if (algorithm == SearchAlgorithm.ALPHA_BETA && plies.size() > 0) {
+			SearchContext context = newContext(rs, 
+					new SearchLimit(SearchLimit.UNLIMITED), 
+					new SearchStats(dispatcher));
+			BoardNode best = GameSearcher.iterativeDeepening(rs, evaluator, 
+					board, controller.getTurnHistory(), 
+					new GameInfo(plies, controller.isNextWhite(), 
+							new ArrayList<GameMessage>()), 
+					Math.max(1, depth), context);
+			lastStats = context.getStats();
+			state.setHistory(context.getOrdering().getHistory());
+			if (best == null) {
+				//Terminated before the first iteration ended
+				if (Thread.interrupted())
+					throw new InterruptedException();
+				return valid.get(0);
+			}
+			return best.getMove();
+		}
+
+		//Minimax orders nothing, so its root plies are divided into 
+		//different tasks 
+
 		List<List<Ply>> lists = split(numProc, plies);
 		
 		//Now we have the list of distributed plies. Create
-		//separate FutureTasks to run each and run them
+		//separate FutureTasks to run each and run them, in parallel 
+		//if there is more than one
 
 		List<FutureTask<BoardNode>> tasks =
 			new LinkedList<FutureTask<BoardNode>>(); 
@@ -89,12 +424,19 @@ public class AIPlayer implements Player {
 		for (int j = 0; j < numProc; j++) {
 			List<Ply> recipient = lists.get(j);
 			if (recipient.size() != 0) {
-				tasks.add(new FutureTask<BoardNode>(new MinimaxTask(
-						rs, board, controller.getTurnHistory(), 
+				//Tasks run by the executor search copies of their own 
+				FutureTask<BoardNode> task = new FutureTask<BoardNode>(
+						new MinimaxTask(rs, 
+						numProc > 1 ? board.confinedClone() : board, 
+						controller.getTurnHistory(), 
 						new GameInfo(recipient, controller.isNextWhite(), new ArrayList<GameMessage>())
-						,depth )));
+						,depth ));
+				tasks.add(task);
 				
-				tasks.get(j).run(); 
+				if (numProc > 1)
+					getExecutor().execute(task);
+				else
+					task.run(); 
 			}
 		}
 
@@ -128,13 +470,184 @@ public class AIPlayer implements Player {
 
 	}
 
+	/**
+	 * Starts searching on the opponent's time (pondering), in timed games,
+	 * until this AIPlayer is asked for its next move. The position 
+	 * searched is the one after the opponent's expected reply, which is the
+	 * best reply found by the last search, as stored in the transposition 
+	 * table. If the opponent makes that reply (a ponder hit), the search 
+	 * goes on as the search of the move, so its result is ready sooner; 
+	 * otherwise it is abandoned. If no reply is expected, all the replies
+	 * are searched instead, which fills the transposition table for the 
+	 * search of the move. 
+	 * 
+	 * This should be called when the opponent starts to think. 
+	 */
+	public synchronized void ponder() {
+		stopPondering();
+		if (evaluator == null || controller == null 
+				|| getTimeLeft() == Controller.UNTIMED)
+			return;
+		final RuleSet rs = controller.getRuleSet();
+		List<String> valid = controller.getValidPlies();
+		if (valid.isEmpty())
+			return;
+		boolean turn = controller.isNextWhite();
+		Board board = controller.getConfinedBoard();
+		List<Boolean> turnHistory = 
+			new ArrayList<Boolean>(controller.getTurnHistory());
+		List<Ply> replies = new ArrayList<Ply>();
+		for (String plyString : valid)
+			replies.add(rs.plyFactory().getPly(plyString, board));
+		GameInfo info = new GameInfo(replies, turn, 
+				new ArrayList<GameMessage>());
+		
+		String reply = null;
+		Ply expected = expectedReply(board, turn, replies);
+		if (expected != null) {
+			//The reply is made on the board itself, and taken back unless
+			//it is pondered on 
+			Board.Undo undo = board.makePly(expected);
+			List<Boolean> afterHistory = new ArrayList<Boolean>(turnHistory);
+			afterHistory.add(turn);
+			try {
+				GameInfo afterInfo = rs.continueGame(board, afterHistory, 
+						new ArrayList<GameMessage>());
+				//Only ponder on the reply if this AIPlayer moves next
+				if (afterInfo.getTurn() != turn 
+						&& afterInfo.getPlies().size() > 0) {
+					reply = expected.toString();
+					undo = null;
+					turnHistory = afterHistory;
+					info = afterInfo;
+				}
+			}
+			catch (GameTermination gt) {
+				// The reply ends the game: search all of them instead
+			}
+			if (undo != null)
+				board.undoPly(undo);
+		}
+		
+		ponder = new Ponder(reply, controller.getGameHistory().size(), rs, 
+				board, turnHistory, info);
+	}
+	
+	/**
+	 * Returns the reply the opponent is expected to make among 
+	 * <code>replies</code>, the plies it has in <code>board</code>, or 
+	 * <code>null</code> if none is expected. 
+	 */
+	private Ply expectedReply(Board board, boolean turn, List<Ply> replies) {
+		if (table == null)
+			return null;
+		TranspositionTable.Entry entry = 
+			table.probe(board.getPositionKey(turn));
+		if (entry == null || entry.getMove() == Ply.NO_CODE)
+			return null;
+		for (Ply reply : replies)
+			if (reply.getCode() == entry.getMove())
+				return reply;
+		return null;
+	}
+	
+	/**
+	 * Abandons the search running on the opponent's time, if any, and 
+	 * keeps what its ordering learned. 
+	 */
+	private void stopPondering() {
+		if (ponder == null)
+			return;
+		ponder.stop();
+		state.setHistory(ponder.context.getOrdering().getHistory());
+		ponder = null;
+	}
+	
+	/**
+	 * Returns the number of threads this AIPlayer searches with. 
+	 */
+	private int getThreads() {
+		if (!useMultiProc)
+			return 1;
+		return Runtime.getRuntime().availableProcessors();
+	}
+	
+	/**
+	 * Returns a new context for a timed search of this AIPlayer: it uses 
+	 * the table and the threads of this AIPlayer, its tablebase for 
+	 * <code>rs</code>, the default quiescence stage, and a move ordering 
+	 * seeded with the history scores learned so far. 
+	 * 
+	 * @param limit the limit of the search
+	 * @param stats the statistics of the search
+	 */
+	private SearchContext newContext(RuleSet rs, SearchLimit limit, 
+			SearchStats stats) {
+		SearchContext context = new SearchContext();
+		int threads = getThreads();
+		context.setTable(table);
+		context.setTablebase(getTablebase(rs));
+		context.setLimit(limit);
+		context.setExecutor(threads > 1 ? getExecutor() : null, threads);
+		context.setQuiescence(new Quiescence(Quiescence.DEFAULT_BUDGET));
+		context.getOrdering().setHistory(state.getHistory());
+		context.setStats(stats);
+		return context;
+	}
+	
+	/**
+	 * Returns the tablebase of this AIPlayer if it was generated for 
+	 * <code>rs</code>, or <code>null</code> otherwise. 
+	 */
+	private Tablebase getTablebase(RuleSet rs) {
+		Tablebase tablebase = this.tablebase;
+		if (tablebase != null && !tablebase.getRuleSet().equals(rs.toString()))
+			return null;
+		return tablebase;
+	}
+
+	/**
+	 * Returns the executor that runs the search tasks of all AIPlayers, 
+	 * creating it the first time. Its threads are daemons, so they never 
+	 * keep the program running. 
+	 */
+	private static synchronized ExecutorService getExecutor() {
+		if (executor == null)
+			executor = new ForkJoinPool(
+					Runtime.getRuntime().availableProcessors());
+		return executor;
+	}
+
+	/**
+	 * Returns the time this AIPlayer has left, in milliseconds, or 
+	 * <code>Controller.UNTIMED</code> if the game is not timed. 
+	 */
+	private long getTimeLeft() {
+		if (timeLeft != Controller.UNTIMED)
+			return timeLeft;
+		return controller.remainingTime(controller.isNextWhite());
+	}
+
 	public synchronized void inform(String ply) {
 		// do nothing (Player goes "Aight, cool...")		
 	}
 
+	/**
+	 * Learns from the game that ended: the results of the first moves 
+	 * this AIPlayer made, and the length of the game. 
+	 */
 	public synchronized void inform(GameTermination termination) {
-		// do nothing (Player goes yay or nay)
-
+		stopPondering();
+		if (isWhite != null) {
+			Boolean winner = termination.winnerIsWhite();
+			state.recordGame(openingKeys, openingMoves, winner == null ? null
+					: Boolean.valueOf(winner.booleanValue() == isWhite), 
+					movesPlayed);
+		}
+		openingKeys.clear();
+		openingMoves.clear();
+		movesPlayed = 0;
+		isWhite = null;
 	}
 
 	/**
@@ -169,9 +682,117 @@ public class AIPlayer implements Player {
 		return lists; 
 	}
 	
+	/**
+	 * A <code>Ponder</code> is a search run on the opponent's time, on a 
+	 * thread of its own, until it is finished. 
+	 */
+	private class Ponder {
+		/**
+		 * The reply of the opponent that leads to the position searched, 
+		 * or <code>null</code> if the position searched is the one before
+		 * the reply. 
+		 */
+		private final String reply;
+		
+		/**
+		 * The number of plies made in the game before the reply. 
+		 */
+		private final int plies;
+		
+		/**
+		 * Whether the progress of the search is told to the observers of
+		 * this AIPlayer, which it is once the opponent made the reply. 
+		 */
+		private volatile boolean reported = false;
+		
+		private final SearchStats stats = new SearchStats(new SearchObserver() {
+			public void iterationCompleted(SearchStats stats) {
+				if (reported)
+					dispatcher.iterationCompleted(stats);
+			}
+			
+			public void searchCompleted(SearchStats stats) {
+				if (reported)
+					dispatcher.searchCompleted(stats);
+			}
+		});
+		
+		/**
+		 * What the search uses, whose limit only expires when it is 
+		 * stopped or given a budget. 
+		 */
+		private final SearchContext context;
+		
+		private final FutureTask<BoardNode> task;
+		
+		/**
+		 * Starts searching the position of <code>board</code>, which 
+		 * follows <code>reply</code>, on a new thread. 
+		 */
+		Ponder(String reply, int plies, final RuleSet rs, final Board board,
+				final List<Boolean> turnHistory, final GameInfo info) {
+			this.reply = reply;
+			this.plies = plies;
+			this.context = newContext(rs, 
+					new SearchLimit(SearchLimit.UNLIMITED), stats);
+			task = new FutureTask<BoardNode>(new Callable<BoardNode>() {
+				public BoardNode call() {
+					return GameSearcher.iterativeDeepening(rs, evaluator, 
+							board, turnHistory, info, MAX_DEPTH, context);
+				}
+			});
+			Thread thread = new Thread(task, "Ponder");
+			thread.setDaemon(true);
+			thread.start();
+		}
+		
+		/**
+		 * Returns <code>true</code> if the position searched is the one 
+		 * reached by the game whose plies are <code>history</code>. 
+		 */
+		boolean isHit(List<String> history) {
+			return reply != null && history.size() == plies + 1 
+				&& reply.equals(history.get(plies));
+		}
+		
+		/**
+		 * Makes the progress of the search be told to the observers of 
+		 * this AIPlayer from now on. 
+		 */
+		void report() {
+			reported = true;
+		}
+		
+		/**
+		 * Abandons the search, and waits for its thread to notice. 
+		 */
+		void stop() {
+			context.getLimit().stop();
+			result();
+		}
+		
+		/**
+		 * Waits for the search to end, and returns the node found by its 
+		 * deepest completed iteration, or <code>null</code> if it has none.
+		 */
+		BoardNode result() {
+			try {
+				return task.get();
+			}
+			catch (InterruptedException ie) {
+				context.getLimit().stop();
+				Thread.currentThread().interrupt();
+				return null;
+			}
+			catch (ExecutionException ee) {
+				return null;
+			}
+		}
+	}
+	
 	/**
 	 * A <code>MinimaxTask</code> is a callable task that evaluates
-	 * the minimax 
+	 * the minimax, with the current <code>SearchAlgorithm</code>
 	 *
 	 */
 	class MinimaxTask implements Callable<BoardNode> {
@@ -191,12 +812,8 @@ public class AIPlayer implements Player {
 		}
 
 		public BoardNode call() {
-//			System.out.println("AB");
-//			return GameSearcher.alphabeta(rs, evaluator, board, turnHistory, 
-//					info, depth, -Integer.MAX_VALUE, Integer.MAX_VALUE);
-//			System.out.println("MM");
-				return GameSearcher.minimax(rs, evaluator, board, turnHistory, 
-						info, depth);
+			return algorithm.search(rs, evaluator, board, turnHistory, 
+					info, depth, table);
 		}
 	}
 }
@@ -207,8 +824,8 @@ class DumbEvaluator implements Evaluator {
 	public int evaluate(Board board, boolean isWhite) {
 		//let the score be equal to the difference in pieces 
 		//if score > 0, then that's bad for white.
-		return board.getPieces(!isWhite).size() -
-			   board.getPieces(isWhite).size();
+		return board.pieceCount(!isWhite) -
+			   board.pieceCount(isWhite);
 //		int score = board.getPieces(true).size() - 
 //		board.getPieces(false).size();
 //
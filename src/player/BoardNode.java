@@ -1,5 +1,7 @@
 package player;
 
+import engine.adt.Ply;
+
 /**
  * A <code>BoardNode</code> represents a node in a game tree. That is, 
  * a node containing information about the move and the score associated 
@@ -12,26 +14,42 @@ package player;
 
 public class BoardNode {
 	//Fields 
-	private String move; 
+	private Ply ply; 
 	private int value; 
 
 	//Constructor
-	public BoardNode(String move, int value) {
-		this.move = move;
+	public BoardNode(Ply ply, int value) {
+		this.ply = ply;
 		this.value = value;
 	}
 
 	//Methods
 	public String toString() {
-		return "[Move=" + move + ".Value="+value+"]" ; 
+		return "[Move=" + getMove() + ".Value="+value+"]" ; 
 	}
 
+	/**
+	 * Returns the <code>String</code> representation of the ply of this 
+	 * node, or <code>null</code> if it has none. 
+	 */
 	public String getMove() {
-		return move;
+		return ply == null ? null : ply.toString();
+	}
+
+	/**
+	 * Returns the code of the ply of this node, or <code>Ply.NO_CODE</code>
+	 * if it has none. Unlike <code>getMove()</code>, it creates no objects.
+	 */
+	public int getCode() {
+		return ply == null ? Ply.NO_CODE : ply.getCode();
+	}
+
+	public Ply getPly() {
+		return ply;
 	}
 
-	public void setMove(String move) {
-		this.move = move;
+	public void setPly(Ply ply) {
+		this.ply = ply;
 	}
 
 	public int getValue() {
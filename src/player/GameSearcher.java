@@ -3,6 +3,10 @@ package player;
 import java.util.ArrayList;
 import java.util.List;
 import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Future;
 
 
 import engine.adt.Board;
@@ -16,10 +20,39 @@ import engine.game.GameTermination;
  * utilities for search in game trees. Given a <code>RuleSet</code>, 
  * a <code>GameSearcher</code> provides different static methods that
  * will solve a game using different variants of the minmax algorithm.
+ * 
+ * Searches run on private copies of the board they are given, obtained 
+ * through <code>Board.confinedClone</code>, so that the plies they make and
+ * take back do not pay for synchronization. A board that is already 
+ * confined to the calling thread is handed over to the search, which runs 
+ * on it without copying it, and leaves it as it was, since every ply made 
+ * is taken back. 
  *
  */
 public class GameSearcher {
 
+	/**
+	 * Thrown inside a search that runs past its deadline. It unwinds the 
+	 * search, taking back every ply made on the way.
+	 */
+	private static class SearchTimeout extends RuntimeException {
+		private static final long serialVersionUID = 1L;
+	}
+
+	/**
+	 * Smallest half width of the first aspiration window of an iteration 
+	 * of <code>iterativeDeepening</code>, which is otherwise the usual 
+	 * change of the value from one iteration to the next. 
+	 */
+	private static final int ASPIRATION_WINDOW = 2;
+
+	/**
+	 * Number of times the value of an iteration may fall outside its 
+	 * aspiration window, which is then widened 4 times, before the window 
+	 * is opened all the way on the side the value fell out of. 
+	 */
+	private static final int ASPIRATION_FAILS = 1;
+
 	/**
 	 * Uses the <a href=http://en.wikipedia.org/wiki/Minimax>Minimax</a>
 	 * algorithm to determine the <code>BoardNode</code> that is most 
@@ -55,69 +88,115 @@ public class GameSearcher {
 	public static BoardNode minimax(RuleSet rs, Evaluator evaluator,
 			Board board, List<Boolean> turnHistory, GameInfo info, 
 			int depth) {
+		return minimax(rs, evaluator, board, turnHistory, info, depth, null);
+	}
+	
+	/**
+	 * Same as <code>minimax(rs, evaluator, board, turnHistory, info, 
+	 * depth)</code>, except that the exact scores of the positions searched
+	 * are looked up in and stored into <code>table</code>. The root itself
+	 * is not stored, since <code>info</code> may hold only some of its 
+	 * plies (e.g. when they are split among several tasks). 
+	 * 
+	 * @param table The transposition table to use, or <code>null</code>
+	 * 				to search without one. 
+	 */
+	public static BoardNode minimax(RuleSet rs, Evaluator evaluator,
+			Board board, List<Boolean> turnHistory, GameInfo info, 
+			int depth, TranspositionTable table) {
+		Board copy = own(board);
+		return searchMinimax(rs, evaluator, copy, 
+				new ArrayList<Boolean>(turnHistory), rebind(rs, copy, info), 
+				depth, depth, table);
+	}
+	
+	/**
+	 * Runs the minimax algorithm over the game specified by the ruleset and
+	 * info. Plies are made and taken back on <code>board</code> itself, 
+	 * and <code>turnHistory</code> grows and shrinks with them, so both are
+	 * left as they were received. 
+	 * 
+	 * @param origDepth the original number of levels to do minimax on 
+	 * @param table the transposition table, or <code>null</code>
+	 */
+	private static BoardNode searchMinimax(RuleSet rs, Evaluator evaluator,
+			Board board, List<Boolean> turnHistory, GameInfo info, 
+			int depth, int origDepth, TranspositionTable table) {
 		if (depth == 0)
 			return new BoardNode(null,evaluator.evaluate(board, info.getTurn()));
 
+		long key = 0L;
+		if (table != null) {
+			key = board.getPositionKey(info.getTurn());
+			TranspositionTable.Entry entry = table.probe(key);
+			// The root is always searched, so that a move is chosen
+			if (entry != null && depth < origDepth && entry.getDepth() >= depth
+					&& entry.getBound() == TranspositionTable.EXACT)
+				return new BoardNode(null, entry.getScore(origDepth - depth));
+		}
 
 		List<BoardNode> winners = new ArrayList<BoardNode>(); 
+		BoardNode result = null;
 
 		for (Ply p : info.getPlies()) {
-			List<Boolean> newHistory = new ArrayList<Boolean>(turnHistory);
-			newHistory.add(info.getTurn());
+			turnHistory.add(info.getTurn());
 
-			Board newBoard = rs.executeFakePly(board, p);
+			BoardNode candidate = null;
+			Board.Undo undo = board.makePly(p);
 			try {
 				GameInfo newInfo = rs.continueGame(
-						newBoard, newHistory, info.getMessages());
+						board, turnHistory, info.getMessages());
 
-				BoardNode candidate = null;
-				
-				
 				if (info.getTurn() == newInfo.getTurn()) //same guy's turn
-					candidate = new BoardNode(p.toString(), 
-							minimax(rs, evaluator, newBoard, newHistory, newInfo, 
-									depth - 1).getValue()); 
+					candidate = new BoardNode(p, 
+							searchMinimax(rs, evaluator, board, turnHistory, 
+									newInfo, depth - 1, origDepth, table)
+									.getValue()); 
 
 				else 
-					candidate = new BoardNode(p.toString(), 
-							-minimax(rs, evaluator, newBoard, newHistory, newInfo, 
-									depth - 1).getValue()); 				
-
-				//if (depth  == 7)
-					//System.out.println(candidate);
-				
-				if (winners.size() == 0)
-					winners.add(candidate);
-				else {//Otherwise we check if this option is better
-					//check if our dude is better
-					if (candidate.getValue() > winners.get(0).getValue()) {
-						winners.clear(); 
-						winners.add(candidate); 
-					}
-					//check if our dude is equally good
-					else if (candidate.getValue() == winners.get(0).getValue()) {
-						winners.add(candidate);
-					}
-				}			
-
+					candidate = new BoardNode(p, 
+							-searchMinimax(rs, evaluator, board, turnHistory, 
+									newInfo, depth - 1, origDepth, table)
+									.getValue()); 				
 			}
 			catch (GameTermination ge) {
-				if (ge.winnerIsWhite() == null) //DRAW
-					return new BoardNode(p.toString(), 0); 
-				else if (ge.winnerIsWhite() == info.getTurn())
-					return new BoardNode(p.toString(), Integer.MAX_VALUE - 8 + depth); 
-				//current player won
-				else
-					return new BoardNode(p.toString(), Integer.MIN_VALUE + 8 - depth + 1); 
-				//current player lost
-
+				// Scores of won or lost games depend on the distance from 
+				// the root, so that quicker wins (and slower losses) are 
+				// preferred. Only a win ends the search of this node; a 
+				// draw or a loss is just another candidate. 
+				candidate = terminalNode(p, ge, info.getTurn(), 
+						origDepth - depth);
+			}
+			finally {
+				board.undoPly(undo);
+				turnHistory.remove(turnHistory.size() - 1);
+			}
 
+			if (candidate.getValue() == Integer.MAX_VALUE - (origDepth - depth)) {
+				result = candidate; //current player won, nothing is better
+				break;
 			}
+			if (winners.size() == 0)
+				winners.add(candidate);
+			else {//Otherwise we check if this option is better
+				//check if our dude is better
+				if (candidate.getValue() > winners.get(0).getValue()) {
+					winners.clear(); 
+					winners.add(candidate); 
+				}
+				//check if our dude is equally good
+				else if (candidate.getValue() == winners.get(0).getValue()) {
+					winners.add(candidate);
+				}
+			}			
 		}
 		
-		//if (depth == 7)
-		//System.out.println("winnres" + winners);
-		return winners.get(new Random().nextInt(winners.size()));
+		if (result == null)
+			result = winners.get(new Random().nextInt(winners.size()));
+		if (table != null && depth < origDepth)
+			table.store(key, depth, TranspositionTable.EXACT, result.getValue(),
+					origDepth - depth, result.getCode());
+		return result;
 		}
 
 
@@ -166,108 +245,680 @@ public class GameSearcher {
 			int depth, int alpha, int beta) {
 
 			return alphabeta(rs, evaluator, board, turnHistory, info, depth, 
-					alpha, beta, depth); 
+					alpha, beta, new SearchContext()); 
+		}
+
+	/**
+	 * Same as <code>alphabeta(rs, evaluator, board, turnHistory, info, 
+	 * depth, alpha, beta)</code>, except that the search uses what 
+	 * <code>context</code> holds: 
+	 * 
+	 * <ul>
+	 * <li>Positions are looked up in and stored into its transposition 
+	 * 		table. Stored results may cut the search of a position short, 
+	 * 		and the best move stored for it is searched first (see 
+	 * 		<code>MoveOrdering</code>).</li>
+	 * <li>Positions at <code>depth</code> where the player to move must 
+	 * 		capture are not evaluated if it has a quiescence stage; the 
+	 * 		search goes on through the forced captures, as described in 
+	 * 		<code>Quiescence</code>.</li>
+	 * <li>Positions below the root that are in its tablebase are not 
+	 * 		searched: their value is the result stored for them.</li>
+	 * <li>The plies are ordered by its move ordering, and the search is 
+	 * 		counted in its statistics.</li>
+	 * <li>The search is abandoned if its limit expires.</li>
+	 * </ul>
+	 * 
+	 * The root itself is not stored, since <code>info</code> may hold only 
+	 * some of its plies. The search runs on the calling thread only. 
+	 * 
+	 * @param context What the search uses besides the game tree. 
+	 * @return A <code>BoardNode</code> that maximizes the minimum utility,
+	 * 			or <code>null</code> if the limit of <code>context</code> 
+	 * 			expired before the search was completed. 
+	 */
+	public static BoardNode alphabeta(RuleSet rs, Evaluator evaluator,
+			Board board, List<Boolean> turnHistory, GameInfo info, 
+			int depth, int alpha, int beta, SearchContext context) {
+
+			Board copy = own(board);
+			try {
+				return alphabeta(rs, evaluator, copy, 
+						new ArrayList<Boolean>(turnHistory), 
+						rebind(rs, copy, info), depth, alpha, beta, depth, 
+						context); 
+			}
+			catch (SearchTimeout st) {
+				return null;
+			}
 		}
 
+	/**
+	 * Uses <a href=http://en.wikipedia.org/wiki/Iterative_deepening>
+	 * iterative deepening</a> to determine the <code>BoardNode</code> that 
+	 * is most appropriate to use within the limit of <code>context</code>.
+	 * The game tree (as described in <code>alphabeta</code>) is searched 
+	 * with alpha-beta pruning, using what <code>context</code> holds, to 
+	 * depth 1, then to depth 2, and so on, until <code>maxDepth</code> is 
+	 * reached, the limit expires, or the result cannot change anymore 
+	 * (there is a single ply, or a won game was found). Each iteration 
+	 * stores its results in the transposition table, so that the next one
+	 * searches the best plies found so far first, and starts with an 
+	 * aspiration window around the value of the previous one. The search 
+	 * starts a new generation of the table (see 
+	 * <code>TranspositionTable.newSearch</code>), so the entries of earlier
+	 * searches are evicted first. 
+	 * 
+	 * The budget of the limit (see <code>SearchLimit</code>) only applies 
+	 * once the first iteration is completed, but its hard budget applies at
+	 * once. A later iteration is not started if half of the budget has been
+	 * used, and is abandoned if the limit expires while it is running. If 
+	 * the calling thread is interrupted (e.g. because the game was 
+	 * terminated), the search is abandoned within a few milliseconds, 
+	 * whatever iteration it is in. The limit is stopped when the search 
+	 * returns. 
+	 * 
+	 * If <code>context</code> runs on several threads, the search follows 
+	 * the <i>lazy SMP</i> scheme: the calling thread runs the search as 
+	 * usual, while the helper tasks, submitted to the executor of 
+	 * <code>context</code>, search the same position on their own copies 
+	 * of the board, starting at alternating depths. Helpers only share 
+	 * what they find through the transposition table, which speeds up the
+	 * calling thread's iterations, and have their own move ordering and 
+	 * quiescence stage (see <code>SearchContext.forHelper</code>). When the
+	 * calling thread is done, the helpers are stopped, and the result of 
+	 * the deepest iteration completed by any thread is returned. 
+	 * 
+	 * The statistics of <code>context</code> are told about each iteration
+	 * the calling thread completes, and about the end of the search, when 
+	 * the counts of the helpers are added to them. 
+	 * 
+	 * @param rs The ruleset to be used to expand the tree
+	 * @param evaluator An evaluator, as described in <code>alphabeta</code>
+	 * @param board The board representing the current state of the game
+	 * @param turnHistory The history of the turns from the beginning
+	 * 					  of the game up to the current point. 
+	 * @param info The current status of the game. 
+	 * @param maxDepth The largest depth to search to. 
+	 * @param context What the search uses besides the game tree. 
+	 * 
+	 * @return The <code>BoardNode</code> found by the deepest iteration that
+	 * 			was completed, or <code>null</code> if the limit expired 
+	 * 			before the first iteration was completed. 
+	 * 
+	 * @requires <code>maxDepth >= 1</code>, <code>info</code> to have at
+	 * 			least one ply, and <code>context</code> to have a 
+	 * 			transposition table if it runs on several threads, since 
+	 * 			otherwise helpers are useless
+	 */
+	public static BoardNode iterativeDeepening(final RuleSet rs, 
+			final Evaluator evaluator, Board board, 
+			final List<Boolean> turnHistory, GameInfo info, 
+			final int maxDepth, SearchContext context) {
+		if (context.getTable() != null)
+			context.getTable().newSearch();
+		List<Future<Iteration>> helpers = new ArrayList<Future<Iteration>>();
+		ExecutorService executor = context.getExecutor();
+		for (int i = 1; i < context.getThreads() && executor != null; i++) {
+			final Board copy = board.confinedClone();
+			final GameInfo rootInfo = rebind(rs, copy, info);
+			final int firstDepth = 1 + i % 2;
+			final SearchContext own = context.forHelper();
+			helpers.add(executor.submit(new Callable<Iteration>() {
+				public Iteration call() {
+					return deepen(rs, evaluator, copy, 
+							new ArrayList<Boolean>(turnHistory), rootInfo, 
+							firstDepth, maxDepth, false, own);
+				}
+			}));
+		}
+		
+		Board copy = own(board);
+		Iteration best = deepen(rs, evaluator, copy, 
+				new ArrayList<Boolean>(turnHistory), rebind(rs, copy, info), 
+				1, maxDepth, true, context);
+		context.getLimit().stop();
+		
+		BoardNode node = best.node;
+		int depth = best.depth;
+		SearchStats stats = context.getStats();
+		for (Future<Iteration> helper : helpers) {
+			try {
+				Iteration result = helper.get();
+				stats.add(result.stats);
+				if (result.node != null && result.depth > depth) {
+					node = result.node;
+					depth = result.depth;
+				}
+			}
+			catch (InterruptedException ie) {
+				Thread.currentThread().interrupt();
+			}
+			catch (ExecutionException ee) {
+				// A failed helper only loses its own work
+			}
+		}
+		stats.searchCompleted();
+		return node;
+	}
+	
+	/**
+	 * The result of the deepest iteration completed by a search.
+	 */
+	private static class Iteration {
+		private int depth = 0;
+		private BoardNode node = null;
+		private final SearchStats stats;
+		
+		// The change of the value from one iteration to the next, averaged
+		// with halving weights, in the units of the evaluator
+		private long swing = 0;
+		
+		private Iteration(SearchStats stats) {
+			this.stats = stats;
+		}
+	}
+	
+	/**
+	 * Runs the iterations of an iterative deepening search, from 
+	 * <code>firstDepth</code> to <code>maxDepth</code>, until the limit of
+	 * <code>context</code> expires. 
+	 * 
+	 * @param main If <code>true</code>, the limit is told the result of 
+	 * 			each iteration, after which its budget applies, the 
+	 * 			statistics are told about each iteration completed, and no 
+	 * 			iteration is started after half of the budget has been used 
+	 * 			or once the result cannot change anymore. 
+	 * @param context what the thread searches with; its ordering is kept 
+	 * 			across iterations
+	 */
+	private static Iteration deepen(RuleSet rs, Evaluator evaluator, 
+			Board board, List<Boolean> turnHistory, GameInfo info, 
+			int firstDepth, int maxDepth, boolean main, 
+			SearchContext context) {
+		SearchLimit limit = context.getLimit();
+		Iteration best = new Iteration(context.getStats());
+		for (int depth = firstDepth; depth <= maxDepth; depth++) {
+			try {
+				BoardNode node = aspire(rs, evaluator, board, turnHistory, 
+						info, depth, best.node, best.swing, context);
+				if (best.node != null)
+					best.swing = (best.swing + Math.abs((long) node.getValue()
+							- best.node.getValue())) / 2;
+				best.node = node;
+				best.depth = depth;
+				if (main) {
+					limit.resultFound(best.node.getMove());
+					context.getStats().iterationCompleted(depth, 
+							best.node.getValue(), principalVariation(rs, 
+									board, turnHistory, info, best.node, 
+									context.getTable(), depth));
+				}
+			}
+			catch (SearchTimeout st) {
+				break;
+			}
+			if (info.getPlies().size() == 1 || Math.abs(best.node.getValue()) 
+					>= TranspositionTable.MATE_THRESHOLD)
+				break;
+			if (main && limit.halfUsed())
+				break;
+		}
+		return best;
+	}
+	
+	/**
+	 * Runs one iteration of an iterative deepening search to 
+	 * <code>depth</code>. If the previous iteration found a node, the 
+	 * search starts with an aspiration window around its value, which lets
+	 * it cut off more plies. The window is <code>swing</code> wide on 
+	 * either side, but at least <code>ASPIRATION_WINDOW</code>, so that it
+	 * fits the units of the evaluator. If the value turns out to be outside
+	 * the window, the side it fell out of is widened 4 times, and opened 
+	 * all the way after <code>ASPIRATION_FAILS</code> such widenings, and 
+	 * the search is run again, until the value is known. 
+	 * 
+	 * @param previous the node found by the previous iteration, or 
+	 * 			<code>null</code> to search with the whole window
+	 * @param swing the usual change of the value from one iteration to the
+	 * 			next
+	 */
+	private static BoardNode aspire(RuleSet rs, Evaluator evaluator, 
+			Board board, List<Boolean> turnHistory, GameInfo info, 
+			int depth, BoardNode previous, long swing, 
+			SearchContext context) {
+		if (previous == null)
+			return searchRoot(rs, evaluator, board, turnHistory, info, depth, 
+					-Integer.MAX_VALUE, Integer.MAX_VALUE, context);
+		long delta = Math.max(ASPIRATION_WINDOW, swing);
+		long alpha = Math.max(-Integer.MAX_VALUE, previous.getValue() - delta);
+		long beta = Math.min(Integer.MAX_VALUE, previous.getValue() + delta);
+		int fails = 0;
+		while (true) {
+			BoardNode node = searchRoot(rs, evaluator, board, turnHistory, 
+					info, depth, (int) alpha, (int) beta, context);
+			long value = node.getValue();
+			boolean low = value <= alpha && alpha > -Integer.MAX_VALUE;
+			boolean high = value >= beta && beta < Integer.MAX_VALUE;
+			if (!low && !high)
+				return node;
+			delta *= 4;
+			boolean open = ++fails > ASPIRATION_FAILS;
+			if (low)
+				alpha = open ? -Integer.MAX_VALUE 
+						: Math.max(-Integer.MAX_VALUE, value - delta);
+			else
+				beta = open ? Integer.MAX_VALUE 
+						: Math.min(Integer.MAX_VALUE, value + delta);
+		}
+	}
 		
 	
 
 
 	
+	/**
+	 * Searches the root of an iterative deepening search with 
+	 * <code>alphabeta</code>, and stores its result in the transposition 
+	 * table of <code>context</code>, if any, so that the next iteration 
+	 * searches its best ply first. Unlike the other positions, the root is 
+	 * only stored here, where <code>info</code> is known to hold all of its
+	 * plies. 
+	 */
+	private static BoardNode searchRoot(RuleSet rs, Evaluator evaluator, 
+			Board board, List<Boolean> turnHistory, GameInfo info, 
+			int depth, int alpha, int beta, SearchContext context) {
+		BoardNode node = alphabeta(rs, evaluator, board, turnHistory, info, 
+				depth, alpha, beta, depth, context);
+		TranspositionTable table = context.getTable();
+		if (table != null) {
+			int bound = TranspositionTable.EXACT;
+			if (node.getValue() >= beta)
+				bound = TranspositionTable.LOWER_BOUND;
+			else if (node.getValue() <= alpha)
+				bound = TranspositionTable.UPPER_BOUND;
+			table.store(board.getPositionKey(info.getTurn()), depth, bound, 
+					node.getValue(), 0, node.getCode());
+		}
+		return node;
+	}
+	
 	/**
 	 * Runs the alpha beta algorithm over the game specified by the ruleset and
-	 * info. 
+	 * info. As in <code>searchMinimax</code>, plies are made and taken back
+	 * on <code>board</code> and <code>turnHistory</code>. The search is 
+	 * abandoned by throwing a <code>SearchTimeout</code> when the limit of
+	 * <code>context</code> expires. The root (where <code>depth == 
+	 * origDepth</code>) is looked up, for its best ply, but not stored. 
 	 * 
 	 * @param origDepth the original number of levels to do alpha beta on 
+	 * @param context what the search uses besides the game tree; its 
+	 * 			ordering learns from the cutoffs found
 	 * 
 	 */
 	private static BoardNode alphabeta(RuleSet rs, Evaluator evaluator,
 			Board board, List<Boolean> turnHistory, GameInfo info, 
-			int depth, int alpha, int beta, int origDepth) {
+			int depth, int alpha, int beta, int origDepth, 
+			SearchContext context) {
+		if (context.getLimit().poll())
+			throw new SearchTimeout();
+		SearchStats stats = context.getStats();
+		stats.node(origDepth - depth);
+		
+		//positions in the tablebase need no search, except for the root, 
+		//where a move must be chosen
+		Tablebase tablebase = context.getTablebase();
+		if (tablebase != null && depth < origDepth) {
+			int result = tablebase.probe(board, info.getTurn());
+			if (result != Tablebase.UNKNOWN) {
+				stats.tablebaseHit();
+				return new BoardNode(null, 
+						tablebaseValue(result, origDepth - depth));
+			}
+		}
+		
 		//base case
-		if (depth == 0)
-			return new BoardNode(null,evaluator.evaluate(board, info.getTurn()));
+		if (depth == 0) {
+			Quiescence quiescence = context.getQuiescence();
+			if (quiescence == null || quiescence.getBudget() == 0 
+					|| !isForced(board, info))
+				return new BoardNode(null,evaluator.evaluate(board, info.getTurn()));
+			quiescence.startExtension();
+			return new BoardNode(null, quiesce(rs, evaluator, board, 
+					turnHistory, info, alpha, beta, origDepth, 0, context));
+		}
 
-		//the accumulated list of winners
-		List<BoardNode> winners = new ArrayList<BoardNode>(); 
+		//look the position up
+		TranspositionTable table = context.getTable();
+		long key = 0L;
+		int origAlpha = alpha;
+		int hashMove = Ply.NO_CODE;
+		if (table != null) {
+			key = board.getPositionKey(info.getTurn());
+			TranspositionTable.Entry entry = table.probe(key);
+			stats.probe(entry != null);
+			if (entry != null) {
+				int score = entry.getScore(origDepth - depth);
+				// The root is always searched, so that a move is chosen
+				if (depth < origDepth && entry.getDepth() >= depth) {
+					if (entry.getBound() == TranspositionTable.EXACT ||
+							(entry.getBound() == TranspositionTable.LOWER_BOUND
+									&& score >= beta) ||
+							(entry.getBound() == TranspositionTable.UPPER_BOUND
+									&& score <= alpha)) {
+						stats.tableCutoff();
+						return new BoardNode(null, score);
+					}
+				}
+				hashMove = entry.getMove();
+			}
+		}
+		MoveOrdering ordering = context.getOrdering();
+		List<Ply> plies = ordering.order(board, info.getPlies(), 
+				info.getTurn(), hashMove, origDepth - depth);
+
+		//the best candidate so far; ties go to the ply searched first, so
+		//that the principal variation is the same from one search to the next
+		BoardNode result = null;
+		boolean first = true;
 
 		//for each possible move from this node 
-		for (Ply p : info.getPlies()) {
+		for (Ply p : plies) {
 
 			//try each possible combination
-			List<Boolean> newHistory = new ArrayList<Boolean>(turnHistory);
-			newHistory.add(info.getTurn());
+			turnHistory.add(info.getTurn());
 
-			Board newBoard = rs.executeFakePly(board, p);
+			BoardNode candidate = null;
+			Board.Undo undo = context.makePly(board, p, origDepth - depth);
 			try {
 
 				GameInfo newInfo = rs.continueGame(
-						newBoard, newHistory, info.getMessages());
-
-				BoardNode candidate = null;
-
-				//obtain minimax recursively 
-				if (info.getTurn() == newInfo.getTurn()) //same guy's turn
-					candidate = new BoardNode(p.toString(), 
-							alphabeta(rs, evaluator, newBoard, newHistory, newInfo, 
-									depth - 1, alpha, beta, origDepth).getValue()); 
-
-				else 
-					candidate = new BoardNode(p.toString(), 
-							-alphabeta(rs, evaluator, newBoard, newHistory, newInfo, 
-									depth - 1, -beta,-alpha, origDepth).getValue()); 				
-
-				//if (depth  == origDepth)
-					//System.out.println(candidate + "-depth=" + origDepth);
-				//do max of winners.
-				//keep list of max scorers
-				if (winners.size() == 0) {
-					alpha = candidate.getValue(); 
-					winners.add(candidate);
+						board, turnHistory, info.getMessages());
+				boolean sameTurn = info.getTurn() == newInfo.getTurn();
+
+				//obtain minimax recursively. Only the first ply is searched 
+				//with the whole window: the others are expected to be worse,
+				//which a null window proves cheaply, and are searched again
+				//if they turn out to be better (principal variation search)
+				int value;
+				if (!first && alpha + 1 < beta) {
+					value = searchChild(rs, evaluator, board, turnHistory, 
+							newInfo, sameTurn, depth - 1, alpha, alpha + 1, 
+							origDepth, context);
+					if (value > alpha && value < beta)
+						value = searchChild(rs, evaluator, board, turnHistory,
+								newInfo, sameTurn, depth - 1, alpha, beta, 
+								origDepth, context);
 				}
-
-				else {//We check if this option is better
-					//check if this is not possible
-					//no more computing required
-					if (candidate.getValue() >= beta) { //TODO do we want >=? loss of diversity. gain of speed. 
-						winners.clear(); 
-						winners.add(new BoardNode(null, candidate.getValue())); 
-						//return winners.get(new java.util.Random().nextInt(winners.size())); 
-						return winners.get(new Random().nextInt(winners.size())); 
-					}		
-					//otherwise, check if we can do better
-					if (candidate.getValue() > alpha) {
-						alpha = candidate.getValue(); 
-						winners.clear(); 
-						winners.add(candidate); 
-					}			
-					else if (candidate.getValue() == 
-						winners.get(0).getValue() && candidate.getMove() != null) {
-						winners.add(candidate);						
-					}					
-				}			
-
+				else
+					value = searchChild(rs, evaluator, board, turnHistory, 
+							newInfo, sameTurn, depth - 1, alpha, beta, 
+							origDepth, context);
+				candidate = new BoardNode(p, value);
 			}
 			catch (GameTermination ge) {
+				// Only a win ends the search of this node; a draw or a loss
+				// is just another candidate
+				candidate = terminalNode(p, ge, info.getTurn(), 
+						origDepth - depth);
+			}
+			finally {
+				board.undoPly(undo);
+				turnHistory.remove(turnHistory.size() - 1);
+			}
+			boolean firstPly = first;
+			first = false;
 
-				if (ge.winnerIsWhite() == null) //DRAW
-					return new BoardNode(null, 0); 
-				else if (ge.winnerIsWhite() == info.getTurn())
-					return new BoardNode(p.toString(), Integer.MAX_VALUE - 
-							(origDepth - depth)); 
-				//current player won
-				else //add 1 because (- Integer.MIN_VALUE) is not an int 
-					return new BoardNode(p.toString(), Integer.MIN_VALUE + 1
-							+ (origDepth - depth)); 
-				//current player lost
-
-
+			if (candidate.getValue() == Integer.MAX_VALUE - (origDepth - depth)) {
+				result = candidate; //current player won, nothing is better
+				break;
 			}
+			//check if this is not possible
+			//no more computing required. The first ply may cut off too,
+			//which is where good ordering pays off
+			if (candidate.getValue() >= beta) { //TODO do we want >=? loss of diversity. gain of speed. 
+				if (table != null && depth < origDepth)
+					table.store(key, depth, 
+							TranspositionTable.LOWER_BOUND,
+							candidate.getValue(), origDepth - depth,
+							candidate.getCode());
+				ordering.cutoff(board, p, info.getTurn(), depth, 
+						origDepth - depth);
+				stats.cutoff(firstPly);
+				return candidate; 
+			}
+			//keep the best candidate
+			if (result == null || candidate.getValue() > result.getValue()) {
+				if (candidate.getValue() > alpha)
+					alpha = candidate.getValue(); 
+				result = candidate; 
+			}			
 		}
 		
-		//if (depth == 7)
-			//System.out.println("winnres" + winners);
-		return winners.get(new Random().nextInt(winners.size()));		
+		if (table != null && depth < origDepth) {
+			int bound = TranspositionTable.EXACT;
+			if (result.getValue() >= beta)
+				bound = TranspositionTable.LOWER_BOUND;
+			else if (result.getValue() <= origAlpha)
+				bound = TranspositionTable.UPPER_BOUND;
+			table.store(key, depth, bound, result.getValue(), 
+					origDepth - depth, result.getCode());
+		}
+		return result;		
+	}
+	
+	/**
+	 * Searches, with <code>alphabeta</code>, the position reached by a ply 
+	 * with the given window, and returns its value from the point of view 
+	 * of the player who made the ply. 
+	 * 
+	 * @param sameTurn whether the player who made the ply moves again
+	 */
+	private static int searchChild(RuleSet rs, Evaluator evaluator,
+			Board board, List<Boolean> turnHistory, GameInfo info, 
+			boolean sameTurn, int depth, int alpha, int beta, int origDepth, 
+			SearchContext context) {
+		if (sameTurn)
+			return alphabeta(rs, evaluator, board, turnHistory, info, depth, 
+					alpha, beta, origDepth, context).getValue();
+		return -alphabeta(rs, evaluator, board, turnHistory, info, depth, 
+				-beta, -alpha, origDepth, context).getValue();
+	}
+	
+	/**
+	 * Searches the forced captures of a position at the nominal depth of an
+	 * alpha-beta search, and the forced captures that follow them, as 
+	 * described in <code>Quiescence</code>. Positions where no capture is 
+	 * forced, or that are past the budget of the quiescence stage of 
+	 * <code>context</code>, are evaluated. Unlike in chess, the player to 
+	 * move may not decline the captures, so the value of a position is that
+	 * of its best capture. Plies are made and taken back on 
+	 * <code>board</code> and <code>turnHistory</code>, which are left as 
+	 * they were received. 
+	 * 
+	 * @param distance the number of plies between the root of the search
+	 * 			and the position
+	 * @param plies the number of plies between the position whose search
+	 * 			is extended and this one
+	 * @return the value of the position for the player to move, within 
+	 * 			<code>[alpha, beta]</code> if it is in it; otherwise, a 
+	 * 			bound beyond the one it is past
+	 * @requires <code>context</code> has a quiescence stage
+	 */
+	private static int quiesce(RuleSet rs, Evaluator evaluator, Board board,
+			List<Boolean> turnHistory, GameInfo info, int alpha, int beta, 
+			int distance, int plies, SearchContext context) {
+		if (context.getLimit().poll())
+			throw new SearchTimeout();
+		if (plies > 0) {
+			context.getStats().qnode(distance);
+			if (!context.getQuiescence().visit(plies) 
+					|| !isForced(board, info))
+				return evaluator.evaluate(board, info.getTurn());
+		}
+
+		int best = -Integer.MAX_VALUE;
+		for (Ply p : context.getOrdering().order(board, info.getPlies(), 
+				info.getTurn(), Ply.NO_CODE, distance)) {
+			turnHistory.add(info.getTurn());
+			int value;
+			Board.Undo undo = context.makePly(board, p, distance);
+			try {
+				GameInfo newInfo = rs.continueGame(
+						board, turnHistory, info.getMessages());
+				if (info.getTurn() == newInfo.getTurn()) //same guy's turn
+					value = quiesce(rs, evaluator, board, turnHistory, 
+							newInfo, alpha, beta, distance + 1, plies + 1, 
+							context);
+				else
+					value = -quiesce(rs, evaluator, board, turnHistory, 
+							newInfo, -beta, -alpha, distance + 1, plies + 1, 
+							context);
+			}
+			catch (GameTermination ge) {
+				value = terminalNode(p, ge, info.getTurn(), distance)
+						.getValue();
+			}
+			finally {
+				board.undoPly(undo);
+				turnHistory.remove(turnHistory.size() - 1);
+			}
+			if (value > best)
+				best = value;
+			if (best > alpha)
+				alpha = best;
+			if (alpha >= beta)
+				break;
+		}
+		return best;
+	}
+	
+	/**
+	 * Returns the principal variation of a search of the position of 
+	 * <code>board</code> whose result is <code>best</code>: its ply, 
+	 * followed by the best plies stored in <code>table</code> for the 
+	 * positions they lead to, up to <code>length</code> plies. Plies are 
+	 * made and taken back on <code>board</code> and 
+	 * <code>turnHistory</code>, which are left as they were received. 
+	 * 
+	 * @param table the transposition table, or <code>null</code>, in which
+	 * 			case only the ply of <code>best</code> is returned
+	 */
+	private static List<String> principalVariation(RuleSet rs, Board board, 
+			List<Boolean> turnHistory, GameInfo info, BoardNode best, 
+			TranspositionTable table, int length) {
+		List<String> variation = new ArrayList<String>();
+		List<Board.Undo> undos = new ArrayList<Board.Undo>();
+		int code = best.getCode();
+		try {
+			while (variation.size() < length) {
+				//the first ply is told by its name, since it may have no code
+				Ply next = null;
+				for (Ply p : info.getPlies())
+					if (variation.isEmpty() ? p.toString().equals(best.getMove())
+							: p.getCode() == code)
+						next = p;
+				if (next == null)
+					break;
+				variation.add(next.toString());
+				turnHistory.add(info.getTurn());
+				undos.add(board.makePly(next));
+				info = rs.continueGame(board, turnHistory, info.getMessages());
+				if (table == null)
+					break;
+				TranspositionTable.Entry entry = 
+					table.probe(board.getPositionKey(info.getTurn()));
+				if (entry == null || entry.getMove() == Ply.NO_CODE)
+					break;
+				code = entry.getMove();
+			}
+		}
+		catch (GameTermination ge) {
+			// The variation ends the game
+		}
+		finally {
+			for (int i = undos.size() - 1; i >= 0; i--) {
+				board.undoPly(undos.get(i));
+				turnHistory.remove(turnHistory.size() - 1);
+			}
+		}
+		return variation;
+	}
+	
+	/**
+	 * Returns <tt>true</tt> if the player to move in <code>board</code> is
+	 * obliged to capture; that is, if it has plies and all of them capture
+	 * a piece of the opponent. 
+	 */
+	private static boolean isForced(Board board, GameInfo info) {
+		if (info.getPlies().isEmpty())
+			return false;
+		for (Ply p : info.getPlies())
+			if (!MoveOrdering.isCapture(board, p, info.getTurn()))
+				return false;
+		return true;
+	}
+	
+	/**
+	 * Returns the <code>BoardNode</code> for a ply <code>p</code> that ends
+	 * the game as described by <code>ge</code>, from the point of view of
+	 * the player who made it. Won and lost games are scored so that quicker
+	 * wins, and slower losses, are preferred. 
+	 * 
+	 * @param turn The player who made the ply.
+	 * @param distance The number of plies between the root of the search
+	 * 			and the position where <code>p</code> was made.
+	 */
+	private static BoardNode terminalNode(Ply p, GameTermination ge, 
+			boolean turn, int distance) {
+		if (ge.winnerIsWhite() == null) //DRAW
+			return new BoardNode(p, 0); 
+		else if (ge.winnerIsWhite() == turn) //current player won
+			return new BoardNode(p, Integer.MAX_VALUE - distance); 
+		else //add 1 because (- Integer.MIN_VALUE) is not an int 
+			return new BoardNode(p, Integer.MIN_VALUE + 1 + distance); 
+	}
+	
+	/**
+	 * Returns the value, for the player to move, of a position whose 
+	 * result in a tablebase is <code>result</code>, scored as by 
+	 * <code>terminalNode</code>: a win in <i>n</i> plies is a win by the 
+	 * last of them. 
+	 * 
+	 * @param distance The number of plies between the root of the search
+	 * 			and the position, which is at least 1. 
+	 */
+	private static int tablebaseValue(int result, int distance) {
+		if (Tablebase.isWin(result))
+			return Integer.MAX_VALUE 
+				- (distance + Tablebase.getDistance(result) - 1);
+		else if (Tablebase.isLoss(result))
+			return Integer.MIN_VALUE + 1 
+				+ (distance + Tablebase.getDistance(result) - 1);
+		else //DRAW
+			return 0;
+	}
+	
+	/**
+	 * Returns the board a search of <code>board</code> runs on: 
+	 * <code>board</code> itself if it is confined to the calling thread, 
+	 * or else a confined copy of it. 
+	 */
+	private static Board own(Board board) {
+		return board.isConfined() ? board : board.confinedClone();
+	}
+	
+	/**
+	 * Returns a <code>GameInfo</code> equal to <code>info</code>, except
+	 * that its plies are parsed again on <code>board</code>, so that any 
+	 * <code>Piece</code>s they carry (e.g. the <code>Queen</code> in a 
+	 * <code>Coronation</code>) are associated to it. 
+	 */
+	private static GameInfo rebind(RuleSet rs, Board board, GameInfo info) {
+		List<Ply> plies = new ArrayList<Ply>(info.getPlies().size());
+		for (Ply p : info.getPlies())
+			plies.add(rs.plyFactory().getPly(p.toString(), board));
+		return new GameInfo(plies, info.getTurn(), info.getMessages());
 	}
 	
 
@@ -70,6 +70,22 @@ public class MachinePlayer implements Player, AiPlayer {
 	 */
 	private ChatProxy chatProxy;
 	
+	/**
+	 * The Player that chooses this MachinePlayer's moves.
+	 */
+	private final Player ai;
+	
+	/**
+	 * Whether the game is timed.
+	 */
+	private final boolean timed;
+	
+	/**
+	 * The largest size, in bytes, of the state returned by 
+	 * <code>getPersistentState()</code>. 
+	 */
+	private final int persistentStateSizeLimit;
+	
 	/**
 	 * Some messages to send the AiPlayers.
 	 */
@@ -89,8 +105,25 @@ public class MachinePlayer implements Player, AiPlayer {
 	public MachinePlayer(boolean isWhite, RuleSet rs, boolean timed,
 					long whiteTime, long blackTime, Player ai,
 					ChatProxy chatProxy) {
+		this(isWhite, rs, timed, whiteTime, blackTime, ai, chatProxy, 0);
+	}
+	
+	/**
+	 * @effects Same as <code>MachinePlayer(isWhite, rs, timed, whiteTime,
+	 * blackTime, ai, chatProxy)</code>, except that if <code>ai</code> is an
+	 * <code>AIPlayer</code>, what it learns is returned by 
+	 * <code>getPersistentState()</code> in at most 
+	 * <code>persistentStateSizeLimit</code> bytes.
+	 */
+	public MachinePlayer(boolean isWhite, RuleSet rs, boolean timed,
+					long whiteTime, long blackTime, Player ai,
+					ChatProxy chatProxy, int persistentStateSizeLimit) {
+		this.persistentStateSizeLimit = persistentStateSizeLimit;
 		this.chatProxy = chatProxy;
 		this.isWhite = isWhite;
+		this.ai = ai;
+		this.timed = timed;
+		reportTime(isWhite ? whiteTime : blackTime);
 		if (this.isWhite) {
 			synchronized (ai) {
 				controller = new Controller(rs, ai, this, Controller.UNTIMED, Controller.UNTIMED);
@@ -122,6 +155,8 @@ public class MachinePlayer implements Player, AiPlayer {
 	 */
 	public String getMove(String opponentMove, long timeLeft, long opponentTimeLeft) {
 		
+		reportTime(timeLeft);
+		
 		// Add opponent's move and let submitPly() know that move is ready
 		if (!opponentMove.equals("")) {
 			synchronized (opponentMoveLock) {
@@ -162,6 +197,10 @@ public class MachinePlayer implements Player, AiPlayer {
 			aiMoveLock.notifyAll();
 		}
 		
+		// Think on the opponent's time; the AI is idle until its move
+		if (timed && ai instanceof AIPlayer)
+			((AIPlayer) ai).ponder();
+		
 		// Wait for getMove() to get called by referee
 		synchronized (opponentMoveLock) {
 			// Wait for opponent move
@@ -201,9 +240,29 @@ public class MachinePlayer implements Player, AiPlayer {
 	public void setController(Controller controller) {
 		throw new RuntimeException("Cannot set Controller of MachinePlayer");	
 	}
+	
+	/**
+	 * Lets the AI know how much time it has left, if the game is timed.
+	 * The internal Controller is untimed (the referee keeps the time), so
+	 * this is the only way the AI learns about its clock.
+	 */
+	private void reportTime(long timeLeft) {
+		if (timed && ai instanceof AIPlayer)
+			((AIPlayer) ai).setTimeLeft(timeLeft);
+	}
 
+	/**
+	 * Returns what the AI learned in this game and the earlier ones, as
+	 * written by <code>PersistentState.toBytes</code>, or an empty array if
+	 * it does not learn.
+	 */
 	public byte[] getPersistentState() {
-		return new byte[] {0};
+		if (!(ai instanceof AIPlayer))
+			return new byte[0];
+		synchronized (ai) {
+			return ((AIPlayer) ai).getPersistentState().toBytes(
+					persistentStateSizeLimit);
+		}
 	}
 	
 }
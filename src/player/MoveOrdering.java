@@ -0,0 +1,270 @@
+package player;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+import engine.adt.Action;
+import engine.adt.Board;
+import engine.adt.Piece;
+import engine.adt.Ply;
+
+/**
+ * A <code>MoveOrdering</code> sorts the plies of the positions reached by
+ * an alpha-beta search so that the ones most likely to be best, and thus
+ * to cause cutoffs, are searched first. Plies are searched in this order:
+ *
+ * <ol>
+ * <li>The hash move: the best ply stored for the position in the
+ * 		transposition table.</li>
+ * <li>Captures, the most valuable victim first and, among those, the
+ * 		least valuable attacker first (MVV-LVA).</li>
+ * <li>Killer moves: quiet plies that caused a cutoff in a sibling of the
+ * 		position (at the same distance from the root).</li>
+ * <li>The remaining plies, the ones that caused the most cutoffs anywhere
+ * 		in the search first (the history heuristic).</li>
+ * </ol>
+ *
+ * Plies with the same priority keep the order they were given in. Plies
+ * are told apart by their codes (see <code>Ply.getCode()</code>), so
+ * plies with no code are never hash or killer moves.
+ *
+ * A <code>MoveOrdering</code> learns from the search that uses it, so it
+ * should be kept across the iterations of an iterative deepening search.
+ * It is not synchronized: each searching thread should have its own.
+ */
+class MoveOrdering {
+
+	/**
+	 * Number of killer moves remembered per distance from the root.
+	 */
+	private static final int KILLERS = 2;
+
+	/**
+	 * Priority bases for each class of ply. A capture's priority is
+	 * <code>CAPTURE</code> plus its MVV-LVA score, and a quiet ply's
+	 * priority is its history score, which is always below
+	 * <code>KILLER</code>.
+	 */
+	private static final int HASH_MOVE = Integer.MAX_VALUE;
+	private static final int CAPTURE = 1 << 30;
+	private static final int KILLER = 1 << 29;
+
+	/**
+	 * Values of the pieces, by type, used to rank captures. Pieces of other
+	 * types are worth <code>DEFAULT_VALUE</code>.
+	 */
+	private static final Map<String, Integer> VALUES =
+		new HashMap<String, Integer>();
+	private static final int DEFAULT_VALUE = 1;
+
+	/**
+	 * The history table has <tt>2^HISTORY_BITS</tt> scores; plies whose
+	 * codes hash to the same one share it.
+	 */
+	private static final int HISTORY_BITS = 12;
+
+	/**
+	 * Number of history scores.
+	 */
+	static final int HISTORY_SIZE = 1 << HISTORY_BITS;
+	static {
+		VALUES.put("pawn", 1);
+		VALUES.put("knight", 3);
+		VALUES.put("bishop", 3);
+		VALUES.put("rook", 5);
+		VALUES.put("queen", 9);
+		VALUES.put("king", 4);
+	}
+
+	//Fields
+
+	/**
+	 * The codes of the killer moves, indexed by distance from the root.
+	 * Newer killers come first.
+	 */
+	private int[][] killers = new int[0][KILLERS];
+
+	/**
+	 * The history scores, indexed by <code>slot(code)</code>.
+	 */
+	private final int[] history = new int[HISTORY_SIZE];
+
+	//AF(m) = an ordering whose killer moves at distance d are the plies
+	//        whose codes are the elements of killers[d] other than
+	//        Ply.NO_CODE, and whose history score for a ply p is
+	//        history[slot(p.getCode())].
+	//RI: killers[d].length == KILLERS, history values are in [0, KILLER)
+
+	/**
+	 * Returns the plies of the position in <code>board</code> in the order
+	 * they should be searched.
+	 *
+	 * @param board the board, before any of the plies is made
+	 * @param plies the plies of the position
+	 * @param turn the player who makes the plies
+	 * @param hashMove the code of the hash move, or
+	 * 			<code>Ply.NO_CODE</code>
+	 * @param distance the number of plies between the root of the search
+	 * 			and the position
+	 * @return a new list with the elements of <code>plies</code>
+	 */
+	List<Ply> order(Board board, List<Ply> plies, boolean turn,
+			int hashMove, int distance) {
+		int n = plies.size();
+		List<Ply> ordered = new ArrayList<Ply>(plies);
+		if (n < 2)
+			return ordered;
+		int[] priorities = new int[n];
+		for (int i = 0; i < n; i++)
+			priorities[i] = priority(board, ordered.get(i), turn, hashMove,
+					distance);
+
+		// insertion sort; it is stable and the lists are short
+		for (int i = 1; i < n; i++) {
+			Ply p = ordered.get(i);
+			int priority = priorities[i];
+			int j = i - 1;
+			while (j >= 0 && priorities[j] < priority) {
+				ordered.set(j + 1, ordered.get(j));
+				priorities[j + 1] = priorities[j];
+				j--;
+			}
+			ordered.set(j + 1, p);
+			priorities[j + 1] = priority;
+		}
+		return ordered;
+	}
+
+	/**
+	 * Records that <code>p</code> caused a cutoff in a position at the given
+	 * distance from the root, which was searched to <code>depth</code>.
+	 *
+	 * @param board the board, before <code>p</code> is made
+	 * @param turn the player who made <code>p</code>
+	 *
+	 * @modifies this
+	 * @effects if <code>p</code> is not a capture, makes it the newest
+	 * 			killer move at <code>distance</code> and raises its history
+	 * 			score
+	 */
+	void cutoff(Board board, Ply p, boolean turn, int depth, int distance) {
+		int move = p.getCode();
+		if (move == Ply.NO_CODE || captureScore(board, p, turn) >= 0)
+			return;
+
+		if (distance >= killers.length) {
+			int[][] larger = new int[distance + 1][];
+			System.arraycopy(killers, 0, larger, 0, killers.length);
+			for (int d = killers.length; d < larger.length; d++)
+				larger[d] = new int[KILLERS];
+			killers = larger;
+		}
+		int[] slots = killers[distance];
+		if (move != slots[0]) {
+			for (int i = KILLERS - 1; i > 0; i--)
+				slots[i] = slots[i - 1];
+			slots[0] = move;
+		}
+
+		int slot = slot(move);
+		history[slot] = Math.min(history[slot] + depth * depth, KILLER - 1);
+	}
+
+	/**
+	 * Returns a copy of the history scores, indexed by the slots of the
+	 * plies' codes.
+	 */
+	int[] getHistory() {
+		return history.clone();
+	}
+
+	/**
+	 * Sets the history scores to those of <code>scores</code>, such as
+	 * the ones learned in earlier searches, indexed as those returned by
+	 * <code>getHistory</code>.
+	 *
+	 * @requires <code>scores.length == HISTORY_SIZE</code>
+	 * @modifies this
+	 * @effects sets each history score to the corresponding element of
+	 * 			<code>scores</code>, limited to the range of history scores
+	 */
+	void setHistory(int[] scores) {
+		for (int i = 0; i < HISTORY_SIZE; i++)
+			history[i] = Math.max(0, Math.min(scores[i], KILLER - 1));
+	}
+
+	/**
+	 * Returns the priority of <code>p</code>; plies with higher priority
+	 * are searched first.
+	 */
+	private int priority(Board board, Ply p, boolean turn, int hashMove,
+			int distance) {
+		int move = p.getCode();
+		if (move != Ply.NO_CODE && move == hashMove)
+			return HASH_MOVE;
+		int capture = captureScore(board, p, turn);
+		if (capture >= 0)
+			return CAPTURE + capture;
+		if (move == Ply.NO_CODE)
+			return 0;
+		if (distance < killers.length) {
+			int[] slots = killers[distance];
+			for (int i = 0; i < KILLERS; i++)
+				if (move == slots[i])
+					return KILLER + KILLERS - i;
+		}
+		return history[slot(move)];
+	}
+
+	/**
+	 * Returns <tt>true</tt> if <code>p</code> captures a piece of the 
+	 * opponent of <code>turn</code> in <code>board</code>.
+	 *
+	 * @param board the board, before <code>p</code> is made
+	 */
+	static boolean isCapture(Board board, Ply p, boolean turn) {
+		return captureScore(board, p, turn) >= 0;
+	}
+
+	/**
+	 * Returns the index of the history score of the ply with the given
+	 * code.
+	 */
+	private static int slot(int code) {
+		return (code * 0x9E3779B9) >>> (32 - HISTORY_BITS);
+	}
+
+	/**
+	 * Returns the MVV-LVA score of <code>p</code> if it captures a piece of
+	 * the opponent of <code>turn</code>, or -1 otherwise. A piece is
+	 * captured if <code>p</code> removes it from <code>board</code>.
+	 */
+	private static int captureScore(Board board, Ply p, boolean turn) {
+		int victim = -1;
+		int attacker = 0;
+		for (Action a : p) {
+			if (a.getType() != Action.REMOVE)
+				continue;
+			Piece piece = board.getPiece(a.getCell());
+			if (piece == null)
+				continue;
+			if (piece.isWhite() != turn)
+				victim = Math.max(victim, value(piece));
+			else if (attacker == 0)
+				attacker = value(piece);
+		}
+		if (victim < 0)
+			return -1;
+		return victim * 16 + (15 - Math.min(attacker, 15));
+	}
+
+	/**
+	 * Returns the value of <code>piece</code>.
+	 */
+	private static int value(Piece piece) {
+		Integer value = VALUES.get(piece.getType());
+		return value == null ? DEFAULT_VALUE : value;
+	}
+}
@@ -0,0 +1,267 @@
+package player;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * An <code>OpeningBook</code> holds moves to play in known positions,
+ * typically the first positions of a game, so that they need not be
+ * searched. Positions are identified by their Zobrist keys (see
+ * <code>Board.getPositionKey</code>), which are the same in every run.
+ * Each position may have several moves, each with a weight; the moves of a
+ * position are chosen at random, in proportion to their weights.
+ *
+ * An <code>OpeningBook</code> is read from a binary file, written by an
+ * <code>OpeningBookBuilder</code>, which is mapped into memory instead of
+ * being read, so opening a book takes constant time and looking up a
+ * position takes logarithmic time in the size of the book. The file is
+ * made of a header followed by records, in big-endian byte order:
+ *
+ * <pre>
+ * header: int MAGIC, int VERSION, int number of records, int unused
+ * record: long key, int weight, byte[MOVE_LENGTH] move
+ * </pre>
+ *
+ * where the move is the ASCII name of the ply, padded with zeros. Records
+ * are sorted by key, as signed longs, so the records of a position are
+ * consecutive. Keys may collide, so a move read from the book must be
+ * checked to be valid before it is played.
+ *
+ * An <code>OpeningBook</code> is immutable, and can be shared by several
+ * threads.
+ *
+ * @specfield moves : key -> [move, weight] // the moves of each position
+ */
+public class OpeningBook {
+
+	/**
+	 * Name of the system property that holds the name of the book file
+	 * opened by <code>fromSystemProperties()</code>.
+	 */
+	public static final String FILE_PROPERTY = "pawned.book";
+
+	/**
+	 * First int of every book file ("PWBK").
+	 */
+	public static final int MAGIC = 0x5057424B;
+
+	/**
+	 * Version of the format of book files.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Size, in bytes, of the header of a book file.
+	 */
+	public static final int HEADER_SIZE = 16;
+
+	/**
+	 * Largest length of the name of a move in a book file.
+	 */
+	public static final int MOVE_LENGTH = 12;
+
+	/**
+	 * Size, in bytes, of a record of a book file.
+	 */
+	public static final int RECORD_SIZE = 8 + 4 + MOVE_LENGTH;
+
+	/**
+	 * A <code>BookMove</code> is a move of a position in a book, with its
+	 * weight. A <code>BookMove</code> is immutable.
+	 */
+	public static class BookMove {
+		private final String move;
+		private final int weight;
+
+		private BookMove(String move, int weight) {
+			this.move = move;
+			this.weight = weight;
+		}
+
+		/**
+		 * Returns the name of the ply.
+		 */
+		public String getMove() {
+			return move;
+		}
+
+		/**
+		 * Returns the weight of the move, which is positive.
+		 */
+		public int getWeight() {
+			return weight;
+		}
+
+		@Override
+		public String toString() {
+			return move + "(" + weight + ")";
+		}
+	}
+
+	//Fields
+
+	/**
+	 * The mapped file.
+	 */
+	private final ByteBuffer buffer;
+
+	/**
+	 * Number of records in the file.
+	 */
+	private final int size;
+
+	//AF(b) = the book whose moves are the records of buffer.
+	//RI: buffer.capacity() == HEADER_SIZE + size * RECORD_SIZE, records
+	//    sorted by key, weights > 0
+
+	private OpeningBook(ByteBuffer buffer, int size) {
+		this.buffer = buffer;
+		this.size = size;
+	}
+
+	/**
+	 * Opens the book in the given file.
+	 *
+	 * @throws IOException if the file cannot be read or is not a book file
+	 */
+	public static OpeningBook open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() < HEADER_SIZE)
+				throw new IOException("Not an opening book: " + file);
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Opening book too large to map: " 
+						+ file);
+			//The mapping remains valid after the channel is closed
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size());
+			if (buffer.getInt(0) != MAGIC)
+				throw new IOException("Not an opening book: " + file);
+			if (buffer.getInt(4) != VERSION)
+				throw new IOException("Unsupported opening book version: "
+						+ buffer.getInt(4));
+			int size = buffer.getInt(8);
+			if (size < 0 || channel.size()
+					!= HEADER_SIZE + (long) size * RECORD_SIZE)
+				throw new IOException("Corrupt opening book: " + file);
+			return new OpeningBook(buffer, size);
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Returns the book in the file named by the <code>FILE_PROPERTY</code>
+	 * system property, or <tt>null</tt> if the property is not set or the
+	 * file cannot be opened.
+	 */
+	public static OpeningBook fromSystemProperties() {
+		String name = System.getProperty(FILE_PROPERTY);
+		if (name == null || name.trim().length() == 0)
+			return null;
+		try {
+			return open(new File(name.trim()));
+		} catch (IOException ioe) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the number of moves in <tt>this</tt>, over all positions.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Returns the moves of the position with the given key, in the order
+	 * they are stored. The list is empty if the position is not in the
+	 * book.
+	 */
+	public List<BookMove> getMoves(long key) {
+		List<BookMove> moves = new ArrayList<BookMove>();
+		for (int i = first(key); i < size && keyAt(i) == key; i++)
+			moves.add(new BookMove(moveAt(i), weightAt(i)));
+		return moves;
+	}
+
+	/**
+	 * Chooses a move of the position with the given key among those in
+	 * <tt>valid</tt>, at random in proportion to their weights. Moves of
+	 * the book that are not in <tt>valid</tt> are ignored.
+	 *
+	 * @return the chosen move, or <tt>null</tt> if no move of the position
+	 * 			is in <tt>valid</tt>
+	 */
+	public String choose(long key, Collection<String> valid, Random random) {
+		List<BookMove> moves = getMoves(key);
+		long total = 0;
+		for (BookMove move : moves)
+			if (valid.contains(move.getMove()))
+				total += move.getWeight();
+		if (total == 0)
+			return null;
+		long pick = (long) (random.nextDouble() * total);
+		for (BookMove move : moves) {
+			if (!valid.contains(move.getMove()))
+				continue;
+			pick -= move.getWeight();
+			if (pick < 0)
+				return move.getMove();
+		}
+		return null; // not reached
+	}
+
+	/**
+	 * Returns the index of the first record whose key is not smaller than
+	 * <tt>key</tt>, or <code>size</code> if there is none.
+	 */
+	private int first(long key) {
+		int low = 0;
+		int high = size;
+		while (low < high) {
+			int mid = (low + high) >>> 1;
+			if (keyAt(mid) < key)
+				low = mid + 1;
+			else
+				high = mid;
+		}
+		return low;
+	}
+
+	private long keyAt(int index) {
+		return buffer.getLong(HEADER_SIZE + index * RECORD_SIZE);
+	}
+
+	private int weightAt(int index) {
+		return buffer.getInt(HEADER_SIZE + index * RECORD_SIZE + 8);
+	}
+
+	private String moveAt(int index) {
+		int offset = HEADER_SIZE + index * RECORD_SIZE + 12;
+		StringBuilder move = new StringBuilder(MOVE_LENGTH);
+		for (int i = 0; i < MOVE_LENGTH; i++) {
+			byte b = buffer.get(offset + i);
+			if (b == 0)
+				break;
+			move.append((char) b);
+		}
+		return move.toString();
+	}
+
+	/**
+	 * Returns a <code>String</code> representation of <tt>this</tt>.
+	 */
+	@Override
+	public String toString() {
+		return "OpeningBook[size=" + size + "]";
+	}
+}
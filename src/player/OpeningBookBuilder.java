@@ -0,0 +1,227 @@
+package player;
+
+import controller.XmlFactory;
+import engine.adt.Board;
+import engine.adt.Ply;
+import engine.adt.RuleSet;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import ruleset.antichess.StandardAC;
+
+/**
+ * An <code>OpeningBookBuilder</code> builds an <code>OpeningBook</code>
+ * from saved games, as written by <code>Controller.saveGame</code>. Every
+ * position reached in the first <code>getMaxPlies()</code> plies of a game
+ * gets the move played in it, and each time a move is played in a position
+ * its weight grows: by <code>WIN_WEIGHT</code> if the player who made it
+ * went on to win the game, by <code>LOSS_WEIGHT</code> if the player lost,
+ * and by <code>UNFINISHED_WEIGHT</code> if the game was saved before it was
+ * over.
+ *
+ * An <code>OpeningBookBuilder</code> can be run from the command line:
+ *
+ * <pre>
+ * java player.OpeningBookBuilder book-file max-plies game-file...
+ * </pre>
+ *
+ * which builds a book for standard antichess from the given games.
+ *
+ * @specfield ruleSet : RuleSet // the rules of the games added
+ * @specfield maxPlies : int // number of plies of each game added
+ * @specfield moves : key -> move -> weight
+ */
+public class OpeningBookBuilder {
+
+	/**
+	 * Weight added to a move whose player won the game.
+	 */
+	public static final int WIN_WEIGHT = 3;
+
+	/**
+	 * Weight added to a move played in a game that is not over.
+	 */
+	public static final int UNFINISHED_WEIGHT = 2;
+
+	/**
+	 * Weight added to a move whose player lost the game.
+	 */
+	public static final int LOSS_WEIGHT = 1;
+
+	//Fields
+
+	private final RuleSet ruleSet;
+
+	private final int maxPlies;
+
+	/**
+	 * The weights of the moves of each position, sorted by key.
+	 */
+	private final Map<Long, Map<String, Integer>> moves =
+		new TreeMap<Long, Map<String, Integer>>();
+
+	/**
+	 * Number of moves, over all positions.
+	 */
+	private int size = 0;
+
+	/**
+	 * Creates a new, empty <code>OpeningBookBuilder</code>.
+	 *
+	 * @param ruleSet the rules of the games to be added
+	 * @param maxPlies the number of plies of each game to be added
+	 * @throws IllegalArgumentException if <code>ruleSet == null</code> or
+	 * 			<code>maxPlies &lt; 0</code>
+	 */
+	public OpeningBookBuilder(RuleSet ruleSet, int maxPlies) {
+		if (ruleSet == null || maxPlies < 0)
+			throw new IllegalArgumentException("Bad arguments for builder");
+		this.ruleSet = ruleSet;
+		this.maxPlies = maxPlies;
+	}
+
+	/**
+	 * Returns the number of plies of each game added.
+	 */
+	public int getMaxPlies() {
+		return maxPlies;
+	}
+
+	/**
+	 * Returns the number of moves added, over all positions.
+	 */
+	public int size() {
+		return size;
+	}
+
+	/**
+	 * Adds the first plies of the game saved in <tt>file</tt>. Games of
+	 * other rules, and games that do not start from the initial board, are
+	 * not added. If a ply of the game cannot be made, the plies before it
+	 * are added.
+	 *
+	 * @modifies this
+	 * @return <tt>true</tt> if any ply of the game was added
+	 */
+	public boolean addGame(File file) {
+		if (!ruleSet.toString().equals(XmlFactory.xmlToRuleSet(file)))
+			return false;
+		String initial = XmlFactory.getTag("init-board", file);
+		if (initial == null || !initial.equals(""))
+			return false;
+		String history = XmlFactory.getTag("moveHistory", file);
+		if (history == null)
+			return false;
+		Boolean winner = XmlFactory.xmlToWinner(file);
+
+		Board board = ruleSet.boardFactory().getInitialBoard();
+		int added = 0;
+		for (String[] item : XmlFactory.xmlToHistory(history)) {
+			//white c2-c3 299000
+			if (added == maxPlies || item[1].length() > OpeningBook.MOVE_LENGTH)
+				break;
+			boolean isWhite = item[0].equals("white");
+			Ply ply;
+			try {
+				ply = ruleSet.plyFactory().getPly(item[1], board);
+			} catch (RuntimeException re) {
+				break;
+			}
+			if (ply == null)
+				break;
+			int weight = winner == null ? UNFINISHED_WEIGHT
+					: winner.booleanValue() == isWhite ? WIN_WEIGHT : LOSS_WEIGHT;
+			add(board.getPositionKey(isWhite), ply.toString(), weight);
+			board.executePly(ply);
+			added++;
+		}
+		return added > 0;
+	}
+
+	/**
+	 * Adds <tt>weight</tt> to the weight of <tt>move</tt> in the position
+	 * with the given key.
+	 */
+	private void add(long key, String move, int weight) {
+		Map<String, Integer> position = moves.get(key);
+		if (position == null) {
+			position = new TreeMap<String, Integer>();
+			moves.put(key, position);
+		}
+		Integer old = position.get(move);
+		if (old == null) {
+			size++;
+			position.put(move, weight);
+		} else
+			position.put(move, old + weight);
+	}
+
+	/**
+	 * Writes the book built so far to <tt>file</tt>, in the format read by
+	 * <code>OpeningBook.open</code>. The moves of each position are written
+	 * by decreasing weight.
+	 *
+	 * @throws IOException if the file cannot be written
+	 */
+	public void write(File file) throws IOException {
+		DataOutputStream out = new DataOutputStream(new BufferedOutputStream(
+				new FileOutputStream(file)));
+		try {
+			out.writeInt(OpeningBook.MAGIC);
+			out.writeInt(OpeningBook.VERSION);
+			out.writeInt(size);
+			out.writeInt(0);
+			for (Map.Entry<Long, Map<String, Integer>> position
+					: moves.entrySet()) {
+				Map<String, Integer> left =
+					new TreeMap<String, Integer>(position.getValue());
+				while (!left.isEmpty()) {
+					String best = null;
+					for (String move : left.keySet())
+						if (best == null || left.get(move) > left.get(best))
+							best = move;
+					out.writeLong(position.getKey());
+					out.writeInt(left.remove(best));
+					byte[] name = new byte[OpeningBook.MOVE_LENGTH];
+					for (int i = 0; i < best.length(); i++)
+						name[i] = (byte) best.charAt(i);
+					out.write(name);
+				}
+			}
+		} finally {
+			out.close();
+		}
+	}
+
+	/**
+	 * Builds a book for standard antichess.
+	 *
+	 * @param args the book file, the number of plies of each game to add,
+	 * 			and the files of the games
+	 */
+	public static void main(String[] args) throws IOException {
+		if (args.length < 3) {
+			System.err.println("Usage: java player.OpeningBookBuilder "
+					+ "book-file max-plies game-file...");
+			System.exit(1);
+		}
+		OpeningBookBuilder builder = new OpeningBookBuilder(new StandardAC(),
+				Integer.parseInt(args[1]));
+		int games = 0;
+		for (int i = 2; i < args.length; i++) {
+			if (builder.addGame(new File(args[i])))
+				games++;
+			else
+				System.err.println("Skipped " + args[i]);
+		}
+		builder.write(new File(args[0]));
+		System.out.println("Wrote " + builder.size() + " moves from "
+				+ games + " games to " + args[0]);
+	}
+}
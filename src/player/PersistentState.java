@@ -0,0 +1,426 @@
+package player;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+/**
+ * A <code>PersistentState</code> holds what an <code>AIPlayer</code> learns
+ * in its games and keeps for the next ones:
+ *
+ * <ul>
+ * <li>The history scores of its <code>MoveOrdering</code>, so that the
+ * 		first searches of a game already search good quiet plies first.
+ * 		They are halved at the end of every game, so old games count less
+ * 		than recent ones.</li>
+ * <li>Opening statistics: for the first <code>OPENING_PLIES</code> moves
+ * 		of each game, the number of games won and lost after making that
+ * 		move in that position. Moves that won more often than they lost are
+ * 		played again, like the moves of an <code>OpeningBook</code>.</li>
+ * <li>Time calibration: the average number of moves the player makes in
+ * 		a game, over which its time is spread, and the average ratio of the
+ * 		time a search took to the time it was given.</li>
+ * </ul>
+ *
+ * A <code>PersistentState</code> is written into a compact array of bytes
+ * of bounded size by <code>toBytes</code> and read back by
+ * <code>fromBytes</code>. The array is made of a header followed by
+ * records, in big-endian byte order:
+ *
+ * <pre>
+ * header:  int MAGIC, byte VERSION, int games, float movesPerGame,
+ *          float overrun, byte shift, short number of history records,
+ *          short number of opening records
+ * history: short slot, short score &gt;&gt; shift
+ * opening: long key, UTF move, short wins, short losses
+ * </pre>
+ *
+ * (where UTF strings are written as by <code>DataOutput.writeUTF</code>).
+ * When the state does not fit, the lowest history scores and the least
+ * played openings are left out.
+ *
+ * A <code>PersistentState</code> is not synchronized; it is meant to be
+ * used by the <code>AIPlayer</code> that learns into it.
+ *
+ * @specfield history : slot -> score
+ * @specfield openings : key -> move -> [wins, losses]
+ * @specfield games : int // number of games learned from
+ * @specfield movesPerGame : double // average number of moves per game
+ * @specfield overrun : double // average ratio of search time to budget
+ */
+public class PersistentState {
+
+	/**
+	 * First int of every state ("PWPS").
+	 */
+	public static final int MAGIC = 0x50575053;
+
+	/**
+	 * Version of the format of states.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * Size, in bytes, of the header of a state.
+	 */
+	public static final int HEADER_SIZE = 4 + 1 + 4 + 4 + 4 + 1 + 2 + 2;
+
+	/**
+	 * Number of moves of each game whose results are learned.
+	 */
+	public static final int OPENING_PLIES = 10;
+
+	/**
+	 * Weight of the newest game or search in the averages of the time
+	 * calibration.
+	 */
+	private static final double RATE = 0.25;
+
+	/**
+	 * Largest number of records of each kind in a state.
+	 */
+	private static final int MAX_RECORDS = Short.MAX_VALUE;
+
+	/**
+	 * The results of a move in a position.
+	 */
+	private static class Opening {
+		private final long key;
+		private final String move;
+		private int wins = 0;
+		private int losses = 0;
+
+		private Opening(long key, String move) {
+			this.key = key;
+			this.move = move;
+		}
+
+		private int games() {
+			return wins + losses;
+		}
+	}
+
+	/**
+	 * Orders openings by decreasing number of games.
+	 */
+	private static final Comparator<Opening> MOST_PLAYED =
+		new Comparator<Opening>() {
+			public int compare(Opening a, Opening b) {
+				return b.games() - a.games();
+			}
+		};
+
+	//Fields
+
+	private final int[] history = new int[MoveOrdering.HISTORY_SIZE];
+
+	/**
+	 * The openings of each position.
+	 */
+	private final Map<Long, List<Opening>> openings =
+		new HashMap<Long, List<Opening>>();
+
+	private int games = 0;
+
+	private double movesPerGame = 0;
+
+	private double overrun = 1;
+
+	//AF(s) = the state whose history score of slot i is history[i], whose
+	//        openings are the elements of the lists of openings, and whose
+	//        games, movesPerGame and overrun are the fields of the same
+	//        names.
+	//RI: history values >= 0, the openings of openings.get(k) have key k
+	//    and distinct moves, games >= 0, movesPerGame >= 0, overrun > 0
+
+	/**
+	 * Creates a new <code>PersistentState</code> that has learned nothing.
+	 */
+	public PersistentState() {
+	}
+
+	/**
+	 * Reads a state written by <code>toBytes</code>. A state that cannot be
+	 * read, e.g. the zero-length array given before the first game, is
+	 * taken to be empty.
+	 *
+	 * @return a new state, never <code>null</code>
+	 */
+	public static PersistentState fromBytes(byte[] bytes) {
+		PersistentState state = new PersistentState();
+		if (bytes == null || bytes.length < HEADER_SIZE)
+			return state;
+		DataInputStream in = new DataInputStream(
+				new ByteArrayInputStream(bytes));
+		try {
+			if (in.readInt() != MAGIC || in.readByte() != VERSION)
+				return state;
+			int games = in.readInt();
+			float movesPerGame = in.readFloat();
+			float overrun = in.readFloat();
+			int shift = in.readByte();
+			int historyCount = in.readShort();
+			int openingCount = in.readShort();
+			if (games < 0 || !(movesPerGame >= 0) || !(overrun > 0)
+					|| shift < 0 || shift > 31 || historyCount < 0
+					|| openingCount < 0)
+				return new PersistentState();
+			state.games = games;
+			state.movesPerGame = movesPerGame;
+			state.overrun = overrun;
+			for (int i = 0; i < historyCount; i++) {
+				int slot = in.readShort() & 0xFFFF;
+				int score = in.readShort() & 0xFFFF;
+				if (slot < state.history.length)
+					state.history[slot] = score << shift;
+			}
+			for (int i = 0; i < openingCount; i++) {
+				Opening opening = state.getOpening(in.readLong(),
+						in.readUTF());
+				opening.wins = in.readShort() & 0xFFFF;
+				opening.losses = in.readShort() & 0xFFFF;
+			}
+		} catch (IOException ioe) {
+			return new PersistentState();
+		}
+		return state;
+	}
+
+	/**
+	 * Returns <tt>this</tt> written as an array of at most
+	 * <tt>limit</tt> bytes, which <code>fromBytes</code> reads back. If
+	 * <tt>this</tt> does not fit, the lowest history scores and the least
+	 * played openings are left out.
+	 *
+	 * @return the array, which is empty if even an empty state does not
+	 * 			fit
+	 */
+	public byte[] toBytes(int limit) {
+		if (limit < HEADER_SIZE)
+			return new byte[0];
+
+		int max = 0;
+		for (int score : history)
+			max = Math.max(max, score);
+		int shift = 0;
+		while ((max >> shift) > 0xFFFF)
+			shift++;
+		List<Integer> slots = new ArrayList<Integer>();
+		for (int i = 0; i < history.length; i++)
+			if ((history[i] >> shift) > 0)
+				slots.add(i);
+		Collections.sort(slots, new Comparator<Integer>() {
+			public int compare(Integer a, Integer b) {
+				return history[b] - history[a];
+			}
+		});
+		List<Opening> played = new ArrayList<Opening>();
+		for (List<Opening> position : openings.values())
+			for (Opening opening : position)
+				if (opening.games() > 0)
+					played.add(opening);
+		Collections.sort(played, MOST_PLAYED);
+
+		int historyCount = Math.min(slots.size(), MAX_RECORDS);
+		int openingCount = Math.min(played.size(), MAX_RECORDS);
+		while (true) {
+			byte[] bytes = write(shift, slots.subList(0, historyCount),
+					played.subList(0, openingCount));
+			if (bytes.length <= limit)
+				return bytes;
+			historyCount = historyCount * 3 / 4;
+			openingCount = openingCount * 3 / 4;
+		}
+	}
+
+	/**
+	 * Writes the header of <tt>this</tt> and the given records.
+	 */
+	private byte[] write(int shift, List<Integer> slots,
+			List<Opening> played) {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream out = new DataOutputStream(bytes);
+		try {
+			out.writeInt(MAGIC);
+			out.writeByte(VERSION);
+			out.writeInt(games);
+			out.writeFloat((float) movesPerGame);
+			out.writeFloat((float) overrun);
+			out.writeByte(shift);
+			out.writeShort(slots.size());
+			out.writeShort(played.size());
+			for (int slot : slots) {
+				out.writeShort(slot);
+				out.writeShort(history[slot] >> shift);
+			}
+			for (Opening opening : played) {
+				out.writeLong(opening.key);
+				out.writeUTF(opening.move);
+				out.writeShort(Math.min(opening.wins, 0xFFFF));
+				out.writeShort(Math.min(opening.losses, 0xFFFF));
+			}
+			out.close();
+		} catch (IOException ioe) {
+			//not thrown by a ByteArrayOutputStream
+			throw new IllegalStateException(ioe);
+		}
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Returns the number of games learned from.
+	 */
+	public int getGames() {
+		return games;
+	}
+
+	/**
+	 * Returns the average number of moves made in a game, or 0 if no
+	 * game was learned from.
+	 */
+	public double getMovesPerGame() {
+		return movesPerGame;
+	}
+
+	/**
+	 * Returns the average ratio of the time a search took to the time it
+	 * was given, which is 1 if no search was timed.
+	 */
+	public double getOverrun() {
+		return overrun;
+	}
+
+	/**
+	 * Returns a copy of the history scores, indexed as those of a
+	 * <code>MoveOrdering</code>.
+	 */
+	public int[] getHistory() {
+		return history.clone();
+	}
+
+	/**
+	 * Sets the history scores to those of <tt>scores</tt>, indexed as those
+	 * of a <code>MoveOrdering</code>.
+	 *
+	 * @requires <code>scores.length == MoveOrdering.HISTORY_SIZE</code>
+	 * 			and its elements be >= 0
+	 * @modifies this
+	 */
+	public void setHistory(int[] scores) {
+		System.arraycopy(scores, 0, history, 0, history.length);
+	}
+
+	/**
+	 * Records that a search given <tt>budget</tt> milliseconds took
+	 * <tt>elapsed</tt> milliseconds.
+	 *
+	 * @modifies this
+	 */
+	public void recordTime(long budget, long elapsed) {
+		if (budget <= 0)
+			return;
+		double ratio = Math.max((double) elapsed / budget, 0.01);
+		overrun += RATE * (ratio - overrun);
+	}
+
+	/**
+	 * Records the end of a game in which the player made <tt>moves</tt>
+	 * moves, the first of which were <tt>played</tt> in the positions with
+	 * the given keys.
+	 *
+	 * @param won <tt>true</tt> if the player won, <tt>false</tt> if it
+	 * 			lost, and <tt>null</tt> if the game was drawn
+	 * @requires <code>keys.size() == played.size()</code>
+	 * @modifies this
+	 * @effects learns the results of the first <code>OPENING_PLIES</code>
+	 * 			moves, updates the average number of moves per game, and
+	 * 			halves the history scores
+	 */
+	public void recordGame(List<Long> keys, List<String> played,
+			Boolean won, int moves) {
+		for (int i = 0; i < keys.size() && i < OPENING_PLIES; i++) {
+			if (won == null)
+				continue;
+			Opening opening = getOpening(keys.get(i), played.get(i));
+			if (won.booleanValue())
+				opening.wins++;
+			else
+				opening.losses++;
+		}
+		if (games == 0)
+			movesPerGame = moves;
+		else
+			movesPerGame += RATE * (moves - movesPerGame);
+		games++;
+		for (int i = 0; i < history.length; i++)
+			history[i] >>= 1;
+	}
+
+	/**
+	 * Chooses a move of the position with the given key among those in
+	 * <tt>valid</tt> that won more games than they lost, at random in
+	 * proportion to the difference.
+	 *
+	 * @return the chosen move, or <tt>null</tt> if there is none
+	 */
+	public String chooseOpening(long key, Collection<String> valid,
+			Random random) {
+		List<Opening> position = openings.get(key);
+		if (position == null)
+			return null;
+		long total = 0;
+		for (Opening opening : position)
+			if (opening.wins > opening.losses && valid.contains(opening.move))
+				total += opening.wins - opening.losses;
+		if (total == 0)
+			return null;
+		long pick = (long) (random.nextDouble() * total);
+		for (Opening opening : position) {
+			if (opening.wins <= opening.losses
+					|| !valid.contains(opening.move))
+				continue;
+			pick -= opening.wins - opening.losses;
+			if (pick < 0)
+				return opening.move;
+		}
+		return null; // not reached
+	}
+
+	/**
+	 * Returns the opening of <tt>move</tt> in the position with the given
+	 * key, adding it if there is none.
+	 */
+	private Opening getOpening(long key, String move) {
+		List<Opening> position = openings.get(key);
+		if (position == null) {
+			position = new ArrayList<Opening>(1);
+			openings.put(key, position);
+		}
+		for (Opening opening : position)
+			if (opening.move.equals(move))
+				return opening;
+		Opening opening = new Opening(key, move);
+		position.add(opening);
+		return opening;
+	}
+
+	/**
+	 * Returns a <code>String</code> representation of <tt>this</tt>.
+	 */
+	@Override
+	public String toString() {
+		return "PersistentState[games=" + games + ", movesPerGame="
+			+ movesPerGame + ", overrun=" + overrun + ", positions="
+			+ openings.size() + "]";
+	}
+}
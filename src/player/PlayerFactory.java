@@ -60,9 +60,9 @@ public class PlayerFactory implements AiPlayerFactory {
 	private final int DEPTH = 2;
 	
 	/**
-	 * The persistent state.
+	 * The persistent state given to the last player created.
 	 */
-	private byte[] persistentState;
+	private byte[] persistentState = new byte[0];
 	
 	
 	/**
@@ -137,13 +137,24 @@ public class PlayerFactory implements AiPlayerFactory {
 				byte[] persistentState, int persistentStateSizeLimit) {
 		
 		Player ai = null;
+		RuleSet rs = parseRuleSet(gameProperties);
 		EvaluatorFactory efact = new EvaluatorFactory();
+		this.persistentState = persistentState;
 		if (playerToCreate.equals("Deterministic"))
 			ai = new DeterministicAiPlayer();
-		else
-			ai = new AIPlayer(true, efact.createEvaluator(1), DEPTH);
-		return new MachinePlayer(isWhite, parseRuleSet(gameProperties),
-						false, 0, 0, ai, chatProxy);
+		else {
+			//the players of this process share one table per rule set, which
+			//keeps what the searches of earlier games found
+			AIPlayer player = new AIPlayer(true, efact.createEvaluator(1), 
+					DEPTH, TranspositionTable.getShared(rs.toString()));
+			player.setPersistentState(PersistentState.fromBytes(persistentState));
+			ai = player;
+		}
+		long whiteTime = parseTime(true, gameProperties);
+		long blackTime = parseTime(false, gameProperties);
+		return new MachinePlayer(isWhite, rs,
+						whiteTime != Controller.UNTIMED, whiteTime, blackTime, 
+						ai, chatProxy, persistentStateSizeLimit);
 	}
 
 	/**
@@ -174,7 +185,7 @@ public class PlayerFactory implements AiPlayerFactory {
 	private long parseTime(boolean isWhite, Properties gameProperties) {
 		String timed = gameProperties.getProperty(AiPlayerFactory.PROPERTY_TIMED_GAME);
 		long time = Long.valueOf(Controller.UNTIMED);
-		if (timed.equals("true"))
+		if ("true".equals(timed))
 			if (isWhite)
 				time = Long.valueOf(gameProperties.getProperty(AiPlayerFactory.PROPERTY_INIT_TIME_WHITE));
 			else
@@ -0,0 +1,158 @@
+package player;
+
+/**
+ * A <code>Quiescence</code> holds the settings and the statistics of the
+ * quiescence stage of an alpha-beta search. When the search reaches its
+ * nominal depth in a position where the player to move is obliged to
+ * capture (every ply it may make captures, as the antichess rules demand
+ * whenever a capture is possible), the position is not evaluated right
+ * away: the search goes on through the forced captures, and only quiet
+ * positions, where the obligation is over, are evaluated. This keeps the
+ * search from evaluating in the middle of a capture chain, whose outcome
+ * the evaluation cannot see (the horizon effect).
+ *
+ * Capture chains are finite, since every capture takes a piece off the
+ * board, but they may branch a lot. The search that extends a position
+ * therefore stops after visiting <code>getBudget()</code> positions, and
+ * evaluates the positions it has not reached as they are.
+ *
+ * A <code>Quiescence</code> is mutable and not synchronized: each
+ * searching thread should have its own.
+ *
+ * @specfield budget : int // positions visited per extended position
+ * @specfield nodes : int // positions visited by the quiescence stage
+ * @specfield extended : int // positions whose search was extended
+ * @specfield exhausted : int // extensions that ran out of budget
+ * @specfield maxPlies : int // length of the longest capture chain searched
+ */
+public class Quiescence {
+
+	/**
+	 * The default number of positions visited per extended position.
+	 */
+	public static final int DEFAULT_BUDGET = 2000;
+
+	//Fields
+
+	private final int budget;
+
+	private long nodes = 0;
+
+	private long extended = 0;
+
+	private long exhausted = 0;
+
+	private int maxPlies = 0;
+
+	/**
+	 * The number of positions the current extension may still visit.
+	 */
+	private int left = 0;
+
+	/**
+	 * Whether the current extension has run out of budget.
+	 */
+	private boolean out = false;
+
+	//AF(q) = the quiescence stage with budget budget whose statistics are
+	//        nodes, extended, exhausted and maxPlies.
+	//RI: budget >= 0, 0 <= left <= budget, nodes, extended, exhausted,
+	//    maxPlies >= 0
+
+	/**
+	 * Creates a new <code>Quiescence</code> whose statistics are zero.
+	 *
+	 * @param budget the number of positions that may be visited to extend
+	 * 			the search of a position; if 0, no position is extended
+	 * @throws IllegalArgumentException if <code>budget &lt; 0</code>
+	 */
+	public Quiescence(int budget) {
+		if (budget < 0)
+			throw new IllegalArgumentException("Negative quiescence budget");
+		this.budget = budget;
+	}
+
+	/**
+	 * Returns the number of positions that may be visited to extend the
+	 * search of a position.
+	 */
+	public int getBudget() {
+		return budget;
+	}
+
+	/**
+	 * Returns the number of positions visited by the quiescence stage,
+	 * without counting the positions whose search was extended.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Returns the number of positions, at the nominal depth of the search,
+	 * whose search was extended because the player to move had to capture.
+	 */
+	public long getExtended() {
+		return extended;
+	}
+
+	/**
+	 * Returns the number of extensions that ran out of budget, and thus
+	 * evaluated positions where a capture was still forced.
+	 */
+	public long getExhausted() {
+		return exhausted;
+	}
+
+	/**
+	 * Returns the length, in plies, of the longest capture chain searched.
+	 */
+	public int getMaxPlies() {
+		return maxPlies;
+	}
+
+	/**
+	 * Starts the extension of a position.
+	 *
+	 * @modifies this
+	 * @effects gives the extension a fresh budget, and counts it
+	 */
+	void startExtension() {
+		extended++;
+		left = budget;
+		out = false;
+	}
+
+	/**
+	 * Takes one position, <code>plies</code> plies into a capture chain,
+	 * from the budget of the current extension.
+	 *
+	 * @modifies this
+	 * @return <tt>false</tt> if the budget had run out, in which case the
+	 * 			position must be evaluated as it is
+	 */
+	boolean visit(int plies) {
+		if (left == 0) {
+			if (!out) {
+				out = true;
+				exhausted++;
+			}
+			return false;
+		}
+		left--;
+		nodes++;
+		maxPlies = Math.max(maxPlies, plies);
+		return true;
+	}
+
+	/**
+	 * Returns a <code>String</code> representation of the statistics of
+	 * <tt>this</tt>.
+	 */
+	@Override
+	public String toString() {
+		return "Quiescence[budget=" + budget + ", nodes=" + nodes
+			+ ", extended=" + extended + ", exhausted=" + exhausted
+			+ ", maxPlies=" + maxPlies + "]";
+	}
+}
@@ -0,0 +1,76 @@
+package player;
+
+import java.util.List;
+
+import engine.adt.Board;
+import engine.adt.RuleSet;
+import engine.game.GameInfo;
+
+/**
+ * A <code>SearchAlgorithm</code> is one of the algorithms of
+ * <code>GameSearcher</code> that search a game tree to a fixed depth. An
+ * <code>AIPlayer</code> can be told which one to use, e.g. to compare them.
+ */
+public enum SearchAlgorithm {
+
+	/**
+	 * Plain minimax; every ply is searched to the full depth.
+	 */
+	MINIMAX {
+		public BoardNode search(RuleSet rs, Evaluator evaluator, Board board,
+				List<Boolean> turnHistory, GameInfo info, int depth,
+				TranspositionTable table) {
+			return GameSearcher.minimax(rs, evaluator, board, turnHistory,
+					info, depth, table);
+		}
+	},
+
+	/**
+	 * Minimax with alpha-beta pruning and move ordering.
+	 */
+	ALPHA_BETA {
+		public BoardNode search(RuleSet rs, Evaluator evaluator, Board board,
+				List<Boolean> turnHistory, GameInfo info, int depth,
+				TranspositionTable table) {
+			SearchContext context = new SearchContext();
+			context.setTable(table);
+			return GameSearcher.alphabeta(rs, evaluator, board, turnHistory,
+					info, depth, -Integer.MAX_VALUE, Integer.MAX_VALUE, context);
+		}
+	};
+
+	/**
+	 * Name of the system property that determines the algorithm returned
+	 * by <code>fromSystemProperties()</code>; either <tt>MINIMAX</tt> or
+	 * <tt>ALPHA_BETA</tt>.
+	 */
+	public static final String PROPERTY = "pawned.search";
+
+	/**
+	 * Searches the game tree described by the arguments, as explained in
+	 * <code>GameSearcher.minimax</code>, to the given depth.
+	 *
+	 * @param table The transposition table to use, or <code>null</code>
+	 * 				to search without one.
+	 * @return A <code>BoardNode</code> that maximizes the minimum
+	 * 			utility.
+	 */
+	public abstract BoardNode search(RuleSet rs, Evaluator evaluator,
+			Board board, List<Boolean> turnHistory, GameInfo info, int depth,
+			TranspositionTable table);
+
+	/**
+	 * Returns the algorithm named by the <code>PROPERTY</code> system
+	 * property, or <code>ALPHA_BETA</code> if it is missing or invalid.
+	 */
+	public static SearchAlgorithm fromSystemProperties() {
+		try {
+			String value = System.getProperty(PROPERTY);
+			if (value != null)
+				return valueOf(value.trim());
+		} catch (IllegalArgumentException iae) {
+			// keep the default
+		}
+		return ALPHA_BETA;
+	}
+}
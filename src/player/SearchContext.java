@@ -0,0 +1,268 @@
+package player;
+
+import java.util.concurrent.ExecutorService;
+
+import engine.adt.Board;
+import engine.adt.Ply;
+
+/**
+ * A <code>SearchContext</code> holds what a search of
+ * <code>GameSearcher</code> uses besides the game tree itself: the
+ * transposition table and the tablebase it looks positions up in, the
+ * limit that tells it when to give up, the threads it runs on, the
+ * settings of its quiescence stage, and the move ordering and the
+ * statistics that gather what it finds.
+ *
+ * A new <code>SearchContext</code> describes a search on the calling
+ * thread alone, with no transposition table, no tablebase, no quiescence
+ * stage and a limit that only expires when it is stopped. Each setter
+ * turns one of these on.
+ *
+ * A <code>SearchContext</code> is mutable and not synchronized. Since its
+ * move ordering, quiescence stage and statistics gather what a search
+ * finds, it should be used by one search at a time; the helper threads of
+ * a parallel search get their own (see <code>forHelper</code>).
+ *
+ * @specfield table : TranspositionTable // the table, or null
+ * @specfield tablebase : Tablebase // the tablebase, or null
+ * @specfield limit : SearchLimit // tells the search when to give up
+ * @specfield executor : ExecutorService // runs the helpers, or null
+ * @specfield threads : int // number of threads the search runs on
+ * @specfield quiescence : Quiescence // the quiescence stage, or null
+ * @specfield ordering : MoveOrdering // orders the plies of the search
+ * @specfield stats : SearchStats // the statistics of the search
+ */
+public class SearchContext {
+
+	//Fields
+
+	private TranspositionTable table = null;
+
+	private Tablebase tablebase = null;
+
+	private SearchLimit limit = new SearchLimit(SearchLimit.UNLIMITED);
+
+	private ExecutorService executor = null;
+
+	private int threads = 1;
+
+	private Quiescence quiescence = null;
+
+	private MoveOrdering ordering = new MoveOrdering();
+
+	private SearchStats stats = new SearchStats();
+
+	/**
+	 * The record of the last ply made by the search at each distance from
+	 * its root, reused by the next ply made at that distance.
+	 */
+	private Board.Undo[] undos = new Board.Undo[16];
+
+	//AF(c) = the context whose parts are the fields of the same names.
+	//RI: limit, ordering, stats != null, threads >= 1
+
+	/**
+	 * Creates a new <code>SearchContext</code> for a search on the calling
+	 * thread, with no transposition table, no tablebase, no quiescence
+	 * stage, a limit that only expires when it is stopped, and a new move
+	 * ordering and statistics.
+	 */
+	public SearchContext() {
+	}
+
+	/**
+	 * Returns the transposition table of the search, or <code>null</code>
+	 * if it has none.
+	 */
+	public TranspositionTable getTable() {
+		return table;
+	}
+
+	/**
+	 * Makes the search look positions up in, and store them into,
+	 * <code>table</code>. Stored results may cut the search of a position
+	 * short, and the best move stored for it is searched first.
+	 *
+	 * @param table the table, or <code>null</code> to search without one
+	 * @modifies this
+	 */
+	public void setTable(TranspositionTable table) {
+		this.table = table;
+	}
+
+	/**
+	 * Returns the tablebase of the search, or <code>null</code> if it has
+	 * none.
+	 */
+	public Tablebase getTablebase() {
+		return tablebase;
+	}
+
+	/**
+	 * Makes the search take the value of the positions below the root that
+	 * are in <code>tablebase</code> from it, instead of searching them.
+	 *
+	 * @param tablebase the tablebase, or <code>null</code> to search every
+	 * 			position
+	 * @modifies this
+	 */
+	public void setTablebase(Tablebase tablebase) {
+		this.tablebase = tablebase;
+	}
+
+	/**
+	 * Returns the limit of the search.
+	 */
+	public SearchLimit getLimit() {
+		return limit;
+	}
+
+	/**
+	 * Makes the search give up when <code>limit</code> expires, which the
+	 * caller may stop, or whose budget it may change, while the search
+	 * runs.
+	 *
+	 * @throws IllegalArgumentException if <code>limit</code> is
+	 * 			<code>null</code>
+	 * @modifies this
+	 */
+	public void setLimit(SearchLimit limit) {
+		if (limit == null)
+			throw new IllegalArgumentException("Null search limit");
+		this.limit = limit;
+	}
+
+	/**
+	 * Returns the executor that runs the helper tasks of the search, or
+	 * <code>null</code> if it runs on the calling thread only.
+	 */
+	public ExecutorService getExecutor() {
+		return executor;
+	}
+
+	/**
+	 * Returns the number of threads the search runs on.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Makes an iterative deepening search run on <code>threads</code>
+	 * threads: the calling thread, and <code>threads - 1</code> helper
+	 * tasks submitted to <code>executor</code>.
+	 *
+	 * @param executor the executor, or <code>null</code> to search on the
+	 * 			calling thread only
+	 * @throws IllegalArgumentException if <code>threads &lt; 1</code>
+	 * @modifies this
+	 */
+	public void setExecutor(ExecutorService executor, int threads) {
+		if (threads < 1)
+			throw new IllegalArgumentException("Invalid number of threads");
+		this.executor = executor;
+		this.threads = threads;
+	}
+
+	/**
+	 * Returns the quiescence stage of the search, or <code>null</code> if
+	 * it has none.
+	 */
+	public Quiescence getQuiescence() {
+		return quiescence;
+	}
+
+	/**
+	 * Makes the search go on through the forced captures of the positions
+	 * at its nominal depth, as described in <code>Quiescence</code>, which
+	 * gathers the statistics of the calling thread.
+	 *
+	 * @param quiescence the quiescence stage, or <code>null</code> to
+	 * 			evaluate every position at the nominal depth
+	 * @modifies this
+	 */
+	public void setQuiescence(Quiescence quiescence) {
+		this.quiescence = quiescence;
+	}
+
+	/**
+	 * Returns the statistics of the search.
+	 */
+	public SearchStats getStats() {
+		return stats;
+	}
+
+	/**
+	 * Makes the search gather its statistics in <code>stats</code>, e.g.
+	 * to have a <code>SearchObserver</code> told about its progress.
+	 *
+	 * @throws IllegalArgumentException if <code>stats</code> is
+	 * 			<code>null</code>
+	 * @modifies this
+	 */
+	public void setStats(SearchStats stats) {
+		if (stats == null)
+			throw new IllegalArgumentException("Null search statistics");
+		this.stats = stats;
+	}
+
+	/**
+	 * Returns the move ordering of the search.
+	 */
+	MoveOrdering getOrdering() {
+		return ordering;
+	}
+
+	/**
+	 * Makes the search order its plies with <code>ordering</code>, which
+	 * keeps what it learns (e.g. to seed the next search with its history
+	 * scores).
+	 *
+	 * @requires <code>ordering != null</code>
+	 * @modifies this
+	 */
+	void setOrdering(MoveOrdering ordering) {
+		this.ordering = ordering;
+	}
+
+	/**
+	 * Makes <code>ply</code> on <code>board</code>, the board of the
+	 * search, at <code>distance</code> plies from its root, reusing the
+	 * record of the last ply made at that distance, if any (see
+	 * <code>Board.makePly(Ply, Undo)</code>).
+	 *
+	 * @requires the last ply made at <code>distance</code> to have been
+	 * 			taken back
+	 * @modifies this, board
+	 * @return An <code>Undo</code> that takes <code>ply</code> back.
+	 */
+	Board.Undo makePly(Board board, Ply ply, int distance) {
+		if (distance >= undos.length) {
+			Board.Undo[] larger =
+				new Board.Undo[Math.max(distance + 1, 2 * undos.length)];
+			System.arraycopy(undos, 0, larger, 0, undos.length);
+			undos = larger;
+		}
+		Board.Undo reuse = undos[distance];
+		//Forget the record first, in case the ply turns out to be invalid
+		undos[distance] = null;
+		undos[distance] = board.makePly(ply, reuse);
+		return undos[distance];
+	}
+
+	/**
+	 * Returns a new context for a helper task of a search in
+	 * <tt>this</tt>: it shares the table, the tablebase and the limit of
+	 * <tt>this</tt>, runs on its own thread only, and has its own move
+	 * ordering, statistics and quiescence stage, with the same budget.
+	 */
+	SearchContext forHelper() {
+		SearchContext helper = new SearchContext();
+		helper.table = table;
+		helper.tablebase = tablebase;
+		helper.limit = limit;
+		if (quiescence != null)
+			helper.quiescence = new Quiescence(quiescence.getBudget());
+		return helper;
+	}
+}
@@ -0,0 +1,219 @@
+package player;
+
+/**
+ * A <code>SearchLimit</code> tells a running search when to give up: when
+ * its deadline has passed, when it has been stopped explicitly (e.g.
+ * because another thread searching the same position has finished, or the
+ * game was terminated), or when the thread running it has been
+ * interrupted. It is the cancellation token of the search.
+ *
+ * A search has two deadlines. The deadline of its budget only applies
+ * once it has a result (see <code>resultFound</code>), so that it always
+ * has a move to return; the hard deadline applies even before, so that
+ * it never runs out of time. The budget may also be extended while the
+ * result is unstable: each time an iteration finds a different best move
+ * than the previous one (see <code>setExtension</code>).
+ *
+ * The clock is read every <code>POLL_INTERVAL</code> nodes, not at every
+ * node; a stop is noticed at the next node.
+ *
+ * A <code>SearchLimit</code> can be shared by several threads.
+ */
+public class SearchLimit {
+
+	/**
+	 * The budget of searches that only end when they are stopped.
+	 */
+	public static final long UNLIMITED = Long.MAX_VALUE;
+
+	/**
+	 * Number of nodes searched between two reads of the clock. A node
+	 * takes some tens of microseconds to search, so a search notices that
+	 * a deadline has passed within a few milliseconds.
+	 */
+	public static final int POLL_INTERVAL = 16;
+
+	/**
+	 * The time, in milliseconds, at which the search started.
+	 */
+	private final long start;
+
+	/**
+	 * The time, in milliseconds, after which the search is abandoned once
+	 * it has a result.
+	 */
+	private volatile long deadline;
+
+	/**
+	 * The time, in milliseconds, after which the search is abandoned.
+	 */
+	private volatile long hardDeadline = Long.MAX_VALUE;
+
+	/**
+	 * Whether the search has a result.
+	 */
+	private volatile boolean found = false;
+
+	/**
+	 * The move of the last result, or <code>null</code> if there is none.
+	 */
+	private volatile String move = null;
+
+	/**
+	 * The time, in milliseconds, the deadline is put off by each time the
+	 * move of the result changes.
+	 */
+	private volatile long extension = 0;
+
+	/**
+	 * Whether the search has been stopped.
+	 */
+	private volatile boolean stopped = false;
+
+	/**
+	 * Number of nodes left before the clock is read again. It is shared by
+	 * the threads without synchronization: races only make a read happen a
+	 * few nodes early or late.
+	 */
+	private int countdown = POLL_INTERVAL;
+
+	/**
+	 * Returns a new <code>SearchLimit</code> that expires
+	 * <code>budget</code> milliseconds from now, or never if
+	 * <code>budget == UNLIMITED</code>.
+	 */
+	public SearchLimit(long budget) {
+		this.start = System.currentTimeMillis();
+		setBudget(budget);
+	}
+
+	/**
+	 * Changes the budget of the searches bound by <tt>this</tt>, which may
+	 * be running, to <code>budget</code> milliseconds from the creation of
+	 * <tt>this</tt>, or to no limit if <code>budget == UNLIMITED</code>.
+	 *
+	 * @modifies this
+	 */
+	public void setBudget(long budget) {
+		deadline = budget == UNLIMITED ? Long.MAX_VALUE : start + budget;
+	}
+
+	/**
+	 * Makes the searches bound by <tt>this</tt> be abandoned
+	 * <code>budget</code> milliseconds after the creation of <tt>this</tt>,
+	 * even if they have no result yet.
+	 *
+	 * @modifies this
+	 */
+	public void setHardBudget(long budget) {
+		hardDeadline = budget == UNLIMITED ? Long.MAX_VALUE : start + budget;
+	}
+
+	/**
+	 * Makes the budget grow by <code>extension</code> milliseconds each
+	 * time the move of the result changes, without passing the hard
+	 * deadline.
+	 *
+	 * @modifies this
+	 */
+	public void setExtension(long extension) {
+		this.extension = extension;
+	}
+
+	/**
+	 * Returns the current budget, in milliseconds from the creation of
+	 * <tt>this</tt>, including its extensions.
+	 */
+	public long getBudget() {
+		return deadline - start;
+	}
+
+	/**
+	 * Returns the hard budget, in milliseconds from the creation of
+	 * <tt>this</tt>.
+	 */
+	public long getHardBudget() {
+		return hardDeadline - start;
+	}
+
+	/**
+	 * Returns the time, in milliseconds, since the creation of
+	 * <tt>this</tt>.
+	 */
+	public long elapsed() {
+		return System.currentTimeMillis() - start;
+	}
+
+	/**
+	 * Records that the search has a result, whose ply is <code>move</code>,
+	 * so that it is abandoned when its budget runs out. If an earlier
+	 * result had another move, the budget is extended.
+	 *
+	 * @modifies this
+	 */
+	public void resultFound(String move) {
+		String previous = this.move;
+		if (found && extension > 0 && previous != null
+				&& !previous.equals(move)) {
+			long hard = hardDeadline;
+			if (deadline < hard - extension)
+				deadline += extension;
+			else if (deadline < hard)
+				deadline = hard;
+		}
+		this.move = move;
+		found = true;
+	}
+
+	/**
+	 * Stops the searches bound by <tt>this</tt>.
+	 *
+	 * @modifies this
+	 * @effects makes <code>expired()</code> and <code>poll()</code> return
+	 * 			<tt>true</tt> from now on
+	 */
+	public void stop() {
+		stopped = true;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the searches bound by <tt>this</tt> should
+	 * be abandoned.
+	 */
+	public boolean expired() {
+		if (stopped)
+			return true;
+		long now = System.currentTimeMillis();
+		return now > hardDeadline || (found && now > deadline);
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the searches bound by <tt>this</tt> should
+	 * be abandoned, as noticed by a search about to search a node: a stop
+	 * is noticed at once, and the clock and the interruption of the
+	 * current thread every <code>POLL_INTERVAL</code> calls.
+	 *
+	 * @modifies this
+	 * @effects stops the searches if the current thread was interrupted
+	 */
+	public boolean poll() {
+		if (stopped)
+			return true;
+		if (--countdown > 0)
+			return false;
+		countdown = POLL_INTERVAL;
+		if (Thread.currentThread().isInterrupted()) {
+			stop();
+			return true;
+		}
+		return expired();
+	}
+
+	/**
+	 * Returns <tt>true</tt> if at least half of the time between the
+	 * creation of <tt>this</tt> and its deadline has passed.
+	 */
+	public boolean halfUsed() {
+		return System.currentTimeMillis() - start >= (deadline - start) / 2;
+	}
+}
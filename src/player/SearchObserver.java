@@ -0,0 +1,33 @@
+package player;
+
+/**
+ * A <code>SearchObserver</code> is told about the progress of the searches
+ * of an <code>AIPlayer</code> (see <code>AIPlayer.addSearchObserver</code>),
+ * e.g. to log their statistics or to feed them to a monitoring system.
+ *
+ * The methods are called on the searching thread, which waits for them,
+ * so they are expected to return fast. An implementation of
+ * <tt>SearchObserver</tt> should consider spawning a new <tt>Thread</tt>
+ * whenever lengthy processing is required. The statistics given must not
+ * be kept past the call, since the search goes on changing them; a copy
+ * can be made with <code>new SearchStats(stats)</code>.
+ */
+public interface SearchObserver {
+
+	/**
+	 * Method to be called when an iteration of an iterative deepening
+	 * search has been completed.
+	 *
+	 * @param stats the statistics of the search so far, whose last
+	 * 			iteration is the one completed
+	 */
+	public void iterationCompleted(SearchStats stats);
+
+	/**
+	 * Method to be called when a search has ended.
+	 *
+	 * @param stats the statistics of the whole search, over all the
+	 * 			threads that ran it
+	 */
+	public void searchCompleted(SearchStats stats);
+}
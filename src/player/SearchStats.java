@@ -0,0 +1,410 @@
+package player;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * A <code>SearchStats</code> holds the statistics of an iterative
+ * deepening search: the positions it searched, how the transposition
+ * table and the move ordering served it, and the result, principal
+ * variation and time of each iteration it completed. The statistics
+ * are gathered by the searching thread; those of the helper threads of a
+ * parallel search are added to them when the search ends.
+ *
+ * A <code>SearchStats</code> is mutable and not synchronized: while the
+ * search runs, it should only be read by its <code>SearchObserver</code>.
+ *
+ * @specfield nodes : long // positions searched to a nominal depth
+ * @specfield qnodes : long // positions searched by the quiescence stage
+ * @specfield probes : long // lookups in the transposition table
+ * @specfield hits : long // lookups that found the position
+ * @specfield tableCutoffs : long // positions whose value the table gave
+ * @specfield tablebaseHits : long // positions whose value a tablebase gave
+ * @specfield cutoffs : long // beta cutoffs
+ * @specfield firstMoveCutoffs : long // beta cutoffs by the first ply
+ * @specfield selectiveDepth : int // largest distance from the root reached
+ * @specfield iterations : sequence of Iteration // the iterations completed
+ * @specfield elapsed : long // milliseconds since the search started
+ */
+public class SearchStats {
+
+	/**
+	 * An <code>Iteration</code> holds the result of an iteration of an
+	 * iterative deepening search. An <code>Iteration</code> is immutable.
+	 */
+	public static class Iteration {
+		private final int depth;
+		private final int value;
+		private final List<String> principalVariation;
+		private final long nodes;
+		private final long time;
+
+		private Iteration(int depth, int value,
+				List<String> principalVariation, long nodes, long time) {
+			this.depth = depth;
+			this.value = value;
+			this.principalVariation = Collections.unmodifiableList(
+					new ArrayList<String>(principalVariation));
+			this.nodes = nodes;
+			this.time = time;
+		}
+
+		/**
+		 * Returns the depth the iteration searched to.
+		 */
+		public int getDepth() {
+			return depth;
+		}
+
+		/**
+		 * Returns the value of the position for the player to move, as
+		 * found by the iteration.
+		 */
+		public int getValue() {
+			return value;
+		}
+
+		/**
+		 * Returns the plies the iteration expects to be played from the
+		 * position, its best ply first. It may be shorter than the depth,
+		 * when the transposition table no longer holds the positions.
+		 */
+		public List<String> getPrincipalVariation() {
+			return principalVariation;
+		}
+
+		/**
+		 * Returns the number of positions, counting the quiescence stage,
+		 * searched by the iteration.
+		 */
+		public long getNodes() {
+			return nodes;
+		}
+
+		/**
+		 * Returns the time, in milliseconds, the iteration took.
+		 */
+		public long getTime() {
+			return time;
+		}
+
+		@Override
+		public String toString() {
+			return "depth " + depth + " value " + value + " nodes " + nodes
+				+ " time " + time + " pv " + principalVariation;
+		}
+	}
+
+	//Fields
+
+	/**
+	 * Told about the iterations completed and the end of the search, or
+	 * <code>null</code>.
+	 */
+	private final SearchObserver observer;
+
+	private final long start;
+
+	/**
+	 * The time, in milliseconds, at which the search ended, or -1 if it is
+	 * running.
+	 */
+	private long end = -1;
+
+	private long nodes = 0;
+
+	private long qnodes = 0;
+
+	private long probes = 0;
+
+	private long hits = 0;
+
+	private long tableCutoffs = 0;
+
+	private long tablebaseHits = 0;
+
+	private long cutoffs = 0;
+
+	private long firstMoveCutoffs = 0;
+
+	private int selectiveDepth = 0;
+
+	private final List<Iteration> iterations = new ArrayList<Iteration>();
+
+	/**
+	 * The number of nodes, and the time, at the end of the last iteration.
+	 */
+	private long iterationNodes = 0;
+
+	private long iterationEnd;
+
+	//AF(s) = the statistics whose counts are the fields of the same names,
+	//        whose iterations are the elements of iterations, and whose
+	//        elapsed time ends at end, or now if end == -1.
+	//RI: counts >= 0, hits <= probes, firstMoveCutoffs <= cutoffs,
+	//    iterations != null
+
+	/**
+	 * Creates a new <code>SearchStats</code> whose counts are zero, for a
+	 * search that starts now.
+	 */
+	public SearchStats() {
+		this((SearchObserver) null);
+	}
+
+	/**
+	 * Creates a new <code>SearchStats</code> whose counts are zero, for a
+	 * search that starts now and tells <code>observer</code> about its
+	 * progress.
+	 *
+	 * @param observer the observer, or <code>null</code>
+	 */
+	public SearchStats(SearchObserver observer) {
+		this.observer = observer;
+		this.start = System.currentTimeMillis();
+		this.iterationEnd = start;
+	}
+
+	/**
+	 * Creates a copy of <code>stats</code>, which has no observer and
+	 * whose elapsed time is frozen.
+	 */
+	public SearchStats(SearchStats stats) {
+		this.observer = null;
+		this.start = stats.start;
+		this.end = stats.end == -1 ? System.currentTimeMillis() : stats.end;
+		this.iterationEnd = stats.iterationEnd;
+		this.iterationNodes = stats.iterationNodes;
+		this.iterations.addAll(stats.iterations);
+		add(stats);
+	}
+
+	/**
+	 * Returns the number of positions searched to a nominal depth.
+	 */
+	public long getNodes() {
+		return nodes;
+	}
+
+	/**
+	 * Returns the number of positions searched by the quiescence stage,
+	 * beyond the nominal depth.
+	 */
+	public long getQNodes() {
+		return qnodes;
+	}
+
+	/**
+	 * Returns the number of positions looked up in the transposition table.
+	 */
+	public long getTableProbes() {
+		return probes;
+	}
+
+	/**
+	 * Returns the number of positions found in the transposition table.
+	 */
+	public long getTableHits() {
+		return hits;
+	}
+
+	/**
+	 * Returns the number of positions whose value was taken from the
+	 * transposition table, without searching them.
+	 */
+	public long getTableCutoffs() {
+		return tableCutoffs;
+	}
+
+	/**
+	 * Returns the number of positions whose value was taken from a
+	 * tablebase.
+	 */
+	public long getTablebaseHits() {
+		return tablebaseHits;
+	}
+
+	/**
+	 * Returns the number of positions whose search was cut off because a
+	 * ply was too good for the opponent to allow (a beta cutoff).
+	 */
+	public long getCutoffs() {
+		return cutoffs;
+	}
+
+	/**
+	 * Returns the fraction of the beta cutoffs that were caused by the
+	 * first ply searched, which measures how good the move ordering is, or
+	 * 0 if there were none.
+	 */
+	public double getFirstMoveCutoffRate() {
+		return cutoffs == 0 ? 0 : (double) firstMoveCutoffs / cutoffs;
+	}
+
+	/**
+	 * Returns the depth of the deepest iteration completed, or 0 if there
+	 * is none.
+	 */
+	public int getDepth() {
+		return iterations.isEmpty() ? 0
+				: iterations.get(iterations.size() - 1).getDepth();
+	}
+
+	/**
+	 * Returns the largest number of plies between the root and a position
+	 * searched, counting the quiescence stage.
+	 */
+	public int getSelectiveDepth() {
+		return selectiveDepth;
+	}
+
+	/**
+	 * Returns the principal variation of the deepest iteration completed,
+	 * which is empty if there is none.
+	 */
+	public List<String> getPrincipalVariation() {
+		if (iterations.isEmpty())
+			return Collections.emptyList();
+		return iterations.get(iterations.size() - 1).getPrincipalVariation();
+	}
+
+	/**
+	 * Returns the iterations completed, the shallowest first.
+	 */
+	public List<Iteration> getIterations() {
+		return Collections.unmodifiableList(iterations);
+	}
+
+	/**
+	 * Returns the time, in milliseconds, from the start of the search to
+	 * its end, or to now if it is running.
+	 */
+	public long getElapsed() {
+		return (end == -1 ? System.currentTimeMillis() : end) - start;
+	}
+
+	/**
+	 * Returns the number of positions searched per second, counting the
+	 * quiescence stage.
+	 */
+	public long getNodesPerSecond() {
+		return (nodes + qnodes) * 1000 / Math.max(1, getElapsed());
+	}
+
+	/**
+	 * Counts a position searched to a nominal depth, <code>distance</code>
+	 * plies from the root.
+	 */
+	void node(int distance) {
+		nodes++;
+		if (distance > selectiveDepth)
+			selectiveDepth = distance;
+	}
+
+	/**
+	 * Counts a position searched by the quiescence stage,
+	 * <code>distance</code> plies from the root.
+	 */
+	void qnode(int distance) {
+		qnodes++;
+		if (distance > selectiveDepth)
+			selectiveDepth = distance;
+	}
+
+	/**
+	 * Counts a lookup in the transposition table, which found the position
+	 * if <code>hit</code>.
+	 */
+	void probe(boolean hit) {
+		probes++;
+		if (hit)
+			hits++;
+	}
+
+	/**
+	 * Counts a position whose value was taken from the transposition table.
+	 */
+	void tableCutoff() {
+		tableCutoffs++;
+	}
+
+	/**
+	 * Counts a position whose value was taken from a tablebase.
+	 */
+	void tablebaseHit() {
+		tablebaseHits++;
+	}
+
+	/**
+	 * Counts a beta cutoff, which the first ply searched caused if
+	 * <code>first</code>.
+	 */
+	void cutoff(boolean first) {
+		cutoffs++;
+		if (first)
+			firstMoveCutoffs++;
+	}
+
+	/**
+	 * Records that an iteration to <code>depth</code> was completed with
+	 * the given value and principal variation, and tells the observer.
+	 *
+	 * @modifies this
+	 */
+	void iterationCompleted(int depth, int value,
+			List<String> principalVariation) {
+		long now = System.currentTimeMillis();
+		long total = nodes + qnodes;
+		iterations.add(new Iteration(depth, value, principalVariation,
+				total - iterationNodes, now - iterationEnd));
+		iterationNodes = total;
+		iterationEnd = now;
+		if (observer != null)
+			observer.iterationCompleted(this);
+	}
+
+	/**
+	 * Adds the counts of <code>stats</code>, e.g. those of a helper thread
+	 * of the search, to those of <tt>this</tt>. The iterations of
+	 * <code>stats</code> are not added.
+	 *
+	 * @modifies this
+	 */
+	void add(SearchStats stats) {
+		nodes += stats.nodes;
+		qnodes += stats.qnodes;
+		probes += stats.probes;
+		hits += stats.hits;
+		tableCutoffs += stats.tableCutoffs;
+		tablebaseHits += stats.tablebaseHits;
+		cutoffs += stats.cutoffs;
+		firstMoveCutoffs += stats.firstMoveCutoffs;
+		selectiveDepth = Math.max(selectiveDepth, stats.selectiveDepth);
+	}
+
+	/**
+	 * Records that the search has ended, and tells the observer.
+	 *
+	 * @modifies this
+	 */
+	void searchCompleted() {
+		end = System.currentTimeMillis();
+		if (observer != null)
+			observer.searchCompleted(this);
+	}
+
+	/**
+	 * Returns a <code>String</code> representation of <tt>this</tt>.
+	 */
+	@Override
+	public String toString() {
+		return "SearchStats[depth=" + getDepth() + ", selectiveDepth="
+			+ selectiveDepth + ", nodes=" + nodes + ", qnodes=" + qnodes
+			+ ", nps=" + getNodesPerSecond() + ", tableHits=" + hits + "/"
+			+ probes + ", tableCutoffs=" + tableCutoffs + ", cutoffs="
+			+ cutoffs + ", firstMoveCutoffRate=" + getFirstMoveCutoffRate()
+			+ ", elapsed=" + getElapsed() + ", pv="
+			+ getPrincipalVariation() + "]";
+	}
+}
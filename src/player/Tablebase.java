@@ -0,0 +1,371 @@
+package player;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+
+import ruleset.board.RectangularBoard;
+
+import engine.adt.Board;
+import engine.adt.Piece;
+
+/**
+ * A <code>Tablebase</code> holds the result of every position with few
+ * pieces, as found by a <code>TablebaseGenerator</code>: whether the player
+ * to move wins, loses, or draws with best play, and in how many plies the
+ * game is won or lost. A search that reaches such a position need not
+ * search it any further.
+ *
+ * The positions are grouped by their material, or <i>signature</i>: the
+ * types of the white pieces and the types of the black pieces, e.g.
+ * <tt>king,queen/king</tt>. Each signature has a table with one byte per
+ * position, indexed by the cells of the pieces and the player to move, as
+ * computed by <code>index</code>. The tables are stored in a single file,
+ * which is mapped into memory instead of being read. The file is made of a
+ * header followed by the tables, in big-endian byte order:
+ *
+ * <pre>
+ * header: int MAGIC, int VERSION, int board length, int board height,
+ *         int largest number of pieces, int number of tables,
+ *         UTF name of the rule set,
+ *         for each table: UTF signature, long offset, int size
+ * </pre>
+ *
+ * (where UTF strings are written as by <code>DataOutput.writeUTF</code>).
+ *
+ * Positions are taken to have no en passant captures, so positions where a
+ * pawn may capture en passant are not probed. The castling rights of the
+ * kings are ignored.
+ *
+ * A <code>Tablebase</code> is immutable, and can be shared by several
+ * threads.
+ *
+ * @specfield ruleSet : String // the rules the tables were generated for
+ * @specfield maxPieces : int // largest number of pieces in a position
+ * @specfield results : signature -> position -> result
+ */
+public class Tablebase {
+
+	/**
+	 * Name of the system property that holds the name of the tablebase
+	 * file opened by <code>fromSystemProperties()</code>.
+	 */
+	public static final String FILE_PROPERTY = "pawned.tablebase";
+
+	/**
+	 * First int of every tablebase file ("PWTB").
+	 */
+	public static final int MAGIC = 0x50575442;
+
+	/**
+	 * Version of the format of tablebase files.
+	 */
+	public static final int VERSION = 1;
+
+	/**
+	 * The result of a position that is not in the tablebase, or that
+	 * cannot be reached in a game.
+	 */
+	public static final int UNKNOWN = 0;
+
+	/**
+	 * The result of a drawn position.
+	 */
+	public static final int DRAW = 1;
+
+	/**
+	 * Largest distance stored; longer wins and losses are stored with this
+	 * distance.
+	 */
+	public static final int MAX_DISTANCE = 126;
+
+	/**
+	 * Type of the piece each player must have exactly one of.
+	 */
+	static final String KING = "king";
+
+	//Fields
+
+	/**
+	 * The mapped file.
+	 */
+	private final ByteBuffer buffer;
+
+	private final String ruleSet;
+
+	private final int length;
+
+	private final int height;
+
+	private final int maxPieces;
+
+	/**
+	 * The offset of the table of each signature in buffer.
+	 */
+	private final Map<String, Integer> offsets;
+
+	//AF(t) = the tablebase for ruleSet on a length by height board whose
+	//        results for the positions of signature s are the bytes of
+	//        buffer from offsets.get(s).
+	//RI: every table lies within buffer
+
+	private Tablebase(ByteBuffer buffer, String ruleSet, int length,
+			int height, int maxPieces, Map<String, Integer> offsets) {
+		this.buffer = buffer;
+		this.ruleSet = ruleSet;
+		this.length = length;
+		this.height = height;
+		this.maxPieces = maxPieces;
+		this.offsets = offsets;
+	}
+
+	/**
+	 * Opens the tablebase in the given file.
+	 *
+	 * @throws IOException if the file cannot be read or is not a
+	 * 			tablebase file
+	 */
+	public static Tablebase open(File file) throws IOException {
+		RandomAccessFile raf = new RandomAccessFile(file, "r");
+		try {
+			FileChannel channel = raf.getChannel();
+			if (channel.size() > Integer.MAX_VALUE)
+				throw new IOException("Tablebase too large to map: " + file);
+			//The mapping remains valid after the channel is closed
+			ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY,
+					0, channel.size());
+			try {
+				if (buffer.getInt() != MAGIC)
+					throw new IOException("Not a tablebase: " + file);
+				if (buffer.getInt() != VERSION)
+					throw new IOException("Unsupported tablebase version");
+				int length = buffer.getInt();
+				int height = buffer.getInt();
+				int maxPieces = buffer.getInt();
+				int count = buffer.getInt();
+				String ruleSet = readUTF(buffer);
+				Map<String, Integer> offsets = new HashMap<String, Integer>();
+				for (int i = 0; i < count; i++) {
+					String signature = readUTF(buffer);
+					long offset = buffer.getLong();
+					int size = buffer.getInt();
+					if (offset < 0 || offset + size > buffer.capacity())
+						throw new IOException("Corrupt tablebase: " + file);
+					offsets.put(signature, (int) offset);
+				}
+				return new Tablebase(buffer, ruleSet, length, height,
+						maxPieces, offsets);
+			} catch (RuntimeException re) {
+				throw new IOException("Corrupt tablebase: " + file);
+			}
+		} finally {
+			raf.close();
+		}
+	}
+
+	/**
+	 * Returns the tablebase in the file named by the
+	 * <code>FILE_PROPERTY</code> system property, or <tt>null</tt> if the
+	 * property is not set or the file cannot be opened.
+	 */
+	public static Tablebase fromSystemProperties() {
+		String name = System.getProperty(FILE_PROPERTY);
+		if (name == null || name.trim().length() == 0)
+			return null;
+		try {
+			return open(new File(name.trim()));
+		} catch (IOException ioe) {
+			return null;
+		}
+	}
+
+	/**
+	 * Returns the name of the rules the tables were generated for, as
+	 * returned by <code>RuleSet.toString()</code>.
+	 */
+	public String getRuleSet() {
+		return ruleSet;
+	}
+
+	/**
+	 * Returns the largest number of pieces of the positions in
+	 * <tt>this</tt>.
+	 */
+	public int getMaxPieces() {
+		return maxPieces;
+	}
+
+	/**
+	 * Returns the number of tables in <tt>this</tt>.
+	 */
+	public int size() {
+		return offsets.size();
+	}
+
+	/**
+	 * Returns the result of the position of <tt>board</tt> when the given
+	 * player is next to play, for that player: <code>UNKNOWN</code>,
+	 * <code>DRAW</code>, or a win or a loss, as told by <code>isWin</code>
+	 * and <code>isLoss</code>.
+	 */
+	public int probe(Board board, boolean isWhiteTurn) {
+		if (board.pieceCount(true) + board.pieceCount(false) > maxPieces
+				|| !(board instanceof RectangularBoard))
+			return UNKNOWN;
+		RectangularBoard rectangular = (RectangularBoard) board;
+		if (rectangular.getLength() != length
+				|| rectangular.getHeight() != height)
+			return UNKNOWN;
+		Integer offset = offsets.get(signature(board));
+		if (offset == null)
+			return UNKNOWN;
+		int index = index(board, length, height, isWhiteTurn, true);
+		if (index < 0)
+			return UNKNOWN;
+		return buffer.get(offset + index) & 0xFF;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if <tt>result</tt> is a win for the player to
+	 * move.
+	 */
+	public static boolean isWin(int result) {
+		return result >= 2 && result % 2 == 0;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if <tt>result</tt> is a loss for the player to
+	 * move.
+	 */
+	public static boolean isLoss(int result) {
+		return result >= 3 && result % 2 == 1;
+	}
+
+	/**
+	 * Returns the number of plies until the game ends, if <tt>result</tt>
+	 * is a win or a loss. A distance of 0 means that the game is over.
+	 *
+	 * @requires <tt>isWin(result) || isLoss(result)</tt>
+	 */
+	public static int getDistance(int result) {
+		return (result - 2) / 2;
+	}
+
+	/**
+	 * Returns the result of a win in <tt>distance</tt> plies.
+	 */
+	static int win(int distance) {
+		return 2 + 2 * Math.min(distance, MAX_DISTANCE);
+	}
+
+	/**
+	 * Returns the result of a loss in <tt>distance</tt> plies.
+	 */
+	static int loss(int distance) {
+		return 3 + 2 * Math.min(distance, MAX_DISTANCE);
+	}
+
+	/**
+	 * Returns the signature of the pieces in <tt>board</tt>: the types of
+	 * the white pieces, sorted and separated by commas, a slash, and the
+	 * types of the black pieces.
+	 */
+	static String signature(Board board) {
+		StringBuilder signature = new StringBuilder();
+		appendTypes(signature, board, true);
+		signature.append('/');
+		appendTypes(signature, board, false);
+		return signature.toString();
+	}
+
+	private static void appendTypes(StringBuilder signature, Board board,
+			boolean isWhite) {
+		String[] types = new String[board.pieceCount(isWhite)];
+		for (int i = 0; i < types.length; i++)
+			types[i] = board.getPiece(isWhite, i).getType();
+		Arrays.sort(types);
+		for (int i = 0; i < types.length; i++) {
+			if (i > 0)
+				signature.append(',');
+			signature.append(types[i]);
+		}
+	}
+
+	/**
+	 * Returns the index of the position of <tt>board</tt>, when the given
+	 * player is next to play, in the table of its signature. The pieces are
+	 * taken in the order of the signature, pieces of the same type and
+	 * color by increasing cell, and the index is the number whose digits,
+	 * in base <tt>length * height</tt>, are their cells (<tt>x + y *
+	 * length</tt>); the positions where black is next to play follow those
+	 * where white is.
+	 *
+	 * @param checkState whether to return -1 if a piece other than a king
+	 * 			has gathered information (e.g. it may capture en passant),
+	 * 			which the tables do not account for
+	 * @requires the pieces of <tt>board</tt> to be on a <tt>length</tt> by
+	 * 			<tt>height</tt> board
+	 */
+	public static int index(Board board, int length, int height,
+			boolean isWhiteTurn, boolean checkState) {
+		int squares = length * height;
+		int index = 0;
+		int size = 1;
+		for (int color = 0; color < 2; color++) {
+			boolean isWhite = color == 0;
+			int count = board.pieceCount(isWhite);
+			String[] types = new String[count];
+			int[] cells = new int[count];
+			for (int i = 0; i < count; i++) {
+				Piece piece = board.getPiece(isWhite, i);
+				if (checkState && piece.getState() != 0
+						&& !KING.equals(piece.getType()))
+					return -1;
+				int[] cell = board.getPosition(piece);
+				String type = piece.getType();
+				int square = cell[0] + cell[1] * length;
+				//insertion sort by type, then cell
+				int j = i;
+				while (j > 0 && (types[j - 1].compareTo(type) > 0
+						|| (types[j - 1].equals(type) && cells[j - 1] > square))) {
+					types[j] = types[j - 1];
+					cells[j] = cells[j - 1];
+					j--;
+				}
+				types[j] = type;
+				cells[j] = square;
+			}
+			for (int i = 0; i < count; i++) {
+				index = index * squares + cells[i];
+				size *= squares;
+			}
+		}
+		return isWhiteTurn ? index : size + index;
+	}
+
+	/**
+	 * Reads a string written by <code>DataOutput.writeUTF</code>, which is
+	 * made of ASCII characters, from the position of <tt>buffer</tt>.
+	 */
+	private static String readUTF(ByteBuffer buffer) {
+		int length = buffer.getShort() & 0xFFFF;
+		StringBuilder string = new StringBuilder(length);
+		for (int i = 0; i < length; i++)
+			string.append((char) buffer.get());
+		return string.toString();
+	}
+
+	/**
+	 * Returns a <code>String</code> representation of <tt>this</tt>.
+	 */
+	@Override
+	public String toString() {
+		return "Tablebase[ruleSet=" + ruleSet + ", maxPieces=" + maxPieces
+			+ ", tables=" + offsets.size() + "]";
+	}
+}
@@ -0,0 +1,793 @@
+package player;
+
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import ruleset.antichess.StandardAC;
+import ruleset.board.RectangularBoard;
+
+import engine.adt.Board;
+import engine.adt.Piece;
+import engine.adt.Ply;
+import engine.adt.RuleSet;
+import engine.game.GameInfo;
+import engine.game.GameMessage;
+import engine.game.GameTermination;
+
+/**
+ * A <code>TablebaseGenerator</code> generates a <code>Tablebase</code>
+ * with every position of up to <code>getMaxPieces()</code> pieces in which
+ * each player has a king, for an antichess <code>RuleSet</code> played on a
+ * <code>RectangularBoard</code>.
+ *
+ * The result of a position depends on the results of the positions its
+ * plies lead to, which have the same signature (e.g. a piece moves) or a
+ * smaller one (a piece is captured, or a pawn is crowned). The tables are
+ * therefore generated by increasing number of pieces, and then by
+ * increasing number of pawns. Tables of the same number of pieces and
+ * pawns do not depend on each other, so they are generated in parallel,
+ * by <code>getThreads()</code> threads.
+ *
+ * Each table is generated by retrograde analysis. First, every position
+ * is set up on a board and its plies are made; positions that end the game
+ * (as told by <code>RuleSet.continueGame</code>) and positions whose plies
+ * all lead to other tables are solved right away. The other positions are
+ * then solved by increasing distance: a position is won in <i>n</i> plies
+ * if one of its plies leads to a position lost in <i>n - 1</i>, and lost
+ * in <i>n</i> if all of its plies lead to positions won in at most
+ * <i>n - 1</i>. A player who has no plies skips its turn, which is not
+ * counted as a ply. The positions left when no more can be solved are
+ * drawn. Plies that move several pieces (e.g. <code>Castle</code>s) are not
+ * supported.
+ *
+ * A <code>TablebaseGenerator</code> can be run from the command line:
+ *
+ * <pre>
+ * java player.TablebaseGenerator tablebase-file max-pieces [threads]
+ * </pre>
+ *
+ * which generates a tablebase for standard antichess. Every table of
+ * <i>n</i> pieces has <tt>2 * 64<sup>n</sup></tt> bytes, so tablebases of
+ * 4 pieces take long to generate and need a large heap.
+ *
+ * @specfield ruleSet : RuleSet // the rules of the positions
+ * @specfield maxPieces : int // largest number of pieces in a position
+ * @specfield threads : int // number of tables generated at once
+ */
+public class TablebaseGenerator {
+
+	/**
+	 * Codes of the results of a table being generated. Wins and losses
+	 * are coded as in <code>Tablebase</code>, without limiting their
+	 * distance.
+	 */
+	private static final short INVALID = -1;
+	private static final short UNSOLVED = 0;
+	private static final short DRAW = Tablebase.DRAW;
+
+	/**
+	 * Turn histories that make white and black the next to play.
+	 */
+	private static final List<Boolean> WHITE_NEXT =
+		Collections.singletonList(false);
+	private static final List<Boolean> BLACK_NEXT =
+		Collections.singletonList(true);
+
+	//Fields
+
+	private final RuleSet ruleSet;
+
+	private final int maxPieces;
+
+	private final int threads;
+
+	private final int length;
+
+	private final int height;
+
+	/**
+	 * The tables generated so far that later tables may depend on.
+	 */
+	private final Map<String, byte[]> tables =
+		new ConcurrentHashMap<String, byte[]>();
+
+	/**
+	 * Creates a new <code>TablebaseGenerator</code>.
+	 *
+	 * @param ruleSet the rules of the positions; every player must have a
+	 * 			king, and boards must be <code>RectangularBoard</code>s
+	 * @param maxPieces the largest number of pieces in a position
+	 * @param threads the number of tables generated at once
+	 * @throws IllegalArgumentException if <code>ruleSet == null</code>,
+	 * 			its boards are not <code>RectangularBoard</code>s,
+	 * 			<code>maxPieces &lt; 2</code>, the tables would be too large
+	 * 			(<code>maxPieces</code> times the number of cells must be at
+	 * 			most 256), or <code>threads &lt; 1</code>
+	 */
+	public TablebaseGenerator(RuleSet ruleSet, int maxPieces, int threads) {
+		if (ruleSet == null || maxPieces < 2 || threads < 1)
+			throw new IllegalArgumentException("Bad arguments for generator");
+		Board blank = ruleSet.boardFactory().getBlankBoard();
+		if (!(blank instanceof RectangularBoard))
+			throw new IllegalArgumentException("Not a rectangular board");
+		this.ruleSet = ruleSet;
+		this.maxPieces = maxPieces;
+		this.threads = threads;
+		this.length = ((RectangularBoard) blank).getLength();
+		this.height = ((RectangularBoard) blank).getHeight();
+		if (2 * Math.pow(length * height, maxPieces) > Integer.MAX_VALUE
+				|| maxPieces * length * height > 256)
+			throw new IllegalArgumentException("Tables too large");
+	}
+
+	/**
+	 * Returns the largest number of pieces in a position.
+	 */
+	public int getMaxPieces() {
+		return maxPieces;
+	}
+
+	/**
+	 * Returns the number of tables generated at once.
+	 */
+	public int getThreads() {
+		return threads;
+	}
+
+	/**
+	 * Returns the signatures of the tables to generate, as described in
+	 * <code>Tablebase</code>, in the order they are generated.
+	 */
+	public List<String> getSignatures() {
+		List<String> types = new ArrayList<String>(
+				ruleSet.pieceFactory().getOrderedPieces());
+		types.remove(Tablebase.KING);
+		Collections.sort(types);
+		List<String> signatures = new ArrayList<String>();
+		for (int pieces = 2; pieces <= maxPieces; pieces++) {
+			List<String> group = new ArrayList<String>();
+			for (int white = 0; white <= pieces - 2; white++)
+				for (List<String> whites : multisets(types, white))
+					for (List<String> blacks : multisets(types, pieces - 2 - white))
+						group.add(side(whites) + "/" + side(blacks));
+			for (int pawns = 0; pawns <= pieces - 2; pawns++)
+				for (String signature : group)
+					if (pawns(signature) == pawns)
+						signatures.add(signature);
+		}
+		return signatures;
+	}
+
+	/**
+	 * Returns the multisets of <tt>size</tt> elements of <tt>types</tt>,
+	 * each sorted.
+	 */
+	private static List<List<String>> multisets(List<String> types, int size) {
+		List<List<String>> multisets = new ArrayList<List<String>>();
+		if (size == 0) {
+			multisets.add(new ArrayList<String>());
+			return multisets;
+		}
+		for (int i = 0; i < types.size(); i++)
+			for (List<String> rest : multisets(types.subList(i, types.size()),
+					size - 1)) {
+				rest.add(0, types.get(i));
+				multisets.add(rest);
+			}
+		return multisets;
+	}
+
+	/**
+	 * Returns the part of a signature for a player with a king and
+	 * <tt>others</tt>.
+	 */
+	private static String side(List<String> others) {
+		String[] types = others.toArray(new String[others.size() + 1]);
+		types[others.size()] = Tablebase.KING;
+		Arrays.sort(types);
+		StringBuilder side = new StringBuilder();
+		for (int i = 0; i < types.length; i++) {
+			if (i > 0)
+				side.append(',');
+			side.append(types[i]);
+		}
+		return side.toString();
+	}
+
+	/**
+	 * Returns the number of pieces of a signature.
+	 */
+	private static int pieces(String signature) {
+		return signature.split("[,/]").length;
+	}
+
+	/**
+	 * Returns the number of pawns of a signature.
+	 */
+	private static int pawns(String signature) {
+		int pawns = 0;
+		for (String type : signature.split("[,/]"))
+			if (type.equals("pawn"))
+				pawns++;
+		return pawns;
+	}
+
+	/**
+	 * Returns the number of bytes of the table of a signature.
+	 */
+	private int size(String signature) {
+		int size = 2;
+		for (int i = pieces(signature); i > 0; i--)
+			size *= length * height;
+		return size;
+	}
+
+	/**
+	 * Generates the tablebase and writes it to <tt>file</tt>, in the
+	 * format read by <code>Tablebase.open</code>.
+	 *
+	 * @throws IOException if the file cannot be written
+	 * @throws InterruptedException if the thread is interrupted while
+	 * 			waiting for the tables to be generated
+	 */
+	public void generate(File file) throws IOException, InterruptedException {
+		List<String> signatures = getSignatures();
+
+		//The size of the tables is known, so the header is written first
+		byte[] header = header(signatures, header(signatures, 0).length);
+		final Map<String, Long> offsets = new HashMap<String, Long>();
+		long offset = header.length;
+		for (String signature : signatures) {
+			offsets.put(signature, offset);
+			offset += size(signature);
+		}
+
+		final RandomAccessFile out = new RandomAccessFile(file, "rw");
+		ExecutorService executor = Executors.newFixedThreadPool(threads);
+		try {
+			out.setLength(0);
+			out.write(header);
+			out.setLength(offset);
+
+			//Tables of the same number of pieces and pawns, in parallel
+			int next = 0;
+			while (next < signatures.size()) {
+				String first = signatures.get(next);
+				List<Callable<Object>> group = new ArrayList<Callable<Object>>();
+				for (; next < signatures.size(); next++) {
+					final String signature = signatures.get(next);
+					if (pieces(signature) != pieces(first)
+							|| pawns(signature) != pawns(first))
+						break;
+					group.add(new Callable<Object>() {
+						public Object call() throws IOException {
+							byte[] table = solve(signature);
+							tables.put(signature, table);
+							synchronized (out) {
+								out.seek(offsets.get(signature));
+								out.write(table);
+							}
+							return null;
+						}
+					});
+				}
+				for (Future<Object> result : executor.invokeAll(group)) {
+					try {
+						result.get();
+					} catch (ExecutionException ee) {
+						if (ee.getCause() instanceof IOException)
+							throw (IOException) ee.getCause();
+						throw new RuntimeException(ee.getCause());
+					}
+				}
+				//Later tables only depend on tables of one piece less, or
+				//of the same pieces and fewer pawns
+				for (String signature : new ArrayList<String>(tables.keySet()))
+					if (next == signatures.size() || pieces(signature)
+							< pieces(signatures.get(next)) - 1)
+						tables.remove(signature);
+			}
+		} finally {
+			executor.shutdown();
+			out.close();
+		}
+	}
+
+	/**
+	 * Returns the header of a tablebase file whose first table starts at
+	 * <tt>start</tt>.
+	 */
+	private byte[] header(List<String> signatures, long start)
+			throws IOException {
+		ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+		DataOutputStream header = new DataOutputStream(bytes);
+		header.writeInt(Tablebase.MAGIC);
+		header.writeInt(Tablebase.VERSION);
+		header.writeInt(length);
+		header.writeInt(height);
+		header.writeInt(maxPieces);
+		header.writeInt(signatures.size());
+		header.writeUTF(ruleSet.toString());
+		long offset = start;
+		for (String signature : signatures) {
+			header.writeUTF(signature);
+			header.writeLong(offset);
+			header.writeInt(size(signature));
+			offset += size(signature);
+		}
+		header.close();
+		return bytes.toByteArray();
+	}
+
+	/**
+	 * Generates the table of a signature, whose dependencies must have
+	 * been generated.
+	 */
+	private byte[] solve(String signature) {
+		return new Solver(signature).solve();
+	}
+
+	/**
+	 * A <code>Solver</code> generates one table, on a board of its own.
+	 */
+	private class Solver {
+		private final String signature;
+
+		/**
+		 * The type and color of the piece of each digit of an index.
+		 */
+		private final String[] types;
+		private final boolean[] colors;
+
+		private final int squares = length * height;
+
+		/**
+		 * Number of positions for each player to move.
+		 */
+		private final int half;
+
+		private final Board board = ruleSet.boardFactory().getBlankBoard()
+			.confinedClone();
+
+		private final Piece[] pieces;
+
+		/**
+		 * Results of the positions, coded as described above.
+		 */
+		private final short[] results;
+
+		/**
+		 * The first digit of the group of pieces of the same type and color
+		 * of each digit.
+		 */
+		private final int[] groups;
+
+		/**
+		 * The positions not solved right away, with their plies that lead
+		 * to positions of this table, which are listed in
+		 * <code>targets</code> from <code>firsts[i]</code> to
+		 * <code>firsts[i + 1]</code>, and a summary of their plies that
+		 * lead to other tables: the shortest distance of their losses, the
+		 * longest distance of their wins (-1 if none), and whether any is
+		 * drawn. A ply that leads to a position of this table moves one 
+		 * piece, and is stored in one byte: the digit of the piece times
+		 * the number of cells, plus the cell it moves to.
+		 */
+		private final IntList pending = new IntList();
+		private final IntList firsts = new IntList();
+		private final ByteList targets = new ByteList();
+		private final ByteList losses = new ByteList();
+		private final ByteList wins = new ByteList();
+		private final ByteList draws = new ByteList();
+
+		/**
+		 * The positions where the player to move skips its turn, with the
+		 * position where the opponent is to move.
+		 */
+		private final IntList skipping = new IntList();
+		private final IntList skipped = new IntList();
+
+		private Solver(String signature) {
+			this.signature = signature;
+			String[] sides = signature.split("/", -1);
+			String[] white = sides[0].split(",");
+			String[] black = sides[1].split(",");
+			types = new String[white.length + black.length];
+			colors = new boolean[types.length];
+			groups = new int[types.length];
+			pieces = new Piece[types.length];
+			for (int i = 0; i < types.length; i++) {
+				colors[i] = i < white.length;
+				types[i] = colors[i] ? white[i] : black[i - white.length];
+				pieces[i] = ruleSet.pieceFactory().getPiece(types[i], board,
+						colors[i]);
+				groups[i] = i > 0 && colors[i] == colors[i - 1]
+					&& types[i].equals(types[i - 1]) ? groups[i - 1] : i;
+			}
+			results = new short[size(signature)];
+			half = results.length / 2;
+		}
+
+		private byte[] solve() {
+			int[] cells = new int[types.length];
+			for (int index = 0; index < half; index++) {
+				if (!decode(index, cells)) {
+					results[index] = results[half + index] = INVALID;
+					continue;
+				}
+				for (int i = 0; i < types.length; i++)
+					board.addPiece(pieces[i], cell(cells[i]));
+				try {
+					visit(index, true, cells);
+					visit(half + index, false, cells);
+				} finally {
+					for (int i = 0; i < types.length; i++)
+						board.removePiece(pieces[i]);
+				}
+			}
+			firsts.add(targets.size());
+			iterate();
+
+			byte[] table = new byte[results.length];
+			for (int i = 0; i < results.length; i++) {
+				int result = results[i];
+				if (result == INVALID)
+					table[i] = (byte) Tablebase.UNKNOWN;
+				else if (result == UNSOLVED || result == DRAW)
+					table[i] = (byte) Tablebase.DRAW;
+				else if (Tablebase.isWin(result))
+					table[i] = (byte) Tablebase.win(Tablebase.getDistance(result));
+				else
+					table[i] = (byte) Tablebase.loss(Tablebase.getDistance(result));
+			}
+			return table;
+		}
+
+		/**
+		 * Decodes the cells of the pieces of an index into <tt>cells</tt>.
+		 *
+		 * @return <tt>false</tt> if the position cannot be set up, or is
+		 * 			set up by another index (pieces of the same type and color
+		 * 			not by increasing cell)
+		 */
+		private boolean decode(int index, int[] cells) {
+			for (int i = types.length - 1; i >= 0; i--) {
+				cells[i] = index % squares;
+				index /= squares;
+			}
+			for (int i = 0; i < types.length; i++) {
+				for (int j = 0; j < i; j++)
+					if (cells[j] == cells[i])
+						return false;
+				if (groups[i] != i && cells[i - 1] > cells[i])
+					return false;
+				int row = cells[i] / length;
+				if (types[i].equals("pawn") && (row == 0 || row == height - 1))
+					return false;
+				if (!board.isUsable(cell(cells[i])))
+					return false;
+			}
+			return true;
+		}
+
+		private int[] cell(int square) {
+			return new int[] {square % length, square / length};
+		}
+
+		/**
+		 * Returns the index of a position of this table, after the piece
+		 * of digit <tt>digit</tt> moves to cell <tt>square</tt> and the
+		 * turn passes.
+		 *
+		 * @param cells the cells of the pieces, which are modified
+		 */
+		private int target(int position, int digit, int square, int[] cells) {
+			int index = position < half ? position : position - half;
+			for (int i = types.length - 1; i >= 0; i--) {
+				cells[i] = index % squares;
+				index /= squares;
+			}
+			//keep the group by increasing cell
+			int i = digit;
+			while (i > groups[digit] && cells[i - 1] > square) {
+				cells[i] = cells[i - 1];
+				i--;
+			}
+			while (i + 1 < types.length && groups[i + 1] == groups[digit]
+					&& cells[i + 1] < square) {
+				cells[i] = cells[i + 1];
+				i++;
+			}
+			cells[i] = square;
+			for (i = 0; i < types.length; i++)
+				index = index * squares + cells[i];
+			return position < half ? half + index : index;
+		}
+
+		/**
+		 * Returns the ply stored for a piece that moves from the position
+		 * of <tt>cells</tt> to that of <tt>next</tt>, both ordered as the
+		 * digits of an index.
+		 *
+		 * @throws IllegalStateException if more than one piece moved
+		 */
+		private int move(int[] cells, int[] next) {
+			int moved = -1;
+			int square = -1;
+			for (int i = 0; i < types.length; i++) {
+				if (!contains(next, cells[i], groups[i])) {
+					if (moved >= 0)
+						throw new IllegalStateException(
+								"Plies that move several pieces are not supported");
+					moved = i;
+				}
+				if (!contains(cells, next[i], groups[i]))
+					square = next[i];
+			}
+			return moved * squares + square;
+		}
+
+		/**
+		 * Returns <tt>true</tt> if the group that starts at digit
+		 * <tt>group</tt> has a piece at <tt>square</tt> in <tt>cells</tt>.
+		 */
+		private boolean contains(int[] cells, int square, int group) {
+			for (int i = group; i < types.length && groups[i] == group; i++)
+				if (cells[i] == square)
+					return true;
+			return false;
+		}
+
+		/**
+		 * Finds the result of the position set up on the board, with the
+		 * given player to move, or the plies it depends on.
+		 */
+		private void visit(int position, boolean isWhite, int[] cells) {
+			GameInfo info;
+			try {
+				info = ruleSet.continueGame(board, isWhite ? WHITE_NEXT
+						: BLACK_NEXT, new ArrayList<GameMessage>());
+			} catch (GameTermination gt) {
+				if (gt.winnerIsWhite() == null)
+					results[position] = DRAW;
+				else if (gt.winnerIsWhite() == isWhite)
+					results[position] = (short) Tablebase.win(0);
+				else
+					results[position] = (short) Tablebase.loss(0);
+				return;
+			}
+			if (info.getTurn() != isWhite) {
+				skipping.add(position);
+				skipped.add(position < half ? position + half : position - half);
+				return;
+			}
+
+			int first = targets.size();
+			int[] next = new int[types.length];
+			int loss = -1;
+			int win = -1;
+			boolean draw = false;
+			for (Ply p : info.getPlies()) {
+				Board.Undo undo = board.makePly(p);
+				try {
+					if (board.pieceCount(!isWhite, Tablebase.KING) == 0) {
+						//the opponent's king is attacked: not a position
+						results[position] = INVALID;
+						targets.truncate(first);
+						return;
+					}
+					String signature = Tablebase.signature(board);
+					int index = Tablebase.index(board, length, height,
+							!isWhite, false);
+					if (signature.equals(this.signature)) {
+						int base = index < half ? index : index - half;
+						for (int i = types.length - 1; i >= 0; i--) {
+							next[i] = base % squares;
+							base /= squares;
+						}
+						targets.add(move(cells, next));
+						continue;
+					}
+					int result = tables.get(signature)[index] & 0xFF;
+					if (Tablebase.isLoss(result))
+						loss = loss < 0 ? Tablebase.getDistance(result)
+							: Math.min(loss, Tablebase.getDistance(result));
+					else if (Tablebase.isWin(result))
+						win = Math.max(win, Tablebase.getDistance(result));
+					else
+						draw = true;
+				} finally {
+					board.undoPly(undo);
+				}
+			}
+
+			if (targets.size() == first) {
+				//all plies lead to other tables
+				if (loss >= 0)
+					results[position] = code(true, loss + 1);
+				else if (draw)
+					results[position] = DRAW;
+				else
+					results[position] = code(false, win + 1);
+				return;
+			}
+			pending.add(position);
+			firsts.add(first);
+			losses.add(loss);
+			wins.add(win);
+			draws.add(draw ? 1 : 0);
+		}
+
+		/**
+		 * Solves the pending positions by increasing distance.
+		 */
+		private void iterate() {
+			int longest = 0;
+			for (int i = 0; i < pending.size(); i++)
+				longest = Math.max(longest, Math.max(losses.get(i), wins.get(i)));
+			skip();
+			int[] cells = new int[types.length];
+			for (int distance = 1; ; distance++) {
+				boolean solved = false;
+				for (int i = 0; i < pending.size(); i++) {
+					int position = pending.get(i);
+					if (results[position] != UNSOLVED)
+						continue;
+					boolean win = losses.get(i) == distance - 1;
+					boolean loss = losses.get(i) < 0 && draws.get(i) == 0
+						&& wins.get(i) <= distance - 1;
+					for (int j = firsts.get(i); j < firsts.get(i + 1); j++) {
+						int move = targets.get(j) & 0xFF;
+						int result = results[target(position, move / squares,
+								move % squares, cells)];
+						boolean known = (Tablebase.isWin(result)
+								|| Tablebase.isLoss(result))
+								&& Tablebase.getDistance(result) <= distance - 1;
+						if (known && Tablebase.isLoss(result)
+								&& Tablebase.getDistance(result) == distance - 1)
+							win = true;
+						if (!known || !Tablebase.isWin(result))
+							loss = false;
+					}
+					if (win)
+						results[position] = code(true, distance);
+					else if (loss)
+						results[position] = code(false, distance);
+					solved |= win || loss;
+				}
+				solved |= skip();
+				if (!solved && distance > longest + 1)
+					break;
+			}
+		}
+
+		/**
+		 * Solves the positions where the player to move skips its turn and
+		 * the opponent's position is solved.
+		 *
+		 * @return <tt>true</tt> if any position was solved
+		 */
+		private boolean skip() {
+			boolean solved = false;
+			for (int i = 0; i < skipping.size(); i++) {
+				int position = skipping.get(i);
+				int result = results[skipped.get(i)];
+				if (results[position] != UNSOLVED || result == UNSOLVED)
+					continue;
+				if (Tablebase.isWin(result))
+					results[position] = code(false, Tablebase.getDistance(result));
+				else if (Tablebase.isLoss(result))
+					results[position] = code(true, Tablebase.getDistance(result));
+				else
+					results[position] = (short) result;
+				solved = true;
+			}
+			return solved;
+		}
+	}
+
+	/**
+	 * Returns the code of a win or a loss in <tt>distance</tt> plies,
+	 * without limiting the distance.
+	 */
+	private static short code(boolean win, int distance) {
+		return (short) ((win ? 2 : 3) + 2 * distance);
+	}
+
+	/**
+	 * Number of elements of each block of an <code>IntList</code> or a
+	 * <code>ByteList</code>.
+	 */
+	private static final int BLOCK = 1 << 16;
+
+	/**
+	 * A growable list of ints, kept in blocks so that growing it does not
+	 * copy it.
+	 */
+	private static class IntList {
+		private final List<int[]> blocks = new ArrayList<int[]>();
+		private int size = 0;
+
+		void add(int element) {
+			if (size == blocks.size() * BLOCK)
+				blocks.add(new int[BLOCK]);
+			blocks.get(size / BLOCK)[size % BLOCK] = element;
+			size++;
+		}
+
+		int get(int i) {
+			return blocks.get(i / BLOCK)[i % BLOCK];
+		}
+
+		int size() {
+			return size;
+		}
+	}
+
+	/**
+	 * A growable list of bytes, kept in blocks so that growing it does not
+	 * copy it.
+	 */
+	private static class ByteList {
+		private final List<byte[]> blocks = new ArrayList<byte[]>();
+		private int size = 0;
+
+		void add(int element) {
+			if (size == blocks.size() * BLOCK)
+				blocks.add(new byte[BLOCK]);
+			blocks.get(size / BLOCK)[size % BLOCK] = (byte) element;
+			size++;
+		}
+
+		byte get(int i) {
+			return blocks.get(i / BLOCK)[i % BLOCK];
+		}
+
+		int size() {
+			return size;
+		}
+
+		void truncate(int size) {
+			this.size = size;
+		}
+	}
+
+	/**
+	 * Generates a tablebase for standard antichess.
+	 *
+	 * @param args the tablebase file, the largest number of pieces, and
+	 * 			optionally the number of threads
+	 */
+	public static void main(String[] args) throws IOException,
+			InterruptedException {
+		if (args.length < 2) {
+			System.err.println("Usage: java player.TablebaseGenerator "
+					+ "tablebase-file max-pieces [threads]");
+			System.exit(1);
+		}
+		int threads = args.length > 2 ? Integer.parseInt(args[2])
+				: Runtime.getRuntime().availableProcessors();
+		TablebaseGenerator generator = new TablebaseGenerator(
+				new StandardAC(), Integer.parseInt(args[1]), threads);
+		long start = System.currentTimeMillis();
+		generator.generate(new File(args[0]));
+		System.out.println("Generated " + generator.getSignatures().size()
+				+ " tables in " + (System.currentTimeMillis() - start)
+				+ " ms to " + args[0]);
+	}
+}
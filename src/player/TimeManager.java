@@ -0,0 +1,144 @@
+package player;
+
+import engine.adt.Board;
+
+/**
+ * A <code>TimeManager</code> decides how long an <code>AIPlayer</code> may
+ * search each of its moves in a timed game, from the time it has left
+ * (e.g. as returned by <code>Controller.remainingTime</code>). It sets two
+ * limits per move:
+ *
+ * <ul>
+ * <li>A soft budget: the time left, spread over the moves the game is
+ * 		expected to last. That is the smaller of the length of the games
+ * 		learned so far, less the moves already made, and an estimate from
+ * 		the game phase: <code>MOVES_PER_PIECE</code> moves for each piece of
+ * 		the player with the fewest pieces. It is never spread over less than
+ * 		<code>MIN_MOVES_TO_GO</code> moves, and is shrunk by the usual
+ * 		overrun of the searches. Each time the best move changes between
+ * 		iterations, the soft budget is extended by half of itself.</li>
+ * <li>A hard budget, after which the search is abandoned even without a
+ * 		result: <code>HARD_FACTOR</code> times the soft budget, but never
+ * 		more than <code>1 / MAX_MOVE_SHARE</code> of the time left.</li>
+ * </ul>
+ *
+ * <code>SAFETY_MARGIN</code> milliseconds of the time left are kept for
+ * the delays outside the search, such as sending the move.
+ *
+ * A <code>TimeManager</code> learns from, and calibrates itself with, a
+ * <code>PersistentState</code>, so it is not synchronized either.
+ *
+ * @specfield state : PersistentState // the learned game length and overrun
+ */
+public class TimeManager {
+
+	/**
+	 * Number of moves the time left is spread over until the length of a
+	 * game has been learned.
+	 */
+	public static final int MOVES_TO_GO = 30;
+
+	/**
+	 * Smallest number of moves the time left is spread over.
+	 */
+	public static final int MIN_MOVES_TO_GO = 10;
+
+	/**
+	 * Number of moves a player is expected to make for each of the pieces
+	 * of the player with the fewest pieces.
+	 */
+	public static final int MOVES_PER_PIECE = 2;
+
+	/**
+	 * The hard budget of a move is at most this many times its soft budget.
+	 */
+	public static final int HARD_FACTOR = 5;
+
+	/**
+	 * A move never takes more than <code>1 / MAX_MOVE_SHARE</code> of the
+	 * time left.
+	 */
+	public static final int MAX_MOVE_SHARE = 4;
+
+	/**
+	 * Time, in milliseconds, kept for the delays outside the search.
+	 */
+	public static final long SAFETY_MARGIN = 50;
+
+	//Fields
+
+	private final PersistentState state;
+
+	//AF(t) = the time manager calibrated by state.
+	//RI: state != null
+
+	/**
+	 * Creates a new <code>TimeManager</code> that uses the game length and
+	 * the overrun learned in <code>state</code>.
+	 *
+	 * @requires <code>state != null</code>
+	 */
+	public TimeManager(PersistentState state) {
+		this.state = state;
+	}
+
+	/**
+	 * Returns a new limit for the search of a move, whose budgets are set
+	 * by <code>allocate</code>.
+	 *
+	 * @param timeLeft the time, in milliseconds, the player has left
+	 * @param board the board before the move
+	 * @param movesPlayed the number of moves the player has made in the game
+	 */
+	public SearchLimit newLimit(long timeLeft, Board board, int movesPlayed) {
+		SearchLimit limit = new SearchLimit(SearchLimit.UNLIMITED);
+		allocate(limit, timeLeft, board, movesPlayed);
+		return limit;
+	}
+
+	/**
+	 * Sets the budgets of <code>limit</code>, which may be bounding a
+	 * running search, for the search of a move. The soft budget is counted
+	 * from the creation of <code>limit</code>, so a search that started
+	 * early (e.g. on the opponent's time) uses less of the time left; the
+	 * hard budget is counted from now.
+	 *
+	 * @param timeLeft the time, in milliseconds, the player has left
+	 * @param board the board before the move
+	 * @param movesPlayed the number of moves the player has made in the game
+	 * @modifies limit
+	 */
+	public void allocate(SearchLimit limit, long timeLeft, Board board,
+			int movesPlayed) {
+		long usable = Math.max(0, timeLeft - Math.min(SAFETY_MARGIN,
+				timeLeft / 2));
+		long soft = (long) (usable / getMovesToGo(board, movesPlayed)
+				/ Math.max(1, state.getOverrun()));
+		long hard = Math.max(soft, Math.min(soft * HARD_FACTOR,
+				usable / MAX_MOVE_SHARE));
+		limit.setHardBudget(limit.elapsed() + hard);
+		limit.setBudget(soft);
+		limit.setExtension(soft / 2);
+	}
+
+	/**
+	 * Records that a search, bound by <code>limit</code>, has ended.
+	 *
+	 * @modifies state
+	 */
+	public void finished(SearchLimit limit) {
+		state.recordTime(limit.getBudget(), limit.elapsed());
+	}
+
+	/**
+	 * Returns the number of moves the time left is spread over.
+	 */
+	private int getMovesToGo(Board board, int movesPlayed) {
+		int length = MOVES_TO_GO;
+		if (state.getGames() > 0)
+			length = (int) Math.round(state.getMovesPerGame()) - movesPlayed;
+		int phase = MOVES_PER_PIECE * Math.min(board.pieceCount(true),
+				board.pieceCount(false));
+		return Math.max(MIN_MOVES_TO_GO, Math.min(length, phase));
+	}
+}
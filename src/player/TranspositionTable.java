@@ -0,0 +1,534 @@
+package player;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import engine.adt.Ply;
+
+/**
+ * A <code>TranspositionTable</code> remembers the results of searching
+ * positions, so that a search that reaches a position again (through a
+ * different order of plies, in a sibling subtree, or in the search for a
+ * later move) can reuse them instead of searching it again.
+ *
+ * Positions are identified by their Zobrist keys (see
+ * <code>Board.getPositionKey</code>). For each one the table stores the
+ * depth it was searched to, the score found, whether that score is exact
+ * or only a bound, and the best move found.
+ *
+ * A <code>TranspositionTable</code> has a fixed number of slots, which is a
+ * power of two. A position may be stored in any of <code>PROBES</code>
+ * consecutive slots starting at the one its key maps to. When all of them
+ * are taken, one entry is evicted according to the table's
+ * <code>Replacement</code> policy.
+ *
+ * Each entry records the generation it was stored in, which
+ * <code>newSearch</code> advances. Entries of earlier generations are
+ * <i>stale</i>: they can still be found, but are evicted before those of
+ * the current search, whatever their depth, so that the deep entries of
+ * old games do not fill the table forever.
+ *
+ * A <code>TranspositionTable</code> can be shared by several searching
+ * threads without locking. Each slot is a pair of <code>long</code>s: the
+ * entry packed into one, and the key of its position XORed with it in the
+ * other, whose lowest bits hold the generation instead. A thread that
+ * reads a slot while another writes it, and so gets half of each entry,
+ * finds that the key does not match and misses the position, instead of
+ * taking the result of another one. Two threads that store at once may
+ * lose one of the entries, which is harmless.
+ *
+ * A table of a given size in megabytes can be created with
+ * <code>fromMegabytes</code>. The searches of the players of a process
+ * that play by the same rules share the table returned by
+ * <code>getShared</code> for those rules, which is created once, so it
+ * keeps what it learned from one game to the next. Keys do not tell the
+ * rules apart, so the results found under some rules must not be used
+ * under others.
+ */
+public class TranspositionTable {
+
+	/**
+	 * Name of the system property that determines the number of slots of
+	 * tables created by <code>fromSystemProperties()</code>.
+	 */
+	public static final String SIZE_PROPERTY = "pawned.tt.size";
+
+	/**
+	 * Name of the system property that determines the size, in megabytes,
+	 * of tables created by <code>fromSystemProperties()</code>. It takes
+	 * precedence over <code>SIZE_PROPERTY</code>.
+	 */
+	public static final String MEGABYTES_PROPERTY = "pawned.tt.mb";
+
+	/**
+	 * Name of the system property that determines the
+	 * <code>Replacement</code> policy of tables created by
+	 * <code>fromSystemProperties()</code>; either <tt>DEPTH_PREFERRED</tt>
+	 * or <tt>ALWAYS_REPLACE</tt>.
+	 */
+	public static final String REPLACEMENT_PROPERTY = "pawned.tt.replacement";
+
+	/**
+	 * Number of slots used when no size is specified.
+	 */
+	public static final int DEFAULT_SIZE = 1 << 18;
+
+	/**
+	 * Largest number of slots.
+	 */
+	public static final int MAX_SIZE = 1 << 29;
+
+	/**
+	 * Number of bytes taken by a slot.
+	 */
+	public static final int SLOT_BYTES = 16;
+
+	/**
+	 * Number of consecutive slots in which a position may be stored.
+	 */
+	public static final int PROBES = 4;
+
+	/**
+	 * The stored score is the exact score of the position.
+	 */
+	public static final int EXACT = 0;
+
+	/**
+	 * The stored score is a lower bound of the score of the position (the
+	 * search failed high).
+	 */
+	public static final int LOWER_BOUND = 1;
+
+	/**
+	 * The stored score is an upper bound of the score of the position (the
+	 * search failed low).
+	 */
+	public static final int UPPER_BOUND = 2;
+
+	/**
+	 * Scores at or beyond this magnitude are wins or losses found by the
+	 * search, whose values depend on the distance from the root. They are
+	 * stored relative to the position instead.
+	 */
+	public static final int MATE_THRESHOLD = Integer.MAX_VALUE - 1000;
+
+	/**
+	 * Layout of a packed entry, from the lowest bit up: the code of the
+	 * move (<code>MOVE_BITS</code> bits, enough for the codes of
+	 * <code>PlyCode</code>; larger codes are stored as
+	 * <code>Ply.NO_CODE</code>), the bound plus one, so that no entry packs
+	 * to 0, which marks an empty slot, the depth, at most
+	 * <code>MAX_DEPTH</code>, and the score in the upper half.
+	 */
+	private static final int MOVE_BITS = 23;
+	private static final int MOVE_MASK = (1 << MOVE_BITS) - 1;
+	private static final int BOUND_SHIFT = MOVE_BITS;
+	private static final int DEPTH_SHIFT = BOUND_SHIFT + 2;
+	private static final int MAX_DEPTH = 127;
+	private static final int SCORE_SHIFT = 32;
+
+	/**
+	 * Number of the lowest bits of the check word of a slot that hold the
+	 * generation of its entry instead of part of its key. The lowest bits
+	 * of a key mostly determine the slots it maps to, so leaving them out
+	 * of the check barely weakens it.
+	 */
+	private static final int GENERATION_BITS = 8;
+	private static final long GENERATION_MASK = (1 << GENERATION_BITS) - 1;
+
+	/**
+	 * The tables shared by the searches of the process, by the name of
+	 * their rule set.
+	 */
+	private static final Map<String, TranspositionTable> shared =
+		new HashMap<String, TranspositionTable>();
+
+	/**
+	 * Policies for choosing which entry to evict when a position is stored
+	 * and all of its slots are taken.
+	 */
+	public enum Replacement {
+		/**
+		 * Evict a stale entry if there is one, else the entry that was
+		 * searched to the smallest depth. The new entry is not stored if
+		 * all entries are current and were searched deeper.
+		 */
+		DEPTH_PREFERRED,
+		/**
+		 * Always evict the entry in the first slot of the position.
+		 */
+		ALWAYS_REPLACE
+	}
+
+	/**
+	 * An <code>Entry</code> is the information stored for one position.
+	 * An <code>Entry</code> is immutable.
+	 */
+	public static class Entry {
+		private final int depth;
+		private final int bound;
+		private final int score;
+		private final int move;
+
+		private Entry(long data) {
+			this.depth = depthOf(data);
+			this.bound = (int) (data >>> BOUND_SHIFT & 3) - 1;
+			this.score = (int) (data >> SCORE_SHIFT);
+			this.move = (int) data & MOVE_MASK;
+		}
+
+		/**
+		 * Returns the depth the position was searched to.
+		 */
+		public int getDepth() {
+			return depth;
+		}
+
+		/**
+		 * Returns <code>EXACT</code>, <code>LOWER_BOUND</code> or
+		 * <code>UPPER_BOUND</code>.
+		 */
+		public int getBound() {
+			return bound;
+		}
+
+		/**
+		 * Returns the score of the position, as seen by the player to move
+		 * in it, for a search that started <tt>distance</tt> plies above it.
+		 */
+		public int getScore(int distance) {
+			return fromTable(score, distance);
+		}
+
+		/**
+		 * Returns the code of the best move found in the position (see
+		 * <code>Ply.getCode()</code>), or <code>Ply.NO_CODE</code> if none
+		 * was.
+		 */
+		public int getMove() {
+			return move;
+		}
+	}
+
+	//Fields
+
+	private final Replacement replacement;
+
+	private final int mask;
+
+	/**
+	 * Slot i is made of its check word, the key of its position XORed with
+	 * its data but for the lowest <code>GENERATION_BITS</code> bits, which
+	 * hold its generation, at index 2i, and its data, the packed entry, at
+	 * index 2i+1.
+	 */
+	private final long[] slots;
+
+	/**
+	 * The generation of the entries stored now. It only grows (modulo
+	 * <code>GENERATION_MASK + 1</code>); threads that advance it at once
+	 * may skip a generation, which is harmless.
+	 */
+	private volatile int generation = 0;
+
+	//AF(t) = the map slots[2i] ^ slots[2i+1] -> unpacked slots[2i+1] for
+	//        every i with slots[2i+1] != 0, ignoring the lowest
+	//        GENERATION_BITS bits of keys; the entry is stale if the lowest
+	//        GENERATION_BITS bits of slots[2i] differ from generation
+	//RI: slots.length == 2 * (mask + 1), mask + 1 is a power of two, and
+	//    0 <= generation <= GENERATION_MASK
+
+	/**
+	 * Returns a new, empty <code>TranspositionTable</code> with
+	 * <code>DEFAULT_SIZE</code> slots and the depth-preferred replacement
+	 * policy.
+	 */
+	public TranspositionTable() {
+		this(DEFAULT_SIZE, Replacement.DEPTH_PREFERRED);
+	}
+
+	/**
+	 * Returns a new, empty <code>TranspositionTable</code>.
+	 *
+	 * @param size the minimum number of slots. The actual number is the
+	 * 			smallest power of two that is not less than <tt>size</tt>
+	 * 			nor than <code>PROBES</code>.
+	 * @param replacement the replacement policy
+	 * @throws IllegalArgumentException if <tt>size</tt> is not positive,
+	 * 			is larger than <code>MAX_SIZE</code>, or
+	 * 			<tt>replacement</tt> is null
+	 */
+	public TranspositionTable(int size, Replacement replacement) {
+		if (size <= 0 || size > MAX_SIZE || replacement == null)
+			throw new IllegalArgumentException("Invalid table settings");
+		int count = PROBES;
+		while (count < size)
+			count <<= 1;
+		this.replacement = replacement;
+		this.mask = count - 1;
+		this.slots = new long[2 * count];
+	}
+
+	/**
+	 * Returns a new, empty <code>TranspositionTable</code> that takes at
+	 * most <code>megabytes</code> megabytes: its number of slots is the
+	 * largest power of two that fits.
+	 *
+	 * @throws IllegalArgumentException if <tt>megabytes</tt> is not
+	 * 			positive, is too large, or <tt>replacement</tt> is null
+	 */
+	public static TranspositionTable fromMegabytes(int megabytes,
+			Replacement replacement) {
+		int size = sizeOf(megabytes);
+		if (size < 0)
+			throw new IllegalArgumentException("Invalid table size");
+		return new TranspositionTable(size, replacement);
+	}
+
+	/**
+	 * Returns a new, empty <code>TranspositionTable</code> configured by
+	 * the <code>MEGABYTES_PROPERTY</code>, <code>SIZE_PROPERTY</code> and
+	 * <code>REPLACEMENT_PROPERTY</code> system properties. Missing or
+	 * invalid properties are replaced by their defaults.
+	 */
+	public static TranspositionTable fromSystemProperties() {
+		int size = DEFAULT_SIZE;
+		Replacement replacement = Replacement.DEPTH_PREFERRED;
+		try {
+			String value = System.getProperty(SIZE_PROPERTY);
+			if (value != null && Integer.parseInt(value.trim()) > 0
+					&& Integer.parseInt(value.trim()) <= MAX_SIZE)
+				size = Integer.parseInt(value.trim());
+		} catch (NumberFormatException nfe) {
+			// keep the default
+		}
+		try {
+			String value = System.getProperty(MEGABYTES_PROPERTY);
+			if (value != null && sizeOf(Long.parseLong(value.trim())) > 0)
+				size = sizeOf(Long.parseLong(value.trim()));
+		} catch (NumberFormatException nfe) {
+			// keep the default
+		}
+		try {
+			String value = System.getProperty(REPLACEMENT_PROPERTY);
+			if (value != null)
+				replacement = Replacement.valueOf(value.trim());
+		} catch (IllegalArgumentException iae) {
+			// keep the default
+		}
+		return new TranspositionTable(size, replacement);
+	}
+
+	/**
+	 * Returns the table shared by the searches of this process under the
+	 * rule set named <tt>ruleSet</tt> (as returned by its
+	 * <code>toString</code>), which is created by
+	 * <code>fromSystemProperties()</code> on the first call for that rule
+	 * set.
+	 *
+	 * @requires <code>ruleSet != null</code>
+	 */
+	public static synchronized TranspositionTable getShared(String ruleSet) {
+		TranspositionTable table = shared.get(ruleSet);
+		if (table == null) {
+			table = fromSystemProperties();
+			shared.put(ruleSet, table);
+		}
+		return table;
+	}
+
+	/**
+	 * Returns the number of slots in <tt>this</tt>.
+	 */
+	public int size() {
+		return slots.length / 2;
+	}
+
+	/**
+	 * Returns the replacement policy of <tt>this</tt>.
+	 */
+	public Replacement getReplacement() {
+		return replacement;
+	}
+
+	/**
+	 * Starts a new generation: the entries stored so far become stale, and
+	 * are evicted first by the entries stored from now on. A search should
+	 * call this before it starts. Generations wrap around after
+	 * <code>GENERATION_MASK + 1</code> calls, so entries that old may be
+	 * taken as current again.
+	 *
+	 * @modifies this
+	 */
+	public void newSearch() {
+		generation = (int) ((generation + 1) & GENERATION_MASK);
+	}
+
+	/**
+	 * Returns the entry stored for the position with the given key, or
+	 * <tt>null</tt> if there is none. Stale entries are found as well.
+	 */
+	public Entry probe(long key) {
+		int index = (int) key & mask;
+		for (int i = 0; i < PROBES; i++) {
+			int slot = 2 * ((index + i) & mask);
+			long data = slots[slot + 1];
+			if (data != 0 && matches(slots[slot], data, key))
+				return new Entry(data);
+		}
+		return null;
+	}
+
+	/**
+	 * Stores the result of searching the position with the given key.
+	 *
+	 * @param key the key of the position
+	 * @param depth the depth the position was searched to
+	 * @param bound <code>EXACT</code>, <code>LOWER_BOUND</code> or
+	 * 			<code>UPPER_BOUND</code>
+	 * @param score the score found, as seen by the player to move in the
+	 * 			position
+	 * @param distance the number of plies between the root of the search
+	 * 			and the position
+	 * @param move the code of the best move found, or
+	 * 			<code>Ply.NO_CODE</code>
+	 *
+	 * @modifies this
+	 * @effects stores the entry in the current generation, unless the
+	 * 			replacement policy keeps the entries already stored. A
+	 * 			previous entry for the same position is replaced only if it
+	 * 			is stale, was searched to a smaller or equal depth, or if
+	 * 			the policy is <code>ALWAYS_REPLACE</code>. Depths beyond
+	 * 			<code>MAX_DEPTH</code> are stored as <code>MAX_DEPTH</code>.
+	 */
+	public void store(long key, int depth, int bound, int score,
+			int distance, int move) {
+		depth = Math.max(0, Math.min(depth, MAX_DEPTH));
+		if ((move & ~MOVE_MASK) != 0)
+			move = Ply.NO_CODE;
+		int index = (int) key & mask;
+		int generation = this.generation;
+		//each slot is read once, since other threads may be writing it
+		int victim = -1;
+		long victimCheck = 0;
+		long victimData = 0;
+		boolean same = false;
+		for (int i = 0; i < PROBES; i++) {
+			int slot = (index + i) & mask;
+			long check = slots[2 * slot];
+			long data = slots[2 * slot + 1];
+			if (data != 0 && matches(check, data, key)) {
+				if (replacement == Replacement.DEPTH_PREFERRED &&
+						depthOf(data) > depth && !isStale(check, generation))
+					return;
+				// keep the old move if the new search did not find one
+				if (move == Ply.NO_CODE)
+					move = (int) data & MOVE_MASK;
+				victim = slot;
+				same = true;
+				break;
+			}
+			if (victim < 0 || rank(check, data, generation)
+					< rank(victimCheck, victimData, generation)) {
+				victim = slot;
+				victimCheck = check;
+				victimData = data;
+			}
+		}
+		if (victimData != 0 && !same) {
+			if (replacement == Replacement.ALWAYS_REPLACE)
+				victim = index;
+			else if (depthOf(victimData) > depth
+					&& !isStale(victimCheck, generation))
+				return;
+		}
+		long data = (long) toTable(score, distance) << SCORE_SHIFT
+			| (long) depth << DEPTH_SHIFT
+			| (long) (bound + 1) << BOUND_SHIFT
+			| move;
+		slots[2 * victim] = (key ^ data) & ~GENERATION_MASK | generation;
+		slots[2 * victim + 1] = data;
+	}
+
+	/**
+	 * Removes all the entries in <tt>this</tt>. Entries stored by searches
+	 * running meanwhile may be kept.
+	 */
+	public void clear() {
+		for (int i = 0; i < slots.length; i++)
+			slots[i] = 0L;
+	}
+
+	/**
+	 * Returns the largest power of two of slots, but at least
+	 * <code>PROBES</code>, that fit in <code>megabytes</code> megabytes, or
+	 * -1 if <tt>megabytes</tt> is not positive or fits more than
+	 * <code>MAX_SIZE</code> slots.
+	 */
+	private static int sizeOf(long megabytes) {
+		if (megabytes <= 0 || megabytes > (long) MAX_SIZE * SLOT_BYTES >> 20)
+			return -1;
+		long size = megabytes * (1 << 20) / SLOT_BYTES;
+		return (int) Math.max(PROBES, Long.highestOneBit(size));
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the slot with the given check word and data
+	 * holds the position with the given key.
+	 */
+	private static boolean matches(long check, long data, long key) {
+		return ((check ^ data ^ key) & ~GENERATION_MASK) == 0;
+	}
+
+	/**
+	 * Returns <tt>true</tt> if the entry with the given check word was
+	 * stored before the given generation.
+	 */
+	private static boolean isStale(long check, int generation) {
+		return (check & GENERATION_MASK) != generation;
+	}
+
+	/**
+	 * Returns the rank of the slot with the given check word and data as a
+	 * victim of the depth-preferred policy: the lowest ranks are evicted
+	 * first, which are empty slots, then stale entries, then current ones,
+	 * each by increasing depth.
+	 */
+	private static int rank(long check, long data, int generation) {
+		if (data == 0)
+			return -1;
+		if (isStale(check, generation))
+			return depthOf(data);
+		return MAX_DEPTH + 1 + depthOf(data);
+	}
+
+	/**
+	 * Returns the depth packed in <code>data</code>.
+	 */
+	private static int depthOf(long data) {
+		return (int) (data >>> DEPTH_SHIFT) & MAX_DEPTH;
+	}
+
+	/**
+	 * Converts a score relative to the root into one relative to the
+	 * position <tt>distance</tt> plies below it.
+	 */
+	private static int toTable(int score, int distance) {
+		if (score >= MATE_THRESHOLD)
+			return score + distance;
+		if (score <= -MATE_THRESHOLD)
+			return score - distance;
+		return score;
+	}
+
+	/**
+	 * Inverse of <code>toTable</code>.
+	 */
+	private static int fromTable(int score, int distance) {
+		if (score >= MATE_THRESHOLD)
+			return score - distance;
+		if (score <= -MATE_THRESHOLD)
+			return score + distance;
+		return score;
+	}
+}
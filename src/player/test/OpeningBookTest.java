@@ -0,0 +1,222 @@
+package player.test;
+
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import player.OpeningBook;
+import player.OpeningBookBuilder;
+import ruleset.antichess.StandardAC;
+import engine.adt.Board;
+import engine.adt.RuleSet;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the classes OpeningBook and OpeningBookBuilder.
+ */
+public class OpeningBookTest extends TestCase {
+
+	/**
+	 * The temporary files created by the test.
+	 */
+	private final List<File> files = new ArrayList<File>();
+
+	@Override
+	protected void tearDown() {
+		for (File file : files)
+			file.delete();
+		files.clear();
+	}
+
+	/**
+	 * A book written by the builder is read back with the same positions,
+	 * moves and weights, the moves of each position by decreasing weight.
+	 */
+	public void testRoundTrip() throws IOException {
+		RuleSet rs = new StandardAC();
+		OpeningBookBuilder builder = new OpeningBookBuilder(rs, 2);
+		assertTrue(builder.addGame(game(rs.toString(), "white",
+				"c2-c3", "c7-c6", "b2-b3")));
+		assertTrue(builder.addGame(game(rs.toString(), null,
+				"c2-c3", "b7-b6")));
+		assertTrue(builder.addGame(game(rs.toString(), "black",
+				"e2-e3", "c7-c6")));
+		assertFalse("Games of other rules are not added",
+				builder.addGame(game("6170-spring-2006", "white", "a2-a3")));
+		assertEquals(5, builder.size());
+
+		File file = newFile();
+		builder.write(file);
+		OpeningBook book = OpeningBook.open(file);
+		assertEquals(builder.size(), book.size());
+
+		Board board = rs.boardFactory().getInitialBoard();
+		List<OpeningBook.BookMove> moves =
+			book.getMoves(board.getPositionKey(true));
+		assertEquals(2, moves.size());
+		assertEquals("c2-c3", moves.get(0).getMove());
+		assertEquals(OpeningBookBuilder.WIN_WEIGHT
+				+ OpeningBookBuilder.UNFINISHED_WEIGHT,
+				moves.get(0).getWeight());
+		assertEquals("e2-e3", moves.get(1).getMove());
+		assertEquals(OpeningBookBuilder.LOSS_WEIGHT, moves.get(1).getWeight());
+
+		board.executePly(rs.plyFactory().getPly("c2-c3", board));
+		moves = book.getMoves(board.getPositionKey(false));
+		assertEquals(2, moves.size());
+		assertEquals("b7-b6", moves.get(0).getMove());
+		assertEquals(OpeningBookBuilder.UNFINISHED_WEIGHT,
+				moves.get(0).getWeight());
+		assertEquals("c7-c6", moves.get(1).getMove());
+		assertEquals(OpeningBookBuilder.LOSS_WEIGHT, moves.get(1).getWeight());
+
+		//the third ply is past the plies added
+		board.executePly(rs.plyFactory().getPly("c7-c6", board));
+		assertTrue(book.getMoves(board.getPositionKey(true)).isEmpty());
+	}
+
+	/**
+	 * The records of a key are all found, however many there are and
+	 * wherever the binary search lands among them, and keys that are not
+	 * in the book, including those beyond its first and last keys, have
+	 * no moves.
+	 */
+	public void testDuplicateKeys() throws IOException {
+		long[] keys = {Long.MIN_VALUE, -5, 3, 3, 3, 3, 3, 3, 3, 7, 7,
+				Long.MAX_VALUE};
+		OpeningBook book = OpeningBook.open(write(OpeningBook.MAGIC,
+				OpeningBook.VERSION, keys.length, keys));
+		assertEquals(keys.length, book.size());
+		assertEquals(1, book.getMoves(Long.MIN_VALUE).size());
+		assertEquals(1, book.getMoves(-5).size());
+		assertEquals(7, book.getMoves(3).size());
+		assertEquals(2, book.getMoves(7).size());
+		assertEquals(1, book.getMoves(Long.MAX_VALUE).size());
+		assertTrue(book.getMoves(-6).isEmpty());
+		assertTrue(book.getMoves(4).isEmpty());
+		assertTrue(book.getMoves(Long.MAX_VALUE - 1).isEmpty());
+
+		List<OpeningBook.BookMove> moves = book.getMoves(3);
+		for (int i = 0; i < moves.size(); i++) {
+			assertEquals("m" + (i + 2), moves.get(i).getMove());
+			assertEquals(i + 3, moves.get(i).getWeight());
+		}
+	}
+
+	/**
+	 * Only moves that are valid are chosen, and none if no move of the
+	 * position is valid.
+	 */
+	public void testChoose() throws IOException {
+		OpeningBook book = OpeningBook.open(write(OpeningBook.MAGIC,
+				OpeningBook.VERSION, 3, new long[] {1, 1, 1}));
+		Random random = new Random(0);
+		for (int i = 0; i < 20; i++)
+			assertEquals("m1", book.choose(1, Arrays.asList("m1", "x"),
+					random));
+		assertNull(book.choose(1, Arrays.asList("x"), random));
+		assertNull(book.choose(2, Arrays.asList("m0"), random));
+	}
+
+	/**
+	 * Files with another magic number or version, whose size does not
+	 * match their number of records, or that are too short for a header,
+	 * are rejected.
+	 */
+	public void testRejected() throws IOException {
+		long[] keys = {1, 2};
+		assertRejected(write(OpeningBook.MAGIC + 1, OpeningBook.VERSION, 2,
+				keys));
+		assertRejected(write(OpeningBook.MAGIC, OpeningBook.VERSION + 1, 2,
+				keys));
+		assertRejected(write(OpeningBook.MAGIC, OpeningBook.VERSION, 3,
+				keys));
+		assertRejected(write(OpeningBook.MAGIC, OpeningBook.VERSION, -1,
+				keys));
+
+		File file = newFile();
+		FileOutputStream out = new FileOutputStream(file);
+		out.write(new byte[OpeningBook.HEADER_SIZE - 1]);
+		out.close();
+		assertRejected(file);
+	}
+
+	/**
+	 * Fails unless opening <tt>file</tt> throws an IOException.
+	 */
+	private static void assertRejected(File file) {
+		try {
+			OpeningBook.open(file);
+			fail("Opened a bad book");
+		}
+		catch (IOException ioe) {
+			// expected
+		}
+	}
+
+	/**
+	 * Returns a new book file with the given header, whose records have
+	 * the given keys, the moves "m0", "m1", ... and the weights 1, 2, ...
+	 */
+	private File write(int magic, int version, int size, long[] keys)
+			throws IOException {
+		File file = newFile();
+		DataOutputStream out = new DataOutputStream(
+				new FileOutputStream(file));
+		out.writeInt(magic);
+		out.writeInt(version);
+		out.writeInt(size);
+		out.writeInt(0);
+		for (int i = 0; i < keys.length; i++) {
+			out.writeLong(keys[i]);
+			out.writeInt(i + 1);
+			byte[] name = new byte[OpeningBook.MOVE_LENGTH];
+			String move = "m" + i;
+			for (int j = 0; j < move.length(); j++)
+				name[j] = (byte) move.charAt(j);
+			out.write(name);
+		}
+		out.close();
+		return file;
+	}
+
+	/**
+	 * Returns a new saved game of the given rules and plies, won by the
+	 * given side, or unfinished if <tt>winner</tt> is null.
+	 */
+	private File game(String ruleSet, String winner, String... plies)
+			throws IOException {
+		File file = newFile();
+		FileWriter out = new FileWriter(file);
+		out.write("<?xml version=\"1.0\" encoding=\"ISO-8859-1\"?>\n");
+		out.write("<game ruleset=\"" + ruleSet + "\">\n");
+		out.write("  <time timed=\"false\" initWhite=\"0\" initBlack=\"0\""
+				+ " currentWhite=\"0\" currentBlack=\"0\" />\n");
+		out.write("  <moveHistory>\n");
+		for (int i = 0; i < plies.length; i++)
+			out.write("    <move side=\"" + (i % 2 == 0 ? "white" : "black")
+					+ "\" value=\"" + plies[i] + "\" time=\"0\" />\n");
+		out.write("  </moveHistory>\n");
+		if (winner != null)
+			out.write("  <gameOver winner=\"" + winner
+					+ "\" description=\"test\" />\n");
+		out.write("</game>\n");
+		out.close();
+		return file;
+	}
+
+	/**
+	 * Returns a new temporary file, deleted by <code>tearDown</code>.
+	 */
+	private File newFile() throws IOException {
+		File file = File.createTempFile("book", ".tmp");
+		files.add(file);
+		return file;
+	}
+}
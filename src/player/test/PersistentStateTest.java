@@ -0,0 +1,203 @@
+package player.test;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+
+import player.PersistentState;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the class PersistentState.
+ */
+public class PersistentStateTest extends TestCase {
+
+	/**
+	 * Offset of the number of history records in the header of a state.
+	 */
+	private static final int HISTORY_COUNT = 4 + 1 + 4 + 4 + 4 + 1;
+
+	/**
+	 * Size, in bytes, of a history record.
+	 */
+	private static final int HISTORY_RECORD = 2 + 2;
+
+	/**
+	 * A state read back from its bytes has the same games, averages,
+	 * history scores and openings.
+	 */
+	public void testRoundTrip() {
+		PersistentState state = new PersistentState();
+		int[] history = new int[state.getHistory().length];
+		history[3] = 7;
+		history[history.length - 1] = 0xFFFF;
+		state.setHistory(history);
+		state.recordGame(Arrays.asList(1L, 2L), Arrays.asList("c2-c3",
+				"b2-b3"), Boolean.TRUE, 40);
+		state.recordGame(Arrays.asList(1L), Arrays.asList("e2-e3"),
+				Boolean.FALSE, 20);
+		state.recordTime(1000, 1500);
+
+		PersistentState copy = PersistentState.fromBytes(
+				state.toBytes(Integer.MAX_VALUE));
+		assertEquals(2, copy.getGames());
+		assertEquals(state.getMovesPerGame(), copy.getMovesPerGame(), 1e-4);
+		assertEquals(state.getOverrun(), copy.getOverrun(), 1e-4);
+		assertTrue(Arrays.equals(state.getHistory(), copy.getHistory()));
+
+		Random random = new Random(0);
+		List<String> valid = Arrays.asList("c2-c3", "e2-e3", "b2-b3");
+		assertEquals("c2-c3", copy.chooseOpening(1, valid, random));
+		assertEquals("b2-b3", copy.chooseOpening(2, valid, random));
+		assertNull(copy.chooseOpening(3, valid, random));
+	}
+
+	/**
+	 * Nothing fits in fewer bytes than a header, and an empty state fits
+	 * in a header.
+	 */
+	public void testEmpty() {
+		PersistentState state = new PersistentState();
+		assertEquals(0, state.toBytes(PersistentState.HEADER_SIZE - 1).length);
+		assertEquals(0, state.toBytes(-1).length);
+		byte[] bytes = state.toBytes(PersistentState.HEADER_SIZE);
+		assertEquals(PersistentState.HEADER_SIZE, bytes.length);
+		assertEmpty(PersistentState.fromBytes(bytes));
+		assertEmpty(PersistentState.fromBytes(null));
+		assertEmpty(PersistentState.fromBytes(new byte[0]));
+	}
+
+	/**
+	 * The records of a state that does not fit are cut down to 3/4 until
+	 * they do, keeping the highest history scores and the most played
+	 * openings.
+	 */
+	public void testShrink() {
+		PersistentState state = new PersistentState();
+		int[] history = new int[state.getHistory().length];
+		for (int slot = 0; slot < 100; slot++)
+			history[slot] = 1000 + slot;
+		state.setHistory(history);
+
+		//100, 75, 56 and 42 records: only the last fits
+		int limit = PersistentState.HEADER_SIZE + 50 * HISTORY_RECORD;
+		byte[] bytes = state.toBytes(limit);
+		assertTrue(bytes.length <= limit);
+		assertEquals(42, count(bytes, HISTORY_COUNT));
+		assertEquals(PersistentState.HEADER_SIZE + 42 * HISTORY_RECORD,
+				bytes.length);
+		int[] kept = PersistentState.fromBytes(bytes).getHistory();
+		for (int slot = 0; slot < 100; slot++)
+			assertEquals(slot >= 100 - 42 ? history[slot] : 0, kept[slot]);
+
+		//the least played openings are left out first
+		state = new PersistentState();
+		List<Long> keys = new ArrayList<Long>();
+		List<String> moves = new ArrayList<String>();
+		for (int i = 0; i < PersistentState.OPENING_PLIES; i++) {
+			keys.add((long) i);
+			moves.add("m" + i);
+			state.recordGame(keys, moves, Boolean.TRUE, 10);
+		}
+		byte[] all = state.toBytes(Integer.MAX_VALUE);
+		for (limit = all.length; limit >= PersistentState.HEADER_SIZE;
+				limit--) {
+			bytes = state.toBytes(limit);
+			assertTrue(bytes.length <= limit);
+			PersistentState copy = PersistentState.fromBytes(bytes);
+			assertEquals(state.getGames(), copy.getGames());
+			boolean found = true;
+			for (int i = 0; i < PersistentState.OPENING_PLIES; i++) {
+				String move = copy.chooseOpening(i, moves, new Random(0));
+				assertTrue(found || move == null);
+				found = move != null;
+			}
+		}
+		assertEquals(PersistentState.HEADER_SIZE, bytes.length);
+	}
+
+	/**
+	 * History scores too large for the records are shifted down, and read
+	 * back within one shift of their value, never negative.
+	 */
+	public void testHistoryShift() {
+		PersistentState state = new PersistentState();
+		int[] history = new int[state.getHistory().length];
+		history[0] = Integer.MAX_VALUE;
+		history[1] = 0x10000;
+		history[2] = 0x7FFF;
+		history[3] = 1;
+		state.setHistory(history);
+
+		int shift = 15;
+		int[] copy = PersistentState.fromBytes(
+				state.toBytes(Integer.MAX_VALUE)).getHistory();
+		for (int slot = 0; slot < history.length; slot++) {
+			assertTrue(copy[slot] >= 0);
+			assertTrue(copy[slot] <= history[slot]);
+			assertTrue(history[slot] - copy[slot] < 1 << shift);
+			assertEquals(history[slot] >> shift << shift, copy[slot]);
+		}
+		assertEquals(0xFFFF << shift, copy[0]);
+		assertEquals(0, copy[3]);
+	}
+
+	/**
+	 * States with another magic number or version, negative counts, or
+	 * that are cut short are read as empty.
+	 */
+	public void testRejected() {
+		PersistentState state = new PersistentState();
+		int[] history = new int[state.getHistory().length];
+		history[0] = 5;
+		state.setHistory(history);
+		state.recordGame(Arrays.asList(1L), Arrays.asList("c2-c3"),
+				Boolean.TRUE, 30);
+		byte[] bytes = state.toBytes(Integer.MAX_VALUE);
+		assertEquals(1, PersistentState.fromBytes(bytes).getGames());
+
+		byte[] bad = bytes.clone();
+		bad[0] ^= 1;
+		assertEmpty(PersistentState.fromBytes(bad));
+
+		bad = bytes.clone();
+		bad[4] = PersistentState.VERSION + 1;
+		assertEmpty(PersistentState.fromBytes(bad));
+
+		//negative number of games
+		bad = bytes.clone();
+		bad[5] = (byte) 0xFF;
+		assertEmpty(PersistentState.fromBytes(bad));
+
+		//negative numbers of history and opening records
+		for (int offset = HISTORY_COUNT; offset <= HISTORY_COUNT + 2;
+				offset += 2) {
+			bad = bytes.clone();
+			bad[offset] = (byte) 0xFF;
+			assertEmpty(PersistentState.fromBytes(bad));
+		}
+
+		for (int length = 0; length < bytes.length; length++)
+			assertEmpty(PersistentState.fromBytes(Arrays.copyOf(bytes,
+					length)));
+	}
+
+	/**
+	 * Fails unless <tt>state</tt> has learned nothing.
+	 */
+	private static void assertEmpty(PersistentState state) {
+		assertEquals(0, state.getGames());
+		assertEquals(0.0, state.getMovesPerGame());
+		assertEquals(1.0, state.getOverrun());
+		assertTrue(Arrays.equals(new int[state.getHistory().length],
+				state.getHistory()));
+	}
+
+	/**
+	 * Returns the unsigned short at <tt>offset</tt> in <tt>bytes</tt>.
+	 */
+	private static int count(byte[] bytes, int offset) {
+		return (bytes[offset] & 0xFF) << 8 | (bytes[offset + 1] & 0xFF);
+	}
+}
@@ -0,0 +1,24 @@
+package player.test;
+
+import junit.framework.Test;
+import junit.framework.TestSuite;
+
+/**
+ * Contains all the tests for the players and their searches.
+ */
+public class PlayerTests {
+
+	public static Test suite() {
+		TestSuite suite = new TestSuite();
+
+		suite.addTestSuite(OpeningBookTest.class);
+		suite.addTestSuite(PersistentStateTest.class);
+		suite.addTestSuite(SearchLimitTest.class);
+		suite.addTestSuite(TablebaseTest.class);
+		suite.addTestSuite(TimeManagerTest.class);
+		suite.addTestSuite(TranspositionTableTest.class);
+
+		return suite;
+	}
+
+}
@@ -0,0 +1,99 @@
+package player.test;
+
+import player.SearchLimit;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the class SearchLimit.
+ */
+public class SearchLimitTest extends TestCase {
+
+	/**
+	 * The budget grows by the extension each time the move of the result
+	 * changes, but not when the first result is found or the move stays
+	 * the same.
+	 */
+	public void testExtension() {
+		SearchLimit limit = new SearchLimit(100);
+		limit.setHardBudget(1000);
+		limit.setExtension(50);
+		limit.resultFound("a");
+		assertEquals(100, limit.getBudget());
+		limit.resultFound("a");
+		assertEquals(100, limit.getBudget());
+		limit.resultFound("b");
+		assertEquals(150, limit.getBudget());
+		limit.resultFound("b");
+		assertEquals(150, limit.getBudget());
+		limit.resultFound("c");
+		assertEquals(200, limit.getBudget());
+	}
+
+	/**
+	 * The extensions never take the budget past the hard budget, nor
+	 * shorten a budget that is already past it.
+	 */
+	public void testExtensionCapped() {
+		SearchLimit limit = new SearchLimit(100);
+		limit.setHardBudget(130);
+		limit.setExtension(50);
+		limit.resultFound("a");
+		limit.resultFound("b");
+		assertEquals(130, limit.getBudget());
+		limit.resultFound("c");
+		assertEquals(130, limit.getBudget());
+
+		limit = new SearchLimit(100);
+		limit.setHardBudget(80);
+		limit.setExtension(50);
+		limit.resultFound("a");
+		limit.resultFound("b");
+		assertEquals(100, limit.getBudget());
+	}
+
+	/**
+	 * The budget only applies once there is a result, the hard budget
+	 * applies even before, and a stopped limit has expired.
+	 */
+	public void testExpired() throws InterruptedException {
+		SearchLimit limit = new SearchLimit(0);
+		Thread.sleep(5);
+		assertFalse(limit.expired());
+		limit.resultFound("a");
+		assertTrue(limit.expired());
+
+		limit = new SearchLimit(SearchLimit.UNLIMITED);
+		limit.setHardBudget(0);
+		Thread.sleep(5);
+		assertTrue(limit.expired());
+
+		limit = new SearchLimit(SearchLimit.UNLIMITED);
+		limit.resultFound("a");
+		assertFalse(limit.expired());
+		limit.stop();
+		assertTrue(limit.expired());
+	}
+
+	/**
+	 * A stop is noticed at the next poll, and an interrupt of the thread
+	 * at the next read of the clock, which stops the limit.
+	 */
+	public void testPoll() {
+		SearchLimit limit = new SearchLimit(SearchLimit.UNLIMITED);
+		assertFalse(limit.poll());
+		limit.stop();
+		assertTrue(limit.poll());
+
+		limit = new SearchLimit(SearchLimit.UNLIMITED);
+		Thread.currentThread().interrupt();
+		try {
+			for (int i = 1; i < SearchLimit.POLL_INTERVAL; i++)
+				assertFalse(limit.poll());
+			assertTrue(limit.poll());
+			assertTrue(limit.expired());
+			assertTrue(limit.poll());
+		} finally {
+			Thread.interrupted();
+		}
+	}
+}
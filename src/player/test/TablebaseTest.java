@@ -0,0 +1,232 @@
+package player.test;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import player.Tablebase;
+import player.TablebaseGenerator;
+import ruleset.antichess.EnCastleAC;
+import ruleset.antichess.StandardAC;
+import ruleset.board.RectangularBoard;
+import engine.adt.Board;
+import engine.adt.Piece;
+import engine.adt.RuleSet;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the classes Tablebase and TablebaseGenerator.
+ */
+public class TablebaseTest extends TestCase {
+
+	/**
+	 * The rules of antichess on a 3 by 3 board with kings and rooks only,
+	 * whose tables of up to four pieces are quick to generate.
+	 */
+	private static class SmallRules extends StandardAC {
+
+		private static final PieceFactory STANDARD =
+			new StandardAC().pieceFactory();
+
+		private static final BoardFactory boardFactory = new BoardFactory() {
+
+			public Board getBlankBoard() {
+				return new RectangularBoard(3, 3);
+			}
+
+			public Board getInitialBoard() {
+				return getBlankBoard();
+			}
+
+			public Board getBoard(String settings) {
+				return getBlankBoard();
+			}
+		};
+
+		private static final PieceFactory pieceFactory = new PieceFactory() {
+
+			public Piece getPiece(String name, Board board, boolean isWhite) {
+				return STANDARD.getPiece(name, board, isWhite);
+			}
+
+			public Set<Piece> getSupportedPieces(Board board, boolean isWhite) {
+				return STANDARD.getSupportedPieces(board, isWhite);
+			}
+
+			public List<String> getOrderedPieces() {
+				return Arrays.asList("king", "rook");
+			}
+		};
+
+		@Override
+		public BoardFactory boardFactory() {
+			return boardFactory;
+		}
+
+		@Override
+		public PieceFactory pieceFactory() {
+			return pieceFactory;
+		}
+	}
+
+	/**
+	 * The temporary files created by the test.
+	 */
+	private final List<File> files = new ArrayList<File>();
+
+	@Override
+	protected void tearDown() {
+		for (File file : files)
+			file.delete();
+		files.clear();
+	}
+
+	/**
+	 * A player whose only piece is its king has won, so every position of
+	 * a king against a king is a win in 0 for the player to move.
+	 */
+	public void testKings() throws IOException, InterruptedException {
+		RuleSet rs = new StandardAC();
+		Tablebase tablebase = generate(rs, 2);
+		assertEquals(rs.toString(), tablebase.getRuleSet());
+		assertEquals(2, tablebase.getMaxPieces());
+		assertEquals(1, tablebase.size());
+
+		int[][][] kings = {{{0, 0}, {7, 7}}, {{3, 3}, {4, 4}},
+				{{0, 0}, {0, 1}}};
+		for (int[][] cells : kings) {
+			Board board = rs.boardFactory().getBlankBoard();
+			add(rs, board, "king", true, cells[0]);
+			add(rs, board, "king", false, cells[1]);
+			for (boolean isWhiteTurn : new boolean[] {true, false}) {
+				int result = tablebase.probe(board, isWhiteTurn);
+				assertTrue(Tablebase.isWin(result));
+				assertEquals(0, Tablebase.getDistance(result));
+			}
+		}
+
+		//positions with more pieces than the tables are not known
+		Board board = rs.boardFactory().getBlankBoard();
+		add(rs, board, "king", true, new int[] {0, 0});
+		add(rs, board, "king", false, new int[] {7, 7});
+		add(rs, board, "rook", true, new int[] {1, 0});
+		assertEquals(Tablebase.UNKNOWN, tablebase.probe(board, true));
+	}
+
+	/**
+	 * A player who must capture the last piece of the opponent besides its
+	 * king loses in 1, since the opponent is then left with a lone king and
+	 * has won.
+	 */
+	public void testForcedCapture() throws IOException,
+			InterruptedException {
+		RuleSet rs = new SmallRules();
+		Tablebase tablebase = generate(rs, 4);
+		assertEquals(6, tablebase.size());
+
+		//the rooks attack each other along the b file
+		Board board = rs.boardFactory().getBlankBoard();
+		add(rs, board, "king", true, new int[] {0, 0});
+		add(rs, board, "rook", true, new int[] {1, 0});
+		add(rs, board, "king", false, new int[] {2, 2});
+		add(rs, board, "rook", false, new int[] {1, 2});
+		for (boolean isWhiteTurn : new boolean[] {true, false}) {
+			int result = tablebase.probe(board, isWhiteTurn);
+			assertTrue(Tablebase.isLoss(result));
+			assertEquals(1, Tablebase.getDistance(result));
+		}
+
+		board.executePly(rs.plyFactory().getPly("b1-b3", board));
+		int result = tablebase.probe(board, false);
+		assertTrue(Tablebase.isWin(result));
+		assertEquals(0, Tablebase.getDistance(result));
+	}
+
+	/**
+	 * The digits of the index of a position, in base the number of cells,
+	 * are the cells of its pieces in the order of its signature, the pieces
+	 * of the same type and color by increasing cell, and the positions
+	 * where black is next to play follow those where white is.
+	 */
+	public void testIndex() {
+		RuleSet rs = new StandardAC();
+		String[] types = {"king", "rook", "rook", "king"};
+		boolean[] colors = {true, true, true, false};
+		int squares = 64;
+		int size = squares * squares * squares * squares;
+		Random random = new Random(0);
+		for (int n = 0; n < 200; n++) {
+			Board board = rs.boardFactory().getBlankBoard();
+			for (int i = types.length - 1; i >= 0; i--) {
+				int[] cell;
+				do {
+					cell = new int[] {random.nextInt(8), random.nextInt(8)};
+				} while (board.getPiece(cell) != null);
+				add(rs, board, types[i], colors[i], cell);
+			}
+			boolean isWhiteTurn = random.nextBoolean();
+
+			int index = Tablebase.index(board, 8, 8, isWhiteTurn, true);
+			assertTrue(index >= 0 && index < 2 * size);
+			assertEquals(isWhiteTurn, index < size);
+			index %= size;
+			int[] cells = new int[types.length];
+			for (int i = types.length - 1; i >= 0; i--) {
+				cells[i] = index % squares;
+				index /= squares;
+			}
+			for (int i = 0; i < types.length; i++) {
+				Piece piece = board.getPiece(new int[] {cells[i] % 8,
+						cells[i] / 8});
+				assertNotNull(piece);
+				assertEquals(types[i], piece.getType());
+				assertEquals(colors[i], piece.isWhite());
+			}
+			assertTrue(cells[1] < cells[2]);
+		}
+	}
+
+	/**
+	 * Positions where a pawn may capture en passant have no index when the
+	 * state of the pieces is checked, since the tables do not account for
+	 * it.
+	 */
+	public void testEnPassant() {
+		RuleSet rs = new EnCastleAC();
+		Board board = rs.boardFactory().getBlankBoard();
+		add(rs, board, "king", true, new int[] {0, 0});
+		add(rs, board, "king", false, new int[] {7, 7});
+		add(rs, board, "pawn", true, new int[] {4, 4});
+		add(rs, board, "pawn", false, new int[] {3, 6});
+		assertTrue(Tablebase.index(board, 8, 8, false, true) >= 0);
+
+		board.executePly(rs.plyFactory().getPly("d7-d5", board));
+		assertTrue(board.getPiece(new int[] {4, 4}).getState() != 0);
+		assertEquals(-1, Tablebase.index(board, 8, 8, true, true));
+		assertTrue(Tablebase.index(board, 8, 8, true, false) >= 0);
+	}
+
+	/**
+	 * Generates the tables of up to <tt>maxPieces</tt> pieces of
+	 * <tt>rs</tt> into a new temporary file, and returns them.
+	 */
+	private Tablebase generate(RuleSet rs, int maxPieces)
+			throws IOException, InterruptedException {
+		File file = File.createTempFile("tablebase", ".tmp");
+		files.add(file);
+		new TablebaseGenerator(rs, maxPieces, 1).generate(file);
+		return Tablebase.open(file);
+	}
+
+	/**
+	 * Adds a new piece of the given type and color to <tt>board</tt>.
+	 */
+	private static void add(RuleSet rs, Board board, String type,
+			boolean isWhite, int[] cell) {
+		board.addPiece(rs.pieceFactory().getPiece(type, board, isWhite), cell);
+	}
+}
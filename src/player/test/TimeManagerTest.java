@@ -0,0 +1,139 @@
+package player.test;
+
+import java.util.ArrayList;
+
+import player.PersistentState;
+import player.SearchLimit;
+import player.TimeManager;
+import ruleset.antichess.StandardAC;
+import engine.adt.Board;
+import engine.adt.RuleSet;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the class TimeManager.
+ */
+public class TimeManagerTest extends TestCase {
+
+	private final RuleSet rs = new StandardAC();
+
+	/**
+	 * The soft budget is at most the hard budget, which is at most
+	 * <code>1 / MAX_MOVE_SHARE</code> of the time left after the safety
+	 * margin.
+	 */
+	public void testBudgets() {
+		TimeManager manager = new TimeManager(new PersistentState());
+		long[] times = {0, 1, 60, 1000, 60000, 300000};
+		for (long timeLeft : times) {
+			for (Board board : new Board[] {rs.boardFactory().getInitialBoard(),
+					endgame()}) {
+				SearchLimit limit = manager.newLimit(timeLeft, board, 0);
+				long soft = limit.getBudget();
+				assertTrue(soft >= 0);
+				assertTrue(soft <= limit.getHardBudget());
+				assertTrue(limit.getHardBudget() - limit.elapsed()
+						<= usable(timeLeft) / TimeManager.MAX_MOVE_SHARE);
+			}
+		}
+	}
+
+	/**
+	 * Until a game is learned, the time left is spread over
+	 * <code>MOVES_TO_GO</code> moves, or fewer in an endgame, but never
+	 * fewer than <code>MIN_MOVES_TO_GO</code>.
+	 */
+	public void testMovesToGo() {
+		TimeManager manager = new TimeManager(new PersistentState());
+		long timeLeft = 60050;
+		assertEquals(usable(timeLeft) / TimeManager.MOVES_TO_GO,
+				manager.newLimit(timeLeft, rs.boardFactory().getInitialBoard(),
+						0).getBudget());
+		assertEquals(usable(timeLeft) / TimeManager.MIN_MOVES_TO_GO,
+				manager.newLimit(timeLeft, endgame(), 0).getBudget());
+	}
+
+	/**
+	 * Once a game is learned, the time left is spread over the moves left
+	 * of it, but over <code>MIN_MOVES_TO_GO</code> moves once the game
+	 * lasts longer than the games learned.
+	 */
+	public void testLearnedLength() {
+		PersistentState state = new PersistentState();
+		state.recordGame(new ArrayList<Long>(), new ArrayList<String>(),
+				null, 20);
+		TimeManager manager = new TimeManager(state);
+		long timeLeft = 60050;
+		Board board = rs.boardFactory().getInitialBoard();
+		assertEquals(usable(timeLeft) / 15,
+				manager.newLimit(timeLeft, board, 5).getBudget());
+		assertEquals(usable(timeLeft) / TimeManager.MIN_MOVES_TO_GO,
+				manager.newLimit(timeLeft, board, 15).getBudget());
+		assertEquals(usable(timeLeft) / TimeManager.MIN_MOVES_TO_GO,
+				manager.newLimit(timeLeft, board, 25).getBudget());
+	}
+
+	/**
+	 * The soft budget shrinks by the usual overrun of the searches, but
+	 * does not grow when they take less than their budget.
+	 */
+	public void testOverrun() {
+		long timeLeft = 60050;
+		Board board = rs.boardFactory().getInitialBoard();
+		long soft = usable(timeLeft) / TimeManager.MOVES_TO_GO;
+
+		PersistentState state = new PersistentState();
+		state.recordTime(1000, 3000);
+		assertEquals(1.5, state.getOverrun(), 1e-9);
+		assertEquals((long) (soft / 1.5), new TimeManager(state).newLimit(
+				timeLeft, board, 0).getBudget());
+
+		state = new PersistentState();
+		TimeManager manager = new TimeManager(state);
+		SearchLimit limit = manager.newLimit(timeLeft, board, 0);
+		manager.finished(limit);
+		assertTrue(state.getOverrun() < 1);
+		assertEquals(soft, manager.newLimit(timeLeft, board, 0).getBudget());
+	}
+
+	/**
+	 * The budget is extended by half of itself when the best move changes,
+	 * up to the hard budget.
+	 */
+	public void testExtension() {
+		TimeManager manager = new TimeManager(new PersistentState());
+		SearchLimit limit = manager.newLimit(60050,
+				rs.boardFactory().getInitialBoard(), 0);
+		long soft = limit.getBudget();
+		limit.resultFound("a");
+		limit.resultFound("b");
+		assertEquals(soft + soft / 2, limit.getBudget());
+		for (int i = 0; i < 2 * TimeManager.HARD_FACTOR; i++)
+			limit.resultFound("m" + i);
+		assertEquals(limit.getHardBudget(), limit.getBudget());
+	}
+
+	/**
+	 * Returns the time a player with <tt>timeLeft</tt> milliseconds left
+	 * may spend searching.
+	 */
+	private static long usable(long timeLeft) {
+		return timeLeft - Math.min(TimeManager.SAFETY_MARGIN, timeLeft / 2);
+	}
+
+	/**
+	 * Returns a new board with two pieces of each player.
+	 */
+	private Board endgame() {
+		Board board = rs.boardFactory().getBlankBoard();
+		board.addPiece(rs.pieceFactory().getPiece("king", board, true),
+				new int[] {0, 0});
+		board.addPiece(rs.pieceFactory().getPiece("rook", board, true),
+				new int[] {1, 0});
+		board.addPiece(rs.pieceFactory().getPiece("king", board, false),
+				new int[] {7, 7});
+		board.addPiece(rs.pieceFactory().getPiece("rook", board, false),
+				new int[] {6, 7});
+		return board;
+	}
+}
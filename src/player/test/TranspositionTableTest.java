@@ -0,0 +1,270 @@
+package player.test;
+
+import java.lang.reflect.Field;
+
+import player.TranspositionTable;
+import player.TranspositionTable.Entry;
+import player.TranspositionTable.Replacement;
+import engine.adt.Ply;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the class TranspositionTable.
+ */
+public class TranspositionTableTest extends TestCase {
+
+	/**
+	 * Number of slots of the tables of the tests.
+	 */
+	private static final int SIZE = 1024;
+
+	/**
+	 * A key, and the step between keys that map to the same slot but are
+	 * different positions.
+	 */
+	private static final long KEY = 0x123456789ABCDEF0L;
+	private static final long STEP = 1L << 40;
+
+	/**
+	 * The number of slots is the smallest power of two, but at least
+	 * <code>PROBES</code>, that is not less than the size asked for.
+	 */
+	public void testSize() {
+		assertEquals(TranspositionTable.PROBES, new TranspositionTable(1,
+				Replacement.DEPTH_PREFERRED).size());
+		assertEquals(SIZE, new TranspositionTable(SIZE - 1,
+				Replacement.DEPTH_PREFERRED).size());
+		assertEquals(SIZE, new TranspositionTable(SIZE,
+				Replacement.ALWAYS_REPLACE).size());
+		assertEquals((1 << 20) / TranspositionTable.SLOT_BYTES,
+				TranspositionTable.fromMegabytes(1,
+						Replacement.DEPTH_PREFERRED).size());
+	}
+
+	/**
+	 * Every field of an entry is read back as it was stored, at the limits
+	 * of its bits: moves that do not fit are stored as
+	 * <code>Ply.NO_CODE</code> and depths are clamped.
+	 */
+	public void testPacking() {
+		TranspositionTable table = newTable(Replacement.ALWAYS_REPLACE);
+		int largest = (1 << 23) - 1;
+		int[] bounds = {TranspositionTable.EXACT,
+				TranspositionTable.LOWER_BOUND, TranspositionTable.UPPER_BOUND};
+		int[] scores = {0, 1, -1, 12345, -12345, Integer.MAX_VALUE,
+				Integer.MIN_VALUE + 1};
+		for (int bound : bounds) {
+			for (int score : scores) {
+				table.store(KEY, 127, bound, score, 0, largest);
+				Entry entry = table.probe(KEY);
+				assertEquals(127, entry.getDepth());
+				assertEquals(bound, entry.getBound());
+				assertEquals(score, entry.getScore(0));
+				assertEquals(largest, entry.getMove());
+			}
+		}
+
+		table = newTable(Replacement.ALWAYS_REPLACE);
+		table.store(KEY, 200, TranspositionTable.EXACT, 5, 0, largest + 1);
+		Entry entry = table.probe(KEY);
+		assertEquals(127, entry.getDepth());
+		assertEquals(Ply.NO_CODE, entry.getMove());
+		assertEquals(5, entry.getScore(0));
+
+		table.store(KEY, -3, TranspositionTable.UPPER_BOUND, -5, 0, 1);
+		entry = table.probe(KEY);
+		assertEquals(0, entry.getDepth());
+		assertEquals(TranspositionTable.UPPER_BOUND, entry.getBound());
+		assertEquals(-5, entry.getScore(0));
+		assertEquals(1, entry.getMove());
+	}
+
+	/**
+	 * Ordinary scores do not depend on the distance from the root, while
+	 * wins and losses are stored relative to the position, so they are
+	 * read back nearer the root when found higher up in the tree.
+	 */
+	public void testScores() {
+		TranspositionTable table = newTable(Replacement.ALWAYS_REPLACE);
+		table.store(KEY, 1, TranspositionTable.EXACT, -12345, 3, 1);
+		assertEquals(-12345, table.probe(KEY).getScore(3));
+		assertEquals(-12345, table.probe(KEY).getScore(7));
+
+		int win = TranspositionTable.MATE_THRESHOLD + 20;
+		table.store(KEY, 1, TranspositionTable.EXACT, win, 3, 1);
+		assertEquals(win, table.probe(KEY).getScore(3));
+		assertEquals(win - 2, table.probe(KEY).getScore(5));
+		assertEquals(win + 3, table.probe(KEY).getScore(0));
+
+		table.store(KEY, 1, TranspositionTable.EXACT, -win, 3, 1);
+		assertEquals(-win, table.probe(KEY).getScore(3));
+		assertEquals(-win + 2, table.probe(KEY).getScore(5));
+		assertEquals(-win - 3, table.probe(KEY).getScore(0));
+
+		table.store(KEY, 1, TranspositionTable.LOWER_BOUND,
+				TranspositionTable.MATE_THRESHOLD, 0, 1);
+		assertEquals(TranspositionTable.MATE_THRESHOLD,
+				table.probe(KEY).getScore(0));
+	}
+
+	/**
+	 * A position is not found in a slot that holds another position with
+	 * the same slot, nor in a slot whose two words were written by
+	 * different stores.
+	 */
+	public void testCheck() throws Exception {
+		TranspositionTable table = newTable(Replacement.ALWAYS_REPLACE);
+		table.store(KEY, 3, TranspositionTable.EXACT, 10, 0, 1);
+		assertNull(table.probe(KEY + STEP));
+		assertNull(table.probe(KEY ^ 1L << 63));
+		assertNull(table.probe(KEY + 1));
+
+		//a store into the slot that was interrupted after its first word
+		long next = KEY + 1 + STEP;
+		table.store(next, 4, TranspositionTable.EXACT, 20, 0, 2);
+		long[] slots = slots(table);
+		int first = 2 * ((int) KEY & (SIZE - 1));
+		int second = 2 * ((int) next & (SIZE - 1));
+		slots[first + 1] = slots[second + 1];
+		assertNull(table.probe(KEY));
+		assertNotNull(table.probe(next));
+		slots[second] = 0;
+		assertNull(table.probe(next));
+		table.clear();
+		assertNull(table.probe(KEY));
+	}
+
+	/**
+	 * Up to <code>PROBES</code> positions that map to the same slot are
+	 * kept at once, even at the end of the table.
+	 */
+	public void testProbes() {
+		long[] keys = {KEY, SIZE - 2};
+		for (long key : keys) {
+			TranspositionTable table = newTable(Replacement.DEPTH_PREFERRED);
+			for (int i = 0; i < TranspositionTable.PROBES; i++)
+				table.store(key + i * STEP, 5, TranspositionTable.EXACT, i, 0,
+						i + 1);
+			for (int i = 0; i < TranspositionTable.PROBES; i++) {
+				Entry entry = table.probe(key + i * STEP);
+				assertNotNull(entry);
+				assertEquals(i, entry.getScore(0));
+				assertEquals(i + 1, entry.getMove());
+			}
+		}
+	}
+
+	/**
+	 * The depth-preferred policy evicts the shallowest entry, unless the
+	 * new one is shallower than all of them, and keeps the deeper result
+	 * of a position.
+	 */
+	public void testDepthPreferred() {
+		TranspositionTable table = newTable(Replacement.DEPTH_PREFERRED);
+		int[] depths = {5, 3, 7, 6};
+		for (int i = 0; i < depths.length; i++)
+			table.store(KEY + i * STEP, depths[i], TranspositionTable.EXACT,
+					i, 0, i + 1);
+		long key = KEY + depths.length * STEP;
+		table.store(key, 2, TranspositionTable.EXACT, 0, 0, 9);
+		assertNull(table.probe(key));
+		for (int i = 0; i < depths.length; i++)
+			assertNotNull(table.probe(KEY + i * STEP));
+
+		table.store(key, 4, TranspositionTable.EXACT, 0, 0, 9);
+		assertEquals(4, table.probe(key).getDepth());
+		assertNull(table.probe(KEY + STEP));
+		assertNotNull(table.probe(KEY));
+
+		//a shallower result is ignored, a deeper one keeps the old move
+		table.store(KEY, 4, TranspositionTable.EXACT, 50, 0, 8);
+		assertEquals(5, table.probe(KEY).getDepth());
+		assertEquals(0, table.probe(KEY).getScore(0));
+		table.store(KEY, 8, TranspositionTable.LOWER_BOUND, 50, 0,
+				Ply.NO_CODE);
+		Entry entry = table.probe(KEY);
+		assertEquals(8, entry.getDepth());
+		assertEquals(50, entry.getScore(0));
+		assertEquals(1, entry.getMove());
+	}
+
+	/**
+	 * The always-replace policy evicts the entry in the first slot of the
+	 * position whatever its depth, and takes every result of a position.
+	 */
+	public void testAlwaysReplace() {
+		TranspositionTable table = newTable(Replacement.ALWAYS_REPLACE);
+		int[] depths = {5, 3, 7, 6};
+		for (int i = 0; i < depths.length; i++)
+			table.store(KEY + i * STEP, depths[i], TranspositionTable.EXACT,
+					i, 0, i + 1);
+		long key = KEY + depths.length * STEP;
+		table.store(key, 0, TranspositionTable.EXACT, 0, 0, 9);
+		assertEquals(0, table.probe(key).getDepth());
+		assertNull(table.probe(KEY));
+		for (int i = 1; i < depths.length; i++)
+			assertNotNull(table.probe(KEY + i * STEP));
+
+		table.store(KEY + 2 * STEP, 1, TranspositionTable.UPPER_BOUND, 50, 0,
+				Ply.NO_CODE);
+		Entry entry = table.probe(KEY + 2 * STEP);
+		assertEquals(1, entry.getDepth());
+		assertEquals(TranspositionTable.UPPER_BOUND, entry.getBound());
+		assertEquals(3, entry.getMove());
+	}
+
+	/**
+	 * After a new search starts, the entries of the earlier ones are still
+	 * found, but are evicted by shallower entries, before the entries of
+	 * the new search.
+	 */
+	public void testAging() {
+		TranspositionTable table = newTable(Replacement.DEPTH_PREFERRED);
+		for (int i = 0; i < TranspositionTable.PROBES; i++)
+			table.store(KEY + i * STEP, 20 + i, TranspositionTable.EXACT, i,
+					0, i + 1);
+		long key = KEY + TranspositionTable.PROBES * STEP;
+		table.store(key, 1, TranspositionTable.EXACT, 0, 0, 9);
+		assertNull(table.probe(key));
+
+		table.newSearch();
+		assertEquals(20, table.probe(KEY).getDepth());
+		table.store(key, 1, TranspositionTable.EXACT, 0, 0, 9);
+		assertNotNull(table.probe(key));
+		assertNull(table.probe(KEY));
+
+		//the stale entries go first, shallowest first
+		table.store(key + STEP, 2, TranspositionTable.EXACT, 0, 0, 9);
+		assertNotNull(table.probe(key));
+		assertNull(table.probe(KEY + STEP));
+		assertNotNull(table.probe(KEY + 2 * STEP));
+
+		//a stale result of a position is replaced by a shallower one
+		table.store(KEY + 3 * STEP, 3, TranspositionTable.EXACT, 50, 0, 8);
+		assertEquals(3, table.probe(KEY + 3 * STEP).getDepth());
+
+		//once no entry is stale, shallower entries are refused again
+		table.store(key + 2 * STEP, 4, TranspositionTable.EXACT, 0, 0, 9);
+		table.store(key + 3 * STEP, 0, TranspositionTable.EXACT, 0, 0, 9);
+		assertNull(table.probe(key + 3 * STEP));
+		assertNotNull(table.probe(key));
+		assertNotNull(table.probe(key + STEP));
+		assertNotNull(table.probe(key + 2 * STEP));
+	}
+
+	/**
+	 * Returns a new table of <code>SIZE</code> slots.
+	 */
+	private static TranspositionTable newTable(Replacement replacement) {
+		return new TranspositionTable(SIZE, replacement);
+	}
+
+	/**
+	 * Returns the array of slots of <tt>table</tt>.
+	 */
+	private static long[] slots(TranspositionTable table) throws Exception {
+		Field field = TranspositionTable.class.getDeclaredField("slots");
+		field.setAccessible(true);
+		return (long[]) field.get(table);
+	}
+}
@@ -8,7 +8,9 @@ import java.util.List;
 import debug.DebugInfo;
 
 import ruleset.board.*;
+import ruleset.ply.PlyCode;
 import engine.adt.Board;
+import engine.adt.MoveList;
 import engine.adt.Parser;
 import engine.adt.Piece;
 import engine.adt.Ply;
@@ -66,10 +68,10 @@ public abstract class AntichessRuleSet implements RuleSet {
 		/**
 		 * Returns a blank <code>Board</code> supported by an
 		 * <code>AntichessRuleSet</code>. That is, an 8 by 8
-		 * <code>RectangularBoard</code>.
+		 * <code>BitBoard</code>.
 		 */
 		public Board getBlankBoard() {
-			return new RectangularBoard();
+			return new BitBoard();
 		}
 
 		/**
@@ -85,7 +87,7 @@ public abstract class AntichessRuleSet implements RuleSet {
 		 * <code>String</code>.
 		 */
 		public Board getBoard(String settings) {
-			return XmlBoardFactory.xmlToBoard(settings);
+			return XmlBoardFactory.xmlToBoard(settings, new BitBoard());
 		}
 
 	};
@@ -199,11 +201,8 @@ public abstract class AntichessRuleSet implements RuleSet {
 			nextPlayerWhite = !turnHistory.get(turnHistory.size() - 1);
 		}
 		// Determine what Pieces/Plies belong to which player
-		List<Piece> nextPlayerPieces = new LinkedList<Piece>(board
-				.getPieces(nextPlayerWhite));
+		int nextPlayerPieces = board.pieceCount(nextPlayerWhite);
 		List<Ply> nextPlayerPlies = getPossiblePlies(board, nextPlayerWhite);
-		List<Ply> opponentPlayerPlies = getPossiblePlies(board,
-				!nextPlayerWhite);
 
 		// Filter Plies. if isInCheck and no plies -> checkmate.
 		// if no pieces other player -> piece depletion.
@@ -213,13 +212,15 @@ public abstract class AntichessRuleSet implements RuleSet {
 		List<Ply> validPlies = filterPlies(board, nextPlayerPlies,
 				nextPlayerWhite);
 		// Check for termination conditions
-		if (isInCheck(board, nextPlayerWhite) && validPlies.isEmpty())
+		if (validPlies.isEmpty() && isInCheck(board, nextPlayerWhite))
 			throw new GameTermination(!nextPlayerWhite, AntichessRuleSet.CHECKMATE);
-		if (nextPlayerPieces.size() == 1)
+		if (nextPlayerPieces == 1)
 			throw new GameTermination(nextPlayerWhite,
 					AntichessRuleSet.PIECE_DEPLETION);
 		if (validPlies.isEmpty()) { // stalemate - skip turn
 			nextPlayerWhite = !nextPlayerWhite;
+			List<Ply> opponentPlayerPlies = getPossiblePlies(board,
+					nextPlayerWhite);
 			validPlies = filterPlies(board, opponentPlayerPlies,nextPlayerWhite);
 			if (validPlies.isEmpty()) // No player can move. Is this even possible?
 				throw new GameTermination(null, AntichessRuleSet.STALEMATE);
@@ -266,11 +267,87 @@ public abstract class AntichessRuleSet implements RuleSet {
 	protected abstract List<Ply> filterPlies(Board board,
 			List<Ply> toBeFiltered, boolean isWhite);
 
+	/**
+	 * Given a <code>Board</code>, a list of <code>Plies</code>, and the color
+	 * of the next player, filters out the <code>Plies</code> that would put
+	 * the player in check; also, if there are any <code>Plies</code> that
+	 * capture a <code>Piece</code> of the opposite player, then those
+	 * <code>Plies</code> that do not are filtered out. This is the filtering
+	 * shared by all antichess variants.
+	 * 
+	 * On a <code>BitBoard</code>, most <code>Plies</code> are decided by a
+	 * <code>LegalMoveGenerator</code>, which finds checks and pins once for
+	 * the whole list. The rest, and all <code>Plies</code> on other
+	 * <code>Board</code>s, are tried on the <code>Board</code> itself and
+	 * taken back afterwards.
+	 */
+	protected List<Ply> filterByCheckAndCapture(Board board,
+			List<Ply> toBeFiltered, boolean isWhite) {
+		if (board.isConfined())
+			return filterHeld(board, toBeFiltered, isWhite);
+		// Hold the board while plies are tried on it, so that no other
+		// thread sees the intermediate positions
+		synchronized (board) {
+			return filterHeld(board, toBeFiltered, isWhite);
+		}
+	}
+
+	/**
+	 * Same as <code>filterByCheckAndCapture(board, toBeFiltered, isWhite)
+	 * </code>, for a <code>Board</code> that the caller holds the lock of,
+	 * or that is confined to the calling thread.
+	 */
+	private List<Ply> filterHeld(Board board, List<Ply> toBeFiltered,
+			boolean isWhite) {
+		List<Ply> filteredByCheck = new ArrayList<Ply>(toBeFiltered.size()); // ONLY by check
+		List<Ply> filteredByCapture = new ArrayList<Ply>(); // by check AND capture
+		LegalMoveGenerator generator = null;
+		if (board instanceof BitBoard)
+			generator = LegalMoveGenerator.analyze((BitBoard) board, isWhite);
+		int piecesBefore = board.pieceCount(!isWhite);
+		for (Ply ply : toBeFiltered) {
+			boolean inCheck;
+			boolean captures;
+			if (generator != null && LegalMoveGenerator.handles(ply)) {
+				inCheck = !generator.isLegal(ply);
+				captures = generator.isCapture(ply);
+			} else {
+				// Try the ply on the board itself and take it back afterwards
+				Board.Undo undo = board.makePly(ply);
+				try {
+					captures = board.pieceCount(!isWhite) < piecesBefore;
+					inCheck = isInCheck(board, isWhite);
+				} finally {
+					board.undoPly(undo);
+				}
+			}
+			if (!inCheck) {
+				filteredByCheck.add(ply); // filter in by check only
+				if (captures)
+					filteredByCapture.add(ply); // filter in by check and capture
+			}
+		}
+		return filteredByCapture.isEmpty() ? filteredByCheck : filteredByCapture;
+	}
+
 	/**
 	 * Given a <code>Board</code> and a player color, determines whether that
-	 * player is in check or not.
+	 * player is in check or not. On a <code>BitBoard</code>, this is looked
+	 * up in the attack masks of the opponent.
 	 */
 	protected boolean isInCheck(Board board, boolean isWhite) {
+		if (board instanceof BitBoard) {
+			BitBoard bitBoard = (BitBoard) board;
+			if (bitBoard.isConfined()) {
+				if (bitBoard.getUntypedOccupancy() == 0)
+					return isInCheck(bitBoard, isWhite);
+			} else {
+				synchronized (bitBoard) {
+					if (bitBoard.getUntypedOccupancy() == 0)
+						return isInCheck(bitBoard, isWhite);
+				}
+			}
+		}
 		// Get pieces of the player
 		List<Piece> pieces = new LinkedList<Piece>(board.getPieces(isWhite));
 		// Get players King and its position
@@ -282,6 +359,17 @@ public abstract class AntichessRuleSet implements RuleSet {
 		return isUnderAttack(board, kingPos, !isWhite);
 	}
 
+	/**
+	 * Same as <code>isInCheck(board, isWhite)</code>, for a
+	 * <code>BitBoard</code> whose pieces all have type masks.
+	 */
+	private boolean isInCheck(BitBoard board, boolean isWhite) {
+		long kings = board.getPieceMask(PieceName.king.toString(), isWhite);
+		if (Long.bitCount(kings) != 1)
+			throw new RuntimeException("A player must have exactly one " +PieceName.king.toString());
+		return (board.getAttacks(!isWhite) & kings) != 0;
+	}
+
 	/**
 	 * <p>Determines whether a cell in a given <code>Board</code> is under attack
 	 * by the specified player or not. In here, a cell is considered under attack
@@ -295,8 +383,25 @@ public abstract class AntichessRuleSet implements RuleSet {
 	 * <code>Castle</code>, for example, because in this ply, a rook will switch
 	 * places and is therefore 'attacking' its new cell. Thus, this method
 	 * should be used with great care.</p>
+	 * 
+	 * <p>On a <code>BitBoard</code>, the answer is found in the attack masks
+	 * of the attacker, plus the cells its pawns can move forward to; only
+	 * the plies of the attacker's <code>Piece</code>s that have gathered
+	 * information (e.g. en passant or castling rights) are generated.</p>
 	 */
 	protected boolean isUnderAttack(Board board, int[] pos, boolean attackerColor) {
+		if (board instanceof BitBoard) {
+			BitBoard bitBoard = (BitBoard) board;
+			if (bitBoard.isConfined()) {
+				if (bitBoard.getUntypedOccupancy() == 0)
+					return isUnderAttack(bitBoard, pos, attackerColor);
+			} else {
+				synchronized (bitBoard) {
+					if (bitBoard.getUntypedOccupancy() == 0)
+						return isUnderAttack(bitBoard, pos, attackerColor);
+				}
+			}
+		}
 		List<Ply> possiblePlies = getPossiblePlies(board, attackerColor);
 		// Check if any of the attacker's plies attack the position
 		List<int[]> opponentEndingCells = CoordinateParser.getCells(
@@ -307,6 +412,57 @@ public abstract class AntichessRuleSet implements RuleSet {
 		return false;
 	}
 	
+	/**
+	 * Same as <code>isUnderAttack(board, pos, attackerColor)</code>, for a
+	 * <code>BitBoard</code> whose pieces all have type masks.
+	 */
+	private boolean isUnderAttack(BitBoard board, int[] pos, boolean attackerColor) {
+		int index = BitBoard.index(pos);
+		if (index < 0)
+			return false;
+		long cell = 1L << index;
+		// No ply ends on a cell held by the attacker
+		if ((board.getOccupancy(attackerColor) & cell) != 0)
+			return false;
+		// Any piece may capture on a cell held by the other player
+		if ((board.getOccupancy(!attackerColor) & cell) != 0)
+			return (board.getAttacks(attackerColor) & cell) != 0;
+		// Pawns cannot move diagonally to an empty cell, but can move 
+		// forward to it
+		if ((board.getPieceAttacks(attackerColor) & cell) != 0)
+			return true;
+		long pawns = board.getPieceMask(PieceName.pawn.toString(), attackerColor);
+		int forward = attackerColor ? 8 : -8;
+		int behind = index - forward;
+		if (behind >= 0 && behind < 64) {
+			if ((pawns & (1L << behind)) != 0)
+				return true;
+			int initial = index - 2 * forward;
+			int initialRow = attackerColor ? 1 : 6;
+			if (initial / 8 == initialRow && 
+					(board.getOccupancy() & (1L << behind)) == 0 &&
+					(pawns & (1L << initial)) != 0)
+				return true;
+		}
+		// En passant captures and castles depend on what the pieces know
+		long special = pawns | board.getPieceMask(PieceName.king.toString(), attackerColor);
+		MoveList moves = null;
+		for (; special != 0; special &= special - 1) {
+			int sq = Long.numberOfTrailingZeros(special);
+			Piece piece = board.getPiece(new int[] {sq % 8, sq / 8});
+			if (piece.getState() == 0)
+				continue;
+			if (moves == null)
+				moves = new MoveList();
+			moves.clear();
+			piece.getPlies(moves);
+			for (int i = 0; i < moves.size(); i++)
+				if (PlyCode.getEndSquare(moves.get(i)) == index)
+					return true;
+		}
+		return false;
+	}
+	
 	/**
 	 * Determines whether the given cell represents a cell from the topmost line
 	 * for the given color. White <code>Piece</code>s in antichess have the
@@ -344,21 +500,21 @@ public abstract class AntichessRuleSet implements RuleSet {
 		if (board == null)
 			throw new RuntimeException("The Board cant be null");
 		List<Ply> possiblePlies = new LinkedList<Ply>();
-		for (Piece piece : board.getPieces(isWhite))
-			possiblePlies.addAll(piece.getPlies());
+		for (int i = 0; i < board.pieceCount(isWhite); i++)
+			possiblePlies.addAll(board.getPiece(isWhite, i).getPlies());
 		return possiblePlies;
 	}
 
 	/**
 	 * Returns a <code>Board</code> set up with the default settings. That is,
-	 * a <code>RectangularBoard</code> with no unusable cells and the standard
+	 * a <code>BitBoard</code> with no unusable cells and the standard
 	 * <code>Piece</code> layout. The standard <code>Piece</code> layout is
 	 * determined by the supported <code>Piece</code>s themselves. Each of the
 	 * supported <code>Piece</code>s is asked to set itself up in a blank 8 by
-	 * 8 <code>RectangularBoard</code>.
+	 * 8 <code>BitBoard</code>.
 	 */
 	private Board setUpInitialBoard() {
-		Board board = new RectangularBoard();
+		Board board = new BitBoard();
 		boolean[] colors = { true, false };
 		for (boolean color : colors)
 			for (Piece prototype : pieceFactory().getSupportedPieces(board,
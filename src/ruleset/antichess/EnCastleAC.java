@@ -2,7 +2,6 @@ package ruleset.antichess;
 
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -113,8 +112,29 @@ public class EnCastleAC extends AntichessRuleSet {
 		 * <code>Parser</code> for this <code>RuleSet</code>.
 		 */
 		public Ply getPly(String name, Board board) {
-			int[] starting = CoordinateParser.getCell(name, true);
-			int[] ending = CoordinateParser.getCell(name, false);
+			return getPly(CoordinateParser.getCell(name, true),
+					CoordinateParser.getCell(name, false), board);
+		}
+		
+		/**
+		 * Returns a <code>Ply</code> whose code matches <code>code</code>,
+		 * as <code>getPly(String, Board)</code> does for the 
+		 * <code>String</code> representation of the <code>Ply</code>. 
+		 * 
+		 * @see ruleset.ply.PlyCode
+		 * 
+		 * @requires <code>code</code> to be the code of a <code>Ply</code>
+		 * supported by this <code>RuleSet</code>
+		 */
+		public Ply getPly(int code, Board board) {
+			return getPly(PlyCode.getStart(code), PlyCode.getEnd(code), board);
+		}
+		
+		/**
+		 * Returns the <code>Ply</code> from <code>starting</code> to 
+		 * <code>ending</code> in <code>board</code>. 
+		 */
+		private Ply getPly(int[] starting, int[] ending, Board board) {
 			Piece effector = board.getPiece(starting);
 			if (effector != null &&
 					PieceName.valueOf(effector.getType()) == PieceName.pawn) {
@@ -192,32 +212,33 @@ public class EnCastleAC extends AntichessRuleSet {
 	 * must not be under attack by any <code>Piece</code> of the opponent.
 	 */
 	protected List<Ply> filterPlies(Board board, List<Ply> toBeFiltered, boolean isWhite) {
-		List<Ply> filteredByCheck = new LinkedList<Ply>(); // ONLY by check
-		List<Ply> filteredByCapture = new LinkedList<Ply>(); // by check AND capture
-		int piecesBefore = board.getPieces(!isWhite).size();
-		int piecesAfter;
-		for (int i = 0; i < toBeFiltered.size(); i++) {
-			Ply ply = toBeFiltered.get(i);
+		if (board.isConfined())
+			return filterHeld(board, toBeFiltered, isWhite);
+		synchronized (board) {
+			return filterHeld(board, toBeFiltered, isWhite);
+		}
+	}
+
+	/**
+	 * Same as <code>filterPlies(board, toBeFiltered, isWhite)</code>, for a
+	 * <code>Board</code> that the caller holds the lock of, or that is
+	 * confined to the calling thread.
+	 */
+	private List<Ply> filterHeld(Board board, List<Ply> toBeFiltered,
+			boolean isWhite) {
+		List<Ply> candidates = new ArrayList<Ply>(toBeFiltered.size());
+		for (Ply ply : toBeFiltered) {
 			// Filter out Castle's that cant happen because cells are being attacked
-			int[] starting = CoordinateParser.getCell(ply.toString(), true);
-			Piece effector = board.getPiece(starting);
-			if (effector!=null && effector.getType().equals(PieceName.king.toString())) {
-				int[] ending = CoordinateParser.getCell(ply.toString(), false);
-				if (Math.abs(ending[0]-starting[0])==2) { // Castle
-					if (isUnderAttack(board, starting, !isWhite) ||
-						isUnderAttack(board, ending, !isWhite) ||
-						isUnderAttack(board, new int[] {(starting[0]+ending[0])/2, ending[1]}, !isWhite))
-						continue; // filter OUT, as in don't consider it when filtering in
-				}
-			}
-			Board clonedBoard = executeFakePly(board, ply);
-			piecesAfter = clonedBoard.getPieces(!isWhite).size();
-			if (!isInCheck(clonedBoard, isWhite)) {
-				filteredByCheck.add(ply); // filter IN by check only
-				if (piecesAfter < piecesBefore)
-					filteredByCapture.add(ply); // filter IN by check and capture
+			if (ply instanceof Castle) {
+				int[] starting = ((Castle) ply).getStart();
+				int[] ending = ((Castle) ply).getEnd();
+				if (isUnderAttack(board, starting, !isWhite) ||
+					isUnderAttack(board, ending, !isWhite) ||
+					isUnderAttack(board, new int[] {(starting[0]+ending[0])/2, ending[1]}, !isWhite))
+					continue; // filter OUT, as in don't consider it when filtering in
 			}
+			candidates.add(ply);
 		}
-		return filteredByCapture.isEmpty() ? filteredByCheck : filteredByCapture;
+		return filterByCheckAndCapture(board, candidates, isWhite);
 	}
 }
\ No newline at end of file
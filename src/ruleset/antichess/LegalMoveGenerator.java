@@ -0,0 +1,210 @@
+package ruleset.antichess;
+
+import engine.adt.Ply;
+import ruleset.board.Attacks;
+import ruleset.board.BitBoard;
+import ruleset.ply.Coronation;
+import ruleset.ply.Move;
+
+/**
+ * A <code>LegalMoveGenerator</code> decides which plies of a player are
+ * legal in a position held by a <code>BitBoard</code>, and which of them
+ * capture, without making them. It looks at the position once, when it is
+ * created, to find the pieces that give check to the player's king and the
+ * pieces of the player that are pinned to it. Then:
+ *
+ * <ul>
+ * <li>A king may move to any cell that is not attacked by the opponent
+ * 		once the king has left its cell.</li>
+ * <li>Any other piece may not move if the king is in double check. If it
+ * 		is in check, it must capture the checking piece or end between it
+ * 		and the king. If it is pinned, it must stay on the line between the
+ * 		king and the pinning piece.</li>
+ * </ul>
+ *
+ * Only <code>Move</code>s and <code>Coronation</code>s are decided this
+ * way; <code>handles</code> tells which plies are. The rest (e.g. castles
+ * and en passant captures) are rare, and are best tried on the board.
+ *
+ * A <code>LegalMoveGenerator</code> describes the position its board held
+ * when it was created; it must not be used after the board changes.
+ */
+final class LegalMoveGenerator {
+
+	/**
+	 * Steps from the king along ranks and files (the first four), and
+	 * along diagonals.
+	 */
+	private static final int[][] DIRECTIONS = {{1, 0}, {-1, 0}, {0, 1},
+		{0, -1}, {1, 1}, {-1, 1}, {1, -1}, {-1, -1}};
+
+	//Fields
+
+	private final BitBoard board;
+
+	private final boolean isWhite;
+
+	/**
+	 * The cell of the king of the player.
+	 */
+	private final int king;
+
+	/**
+	 * The cells of the opponent's pieces that give check.
+	 */
+	private final long checkers;
+
+	/**
+	 * The cells a piece other than the king may end on to get out of
+	 * check; all cells if the king is not in check.
+	 */
+	private final long evasions;
+
+	/**
+	 * The cells of the player's pinned pieces.
+	 */
+	private final long pinned;
+
+	/**
+	 * For each pinned piece, the cells it may end on: those between the
+	 * king and the pinning piece, and the pinning piece's.
+	 */
+	private final long[] pinRays = new long[64];
+
+	//AF(g) = the legality of the plies of the player of color isWhite in
+	//        board, whose king is at cell king.
+	//RI: bit king of board.getPieceMask("king", isWhite) is set,
+	//    pinned & ~board.getOccupancy(isWhite) == 0,
+	//    pinRays[i] != 0 iff bit i of pinned is set
+
+	private LegalMoveGenerator(BitBoard board, boolean isWhite, int king) {
+		this.board = board;
+		this.isWhite = isWhite;
+		this.king = king;
+
+		long occupancy = board.getOccupancy();
+		if ((board.getAttacks(!isWhite) & (1L << king)) == 0)
+			checkers = 0L;
+		else
+			checkers = Attacks.attackers(board, king, !isWhite, occupancy);
+		if (checkers == 0)
+			evasions = -1L;
+		else if (Long.bitCount(checkers) == 1)
+			evasions = checkers
+				| Attacks.between(king, Long.numberOfTrailingZeros(checkers));
+		else
+			evasions = 0L;
+
+		long own = board.getOccupancy(isWhite);
+		long queens = board.getPieceMask("queen", !isWhite);
+		long orthogonal = board.getPieceMask("rook", !isWhite) | queens;
+		long diagonal = board.getPieceMask("bishop", !isWhite) | queens;
+		long pins = 0L;
+		for (int i = 0; i < DIRECTIONS.length; i++) {
+			long sliders = i < 4 ? orthogonal : diagonal;
+			int candidate = -1;
+			int x = king % 8 + DIRECTIONS[i][0];
+			int y = king / 8 + DIRECTIONS[i][1];
+			while (x >= 0 && x < 8 && y >= 0 && y < 8) {
+				int sq = x + 8 * y;
+				long bit = 1L << sq;
+				if ((occupancy & bit) != 0) {
+					if (candidate < 0 && (own & bit) != 0)
+						candidate = sq;
+					else {
+						if (candidate >= 0 && (sliders & bit) != 0) {
+							pins |= 1L << candidate;
+							pinRays[candidate] = Attacks.between(king, sq) | bit;
+						}
+						break;
+					}
+				}
+				x += DIRECTIONS[i][0];
+				y += DIRECTIONS[i][1];
+			}
+		}
+		pinned = pins;
+	}
+
+	/**
+	 * Returns a <code>LegalMoveGenerator</code> for the plies of the player
+	 * of the given color in <code>board</code>, or <code>null</code> if the
+	 * position cannot be analyzed this way: the player does not have
+	 * exactly one king, or there are pieces of a type the masks of
+	 * <code>board</code> do not keep.
+	 *
+	 * @requires the caller holds the lock of <code>board</code>, unless
+	 * 			<code>board</code> is confined to the calling thread, for as
+	 * 			long as it uses the result
+	 */
+	static LegalMoveGenerator analyze(BitBoard board, boolean isWhite) {
+		if (board.getUntypedOccupancy() != 0)
+			return null;
+		long kings = board.getPieceMask("king", isWhite);
+		if (Long.bitCount(kings) != 1)
+			return null;
+		return new LegalMoveGenerator(board, isWhite,
+				Long.numberOfTrailingZeros(kings));
+	}
+
+	/**
+	 * Returns <code>true</code> if <code>ply</code> can be decided by
+	 * <tt>this</tt>; that is, if it is a <code>Move</code> or a
+	 * <code>Coronation</code>.
+	 */
+	static boolean handles(Ply ply) {
+		return ply instanceof Move || ply instanceof Coronation;
+	}
+
+	/**
+	 * Returns <code>true</code> if making <code>ply</code> does not leave
+	 * the king in check.
+	 *
+	 * @requires <code>handles(ply)</code>, and <code>ply</code> to be a
+	 * 			ply of the player in the position
+	 */
+	boolean isLegal(Ply ply) {
+		int start = start(ply);
+		int end = end(ply);
+		long endBit = 1L << end;
+		if (start == king) {
+			// look through the king's cell, and ignore a piece it captures
+			long occupancy = board.getOccupancy() & ~(1L << king);
+			return (Attacks.attackers(board, end, !isWhite, occupancy)
+					& ~endBit) == 0;
+		}
+		if ((evasions & endBit) == 0)
+			return false;
+		if ((pinned & (1L << start)) != 0 && (pinRays[start] & endBit) == 0)
+			return false;
+		return true;
+	}
+
+	/**
+	 * Returns <code>true</code> if <code>ply</code> captures a piece of
+	 * the opponent.
+	 *
+	 * @requires <code>handles(ply)</code>
+	 */
+	boolean isCapture(Ply ply) {
+		return (board.getOccupancy(!isWhite) & (1L << end(ply))) != 0;
+	}
+
+	/**
+	 * Returns the index of the starting cell of <code>ply</code>.
+	 */
+	private static int start(Ply ply) {
+		if (ply instanceof Move)
+			return BitBoard.index(((Move) ply).getStart());
+		return BitBoard.index(((Coronation) ply).getStart());
+	}
+
+	/**
+	 * Returns the index of the ending cell of <code>ply</code>.
+	 */
+	private static int end(Ply ply) {
+		if (ply instanceof Move)
+			return BitBoard.index(((Move) ply).getEnd());
+		return BitBoard.index(((Coronation) ply).getEnd());
+	}
+}
@@ -2,7 +2,6 @@ package ruleset.antichess;
 
 import java.util.ArrayList;
 import java.util.HashSet;
-import java.util.LinkedList;
 import java.util.List;
 import java.util.Set;
 
@@ -13,6 +12,7 @@ import ruleset.board.CoordinateParser;
 import ruleset.piece.*;
 import ruleset.ply.Coronation;
 import ruleset.ply.Move;
+import ruleset.ply.PlyCode;
 
 /**
  * A <code>RuleSet</code> that encodes the rules of Standard Antichess (aka
@@ -114,8 +114,29 @@ public class StandardAC extends AntichessRuleSet {
 		public Ply getPly(String name, Board board) {
 			// this method is bad because of coronation not having a diff
 			// representation. Using extended Ply notation would be better
-			int[] starting = CoordinateParser.getCell(name, true);
-			int[] ending = CoordinateParser.getCell(name, false);
+			return getPly(CoordinateParser.getCell(name, true),
+					CoordinateParser.getCell(name, false), board);
+		}
+		
+		/**
+		 * Returns a <code>Ply</code> whose code matches <code>code</code>,
+		 * as <code>getPly(String, Board)</code> does for the 
+		 * <code>String</code> representation of the <code>Ply</code>. 
+		 * 
+		 * @see ruleset.ply.PlyCode
+		 * 
+		 * @requires <code>code</code> to be the code of a <code>Ply</code>
+		 * supported by this <code>RuleSet</code>
+		 */
+		public Ply getPly(int code, Board board) {
+			return getPly(PlyCode.getStart(code), PlyCode.getEnd(code), board);
+		}
+		
+		/**
+		 * Returns the <code>Ply</code> from <code>starting</code> to 
+		 * <code>ending</code> in <code>board</code>. 
+		 */
+		private Ply getPly(int[] starting, int[] ending, Board board) {
 			Piece effector = board.getPiece(starting);
 			if (effector != null &&
 					PieceName.valueOf(effector.getType()) == PieceName.pawn) {
@@ -183,20 +204,6 @@ public class StandardAC extends AntichessRuleSet {
 	 * <code>Plies</code> that do not are filtered out too.
 	 */
 	protected List<Ply> filterPlies(Board board, List<Ply> toBeFiltered, boolean isWhite) {
-		List<Ply> filteredByCheck = new LinkedList<Ply>(); // ONLY by check
-		List<Ply> filteredByCapture = new LinkedList<Ply>(); // by check AND capture
-		int piecesBefore = board.getPieces(!isWhite).size();
-		int piecesAfter;
-		for (int i = 0; i < toBeFiltered.size(); i++) {
-			Ply ply = toBeFiltered.get(i);
-			Board clonedBoard = executeFakePly(board, ply);
-			piecesAfter = clonedBoard.getPieces(!isWhite).size();
-			if (!isInCheck(clonedBoard, isWhite)) {
-				filteredByCheck.add(ply); // filter in by check only
-				if (piecesAfter < piecesBefore)
-					filteredByCapture.add(ply); // filter in by check and capture
-			}
-		}
-		return filteredByCapture.isEmpty() ? filteredByCheck : filteredByCapture;
+		return filterByCheckAndCapture(board, toBeFiltered, isWhite);
 	}
 }
@@ -8,6 +8,7 @@ import java.util.Set;
 
 import ruleset.antichess.AntichessRuleSet;
 import ruleset.antichess.StandardAC;
+import ruleset.board.BitBoard;
 import ruleset.board.RectangularBoard;
 import ruleset.piece.Bishop;
 import ruleset.piece.King;
@@ -341,6 +342,69 @@ public class StandardACTest extends TestCase {
 		
 	}
 	
+	/**
+	 * Test that the valid Plies on a BitBoard, where most of them are
+	 * decided without being tried on the Board, are the same as on a
+	 * RectangularBoard, where all of them are tried.
+	 */
+	public void testValidPliesBitBoard() {
+		// The scenario of testValidPliesCheck: a pinned Queen and a King
+		// that cannot move to attacked cells
+		assertSameValidPlies(false, new String[] {"queen", "king", "rook", 
+				"rook", "bishop", "pawn", "pawn", "king"}, 
+				new int[][] {{4,7}, {6,7}, {1,7}, {5,3}, {3,3}, {6,6}, {4,5},
+				{0,0}}, 2);
+		// A Knight checks the white King. The Rook can capture it, but the
+		// Pawn's capture does not get the King out of check
+		assertSameValidPlies(true, new String[] {"king", "rook", "pawn",
+				"knight", "pawn", "king"},
+				new int[][] {{4,0}, {0,2}, {7,1}, {3,2}, {6,2}, {7,7}}, 3);
+		// A Rook and a Bishop check the white King at once; only the King
+		// may move
+		assertSameValidPlies(true, new String[] {"king", "queen", "rook",
+				"bishop", "king"},
+				new int[][] {{4,0}, {3,0}, {4,7}, {1,3}, {7,7}}, 2);
+		// A Pawn pinned by a Bishop may capture along the pin, but not off
+		// it
+		assertSameValidPlies(true, new String[] {"king", "pawn", "bishop",
+				"pawn", "pawn", "king"},
+				new int[][] {{0,0}, {1,1}, {3,3}, {2,2}, {0,2}, {7,7}}, 2);
+	}
+	
+	/**
+	 * Asserts that a RectangularBoard and a BitBoard with the given Pieces
+	 * yield the same valid Plies for the given player.
+	 * 
+	 * @param isWhite the color of the next player
+	 * @param types the types of the Pieces
+	 * @param cells the cells of the Pieces
+	 * @param own the number of Pieces, at the start of <code>types</code>,
+	 * 			that have the color of the next player
+	 */
+	private void assertSameValidPlies(boolean isWhite, String[] types, 
+			int[][] cells, int own) {
+		Board rectangular = new RectangularBoard();
+		Board bit = new BitBoard();
+		for (Board board : new Board[] {rectangular, bit})
+			for (int i = 0; i < types.length; i++)
+				board.addPiece(rs.pieceFactory().getPiece(types[i], board, 
+						(i < own) == isWhite), cells[i]);
+		turnHistory.add(!isWhite);
+		try {
+			Set<Ply> expected = new HashSet<Ply>(
+					rs.continueGame(rectangular, turnHistory, messages).getPlies());
+			Set<Ply> actual = new HashSet<Ply>(
+					rs.continueGame(bit, turnHistory, messages).getPlies());
+			assertFalse("The scenario should have valid Plies", 
+					expected.isEmpty());
+			assertEquals("The valid Plies on a BitBoard are incorrect",
+					expected, actual);
+		} catch (GameTermination gt) {
+			fail("RuleSet wrongly terminated the Game.");
+		}
+		turnHistory.clear();
+	}
+	
 	/**
 	 * Returns the a Collection of the valid initial Plies
 	 */
@@ -0,0 +1,176 @@
+package ruleset.board;
+
+/**
+ * <code>Attacks</code> computes the cells attacked by the standard chess
+ * pieces on a <code>BitBoard</code>, as masks laid out like the masks of
+ * <code>BitBoard</code> (cell (x,y) is bit <tt>x + 8*y</tt>).
+ *
+ * A piece attacks the cells it could capture on if they held a piece of
+ * the other color: a pawn attacks the two cells diagonally in front of it
+ * (white pawns move towards higher rows), a knight and a king the cells
+ * they move to, and rooks, bishops and queens every cell along their lines
+ * up to and including the first occupied one.
+ */
+public final class Attacks {
+
+	/**
+	 * Cells attacked by a knight, a king, and a white or black pawn placed
+	 * at each cell.
+	 */
+	private static final long[] KNIGHT = new long[64];
+	private static final long[] KING = new long[64];
+	private static final long[] WHITE_PAWN = new long[64];
+	private static final long[] BLACK_PAWN = new long[64];
+
+	/**
+	 * Steps along ranks and files, and along diagonals.
+	 */
+	private static final int[][] ORTHOGONAL = {{1, 0}, {-1, 0}, {0, 1}, {0, -1}};
+	private static final int[][] DIAGONAL = {{1, 1}, {-1, 1}, {1, -1}, {-1, -1}};
+
+	static {
+		int[][] knight = {{1, 2}, {2, 1}, {2, -1}, {1, -2},
+				{-1, -2}, {-2, -1}, {-2, 1}, {-1, 2}};
+		for (int sq = 0; sq < 64; sq++) {
+			int x = sq % 8;
+			int y = sq / 8;
+			for (int[] d : knight)
+				KNIGHT[sq] |= bit(x + d[0], y + d[1]);
+			for (int dx = -1; dx <= 1; dx++)
+				for (int dy = -1; dy <= 1; dy++)
+					if (dx != 0 || dy != 0)
+						KING[sq] |= bit(x + dx, y + dy);
+			WHITE_PAWN[sq] = bit(x - 1, y + 1) | bit(x + 1, y + 1);
+			BLACK_PAWN[sq] = bit(x - 1, y - 1) | bit(x + 1, y - 1);
+		}
+	}
+
+	private Attacks() {
+		// no instances
+	}
+
+	/**
+	 * Returns the cells attacked by a knight at cell <tt>sq</tt>.
+	 *
+	 * @requires 0 &lt;= sq &lt; 64
+	 */
+	public static long knight(int sq) {
+		return KNIGHT[sq];
+	}
+
+	/**
+	 * Returns the cells attacked by a king at cell <tt>sq</tt>.
+	 *
+	 * @requires 0 &lt;= sq &lt; 64
+	 */
+	public static long king(int sq) {
+		return KING[sq];
+	}
+
+	/**
+	 * Returns the cells attacked by a pawn of the given color at cell
+	 * <tt>sq</tt>.
+	 *
+	 * @requires 0 &lt;= sq &lt; 64
+	 */
+	public static long pawn(int sq, boolean isWhite) {
+		return isWhite ? WHITE_PAWN[sq] : BLACK_PAWN[sq];
+	}
+
+	/**
+	 * Returns the cells attacked by a rook at cell <tt>sq</tt> when the
+	 * occupied cells are <tt>occupancy</tt>.
+	 *
+	 * @requires 0 &lt;= sq &lt; 64
+	 */
+	public static long rook(int sq, long occupancy) {
+		return slide(sq, occupancy, ORTHOGONAL);
+	}
+
+	/**
+	 * Returns the cells attacked by a bishop at cell <tt>sq</tt> when the
+	 * occupied cells are <tt>occupancy</tt>.
+	 *
+	 * @requires 0 &lt;= sq &lt; 64
+	 */
+	public static long bishop(int sq, long occupancy) {
+		return slide(sq, occupancy, DIAGONAL);
+	}
+
+	/**
+	 * Returns the cells strictly between cells <tt>a</tt> and <tt>b</tt>
+	 * if they share a rank, a file or a diagonal, or 0 otherwise.
+	 *
+	 * @requires 0 &lt;= a, b &lt; 64
+	 */
+	public static long between(int a, int b) {
+		int dx = Integer.signum(b % 8 - a % 8);
+		int dy = Integer.signum(b / 8 - a / 8);
+		int lx = Math.abs(b % 8 - a % 8);
+		int ly = Math.abs(b / 8 - a / 8);
+		if (a == b || (lx != 0 && ly != 0 && lx != ly))
+			return 0L;
+		long mask = 0L;
+		int x = a % 8 + dx;
+		int y = a / 8 + dy;
+		while (x + 8 * y != b) {
+			mask |= 1L << (x + 8 * y);
+			x += dx;
+			y += dy;
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns the cells of the pieces of the given color in <tt>board</tt>
+	 * that attack cell <tt>sq</tt>, assuming the occupied cells are
+	 * <tt>occupancy</tt> (which may differ from those of <tt>board</tt>,
+	 * e.g. to look through a piece that is about to move).
+	 *
+	 * @requires 0 &lt;= sq &lt; 64
+	 */
+	public static long attackers(BitBoard board, int sq, boolean isWhite,
+			long occupancy) {
+		long queens = board.getPieceMask("queen", isWhite);
+		return (KNIGHT[sq] & board.getPieceMask("knight", isWhite))
+			| (KING[sq] & board.getPieceMask("king", isWhite))
+			// a pawn attacks sq if a pawn of the other color at sq would
+			// attack it back
+			| (pawn(sq, !isWhite) & board.getPieceMask("pawn", isWhite))
+			| (rook(sq, occupancy)
+					& (board.getPieceMask("rook", isWhite) | queens))
+			| (bishop(sq, occupancy)
+					& (board.getPieceMask("bishop", isWhite) | queens));
+	}
+
+	/**
+	 * Returns the cells reachable from <tt>sq</tt> by stepping along each of
+	 * <tt>directions</tt> until the edge of the board or an occupied cell,
+	 * which is included.
+	 */
+	private static long slide(int sq, long occupancy, int[][] directions) {
+		long mask = 0L;
+		for (int[] d : directions) {
+			int x = sq % 8 + d[0];
+			int y = sq / 8 + d[1];
+			while (x >= 0 && x < 8 && y >= 0 && y < 8) {
+				long b = 1L << (x + 8 * y);
+				mask |= b;
+				if ((occupancy & b) != 0)
+					break;
+				x += d[0];
+				y += d[1];
+			}
+		}
+		return mask;
+	}
+
+	/**
+	 * Returns the mask of cell (x,y), or 0 if it is not on the board.
+	 */
+	private static long bit(int x, int y) {
+		if (x < 0 || x >= 8 || y < 0 || y >= 8)
+			return 0L;
+		return 1L << (x + 8 * y);
+	}
+}
@@ -0,0 +1,415 @@
+package ruleset.board;
+
+import engine.adt.Piece;
+import debug.*;
+
+/**
+ * A BitBoard is an 8x8 RectangularBoard with no unusable cells that, in
+ * addition to the pieces it holds, keeps 64-bit occupancy masks for each
+ * color and for each type of piece. The cell with coordinates (x,y) is
+ * represented by bit number <tt>x + 8*y</tt> of every mask, so that, for
+ * example, a1 is bit 0, h1 is bit 7 and h8 is bit 63.
+ *
+ * Cells are allocated once, when the BitBoard is created, so looking up a
+ * cell is a plain array access instead of the lazy allocation done by
+ * RectangularBoard.
+ *
+ * A BitBoard also keeps, for each color, the mask of the cells attacked by
+ * its pieces (see Attacks). The masks are not updated as pieces are added
+ * and removed: any change invalidates them, and they are recomputed from
+ * all the pieces the first time they are asked for afterwards. A position
+ * reached by a search thus pays for a full recomputation once at most,
+ * however many times it is asked.
+ *
+ * A BitBoard is mutable. Like any Board, it is synchronized unless it is
+ * confined to a single thread (see Board.confinedClone).
+ *
+ * @specfield white : long   // cells occupied by white pieces
+ * @specfield black : long   // cells occupied by black pieces
+ * @specfield types : long[] // cells occupied by each type of piece
+ * @specfield attacks : long[] // cells attacked by each color
+ */
+public class BitBoard extends RectangularBoard {
+
+	/**
+	 * The number of cells along each side of a BitBoard.
+	 */
+	public static final int SIZE = 8;
+
+	/**
+	 * The names of the piece types for which a BitBoard keeps separate
+	 * masks. Pieces of any other type are only accounted for in the color
+	 * masks.
+	 */
+	private static final String[] TYPES =
+		{"king", "queen", "rook", "bishop", "knight", "pawn"};
+
+	/**
+	 * Indices in <tt>TYPES</tt> of each type.
+	 */
+	private static final int KING = 0, QUEEN = 1, ROOK = 2, BISHOP = 3,
+		KNIGHT = 4, PAWN = 5;
+
+	//Fields
+
+	/**
+	 * The cells of this board, indexed by <tt>x + 8*y</tt>.
+	 */
+	private Cell[] cells;
+
+	/**
+	 * The pieces in this board, indexed like <tt>cells</tt>.
+	 */
+	private Piece[] squares;
+
+	/**
+	 * Occupancy mask of each color.
+	 */
+	private long white, black;
+
+	/**
+	 * Occupancy masks of each type of piece, indexed like <tt>TYPES</tt>.
+	 * Masks are kept for both colors; they must be intersected with
+	 * <tt>white</tt> or <tt>black</tt> to obtain the cells of one color.
+	 */
+	private long[] types;
+
+	/**
+	 * Cells occupied by pieces whose type has no mask in <tt>types</tt>.
+	 */
+	private long untyped;
+
+	/**
+	 * Cells attacked by the pawns, and by the other pieces, of each color.
+	 * Only meaningful if <tt>attacksValid</tt>.
+	 */
+	private long whitePawnAttacks, whitePieceAttacks;
+	private long blackPawnAttacks, blackPieceAttacks;
+
+	/**
+	 * Whether the attack masks describe the current pieces.
+	 */
+	private boolean attacksValid = false;
+
+	//AF(r) = an 8x8 board such that the piece at (x,y) is squares[x + 8*y],
+	//        held by cells[x + 8*y].
+	//RI: cells.length == squares.length == 64, cells[i] != null,
+	//    (white & black) == 0,
+	//    bit i of (white | black) is set iff squares[i] != null,
+	//    bit i of types[t] is set iff squares[i] is of type TYPES[t],
+	//    bit i of untyped is set iff squares[i] is of none of TYPES,
+	//    attacksValid => the attack masks are those of the pieces in
+	//    squares, as computed by updateAttacks()
+
+	//Constructors
+
+	/**
+	 * Returns a new, empty 8x8 BitBoard.
+	 */
+	public BitBoard() {
+		super(SIZE, SIZE);
+		cells = new Cell[SIZE * SIZE];
+		for (int i = 0; i < cells.length; i++)
+			cells[i] = new Cell(null);
+		squares = new Piece[SIZE * SIZE];
+		types = new long[TYPES.length];
+		checkRep();
+	}
+
+	@Override
+	public BitBoard clone() {
+		return (BitBoard) super.clone();
+	}
+
+	/**
+	 * Returns the Cell at this board that is at the specified coordinate.
+	 *
+	 * @requires coord.length==2
+	 * @see RectangularBoard
+	 */
+	@Override
+	public Cell getCell(int[] coord) {
+		int index = index(coord);
+		if (index < 0)
+			return null;
+		return cells[index];
+	}
+
+	@Override
+	protected void safeCopy() {
+		super.safeCopy();
+		Cell[] before = cells;
+		cells = new Cell[before.length];
+		for (int i = 0; i < cells.length; i++)
+			cells[i] = before[i].clone();
+		squares = squares.clone();
+		types = types.clone();
+	}
+
+	@Override
+	protected void pieceAdded(Piece piece, int[] cell) {
+		int index = index(cell);
+		long bit = 1L << index;
+		squares[index] = piece;
+		if (piece.isWhite())
+			white |= bit;
+		else
+			black |= bit;
+		int type = typeIndex(piece.getType());
+		if (type >= 0)
+			types[type] |= bit;
+		else
+			untyped |= bit;
+		attacksValid = false;
+		checkRep();
+	}
+
+	@Override
+	protected void pieceRemoved(Piece piece, int[] cell) {
+		int index = index(cell);
+		long bit = ~(1L << index);
+		squares[index] = null;
+		white &= bit;
+		black &= bit;
+		int type = typeIndex(piece.getType());
+		if (type >= 0)
+			types[type] &= bit;
+		else
+			untyped &= bit;
+		attacksValid = false;
+		checkRep();
+	}
+
+	@Override
+	public Piece getPiece(int[] cell) {
+		int index = index(cell);
+		if (index < 0)
+			return null;
+		if (isConfined())
+			return squares[index];
+		synchronized (this) {
+			return squares[index];
+		}
+	}
+
+	@Override
+	public boolean isUsable(int[] cell) {
+		return index(cell) >= 0;
+	}
+
+	@Override
+	public boolean isEmpty(int[] cell) {
+		int index = index(cell);
+		if (index < 0)
+			return false;
+		if (isConfined())
+			return squares[index] == null;
+		synchronized (this) {
+			return squares[index] == null;
+		}
+	}
+
+	/**
+	 * Returns the mask of the cells that are occupied by any piece.
+	 *
+	 * @return a mask with bit <tt>x + 8*y</tt> set iff there is a piece
+	 * 			at (x,y).
+	 */
+	public long getOccupancy() {
+		if (isConfined())
+			return white | black;
+		synchronized (this) {
+			return white | black;
+		}
+	}
+
+	/**
+	 * Returns the mask of the cells occupied by pieces of the given color.
+	 *
+	 * @param isWhite the color of the pieces
+	 * @return a mask with bit <tt>x + 8*y</tt> set iff there is a piece of
+	 * 			the given color at (x,y).
+	 */
+	public long getOccupancy(boolean isWhite) {
+		if (isConfined())
+			return isWhite ? white : black;
+		synchronized (this) {
+			return isWhite ? white : black;
+		}
+	}
+
+	/**
+	 * Returns the mask of the cells occupied by pieces of the given type
+	 * and color.
+	 *
+	 * @param type the type of the pieces, as returned by
+	 * 			<tt>Piece.getType()</tt>
+	 * @param isWhite the color of the pieces
+	 * @return a mask with bit <tt>x + 8*y</tt> set iff there is a piece of
+	 * 			the given type and color at (x,y). If this board does not keep
+	 * 			a mask for <tt>type</tt>, returns 0.
+	 */
+	public long getPieceMask(String type, boolean isWhite) {
+		int t = typeIndex(type);
+		if (t < 0)
+			return 0L;
+		if (isConfined())
+			return types[t] & (isWhite ? white : black);
+		synchronized (this) {
+			return types[t] & (isWhite ? white : black);
+		}
+	}
+
+	/**
+	 * Returns the mask of the cells occupied by pieces of types for which
+	 * this board does not keep masks. Such pieces are not accounted for in
+	 * the attack masks.
+	 */
+	public long getUntypedOccupancy() {
+		if (isConfined())
+			return untyped;
+		synchronized (this) {
+			return untyped;
+		}
+	}
+
+	/**
+	 * Returns the mask of the cells attacked by the pieces of the given
+	 * color; that is, the cells they could capture on if the cells held
+	 * pieces of the other color. Cells held by pieces of the same color
+	 * are included.
+	 *
+	 * @param isWhite the color of the attacking pieces
+	 * @see Attacks
+	 */
+	public long getAttacks(boolean isWhite) {
+		if (isConfined())
+			return attacks(isWhite);
+		synchronized (this) {
+			return attacks(isWhite);
+		}
+	}
+
+	/**
+	 * Same as <code>getAttacks(isWhite)</code>, except that the cells only
+	 * attacked by pawns are left out.
+	 *
+	 * @param isWhite the color of the attacking pieces
+	 */
+	public long getPieceAttacks(boolean isWhite) {
+		if (isConfined())
+			return pieceAttacks(isWhite);
+		synchronized (this) {
+			return pieceAttacks(isWhite);
+		}
+	}
+
+	/**
+	 * Same as <code>getAttacks(isWhite)</code>, without synchronization.
+	 */
+	private long attacks(boolean isWhite) {
+		updateAttacks();
+		return isWhite ? whitePawnAttacks | whitePieceAttacks
+				: blackPawnAttacks | blackPieceAttacks;
+	}
+
+	/**
+	 * Same as <code>getPieceAttacks(isWhite)</code>, without
+	 * synchronization.
+	 */
+	private long pieceAttacks(boolean isWhite) {
+		updateAttacks();
+		return isWhite ? whitePieceAttacks : blackPieceAttacks;
+	}
+
+	/**
+	 * Recomputes the attack masks, if the pieces have changed since they
+	 * were last computed.
+	 */
+	private void updateAttacks() {
+		if (attacksValid)
+			return;
+		long occupancy = white | black;
+		whitePawnAttacks = computePawnAttacks(white, true);
+		whitePieceAttacks = computePieceAttacks(white, occupancy);
+		blackPawnAttacks = computePawnAttacks(black, false);
+		blackPieceAttacks = computePieceAttacks(black, occupancy);
+		attacksValid = true;
+	}
+
+	/**
+	 * Returns the mask of the cells attacked by the pawns among the cells
+	 * of <code>own</code>, which are of the given color.
+	 */
+	private long computePawnAttacks(long own, boolean isWhite) {
+		long attacked = 0;
+		for (long mask = types[PAWN] & own; mask != 0; mask &= mask - 1)
+			attacked |= Attacks.pawn(Long.numberOfTrailingZeros(mask), 
+					isWhite);
+		return attacked;
+	}
+
+	/**
+	 * Returns the mask of the cells attacked by the pieces other than 
+	 * pawns among the cells of <code>own</code>, when the cells of 
+	 * <code>occupancy</code> are occupied.
+	 */
+	private long computePieceAttacks(long own, long occupancy) {
+		long attacked = 0;
+		long mask;
+		for (mask = types[KING] & own; mask != 0; mask &= mask - 1)
+			attacked |= Attacks.king(Long.numberOfTrailingZeros(mask));
+		for (mask = types[KNIGHT] & own; mask != 0; mask &= mask - 1)
+			attacked |= Attacks.knight(Long.numberOfTrailingZeros(mask));
+		for (mask = (types[ROOK] | types[QUEEN]) & own; mask != 0; 
+				mask &= mask - 1)
+			attacked |= Attacks.rook(Long.numberOfTrailingZeros(mask),
+					occupancy);
+		for (mask = (types[BISHOP] | types[QUEEN]) & own; mask != 0; 
+				mask &= mask - 1)
+			attacked |= Attacks.bishop(Long.numberOfTrailingZeros(mask),
+					occupancy);
+		return attacked;
+	}
+
+	/**
+	 * Returns the index of the bit that represents the cell at
+	 * <tt>coord</tt>, or -1 if <tt>coord</tt> is not within this board.
+	 */
+	public static int index(int[] coord) {
+		if (coord == null || coord.length != 2)
+			return -1;
+		int x = coord[0];
+		int y = coord[1];
+		if (x < 0 || x >= SIZE || y < 0 || y >= SIZE)
+			return -1;
+		return x + SIZE * y;
+	}
+
+	/**
+	 * Returns the index in <tt>TYPES</tt> of the given type, or -1 if no
+	 * mask is kept for it.
+	 */
+	private static int typeIndex(String type) {
+		for (int i = 0; i < TYPES.length; i++)
+			if (TYPES[i].equals(type))
+				return i;
+		return -1;
+	}
+
+	/**
+	 * Checks that the representation invariant holds.
+	 */
+	private void checkRep() {
+		if (DebugInfo.DEBUG_RULESET) {
+			if ((white & black) != 0)
+				throw new RuntimeException("a cell is occupied by both colors");
+			long occupied = white | black;
+			for (int i = 0; i < squares.length; i++) {
+				boolean bit = (occupied & (1L << i)) != 0;
+				if (bit != (squares[i] != null))
+					throw new RuntimeException("occupancy mask out of sync at " + i);
+			}
+		}
+	}
+}
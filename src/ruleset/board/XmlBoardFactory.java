@@ -27,6 +27,14 @@ public class XmlBoardFactory {
 	
 	// TODO does not handle unused cells yet
 	public static Board xmlToBoard(String xmlSettings) {
+		return xmlToBoard(xmlSettings, new RectangularBoard());
+	}
+	
+	/**
+	 * Places the pieces described by <tt>xmlSettings</tt> on
+	 * <tt>board</tt>, which must be blank, and returns it.
+	 */
+	public static Board xmlToBoard(String xmlSettings, Board board) {
 
 		// Format [cell, color, type]
 		List<String[]> config = new LinkedList<String[]>();
@@ -54,12 +62,11 @@ public class XmlBoardFactory {
 		} catch (SAXException e) {
 		} catch (IOException e) { }
 		
-		return makeBoard(config);
+		return makeBoard(config, board);
 	}
 	
-	private static Board makeBoard(List<String[]> config) {
+	private static Board makeBoard(List<String[]> config, Board board) {
 		RuleSet rs = new StandardAC();
-		Board board = new RectangularBoard();
 		for (String[] info : config) {
 			boolean isWhite;
 			if (info[1].equals("white"))
@@ -0,0 +1,253 @@
+package ruleset.board.test;
+
+import java.util.HashSet;
+import java.util.Set;
+
+import junit.framework.TestCase;
+import ruleset.antichess.EnCastleAC;
+import ruleset.antichess.StandardAC;
+import ruleset.board.BitBoard;
+import ruleset.piece.Pawn;
+import ruleset.piece.Queen;
+import engine.adt.Board;
+import engine.adt.Piece;
+import engine.adt.RuleSet;
+
+/**
+ * Unit tests for BitBoard.
+ */
+public class BitBoardTest extends TestCase {
+
+	/**
+	 * Tests that the occupancy masks follow the pieces as they are added
+	 * and removed.
+	 */
+	public void testMasks() {
+		BitBoard board = new BitBoard();
+		Piece pawn = new Pawn(true, board);
+		Piece queen = new Queen(false, board);
+
+		board.addPiece(pawn, new int[] {1,1});
+		board.addPiece(queen, new int[] {7,7});
+
+		assertEquals(1L << 9, board.getOccupancy(true));
+		assertEquals(1L << 63, board.getOccupancy(false));
+		assertEquals((1L << 9) | (1L << 63), board.getOccupancy());
+		assertEquals(1L << 9, board.getPieceMask("pawn", true));
+		assertEquals(0L, board.getPieceMask("pawn", false));
+		assertEquals(1L << 63, board.getPieceMask("queen", false));
+		assertEquals(0L, board.getPieceMask("unicorn", false));
+		assertTrue(board.getPiece(new int[] {1,1}) == pawn);
+
+		board.removePiece(queen);
+		assertEquals(0L, board.getOccupancy(false));
+		assertEquals(0L, board.getPieceMask("queen", false));
+		assertTrue(board.isEmpty(new int[] {7,7}));
+	}
+
+	/**
+	 * Tests that cells outside the 8x8 board are unusable.
+	 */
+	public void testBounds() {
+		Board board = new BitBoard();
+		assertTrue(board.isUsable(new int[] {0,0}));
+		assertTrue(board.isUsable(new int[] {7,7}));
+		assertFalse(board.isUsable(new int[] {8,0}));
+		assertFalse(board.isUsable(new int[] {0,-1}));
+		assertFalse(board.isEmpty(new int[] {0,8}));
+		assertNull(board.getPiece(new int[] {-1,3}));
+	}
+
+	/**
+	 * Tests that a clone keeps its own masks.
+	 */
+	public void testClone() {
+		RuleSet rs = new StandardAC();
+		BitBoard board = (BitBoard) rs.boardFactory().getInitialBoard();
+		long white = board.getOccupancy(true);
+		assertEquals(0xFFFFL, white);
+		assertEquals(0xFFFFL << 48, board.getOccupancy(false));
+
+		BitBoard copy = board.clone();
+		copy.executePly(rs.plyFactory().getPly("e2-e4", copy));
+
+		assertEquals(white, board.getOccupancy(true));
+		assertFalse(white == copy.getOccupancy(true));
+		assertNotNull(copy.getPiece(new int[] {4,3}));
+		assertNull(board.getPiece(new int[] {4,3}));
+		assertFalse(board.getPiece(new int[] {0,0}) == copy.getPiece(new int[] {0,0}));
+	}
+
+	/**
+	 * Tests that a confined clone, and its own clones, are confined and
+	 * behave like ordinary clones, while the original board is not.
+	 */
+	public void testConfinedClone() {
+		RuleSet rs = new EnCastleAC();
+		Board board = rs.boardFactory().getInitialBoard();
+		assertFalse(board.isConfined());
+		assertFalse(board.clone().isConfined());
+
+		BitBoard copy = (BitBoard) board.confinedClone();
+		assertTrue(copy.isConfined());
+		assertTrue(copy.clone().isConfined());
+		assertEquals(board.getPositionKey(true), copy.getPositionKey(true));
+		assertEquals(0xFFFFL, copy.getOccupancy(true));
+
+		Board.Undo undo = copy.makePly(rs.plyFactory().getPly("e2-e4", copy));
+		assertNotNull(copy.getPiece(new int[] {4,3}));
+		assertTrue(copy.isEmpty(new int[] {4,1}));
+		assertNull(board.getPiece(new int[] {4,3}));
+		copy.undoPly(undo);
+		assertEquals(board.getPositionKey(true), copy.getPositionKey(true));
+		assertEquals(board.getPieces(true).size(), copy.getPieces(true).size());
+	}
+
+	/**
+	 * Tests that the piece counts, and the numbered pieces, follow the 
+	 * pieces as they are captured, promoted and taken back.
+	 */
+	public void testPieceCounts() {
+		RuleSet rs = new EnCastleAC();
+		Board board = play(rs, "e2-e4", "d7-d5", "e4-d5", "d8-d5");
+		assertEquals(15, board.pieceCount(true));
+		assertEquals(15, board.pieceCount(false));
+		assertEquals(7, board.pieceCount(true, "pawn"));
+		assertEquals(1, board.pieceCount(false, "queen"));
+		assertEquals(0, board.pieceCount(false, "unicorn"));
+
+		Board.Undo undo = board.makePly(rs.plyFactory().getPly("b1-c3", board));
+		Board.Undo capture = board.makePly(rs.plyFactory().getPly("d5-a2", board));
+		assertEquals(14, board.pieceCount(true));
+		assertEquals(6, board.pieceCount(true, "pawn"));
+		board.undoPly(capture);
+		board.undoPly(undo);
+		assertEquals(15, board.pieceCount(true));
+		assertEquals(7, board.pieceCount(true, "pawn"));
+
+		for (boolean color : new boolean[] {true, false}) {
+			Set<Piece> pieces = new HashSet<Piece>();
+			for (int i = 0; i < board.pieceCount(color); i++)
+				pieces.add(board.getPiece(color, i));
+			assertEquals(board.getPieces(color), pieces);
+		}
+		Board copy = board.clone();
+		assertEquals(15, copy.pieceCount(false));
+		assertEquals(7, copy.pieceCount(true, "pawn"));
+		assertTrue(copy.getPiece(true, 0).associatedTo(copy));
+		try {
+			board.getPiece(true, 15);
+			fail("There are only 15 white pieces");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+
+	/**
+	 * Tests that the position key identifies transpositions and takes into
+	 * account the side to move and en passant rights.
+	 */
+	public void testPositionKey() {
+		RuleSet rs = new EnCastleAC();
+		Board initial = rs.boardFactory().getInitialBoard();
+		long key = initial.getPositionKey(true);
+		assertFalse(key == initial.getPositionKey(false));
+		assertEquals(key, initial.clone().getPositionKey(true));
+
+		Board board = play(rs, "g1-f3", "g8-f6", "f3-g1", "f6-g8");
+		assertEquals(key, board.getPositionKey(true));
+
+		Board.Undo undo = board.makePly(rs.plyFactory().getPly("e2-e4", board));
+		assertFalse(key == board.getPositionKey(false));
+		board.undoPly(undo);
+		assertEquals(key, board.getPositionKey(true));
+
+		Board enPassant = play(rs, "e2-e3", "b8-c6", "e3-e4", "c6-b8", 
+				"e4-e5", "d7-d5");
+		Board noEnPassant = play(rs, "e2-e4", "d7-d6", "e4-e5", "d6-d5");
+		assertFalse(enPassant.getPositionKey(true) == 
+			noEnPassant.getPositionKey(true));
+		undo = enPassant.makePly(rs.plyFactory().getPly("h2-h3", enPassant));
+		enPassant.undoPly(undo);
+		assertFalse(enPassant.getPositionKey(true) == 
+			noEnPassant.getPositionKey(true));
+		noEnPassant.executePly(rs.plyFactory().getPly("h2-h3", noEnPassant));
+		enPassant.executePly(rs.plyFactory().getPly("h2-h3", enPassant));
+		assertEquals(enPassant.getPositionKey(false), 
+				noEnPassant.getPositionKey(false));
+	}
+
+	/**
+	 * Tests that a used undo record records the next ply it is given, 
+	 * including the en passant rights it changes, while a record in use 
+	 * cannot be reused and a record of another board is not.
+	 */
+	public void testReusedUndo() {
+		RuleSet rs = new EnCastleAC();
+		Board board = play(rs, "e2-e3", "b8-c6", "e3-e4", "c6-b8", "e4-e5");
+		long key = board.getPositionKey(false);
+		Board.Undo undo = board.makePly(rs.plyFactory().getPly("d7-d5", board));
+		long enPassant = board.getPositionKey(true);
+		try {
+			board.makePly(rs.plyFactory().getPly("h2-h3", board), undo);
+			fail("Undo record in use was reused");
+		} catch (IllegalArgumentException e) {
+			// expected
+		}
+		Board.Undo reply = board.makePly(
+				rs.plyFactory().getPly("h2-h3", board), null);
+		board.undoPly(reply);
+		assertEquals(enPassant, board.getPositionKey(true));
+		board.undoPly(undo);
+		assertEquals(key, board.getPositionKey(false));
+
+		assertSame(undo, board.makePly(
+				rs.plyFactory().getPly("d7-d5", board), undo));
+		assertSame(reply, board.makePly(
+				rs.plyFactory().getPly("h2-h3", board), reply));
+		board.undoPly(reply);
+		assertEquals(enPassant, board.getPositionKey(true));
+		board.undoPly(undo);
+		assertEquals(key, board.getPositionKey(false));
+
+		Board copy = board.clone();
+		assertNotSame(undo, copy.makePly(
+				rs.plyFactory().getPly("d7-d5", copy), undo));
+	}
+
+	/**
+	 * Tests that the attack masks describe the current pieces, and are 
+	 * brought up to date when pieces move and when plies are taken back.
+	 */
+	public void testAttacks() {
+		RuleSet rs = new StandardAC();
+		BitBoard board = (BitBoard) rs.boardFactory().getInitialBoard();
+		long thirdRow = 0xFFL << 16;
+		long fourthRow = 0xFFL << 24;
+		long a6 = 1L << 40;
+		assertEquals(thirdRow, board.getAttacks(true) & thirdRow);
+		assertEquals(0L, board.getAttacks(true) & fourthRow);
+		// without pawns, only the knights reach the third row
+		assertEquals((1L << 16) | (1L << 18) | (1L << 21) | (1L << 23), 
+				board.getPieceAttacks(true) & thirdRow);
+		assertEquals(0xFFL << 40, board.getAttacks(false) & (0xFFL << 40));
+
+		Board.Undo undo = board.makePly(rs.plyFactory().getPly("e2-e4", board));
+		assertTrue((board.getAttacks(true) & a6) != 0);
+		assertTrue((board.getAttacks(true) & (1L << 37)) != 0); // f5
+		board.undoPly(undo);
+		assertEquals(0L, board.getAttacks(true) & a6);
+		assertEquals(0L, board.getAttacks(true) & fourthRow);
+	}
+
+	/**
+	 * Returns the initial board of <tt>rs</tt> after executing the given
+	 * plies.
+	 */
+	private static Board play(RuleSet rs, String... plies) {
+		Board board = rs.boardFactory().getInitialBoard();
+		for (String ply : plies)
+			board.executePly(rs.plyFactory().getPly(ply, board));
+		return board;
+	}
+}
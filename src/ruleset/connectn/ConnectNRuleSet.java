@@ -11,6 +11,7 @@ import ruleset.board.RectangularParser;
 import ruleset.board.XmlBoardFactory;
 import ruleset.piece.GravityChip;
 import ruleset.ply.Add;
+import ruleset.ply.PlyCode;
 import debug.DebugInfo;
 import engine.adt.Board;
 import engine.adt.Parser;
@@ -170,6 +171,23 @@ public class ConnectNRuleSet implements RuleSet {
 				throw new IllegalArgumentException("Illegal arguments for getPly");
 			}
 		}
+		
+		/**
+		 * Returns a <code>Ply</code> whose code matches <code>code</code>,
+		 * as <code>getPly(String, Board)</code> does for the 
+		 * <code>String</code> representation of the <code>Ply</code>. 
+		 * 
+		 * @see ruleset.ply.PlyCode
+		 * 
+		 * @requires <code>code</code> to be the code of an <code>Add</code>
+		 */
+		public Ply getPly(int code, Board board) {
+			if (!PlyCode.is(code, PlyCode.ADD))
+				throw new IllegalArgumentException("Illegal arguments for getPly");
+			Piece chip = pieceFactory.getPiece(PieceName.chip.toString(), board,
+					PlyCode.is(code, PlyCode.WHITE));
+			return new Add(PlyCode.getStart(code), chip);
+		}
 	};
 	
 	/**
@@ -10,7 +10,7 @@ public class Evaluator1 implements Evaluator{
 	public Evaluator1 () {}
 	
 	public int evaluate(Board board, boolean isWhite) {
-		int r = (board.getPieces(!isWhite).size() - board.getPieces(isWhite).size());
+		int r = (board.pieceCount(!isWhite) - board.pieceCount(isWhite));
 		return r;
 	}
 	
@@ -2,7 +2,6 @@ package ruleset.eval;
 
 import player.Evaluator;
 import engine.adt.Board;
-import engine.adt.Piece;
 
 public class Evaluator2 implements Evaluator {
 
@@ -10,22 +9,11 @@ public class Evaluator2 implements Evaluator {
 	
 	public int evaluate(Board board, boolean isWhite) {
 		
-		int myBoardScore = 0;
-		int opponentBoardScore = 0;
-		
-		for (Piece p : board.getPieces(isWhite)){
-			if (p.getType().equals("pawn"))
-				myBoardScore += 2;
-			else 
-				myBoardScore++;	
-		}
-		
-		for (Piece p : board.getPieces(!isWhite)){
-			if (p.getType().equals("pawn"))
-				opponentBoardScore += 2;
-			else 
-				opponentBoardScore++;
-		}
+		// pawns are worth 2, any other piece 1
+		int myBoardScore = board.pieceCount(isWhite)
+			+ board.pieceCount(isWhite, "pawn");
+		int opponentBoardScore = board.pieceCount(!isWhite)
+			+ board.pieceCount(!isWhite, "pawn");
 			
 			
 		return opponentBoardScore - myBoardScore;
@@ -2,7 +2,7 @@ package ruleset.eval;
 
 import player.Evaluator;
 import engine.adt.*;
-import ruleset.antichess.*;
+import ruleset.board.BitBoard;
 
 public class Evaluator3 implements Evaluator {
 
@@ -10,38 +10,26 @@ public class Evaluator3 implements Evaluator {
 	
 	public int evaluate(Board board, boolean isWhite) {
 		
-		AntichessRuleSet rs = new StandardAC();
-		
 		double piecesUnderAttack = 0;
 		
-//		for (Piece p : board.getPieces(isWhite)) {
-//			if (rs.isUnderAttack(board, board.getPosition(p), !isWhite))
-//				piecesUnderAttack++;
-//		}
-		
-		piecesUnderAttack = piecesUnderAttack/board.getPieces(isWhite).size();
-		System.out.println("Using new evaluator " + piecesUnderAttack);
+		// The attack masks of a BitBoard tell which pieces are under 
+		// attack at once
+		if (board instanceof BitBoard) {
+			BitBoard bitBoard = (BitBoard) board;
+			piecesUnderAttack = Long.bitCount(bitBoard.getOccupancy(isWhite)
+					& bitBoard.getAttacks(!isWhite));
+		}
 		
-		double myBoardScore = 0;
+		piecesUnderAttack = piecesUnderAttack/board.pieceCount(isWhite);
 		
-		for (Piece p : board.getPieces(isWhite)){
-			if (p.getType().equals("pawn"))
-				myBoardScore += 5;
-			else 
-				myBoardScore++;	
-		}
+		// pawns are worth 5, any other piece 1
+		double myBoardScore = board.pieceCount(isWhite)
+			+ 4 * board.pieceCount(isWhite, "pawn");
 		
 		myBoardScore = myBoardScore/48;
 		
-		double opponentBoardScore = 0;
-		
-			
-		for (Piece p : board.getPieces(!isWhite)){
-			if (p.getType().equals("pawn"))
-				opponentBoardScore += 5;
-			else 
-				opponentBoardScore++;
-		}
+		double opponentBoardScore = board.pieceCount(!isWhite)
+			+ 4 * board.pieceCount(!isWhite, "pawn");
 			
 		opponentBoardScore = opponentBoardScore/48;
 		
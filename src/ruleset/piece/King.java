@@ -4,8 +4,11 @@ import java.util.*;
 
 import engine.adt.*;
 import debug.*;
+import ruleset.board.Attacks;
+import ruleset.board.BitBoard;
 import ruleset.ply.Castle;
 import ruleset.ply.Move;
+import ruleset.ply.PlyCode;
 
 /**
  * <p>A <code>King</code> represents a king in a chess-resembling game. It
@@ -179,6 +182,30 @@ public class King extends Piece {
 		// no info needed
 	}
 	
+	/**
+	 * Returns the castling rights this <code>King</code> still has: bit 0
+	 * is set if it could castle king side, and bit 1 if it could castle
+	 * queen side.
+	 * 
+	 * @see engine.adt.Piece#getState()
+	 */
+	@Override
+	public int getState() {
+		return (couldCastleKingSide ? 1 : 0) | (couldCastleQueenSide ? 2 : 0);
+	}
+	
+	/**
+	 * Restores the castling rights encoded by <tt>state</tt>.
+	 * 
+	 * @see #getState()
+	 */
+	@Override
+	public void restoreState(int state) {
+		couldCastleKingSide = (state & 1) != 0;
+		couldCastleQueenSide = (state & 2) != 0;
+		checkRep();
+	}
+	
 	/**
 	 * Returns a list with the valid Plies of this <code>King</code>, as
 	 * specified in the overview.
@@ -219,6 +246,55 @@ public class King extends Piece {
 		return validPlies;
 	}
 	
+	/**
+	 * Appends the codes of the valid Plies of this <code>King</code> to
+	 * <code>moves</code>. On a <code>BitBoard</code>, they are found from
+	 * its masks without creating any objects.
+	 * 
+	 * @see engine.adt.Piece#getPlies(MoveList)
+	 */
+	@Override
+	public void getPlies(MoveList moves) {
+		Board board = getBoard();
+		if (!(board instanceof BitBoard)) {
+			super.getPlies(moves);
+			return;
+		}
+		BitBoard bits = (BitBoard) board;
+		if (bits.isConfined())
+			addPlies(bits, moves);
+		else {
+			synchronized (bits) {
+				addPlies(bits, moves);
+			}
+		}
+	}
+	
+	/**
+	 * Adds the codes of the plies of <tt>this</tt> on <tt>bits</tt>, its
+	 * board, to <code>moves</code>. The caller synchronizes on
+	 * <tt>bits</tt> unless it is confined to the calling thread.
+	 */
+	private void addPlies(BitBoard bits, MoveList moves) {
+		int[] pos = bits.getPosition(this);
+		if (pos == null)
+			return;
+		int sq = BitBoard.index(pos);
+		PlyCode.encodeAll(moves, sq,
+				Attacks.king(sq) & ~bits.getOccupancy(isWhite()), 0);
+		if (castlingEnabled) {
+			// same cells as cellsAreEmpty
+			long occupancy = bits.getOccupancy();
+			int x = sq % BitBoard.SIZE;
+			if (couldCastleKingSide && x + 2 < BitBoard.SIZE &&
+					(occupancy & (3L << (sq + 1))) == 0)
+				moves.add(PlyCode.encode(sq, sq + 2, null, PlyCode.CASTLE));
+			if (couldCastleQueenSide && x - 3 >= 0 &&
+					(occupancy & (7L << (sq - 3))) == 0)
+				moves.add(PlyCode.encode(sq, sq - 2, null, PlyCode.CASTLE));
+		}
+	}
+	
 	@Override
 	/**
 	 * Specified by engine.adt.Piece
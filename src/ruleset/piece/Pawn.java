@@ -2,10 +2,13 @@ package ruleset.piece;
 
 import java.util.*;
 
+import ruleset.board.Attacks;
+import ruleset.board.BitBoard;
 import ruleset.board.CoordinateParser;
 import ruleset.ply.Coronation;
 import ruleset.ply.EnPassantCapture;
 import ruleset.ply.Move;
+import ruleset.ply.PlyCode;
 import engine.adt.*;
 import debug.*;
 
@@ -156,6 +159,30 @@ public class Pawn extends Piece {
 		// no info needed
 	}
 	
+	/**
+	 * Returns the en passant captures this <code>Pawn</code> may perform:
+	 * bit 0 is set if it can capture en passant to the right, and bit 1 if
+	 * it can capture en passant to the left.
+	 * 
+	 * @see engine.adt.Piece#getState()
+	 */
+	@Override
+	public int getState() {
+		return (canCaptureRight ? 1 : 0) | (canCaptureLeft ? 2 : 0);
+	}
+	
+	/**
+	 * Restores the en passant captures encoded by <tt>state</tt>.
+	 * 
+	 * @see #getState()
+	 */
+	@Override
+	public void restoreState(int state) {
+		canCaptureRight = (state & 1) != 0;
+		canCaptureLeft = (state & 2) != 0;
+		checkRep();
+	}
+	
 	/**
 	 * Returns a list with the valid Plies of this <code>Pawn</code>, as
 	 * specified in the overview.
@@ -223,6 +250,77 @@ public class Pawn extends Piece {
 		return validPlies;
 	}
 	
+	/**
+	 * Appends the codes of the valid Plies of this <code>Pawn</code> to
+	 * <code>moves</code>. On a <code>BitBoard</code>, they are found from
+	 * its masks without creating any objects.
+	 * 
+	 * @see engine.adt.Piece#getPlies(MoveList)
+	 */
+	@Override
+	public void getPlies(MoveList moves) {
+		Board board = getBoard();
+		if (!(board instanceof BitBoard)) {
+			super.getPlies(moves);
+			return;
+		}
+		BitBoard bits = (BitBoard) board;
+		if (bits.isConfined())
+			addPlies(bits, moves);
+		else {
+			synchronized (bits) {
+				addPlies(bits, moves);
+			}
+		}
+	}
+	
+	/**
+	 * Adds the codes of the plies of <tt>this</tt> on <tt>bits</tt>, its
+	 * board, to <code>moves</code>. The caller synchronizes on
+	 * <tt>bits</tt> unless it is confined to the calling thread.
+	 */
+	private void addPlies(BitBoard bits, MoveList moves) {
+		int[] pos = bits.getPosition(this);
+		if (pos == null)
+			return;
+		int sq = BitBoard.index(pos);
+		boolean white = isWhite();
+		int x = sq % BitBoard.SIZE;
+		int y = sq / BitBoard.SIZE;
+		int forward = white ? BitBoard.SIZE : -BitBoard.SIZE;
+		if (y == (white ? BitBoard.SIZE - 1 : 0))
+			return; // no cell in front
+		long occupancy = bits.getOccupancy();
+		// same cells as getPlies(): captures, an en passant capture,
+		// and one or two cells forward
+		long targets = Attacks.pawn(sq, white) & bits.getOccupancy(!white);
+		if (enPassantEnabled) {
+			if (canCaptureLeft && x > 0)
+				targets |= 1L << (sq + forward - 1);
+			else if (canCaptureRight && x < BitBoard.SIZE - 1)
+				targets |= 1L << (sq + forward + 1);
+		}
+		long one = 1L << (sq + forward);
+		if ((occupancy & one) == 0) {
+			targets |= one;
+			if (isInitial(pos) &&
+					(occupancy & (1L << (sq + 2 * forward))) == 0)
+				targets |= 1L << (sq + 2 * forward);
+		}
+		int lastRow = white ? BitBoard.SIZE - 1 : 0;
+		for (; targets != 0; targets &= targets - 1) {
+			int end = Long.numberOfTrailingZeros(targets);
+			if (end / BitBoard.SIZE == lastRow)
+				moves.add(PlyCode.encode(sq, end, "queen", 0));
+			else if (end % BitBoard.SIZE != x &&
+					(occupancy & (1L << end)) == 0)
+				moves.add(PlyCode.encode(sq, end, null,
+						PlyCode.EN_PASSANT));
+			else
+				moves.add(PlyCode.encode(sq, end, null, 0));
+		}
+	}
+	
 	@Override
 	/**
 	 * Specified by engine.adt.Piece
@@ -4,8 +4,12 @@ import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 import debug.DebugInfo;
+import ruleset.board.Attacks;
+import ruleset.board.BitBoard;
 import ruleset.ply.Move;
+import ruleset.ply.PlyCode;
 import engine.adt.Board;
+import engine.adt.MoveList;
 import engine.adt.Piece;
 import engine.adt.Ply;
 
@@ -127,6 +131,45 @@ public class Rook extends Piece {
 		return validPlies;
 	}
 	
+	/**
+	 * Appends the codes of the valid Plies of this <code>Rook</code> to
+	 * <code>moves</code>. On a <code>BitBoard</code>, they are found from
+	 * its masks without creating any objects.
+	 * 
+	 * @see engine.adt.Piece#getPlies(MoveList)
+	 */
+	@Override
+	public void getPlies(MoveList moves) {
+		Board board = getBoard();
+		if (!(board instanceof BitBoard)) {
+			super.getPlies(moves);
+			return;
+		}
+		BitBoard bits = (BitBoard) board;
+		if (bits.isConfined())
+			addPlies(bits, moves);
+		else {
+			synchronized (bits) {
+				addPlies(bits, moves);
+			}
+		}
+	}
+	
+	/**
+	 * Adds the codes of the plies of <tt>this</tt> on <tt>bits</tt>, its
+	 * board, to <code>moves</code>. The caller synchronizes on
+	 * <tt>bits</tt> unless it is confined to the calling thread.
+	 */
+	private void addPlies(BitBoard bits, MoveList moves) {
+		int[] pos = bits.getPosition(this);
+		if (pos == null)
+			return;
+		int sq = BitBoard.index(pos);
+		long targets = Attacks.rook(sq, bits.getOccupancy());
+		PlyCode.encodeAll(moves, sq, targets & ~bits.getOccupancy(isWhite()),
+				0);
+	}
+	
 	@Override
 	/**
 	 * Specified by engine.adt.Piece
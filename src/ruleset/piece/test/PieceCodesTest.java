@@ -0,0 +1,89 @@
+package ruleset.piece.test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Random;
+import java.util.Set;
+
+import ruleset.antichess.EnCastleAC;
+import engine.adt.Board;
+import engine.adt.MoveList;
+import engine.adt.Piece;
+import engine.adt.Ply;
+import engine.adt.RuleSet;
+import engine.game.GameInfo;
+import engine.game.GameMessage;
+import engine.game.GameTermination;
+import junit.framework.TestCase;
+
+/**
+ * Tests that the codes the Pieces append to a MoveList are those of the
+ * Plies they return.
+ */
+public class PieceCodesTest extends TestCase {
+
+	/**
+	 * Compares both ways of getting plies for every piece in the positions
+	 * of pseudo-random games, which include captures, en passant captures,
+	 * castles and coronations.
+	 */
+	public void testRandomGames() {
+		RuleSet rs = new EnCastleAC();
+		MoveList.Pool pool = new MoveList.Pool();
+		for (long seed = 0; seed < 20; seed++) {
+			Random random = new Random(seed);
+			Board board = rs.boardFactory().getInitialBoard();
+			List<Boolean> turns = new ArrayList<Boolean>();
+			for (int ply = 0; ply < 150; ply++) {
+				for (boolean color : new boolean[] {true, false})
+					for (Piece piece : board.getPieces(color))
+						assertSameCodes(piece, pool.get(ply));
+				GameInfo info;
+				try {
+					info = rs.continueGame(board, turns,
+							new ArrayList<GameMessage>());
+				} catch (GameTermination gt) {
+					break;
+				}
+				List<Ply> plies = info.getPlies();
+				board.executePly(plies.get(random.nextInt(plies.size())));
+				turns.add(info.getTurn());
+			}
+		}
+	}
+
+	/**
+	 * Lists from a pool are handed out cleared, and grow as needed.
+	 */
+	public void testMoveList() {
+		MoveList.Pool pool = new MoveList.Pool();
+		MoveList moves = pool.get(3);
+		for (int i = 1; i <= 100; i++)
+			moves.add(i);
+		assertEquals(100, moves.size());
+		assertEquals(42, moves.get(41));
+		assertTrue(moves.contains(100));
+		assertSame(moves, pool.get(3));
+		assertTrue(moves.isEmpty());
+		try {
+			moves.get(0);
+			fail("Expected an IndexOutOfBoundsException");
+		} catch (IndexOutOfBoundsException e) {
+			// expected
+		}
+	}
+
+	private void assertSameCodes(Piece piece, MoveList moves) {
+		Set<Integer> expected = new HashSet<Integer>();
+		for (Ply ply : piece.getPlies())
+			expected.add(ply.getCode());
+		moves.clear();
+		piece.getPlies(moves);
+		Set<Integer> actual = new HashSet<Integer>();
+		for (int i = 0; i < moves.size(); i++)
+			actual.add(moves.get(i));
+		assertEquals("Codes differ for " + piece.getType(), expected, actual);
+		assertEquals(expected.size(), moves.size());
+	}
+}
@@ -19,6 +19,7 @@ public class PieceTests {
 		suite.addTestSuite(KnightTest.class);
 		suite.addTestSuite(RookTest.class);
 		suite.addTestSuite(GravityChipTest.class);
+		suite.addTestSuite(PieceCodesTest.class);
 
 		return suite;
 	}
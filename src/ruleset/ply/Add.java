@@ -43,6 +43,11 @@ public class Add extends Ply {
 	 */
 	private boolean isWhite;
 	
+	/**
+	 * The code of this <code>Ply</code>.
+	 */
+	private int code;
+	
 	// Do AF, RI, and checkRep()
 
 	/**
@@ -79,6 +84,8 @@ public class Add extends Ply {
 
 		this.cell = CoordinateParser.parseCoord(cell);
 		this.isWhite = piece.isWhite();
+		this.code = PlyCode.encode(cell, cell, null, 
+				PlyCode.ADD | (isWhite ? PlyCode.WHITE : 0));
 
 	}
 	
@@ -91,6 +98,15 @@ public class Add extends Ply {
 		return new ArrayList<Action>(list).iterator();
 	}
 
+	/**
+	 * Specified by Ply. 
+	 * 
+	 * @see ruleset.ply.PlyCode
+	 */
+	public int getCode() {
+		return code;
+	}
+	
 	/** 
 	 * Returns a <code>String</code> representation of the <code>Add</code>.
 	 * The format is in the form xna, where x is either "t" or "f" and
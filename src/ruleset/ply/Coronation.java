@@ -48,6 +48,17 @@ public class Coronation extends Ply {
 	 */
 	private String end;
 	
+	/**
+	 * The coordinates of the starting and ending cells of this
+	 * <code>Ply</code>.
+	 */
+	private int[] startCell, endCell;
+	
+	/**
+	 * The code of this <code>Ply</code>.
+	 */
+	private int code;
+	
 	// Do AF, RI, and checkRep()
 	
 	/**
@@ -89,6 +100,9 @@ public class Coronation extends Ply {
 		
 		this.start = CoordinateParser.parseCoord(start);
 		this.end = CoordinateParser.parseCoord(end);
+		this.startCell = start.clone();
+		this.endCell = end.clone();
+		this.code = PlyCode.encode(start, end, piece.getType(), 0);
 		
 	}
 	
@@ -99,6 +113,31 @@ public class Coronation extends Ply {
 	public Iterator<Action> iterator() {
 		return new ArrayList<Action>(list).iterator();
 	}
+	
+	/**
+	 * Returns the coordinates of the starting cell of this 
+	 * <code>Coronation</code>.
+	 */
+	public int[] getStart() {
+		return startCell.clone();
+	}
+	
+	/**
+	 * Returns the coordinates of the ending cell of this 
+	 * <code>Coronation</code>.
+	 */
+	public int[] getEnd() {
+		return endCell.clone();
+	}
+
+	/**
+	 * Specified by Ply. 
+	 * 
+	 * @see ruleset.ply.PlyCode
+	 */
+	public int getCode() {
+		return code;
+	}
 
 	/** 
 	 * Returns a <code>String</code> representation of the
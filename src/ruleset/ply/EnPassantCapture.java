@@ -50,6 +50,17 @@ public class EnPassantCapture extends Ply {
 	 */
 	private String end;
 	
+	/**
+	 * The coordinates of the starting and ending cells of this
+	 * <code>Ply</code>.
+	 */
+	private int[] startCell, endCell;
+	
+	/**
+	 * The code of this <code>Ply</code>.
+	 */
+	private int code;
+	
 	// Do AF, RI, and checkRep()
 	
 	/**
@@ -94,6 +105,9 @@ public class EnPassantCapture extends Ply {
 		
 		this.start = CoordinateParser.parseCoord(start);
 		this.end = CoordinateParser.parseCoord(end);
+		this.startCell = start.clone();
+		this.endCell = end.clone();
+		this.code = PlyCode.encode(start, end, null, PlyCode.EN_PASSANT);
 		
 	}
 	
@@ -104,6 +118,31 @@ public class EnPassantCapture extends Ply {
 	public Iterator<Action> iterator() {
 		return new ArrayList<Action>(list).iterator();
 	}
+	
+	/**
+	 * Specified by Ply. 
+	 * 
+	 * @see ruleset.ply.PlyCode
+	 */
+	public int getCode() {
+		return code;
+	}
+	
+	/**
+	 * Returns the coordinates of the starting cell of this 
+	 * <code>EnPassantCapture</code>.
+	 */
+	public int[] getStart() {
+		return startCell.clone();
+	}
+	
+	/**
+	 * Returns the coordinates of the ending cell of this 
+	 * <code>EnPassantCapture</code>.
+	 */
+	public int[] getEnd() {
+		return endCell.clone();
+	}
 
 	/**
 	 * Returns a <code>String</code> representation of the
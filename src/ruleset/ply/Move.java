@@ -49,6 +49,17 @@ public class Move extends Ply {
 	 */
 	private String end;
 	
+	/**
+	 * The coordinates of the starting and ending cells of this
+	 * <code>Ply</code>.
+	 */
+	private int[] startCell, endCell;
+	
+	/**
+	 * The code of this <code>Ply</code>.
+	 */
+	private int code;
+	
 	// Do AF, RI, and checkRep()
 	
 	/**
@@ -89,6 +100,9 @@ public class Move extends Ply {
 
 		this.start = CoordinateParser.parseCoord(start);
 		this.end = CoordinateParser.parseCoord(end);
+		this.startCell = start.clone();
+		this.endCell = end.clone();
+		this.code = PlyCode.encode(start, end, null, 0);
 
 	}
 	
@@ -99,6 +113,31 @@ public class Move extends Ply {
 	public Iterator<Action> iterator() {
 		return new ArrayList<Action>(list).iterator();
 	}
+	
+	/**
+	 * Returns the coordinates of the starting cell of this 
+	 * <code>Move</code>.
+	 */
+	public int[] getStart() {
+		return startCell.clone();
+	}
+	
+	/**
+	 * Returns the coordinates of the ending cell of this 
+	 * <code>Move</code>.
+	 */
+	public int[] getEnd() {
+		return endCell.clone();
+	}
+
+	/**
+	 * Specified by Ply. 
+	 * 
+	 * @see ruleset.ply.PlyCode
+	 */
+	public int getCode() {
+		return code;
+	}
 
 	/** 
 	 * Returns a <code>String</code> representation of the <code>Move</code>.
@@ -0,0 +1,261 @@
+package ruleset.ply;
+
+import ruleset.board.CoordinateParser;
+import engine.adt.MoveList;
+import engine.adt.Ply;
+
+/**
+ * <code>PlyCode</code> encodes the plies of this package as <code>int</code>s,
+ * so that they can be told apart, stored and compared without creating
+ * <code>String</code>s. The code of a ply is returned by
+ * <code>Ply.getCode()</code>, and a ply is created from a code by
+ * <code>RuleSet.PlyFactory.getPly(int, Board)</code>.
+ *
+ * A code packs these fields, from the lowest bit up:
+ *
+ * <ul>
+ * <li>bits 0-7: the starting cell (x,y), as <tt>x | y &lt;&lt; 4</tt>; the
+ * 		cell of an <code>Add</code>.</li>
+ * <li>bits 8-15: the ending cell, likewise.</li>
+ * <li>bit 16 (<code>WHITE</code>): set if an <code>Add</code> places a
+ * 		white piece.</li>
+ * <li>bits 17-19: the type of the piece a pawn is promoted to, as an
+ * 		index into <code>PROMOTIONS</code> plus one, or 0.</li>
+ * <li>bits 20-22: flags telling an <code>EnPassantCapture</code>, a
+ * 		<code>Castle</code> or an <code>Add</code> apart from a
+ * 		<code>Move</code>.</li>
+ * </ul>
+ *
+ * The bits in <code>NOTATION</code> are the ones the <code>String</code>
+ * representation of a ply determines: two plies of the same position have
+ * the same code if and only if they have the same <code>String</code>
+ * representation. The other bits describe what the ply does, which the
+ * <code>String</code> representation leaves to the position.
+ *
+ * Cells must have coordinates below 16; plies with other cells have code
+ * <code>Ply.NO_CODE</code>.
+ */
+public final class PlyCode {
+
+	/**
+	 * Set in the codes of <code>Add</code>s of white pieces.
+	 */
+	public static final int WHITE = 1 << 16;
+
+	/**
+	 * Flags of the kinds of ply other than <code>Move</code> and
+	 * <code>Coronation</code>.
+	 */
+	public static final int EN_PASSANT = 1 << 20;
+	public static final int CASTLE = 1 << 21;
+	public static final int ADD = 1 << 22;
+
+	/**
+	 * The bits determined by the <code>String</code> representation of a
+	 * ply.
+	 */
+	public static final int NOTATION = 0xFFFF | WHITE | ADD;
+
+	/**
+	 * The types of piece a pawn may be promoted to, in the order of their
+	 * codes.
+	 */
+	private static final String[] PROMOTIONS =
+		{"queen", "rook", "bishop", "knight", "king"};
+
+	private static final int CELL_BITS = 8;
+	private static final int COORD_LIMIT = 16;
+	private static final int PROMOTION_SHIFT = 17;
+	private static final int PROMOTION_MASK = 7 << PROMOTION_SHIFT;
+
+	private PlyCode() {
+		// no instances
+	}
+
+	/**
+	 * Returns the code of a ply from <code>start</code> to <code>end</code>.
+	 *
+	 * @param promotion the type of the piece a pawn is promoted to, or
+	 * 			<code>null</code>
+	 * @param flags <code>EN_PASSANT</code>, <code>CASTLE</code>,
+	 * 			<code>ADD</code> and/or <code>WHITE</code>, or 0
+	 * @return the code, or <code>Ply.NO_CODE</code> if a coordinate of the
+	 * 			cells is 16 or more
+	 * @throws IllegalArgumentException if <code>promotion</code> is not
+	 * 			<code>null</code> or the type of a piece pawns are promoted
+	 * 			to
+	 */
+	public static int encode(int[] start, int[] end, String promotion,
+			int flags) {
+		int from = cell(start);
+		int to = cell(end);
+		if (from < 0 || to < 0)
+			return Ply.NO_CODE;
+		int code = from | to << CELL_BITS | flags;
+		if (promotion != null)
+			code |= promotionBits(promotion);
+		return code;
+	}
+
+	/**
+	 * Same as <code>encode(int[], int[], String, int)</code>, but with the
+	 * cells given as the indices <tt>x + 8*y</tt> of the cells of an 8x8
+	 * board (as in the masks of <code>BitBoard</code>). No objects are
+	 * created.
+	 *
+	 * @requires <code>0 &lt;= startSquare, endSquare &lt; 64</code>
+	 */
+	public static int encode(int startSquare, int endSquare, String promotion,
+			int flags) {
+		int code = square(startSquare) | square(endSquare) << CELL_BITS | flags;
+		if (promotion != null)
+			code |= promotionBits(promotion);
+		return code;
+	}
+
+	/**
+	 * Appends to <code>moves</code> the codes of the plies from
+	 * <code>startSquare</code> to each of the cells in <code>ends</code>,
+	 * with the given flags. Cells are given as in
+	 * <code>encode(int, int, String, int)</code>, and <code>ends</code> as a
+	 * mask like those of <code>BitBoard</code>.
+	 *
+	 * @modifies moves
+	 */
+	public static void encodeAll(MoveList moves, int startSquare, long ends,
+			int flags) {
+		int start = square(startSquare) | flags;
+		for (; ends != 0; ends &= ends - 1)
+			moves.add(start
+					| square(Long.numberOfTrailingZeros(ends)) << CELL_BITS);
+	}
+
+	/**
+	 * Returns the index <tt>x + 8*y</tt> of the starting cell (x,y) of the
+	 * ply of <code>code</code>.
+	 *
+	 * @requires the cell to be within an 8x8 board
+	 */
+	public static int getStartSquare(int code) {
+		return (code & 0x7) | (code & 0x70) >>> 1;
+	}
+
+	/**
+	 * Returns the index <tt>x + 8*y</tt> of the ending cell (x,y) of the
+	 * ply of <code>code</code>.
+	 *
+	 * @requires the cell to be within an 8x8 board
+	 */
+	public static int getEndSquare(int code) {
+		return getStartSquare(code >>> CELL_BITS);
+	}
+
+	/**
+	 * Returns the coordinates of the starting cell of the ply of
+	 * <code>code</code>, or of the cell of an <code>Add</code>.
+	 */
+	public static int[] getStart(int code) {
+		return coordinates(code);
+	}
+
+	/**
+	 * Returns the coordinates of the ending cell of the ply of
+	 * <code>code</code>.
+	 */
+	public static int[] getEnd(int code) {
+		return coordinates(code >>> CELL_BITS);
+	}
+
+	/**
+	 * Returns the type of the piece the ply of <code>code</code> promotes a
+	 * pawn to, or <code>null</code> if it does not.
+	 */
+	public static String getPromotion(int code) {
+		int i = (code & PROMOTION_MASK) >>> PROMOTION_SHIFT;
+		return i == 0 ? null : PROMOTIONS[i - 1];
+	}
+
+	/**
+	 * Returns <code>true</code> if <code>flag</code> is set in
+	 * <code>code</code>.
+	 */
+	public static boolean is(int code, int flag) {
+		return (code & flag) != 0;
+	}
+
+	/**
+	 * Returns the <code>String</code> representation of the ply of
+	 * <code>code</code>, as returned by its <code>toString</code> method:
+	 * "start-end" in the notation of <code>CoordinateParser</code>, or
+	 * "t+cell" or "f+cell" for an <code>Add</code>.
+	 *
+	 * @requires <code>code != Ply.NO_CODE</code>
+	 */
+	public static String toString(int code) {
+		if (is(code, ADD))
+			return (is(code, WHITE) ? "t" : "f") + "+"
+				+ CoordinateParser.parseCoord(getStart(code));
+		return CoordinateParser.parseCoord(getStart(code)) + "-"
+			+ CoordinateParser.parseCoord(getEnd(code));
+	}
+
+	/**
+	 * Returns the bits of the code of the plies whose <code>String</code>
+	 * representation is <code>name</code>; that is, the code of such a ply
+	 * masked with <code>NOTATION</code>.
+	 *
+	 * @return the bits, or <code>Ply.NO_CODE</code> if a coordinate of the
+	 * 			cells is 16 or more
+	 * @throws IllegalArgumentException if <code>name</code> is incorrectly
+	 * 			formatted
+	 */
+	public static int parse(String name) {
+		String[] add = name.split("\\+");
+		if (add.length == 2) {
+			int[] cell = CoordinateParser.parseString(add[1]);
+			int color = add[0].equals("t") ? WHITE : 0;
+			return encode(cell, cell, null, ADD | color);
+		}
+		return encode(CoordinateParser.getCell(name, true),
+				CoordinateParser.getCell(name, false), null, 0);
+	}
+
+	/**
+	 * Returns the bits of a code for a promotion to <code>type</code>.
+	 *
+	 * @throws IllegalArgumentException if pawns are not promoted to
+	 * 			<code>type</code>
+	 */
+	private static int promotionBits(String type) {
+		for (int i = 0; i < PROMOTIONS.length; i++)
+			if (PROMOTIONS[i].equals(type))
+				return (i + 1) << PROMOTION_SHIFT;
+		throw new IllegalArgumentException("Cannot promote to " + type);
+	}
+
+	/**
+	 * Returns the 8 bits for the cell with index <code>sq</code> of an 8x8
+	 * board.
+	 */
+	private static int square(int sq) {
+		return (sq & 7) | (sq >>> 3) << 4;
+	}
+
+	/**
+	 * Returns the 8 bits for cell <code>c</code>, or -1 if it does not fit
+	 * in them.
+	 */
+	private static int cell(int[] c) {
+		if (c[0] >= COORD_LIMIT || c[1] >= COORD_LIMIT)
+			return -1;
+		return c[0] | c[1] << 4;
+	}
+
+	/**
+	 * Returns the coordinates of the cell in the lowest 8 bits of
+	 * <code>bits</code>.
+	 */
+	private static int[] coordinates(int bits) {
+		return new int[] {bits & 0xF, (bits >>> 4) & 0xF};
+	}
+}
@@ -0,0 +1,100 @@
+package ruleset.ply.test;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.Set;
+
+import ruleset.antichess.EnCastleAC;
+import ruleset.board.RectangularBoard;
+import ruleset.connectn.ConnectNRuleSet;
+import ruleset.ply.Add;
+import ruleset.ply.Castle;
+import ruleset.ply.Coronation;
+import ruleset.ply.EnPassantCapture;
+import ruleset.ply.Move;
+import ruleset.ply.PlyCode;
+import engine.adt.Board;
+import engine.adt.Ply;
+import engine.adt.RuleSet;
+import engine.game.GameMessage;
+import engine.game.GameTermination;
+import junit.framework.TestCase;
+
+/**
+ * Unit tests for the class PlyCode, and the codes of the plies.
+ */
+public class PlyCodeTest extends TestCase {
+
+	/**
+	 * Each kind of ply encodes its cells and what it does, and its code
+	 * gives back its String representation.
+	 */
+	public void testEncode() {
+		RuleSet rs = new EnCastleAC();
+		Board board = new RectangularBoard(8, 8);
+		Ply move = new Move(new int[] {4, 1}, new int[] {4, 3});
+		Ply coronation = new Coronation(new int[] {0, 6}, new int[] {0, 7},
+				rs.pieceFactory().getPiece("queen", board, true));
+		Ply enPassant = new EnPassantCapture(new int[] {3, 4},
+				new int[] {4, 5});
+		Ply castle = new Castle(new int[] {4, 0}, new int[] {6, 0});
+		RuleSet connectN = new ConnectNRuleSet();
+		Ply add = new Add(new int[] {2, 0}, connectN.pieceFactory().getPiece(
+				"chip", connectN.boardFactory().getBlankBoard(), true));
+
+		Ply[] plies = {move, coronation, enPassant, castle, add};
+		Set<Integer> codes = new HashSet<Integer>();
+		for (Ply ply : plies) {
+			int code = ply.getCode();
+			assertTrue(code != Ply.NO_CODE);
+			assertTrue("Duplicate code for " + ply, codes.add(code));
+			assertEquals(ply.toString(), PlyCode.toString(code));
+			assertEquals(code & PlyCode.NOTATION, PlyCode.parse(ply.toString()));
+		}
+
+		assertEquals(4, PlyCode.getStart(move.getCode())[0]);
+		assertEquals(3, PlyCode.getEnd(move.getCode())[1]);
+		assertNull(PlyCode.getPromotion(move.getCode()));
+		assertEquals("queen", PlyCode.getPromotion(coronation.getCode()));
+		assertTrue(PlyCode.is(enPassant.getCode(), PlyCode.EN_PASSANT));
+		assertTrue(PlyCode.is(castle.getCode(), PlyCode.CASTLE));
+		assertFalse(PlyCode.is(castle.getCode(), PlyCode.EN_PASSANT));
+		assertTrue(PlyCode.is(add.getCode(), PlyCode.ADD));
+		assertTrue(PlyCode.is(add.getCode(), PlyCode.WHITE));
+		assertEquals("t+c1", PlyCode.toString(add.getCode()));
+	}
+
+	/**
+	 * Cells that do not fit in a code give plies no code.
+	 */
+	public void testNoCode() {
+		assertEquals(Ply.NO_CODE,
+				new Move(new int[] {16, 0}, new int[] {0, 0}).getCode());
+		assertEquals(Ply.NO_CODE,
+				PlyCode.encode(new int[] {0, 3}, new int[] {2, 16}, null, 0));
+	}
+
+	/**
+	 * The plies of a position have different codes, and the plies created
+	 * back from them are the same.
+	 */
+	public void testPlyFactory() throws GameTermination {
+		RuleSet rs = new EnCastleAC();
+		Board board = rs.boardFactory().getInitialBoard();
+		Set<Integer> codes = new HashSet<Integer>();
+		for (Ply ply : rs.continueGame(board, new ArrayList<Boolean>(),
+				new ArrayList<GameMessage>()).getPlies()) {
+			assertTrue("Duplicate code for " + ply, codes.add(ply.getCode()));
+			Ply decoded = rs.plyFactory().getPly(ply.getCode(), board);
+			assertTrue(ply.similar(decoded));
+			assertEquals(ply.getCode(), decoded.getCode());
+		}
+		assertEquals(20, codes.size());
+
+		RuleSet connectN = new ConnectNRuleSet();
+		Board blank = connectN.boardFactory().getBlankBoard();
+		Ply add = connectN.plyFactory().getPly("f+d1", blank);
+		assertEquals(add.toString(),
+				connectN.plyFactory().getPly(add.getCode(), blank).toString());
+	}
+}
@@ -1,9 +1,11 @@
 package ruleset.test;
 
 import ruleset.antichess.test.StandardACTest;
+import ruleset.board.test.BitBoardTest;
 import ruleset.board.test.CoordinateParserTest;
 import ruleset.board.test.RectangularBoardTest;
 import ruleset.piece.test.PieceTests;
+import ruleset.ply.test.PlyCodeTest;
 import junit.framework.Test;
 import junit.framework.TestSuite;
 
@@ -19,6 +21,8 @@ public class RuleSetTests {
 		suite.addTest(PieceTests.suite());
 		suite.addTestSuite(CoordinateParserTest.class);
 		suite.addTestSuite(RectangularBoardTest.class);
+		suite.addTestSuite(BitBoardTest.class);
+		suite.addTestSuite(PlyCodeTest.class);
 		suite.addTestSuite(StandardACTest.class);
 
 		return suite; 